@@ -0,0 +1,33 @@
+package com.morphtesser.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * 形态分析共用的并行线程池
+ * Sholl分析、形态学统计、空间索引、相似度、NBLAST、接触点检测与JVM内建模都在同一个池中并行，
+ * 总线程数固定，多种任务同时运行时不会各自按CPU核数开线程而争抢CPU
+ */
+@Configuration
+public class AnalysisExecutorConfig {
+
+    public static final String ANALYSIS_POOL = "analysisPool";
+
+    // 并行线程数，0 表示CPU核数
+    @Value("${analysis.parallelism:0}")
+    private int parallelism;
+
+    @Bean(name = ANALYSIS_POOL, destroyMethod = "shutdownNow")
+    public ForkJoinPool analysisPool() {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        return new ForkJoinPool(threads, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("analysis-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+}
@@ -2,14 +2,30 @@ package com.morphtesser.controller;
 
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.UrlResource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import com.morphtesser.security.JwtUtils;
+import com.morphtesser.service.BatchModelingService;
+import com.morphtesser.service.ContactService;
+import com.morphtesser.service.DatasetFileService;
+import com.morphtesser.service.DatasetSpatialService;
+import com.morphtesser.service.NblastService;
+import com.morphtesser.service.ShollService;
+import com.morphtesser.service.SimilarityService;
+import com.morphtesser.service.SpatialIndexService;
+import com.morphtesser.service.SwcCodecService;
+import com.morphtesser.service.SwcLodService;
+import com.morphtesser.swc.SwcProgressiveStream;
 import jakarta.servlet.http.HttpServletRequest;
 
 import java.io.File;
@@ -34,6 +50,39 @@ public class DatasetController {
     @Value("${dataset.public.base-dir:/app/data/public-datasets/}")
     private String datasetsDir;
 
+    @Autowired
+    private DatasetFileService datasetFileService;
+
+    @Autowired
+    private ShollService shollService;
+
+    @Autowired
+    private SpatialIndexService spatialIndexService;
+
+    @Autowired
+    private DatasetSpatialService datasetSpatialService;
+
+    @Autowired
+    private SimilarityService similarityService;
+
+    @Autowired
+    private NblastService nblastService;
+
+    @Autowired
+    private ContactService contactService;
+
+    @Autowired
+    private SwcCodecService swcCodecService;
+
+    @Autowired
+    private SwcLodService swcLodService;
+
+    @Autowired
+    private BatchModelingService batchModelingService;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
     @Value("${dataset.index.cache-dir:/app/cache/swc-index/}")
     private String staticIndexDir;
 
@@ -424,16 +473,30 @@ public class DatasetController {
     }
 
     @GetMapping("/{datasetId}/swc/{modelId}/{filename}")
-    public ResponseEntity<Resource> getSwcFile(@PathVariable String datasetId, @PathVariable String modelId, @PathVariable String filename) {
+    public ResponseEntity<Resource> getSwcFile(@PathVariable String datasetId, @PathVariable String modelId, @PathVariable String filename,
+                                               @RequestParam(value = "lod", required = false) Double lod,
+                                               @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
         try {
             File swcFile = resolveDatasetPath(datasetId, "results", modelId, filename);
             if (!swcFile.exists() || !swcFile.isFile()) {
                 return ResponseEntity.notFound().build();
             }
-            
-            Resource resource = new UrlResource(swcFile.toURI());
+            // lod 为简化误差容限（微米），不传时返回原始骨架
+            Path swcPath = swcLodService.getOrCreateLod(swcFile.toPath(), lod);
+
+            // Accept: application/x-swc-binary 时返回SWB二进制格式
+            if (swcCodecService.acceptsBinary(accept)) {
+                return ResponseEntity.ok()
+                        .contentType(MediaType.parseMediaType(SwcCodecService.MEDIA_TYPE))
+                        .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                        .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filename + ".swb\"")
+                        .body(new FileSystemResource(swcCodecService.getOrCreateBinary(swcPath)));
+            }
+
+            Resource resource = new FileSystemResource(swcPath);
             return ResponseEntity.ok()
                     .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
                     .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filename + "\"")
                     .body(resource);
                     
@@ -443,6 +506,32 @@ public class DatasetController {
         }
     }
 
+    /**
+     * SWC渐进传输：先发送分支节点骨架，再按离根由近到远补全细节；
+     * 默认NDJSON，Accept: application/x-swc-stream 时返回二进制帧
+     */
+    @GetMapping("/{datasetId}/swc/{modelId}/{filename}/stream")
+    public ResponseEntity<?> streamSwcFile(@PathVariable String datasetId, @PathVariable String modelId, @PathVariable String filename,
+                                           @RequestParam(value = "lod", required = false) Double lod,
+                                           @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        try {
+            File swcFile = resolveDatasetPath(datasetId, "results", modelId, filename);
+            if (!swcFile.exists() || !swcFile.isFile()) {
+                return ResponseEntity.notFound().build();
+            }
+            SwcProgressiveStream stream = swcCodecService.openProgressive(swcLodService.getOrCreateLod(swcFile.toPath(), lod));
+            boolean binary = swcCodecService.acceptsStreamBinary(accept);
+            StreamingResponseBody body = binary ? stream::writeBinary : stream::writeNdjson;
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(binary ? SwcCodecService.STREAM_MEDIA_TYPE : SwcCodecService.NDJSON_MEDIA_TYPE))
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                    .body(body);
+        } catch (Exception e) {
+            logger.error("Error streaming SWC file: {}/{}/{}", datasetId, modelId, filename, e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
     @GetMapping("/{datasetId}/drc/{modelId}/{filename}")
     public ResponseEntity<Resource> getDrcFile(@PathVariable String datasetId, @PathVariable String modelId, @PathVariable String filename) {
         try {
@@ -606,6 +695,337 @@ public class DatasetController {
         }
     }
 
+    /**
+     * 数据集的Sholl曲线：所有神经元并行计算，返回平均与最大交点数，neurons=true 时附带每个神经元的曲线
+     */
+    @GetMapping("/{datasetId}/sholl")
+    public ResponseEntity<Map<String, Object>> getDatasetSholl(
+            @PathVariable String datasetId,
+            @RequestParam(value = "start", required = false, defaultValue = "0") double start,
+            @RequestParam(value = "step", required = false) Double step,
+            @RequestParam(value = "end", required = false) Double end,
+            @RequestParam(value = "neurons", required = false, defaultValue = "false") boolean includeNeurons) {
+        try {
+            Map<String, Object> result = shollService.datasetProfile(datasetId, start, step, end, includeNeurons);
+            return result != null ? ResponseEntity.ok(result) : ResponseEntity.notFound().build();
+        } catch (Exception e) {
+            logger.error("Error computing Sholl profile for dataset: {}", datasetId, e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * 数据集中单个神经元的Sholl曲线
+     */
+    @GetMapping("/{datasetId}/sholl/{modelId}")
+    public ResponseEntity<Map<String, Object>> getDatasetModelSholl(
+            @PathVariable String datasetId,
+            @PathVariable String modelId,
+            @RequestParam(value = "start", required = false, defaultValue = "0") double start,
+            @RequestParam(value = "step", required = false) Double step,
+            @RequestParam(value = "end", required = false) Double end) {
+        try {
+            Path swc = datasetFileService.resolveSwc(datasetId, modelId);
+            if (swc == null) {
+                return ResponseEntity.notFound().build();
+            }
+            Map<String, Object> result = shollService.profile(swc, start, step, end).toMap();
+            result.put("modelId", modelId);
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            logger.error("Error computing Sholl profile: {}/{}", datasetId, modelId, e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * 数据集中轴线穿过长方体（minX..maxZ）或球（x, y, z, radius）的神经元及其在区域内的轴线长度
+     */
+    @GetMapping("/{datasetId}/spatial/region")
+    public ResponseEntity<Map<String, Object>> searchSpatialRegion(
+            @PathVariable String datasetId,
+            @RequestParam(value = "minX", required = false) Double minX,
+            @RequestParam(value = "minY", required = false) Double minY,
+            @RequestParam(value = "minZ", required = false) Double minZ,
+            @RequestParam(value = "maxX", required = false) Double maxX,
+            @RequestParam(value = "maxY", required = false) Double maxY,
+            @RequestParam(value = "maxZ", required = false) Double maxZ,
+            @RequestParam(value = "x", required = false) Double x,
+            @RequestParam(value = "y", required = false) Double y,
+            @RequestParam(value = "z", required = false) Double z,
+            @RequestParam(value = "radius", required = false) Double radius,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        try {
+            Map<String, Object> result;
+            if (x != null && y != null && z != null && radius != null) {
+                result = datasetSpatialService.querySphere(datasetId, new double[]{x, y, z}, radius, limit);
+            } else if (minX != null && minY != null && minZ != null && maxX != null && maxY != null && maxZ != null) {
+                result = datasetSpatialService.queryBox(datasetId, new double[]{minX, minY, minZ, maxX, maxY, maxZ}, limit);
+            } else {
+                return ResponseEntity.badRequest().build();
+            }
+            if (result == null) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            logger.error("Error in dataset spatial search: {}", datasetId, e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * 数据集中单个神经元离点最近的骨架段
+     */
+    @GetMapping("/{datasetId}/spatial/{modelId}/nearest")
+    public ResponseEntity<Map<String, Object>> getSpatialNearest(
+            @PathVariable String datasetId,
+            @PathVariable String modelId,
+            @RequestParam("x") double x,
+            @RequestParam("y") double y,
+            @RequestParam("z") double z,
+            @RequestParam(value = "maxDistance", required = false) Double maxDistance) {
+        try {
+            Path swc = datasetFileService.resolveSwc(datasetId, modelId);
+            if (swc == null) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok(spatialIndexService.nearest(swc, x, y, z, maxDistance));
+        } catch (Exception e) {
+            logger.error("Error in spatial query: {}/{}", datasetId, modelId, e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * 数据集中单个神经元的射线拾取
+     */
+    @GetMapping("/{datasetId}/spatial/{modelId}/ray")
+    public ResponseEntity<Map<String, Object>> getSpatialRay(
+            @PathVariable String datasetId,
+            @PathVariable String modelId,
+            @RequestParam("ox") double ox,
+            @RequestParam("oy") double oy,
+            @RequestParam("oz") double oz,
+            @RequestParam("dx") double dx,
+            @RequestParam("dy") double dy,
+            @RequestParam("dz") double dz,
+            @RequestParam(value = "maxDistance", required = false) Double maxDistance) {
+        try {
+            Path swc = datasetFileService.resolveSwc(datasetId, modelId);
+            if (swc == null) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok(spatialIndexService.raycast(swc, new double[]{ox, oy, oz}, new double[]{dx, dy, dz}, maxDistance));
+        } catch (Exception e) {
+            logger.error("Error in spatial query: {}/{}", datasetId, modelId, e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * 数据集中单个神经元在长方体（minX..maxZ）或球（x, y, z, radius）内的骨架段与轴线长度
+     */
+    @GetMapping("/{datasetId}/spatial/{modelId}/region")
+    public ResponseEntity<Map<String, Object>> getSpatialRegion(
+            @PathVariable String datasetId,
+            @PathVariable String modelId,
+            @RequestParam(value = "minX", required = false) Double minX,
+            @RequestParam(value = "minY", required = false) Double minY,
+            @RequestParam(value = "minZ", required = false) Double minZ,
+            @RequestParam(value = "maxX", required = false) Double maxX,
+            @RequestParam(value = "maxY", required = false) Double maxY,
+            @RequestParam(value = "maxZ", required = false) Double maxZ,
+            @RequestParam(value = "x", required = false) Double x,
+            @RequestParam(value = "y", required = false) Double y,
+            @RequestParam(value = "z", required = false) Double z,
+            @RequestParam(value = "radius", required = false) Double radius,
+            @RequestParam(value = "nodes", required = false, defaultValue = "false") boolean includeNodes) {
+        try {
+            Path swc = datasetFileService.resolveSwc(datasetId, modelId);
+            if (swc == null) {
+                return ResponseEntity.notFound().build();
+            }
+            if (x != null && y != null && z != null && radius != null) {
+                return ResponseEntity.ok(spatialIndexService.querySphere(swc, new double[]{x, y, z}, radius, includeNodes));
+            }
+            if (minX != null && minY != null && minZ != null && maxX != null && maxY != null && maxZ != null) {
+                return ResponseEntity.ok(spatialIndexService.queryBox(swc, new double[]{minX, minY, minZ, maxX, maxY, maxZ}, includeNodes));
+            }
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            logger.error("Error in spatial query: {}/{}", datasetId, modelId, e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * 神经元之间的潜在接触点（A 的轴突与 B 的树突表面距离不超过 distance 微米），以NDJSON逐行返回；
+     * 神经元由 ids（逗号分隔，ID较多时可用表单 POST）和/或区域 minX..maxZ 选择，给出区域时只返回区域内的接触点；
+     * 与 NBLAST 一样占用分析线程池，只允许管理员调用
+     */
+    @RequestMapping(value = "/{datasetId}/contacts", method = {RequestMethod.GET, RequestMethod.POST})
+    public ResponseEntity<?> findContacts(
+            @PathVariable String datasetId,
+            @RequestParam(value = "ids", required = false) List<String> ids,
+            @RequestParam(value = "minX", required = false) Double minX,
+            @RequestParam(value = "minY", required = false) Double minY,
+            @RequestParam(value = "minZ", required = false) Double minZ,
+            @RequestParam(value = "maxX", required = false) Double maxX,
+            @RequestParam(value = "maxY", required = false) Double maxY,
+            @RequestParam(value = "maxZ", required = false) Double maxZ,
+            @RequestParam(value = "distance", required = false, defaultValue = "2") double distance,
+            @RequestHeader(value = "Authorization", required = false) String token) {
+        ResponseEntity<Map<String, Object>> denied = requireAdmin(token);
+        if (denied != null) {
+            return denied;
+        }
+        try {
+            double[] box = minX != null && minY != null && minZ != null && maxX != null && maxY != null && maxZ != null
+                    ? new double[]{minX, minY, minZ, maxX, maxY, maxZ} : null;
+            List<String> neurons = contactService.selectNeurons(datasetId, ids, box, distance);
+            if (neurons == null) {
+                return ResponseEntity.notFound().build();
+            }
+            StreamingResponseBody body = out -> contactService.writeContacts(datasetId, neurons, distance, box, out);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(SwcCodecService.NDJSON_MEDIA_TYPE))
+                    .body(body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Error finding contacts: {}", datasetId, e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * 数据集内形态最相似的神经元；特征尚未计算完成时返回 202 与批量任务进度
+     */
+    @GetMapping("/{datasetId}/similar/{modelId}")
+    public ResponseEntity<Map<String, Object>> getSimilarNeurons(
+            @PathVariable String datasetId,
+            @PathVariable String modelId,
+            @RequestParam(value = "k", required = false, defaultValue = "10") int k) {
+        try {
+            Map<String, Object> result = similarityService.similar(datasetId, modelId, k);
+            if (result == null) {
+                return ResponseEntity.notFound().build();
+            }
+            if (!"ready".equals(result.get("status"))) {
+                return ResponseEntity.status(HttpStatus.ACCEPTED).body(result);
+            }
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            logger.error("Error in similarity search: {}/{}", datasetId, modelId, e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * 数据集形态特征矩阵与批量计算任务的状态
+     */
+    @GetMapping("/{datasetId}/features")
+    public ResponseEntity<Map<String, Object>> getFeatureStatus(@PathVariable String datasetId) {
+        try {
+            Map<String, Object> result = similarityService.status(datasetId);
+            if (result == null) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            logger.error("Error getting feature status: {}", datasetId, e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * 启动（或从断点继续）数据集全体神经元两两之间的 NBLAST 相似度矩阵计算，返回任务状态
+     */
+    @PostMapping("/{datasetId}/nblast")
+    public ResponseEntity<Map<String, Object>> startNblast(
+            @PathVariable String datasetId,
+            @RequestHeader(value = "Authorization", required = false) String token) {
+        ResponseEntity<Map<String, Object>> denied = requireAdmin(token);
+        if (denied != null) {
+            return denied;
+        }
+        try {
+            Map<String, Object> result = nblastService.start(datasetId);
+            if (result == null) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(result);
+        } catch (Exception e) {
+            logger.error("Error starting NBLAST: {}", datasetId, e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * 占用整个分析线程池的数据集级计算只允许管理员启动（公共数据集没有所有者记录）；允许时返回null
+     */
+    private ResponseEntity<Map<String, Object>> requireAdmin(String token) {
+        String username = getUsernameFromToken(token);
+        if (username == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("message", "需要登录"));
+        }
+        if (!batchModelingService.isAdmin(username)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("message", "仅管理员可以启动该计算"));
+        }
+        return null;
+    }
+
+    private String getUsernameFromToken(String token) {
+        if (token == null) {
+            return null;
+        }
+        if (token.startsWith("Bearer ")) {
+            token = token.substring(7);
+        }
+        return jwtUtils.validateJwtToken(token) ? jwtUtils.getUserNameFromJwtToken(token) : null;
+    }
+
+    /**
+     * NBLAST 矩阵计算进度：已完成块数、每秒神经元对数、预计剩余秒数
+     */
+    @GetMapping("/{datasetId}/nblast")
+    public ResponseEntity<Map<String, Object>> getNblastStatus(@PathVariable String datasetId) {
+        try {
+            Map<String, Object> result = nblastService.status(datasetId);
+            if (result == null) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            logger.error("Error getting NBLAST status: {}", datasetId, e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * 下载计算完成的 NBLAST 矩阵（格式见 docs/SWC_CODEC.md），未完成时返回 409
+     */
+    @GetMapping("/{datasetId}/nblast/matrix")
+    public ResponseEntity<Resource> downloadNblastMatrix(@PathVariable String datasetId) {
+        try {
+            Path matrix = nblastService.getMatrix(datasetId);
+            if (matrix == null) {
+                return nblastService.status(datasetId) == null
+                        ? ResponseEntity.notFound().build()
+                        : ResponseEntity.status(HttpStatus.CONFLICT).build();
+            }
+            Resource resource = new UrlResource(matrix.toUri());
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + datasetId + ".nbm\"")
+                    .body(resource);
+        } catch (Exception e) {
+            logger.error("Error downloading NBLAST matrix: {}", datasetId, e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
     @GetMapping("/{datasetId}/download")
     public ResponseEntity<Resource> downloadDataset(@PathVariable String datasetId) {
         try {
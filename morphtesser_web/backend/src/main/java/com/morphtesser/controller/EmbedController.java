@@ -14,7 +14,17 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.client.RestTemplate;
 
+import com.morphtesser.service.MeshCodecService;
+import com.morphtesser.service.MeshLodService;
 import com.morphtesser.service.SmbFileService;
+import com.morphtesser.util.FileCacheUtils;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 
 @RestController
 @RequestMapping("/api/embed")
@@ -23,9 +33,19 @@ public class EmbedController {
     @Value("${dataset.neuromorpho.remote-base:http://localhost:5000/shared/morphtesser_exp/neuromorpho}")
     private String defaultRemoteBase;
 
+    // base 参数允许的额外主机（逗号分隔），defaultRemoteBase 的主机总是允许
+    @Value("${embed.allowed-hosts:}")
+    private String allowedHosts;
+
     @Autowired
     private SmbFileService smbFileService;
 
+    @Autowired
+    private MeshCodecService meshCodecService;
+
+    @Autowired
+    private MeshLodService meshLodService;
+
     private String buildRemoteUrl(String base, String id, String quality, String format) {
         // 将ID转换为数字，然后格式化为6位数字（不足6位前面补0）
         int idNum;
@@ -79,14 +99,123 @@ public class EmbedController {
         return String.format("%s/results/%s/%s.swc/%s", cleanBase, group, id, fileName);
     }
 
+    /**
+     * base 须为不带查询参数的 http(s) 地址，且主机为 defaultRemoteBase 的主机或在 embed.allowed-hosts 中
+     */
+    private boolean isAllowedBase(String base) {
+        try {
+            URI uri = new URI(base);
+            String scheme = uri.getScheme();
+            String host = uri.getHost();
+            if (host == null || uri.getRawQuery() != null || uri.getRawFragment() != null
+                    || !("http".equalsIgnoreCase(scheme) || "https".equalsIgnoreCase(scheme))) {
+                return false;
+            }
+            if (host.equalsIgnoreCase(new URI(defaultRemoteBase).getHost())) {
+                return true;
+            }
+            return Arrays.stream(allowedHosts.split(","))
+                    .map(String::trim)
+                    .anyMatch(host::equalsIgnoreCase);
+        } catch (URISyntaxException e) {
+            return false;
+        }
+    }
+
     @GetMapping("/mesh/{id}")
     public ResponseEntity<byte[]> proxyMesh(
             @PathVariable("id") String id,
             @RequestParam(value = "quality", required = false, defaultValue = "refined") String quality,
             @RequestParam(value = "format", required = false, defaultValue = "obj") String format,
-            @RequestParam(value = "base", required = false) String base
+            @RequestParam(value = "base", required = false) String base,
+            @RequestParam(value = "maxTriangles", required = false) Integer maxTriangles
     ) {
-        String b = (base == null || base.isBlank()) ? defaultRemoteBase : base;
+        // 接口无需登录：ID规范为不补0的数字、quality只取mc/refined、远程地址限定在允许的主机，派生缓存的键因此有界
+        if (!id.matches("\\d{1,9}")) {
+            return ResponseEntity.badRequest()
+                    .contentType(MediaType.TEXT_PLAIN)
+                    .body(("Invalid id: " + id).getBytes());
+        }
+        id = String.valueOf(Integer.parseInt(id));
+        quality = "mc".equalsIgnoreCase(quality) ? "mc" : "refined";
+        String b = ((base == null || base.isBlank()) ? defaultRemoteBase : base).replaceAll("/+$", "");
+        if (!isAllowedBase(b)) {
+            return ResponseEntity.badRequest()
+                    .contentType(MediaType.TEXT_PLAIN)
+                    .body("Remote base not allowed".getBytes());
+        }
+
+        // 派生缓存按 id、quality 与远程地址区分，缓存文件名另含OBJ内容摘要，远程OBJ更新后旧缓存被替换
+        String cacheKey = "embed_" + id + "_" + quality + "_" + FileCacheUtils.sha256(b.getBytes(StandardCharsets.UTF_8));
+
+        // 三角形预算：取OBJ后按缓存键缓存LOD金字塔，返回不超过预算的层级（OBJ、MTC或GLB）
+        if (maxTriangles != null && maxTriangles > 0 && !"drc".equalsIgnoreCase(format)) {
+            ResponseEntity<byte[]> objResponse = proxyMesh(id, quality, "obj", base, null);
+            if (!objResponse.getStatusCode().is2xxSuccessful() || objResponse.getBody() == null) {
+                return objResponse;
+            }
+            try {
+                Path level = meshLodService.selectLevelCached(cacheKey, objResponse.getBody(), maxTriangles);
+                boolean mtc = "mtc".equalsIgnoreCase(format);
+                boolean glb = "glb".equalsIgnoreCase(format);
+                if (mtc) {
+                    level = meshCodecService.getOrCreateMtc(level);
+                } else if (glb) {
+                    level = meshCodecService.getOrCreateGlb(level);
+                }
+                HttpHeaders headers = new HttpHeaders();
+                headers.setContentType(mtc ? MediaType.APPLICATION_OCTET_STREAM
+                        : glb ? MediaType.parseMediaType(MeshCodecService.GLB_MEDIA_TYPE) : MediaType.TEXT_PLAIN);
+                headers.add(HttpHeaders.CACHE_CONTROL, "public, max-age=86400");
+                return new ResponseEntity<>(Files.readAllBytes(level), headers, HttpStatus.OK);
+            } catch (Exception e) {
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                        .contentType(MediaType.TEXT_PLAIN)
+                        .body(("LOD mesh failed for id=" + id).getBytes());
+            }
+        }
+
+        // MTC：取OBJ后在JVM内编码，结果按缓存键缓存
+        if ("mtc".equalsIgnoreCase(format)) {
+            ResponseEntity<byte[]> objResponse = proxyMesh(id, quality, "obj", base, null);
+            if (!objResponse.getStatusCode().is2xxSuccessful() || objResponse.getBody() == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .contentType(MediaType.TEXT_PLAIN)
+                        .body(("MTC not found for id=" + id).getBytes());
+            }
+            try {
+                byte[] encoded = meshCodecService.encodeCached(cacheKey, objResponse.getBody());
+                HttpHeaders headers = new HttpHeaders();
+                headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+                headers.add(HttpHeaders.CACHE_CONTROL, "public, max-age=86400");
+                return new ResponseEntity<>(encoded, headers, HttpStatus.OK);
+            } catch (Exception e) {
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                        .contentType(MediaType.TEXT_PLAIN)
+                        .body(("MTC encode failed for id=" + id).getBytes());
+            }
+        }
+
+        // GLB：取OBJ后在JVM内焊接顶点并转码为二进制glTF，结果按缓存键缓存
+        if ("glb".equalsIgnoreCase(format)) {
+            ResponseEntity<byte[]> objResponse = proxyMesh(id, quality, "obj", base, null);
+            if (!objResponse.getStatusCode().is2xxSuccessful() || objResponse.getBody() == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .contentType(MediaType.TEXT_PLAIN)
+                        .body(("GLB not found for id=" + id).getBytes());
+            }
+            try {
+                byte[] glb = meshCodecService.encodeGlbCached(cacheKey, objResponse.getBody());
+                HttpHeaders headers = new HttpHeaders();
+                headers.setContentType(MediaType.parseMediaType(MeshCodecService.GLB_MEDIA_TYPE));
+                headers.add(HttpHeaders.CACHE_CONTROL, "public, max-age=86400");
+                return new ResponseEntity<>(glb, headers, HttpStatus.OK);
+            } catch (Exception e) {
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                        .contentType(MediaType.TEXT_PLAIN)
+                        .body(("GLB transcode failed for id=" + id).getBytes());
+            }
+        }
 
         byte[] data = null;
         String usedUrl = null;
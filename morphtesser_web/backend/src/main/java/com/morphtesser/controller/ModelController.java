@@ -4,7 +4,21 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.morphtesser.model.Model;
 import com.morphtesser.model.NeuronModel;
+import com.morphtesser.service.BatchModelingService;
+import com.morphtesser.service.MeshCodecService;
+import com.morphtesser.service.MeshChunkService;
+import com.morphtesser.service.MeshLodService;
 import com.morphtesser.service.ModelService;
+import com.morphtesser.service.ModelingAdmissionService;
+import com.morphtesser.service.ModelingClient;
+import com.morphtesser.service.MorphometricsService;
+import com.morphtesser.service.ShollService;
+import com.morphtesser.service.SpatialIndexService;
+import com.morphtesser.service.SwcCodecService;
+import com.morphtesser.service.SwcLodService;
+import com.morphtesser.swc.Morphometrics;
+import com.morphtesser.swc.SwcProgressiveStream;
+import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,6 +30,7 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
 import com.morphtesser.model.ModelMetadata;
@@ -79,6 +94,21 @@ public class ModelController {
     @Autowired
     private ModelService modelService;
 
+    @Autowired
+    private SwcCodecService swcCodecService;
+
+    @Autowired
+    private SwcLodService swcLodService;
+
+    @Autowired
+    private MeshLodService meshLodService;
+
+    @Autowired
+    private MeshChunkService meshChunkService;
+
+    @Autowired
+    private MeshCodecService meshCodecService;
+
     @Autowired
     private ModelMapper modelMapper;
 
@@ -91,14 +121,42 @@ public class ModelController {
     @Autowired
     private JwtUtils jwtUtils;
 
+    @Autowired
+    private ModelingAdmissionService admissionService;
+
+    @Autowired
+    private BatchModelingService batchModelingService;
+
+    @Autowired
+    private ModelingClient modelingClient;
+
+    @Autowired
+    private MorphometricsService morphometricsService;
+
+    @Autowired
+    private ShollService shollService;
+
+    @Autowired
+    private SpatialIndexService spatialIndexService;
+
+    /**
+     * 准入控制的用户标识：已登录用户取用户名，否则取客户端IP
+     */
+    private String admissionKey(String token, HttpServletRequest request) {
+        String username = getUsernameFromToken(token);
+        return username != null ? "user:" + username : "ip:" + request.getRemoteAddr();
+    }
+
     @PostMapping("/upload")
     public ResponseEntity<?> uploadModel(
             @RequestParam("file") MultipartFile file,
             @RequestParam("metadata") String metadataJson,
-            @RequestHeader("Authorization") String token) {
+            @RequestHeader("Authorization") String token,
+            HttpServletRequest request) {
         
         logger.info("接收到上传请求: filename={}, size={}", file.getOriginalFilename(), file.getSize());
         
+        ModelingAdmissionService.Permit permit = admissionService.acquire(admissionKey(token, request));
         try {
             if (file.isEmpty()) {
                 return ResponseEntity.badRequest().body("文件为空");
@@ -132,6 +190,8 @@ public class ModelController {
                     "message", "上传失败: " + errorMessage,
                     "error", e.getClass().getSimpleName()
                 ));
+        } finally {
+            permit.close();
         }
     }
 
@@ -180,14 +240,161 @@ public class ModelController {
     public ResponseEntity<Resource> getModelFile(
             @PathVariable Long id,
             @PathVariable String type,
-            @RequestParam("token") String token) {
+            @RequestParam("token") String token,
+            @RequestParam(value = "lod", required = false) Double lod,
+            @RequestParam(value = "maxTriangles", required = false) Integer maxTriangles,
+            @RequestParam(value = "format", required = false) String format,
+            @RequestParam(value = "quantization_bits", required = false) Integer quantizationBits,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
         
-        logger.info("获取模型文件: id={}, type={}", id, type);
+        logger.info("获取模型文件: id={}, type={}, format={}", id, type, format);
 
         String actualToken = token != null && token.startsWith("Bearer ") ? token : "Bearer " + token;
+        if ("swc".equalsIgnoreCase(type)) {
+            ResponseEntity<Resource> response = modelService.getModelFile(id, "swc", actualToken);
+            if (response.getBody() == null) {
+                return response;
+            }
+            try {
+                // lod 为简化误差容限（微米）；Accept: application/x-swc-binary 时返回SWB二进制格式
+                Path swcPath = swcLodService.getOrCreateLod(response.getBody().getFile().toPath(), lod);
+                boolean binary = swcCodecService.acceptsBinary(accept);
+                if (binary) {
+                    swcPath = swcCodecService.getOrCreateBinary(swcPath);
+                }
+                return ResponseEntity.ok()
+                        .contentType(binary ? MediaType.parseMediaType(SwcCodecService.MEDIA_TYPE) : MediaType.TEXT_PLAIN)
+                        .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                        .body(new FileSystemResource(swcPath));
+            } catch (Exception e) {
+                logger.error("获取SWC文件失败: id={}, lod={}", id, lod, e);
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+            }
+        }
+        // format=glb：OBJ转码为二进制glTF（缓存在OBJ旁边），浏览器无需解析文本
+        boolean glb = "glb".equalsIgnoreCase(type) || ("obj".equalsIgnoreCase(type) && "glb".equalsIgnoreCase(format));
+        if (maxTriangles != null && ("obj".equalsIgnoreCase(type) || "mtc".equalsIgnoreCase(type) || glb)) {
+            ResponseEntity<Resource> response = modelService.getModelFile(id, "obj", actualToken);
+            if (response.getBody() == null) {
+                return response;
+            }
+            try {
+                // 按三角形预算选择LOD层级，金字塔未生成时返回原网格
+                Path level = meshLodService.selectLevel(response.getBody().getFile().toPath(), maxTriangles);
+                if (glb) {
+                    return ResponseEntity.ok()
+                            .contentType(MediaType.parseMediaType(MeshCodecService.GLB_MEDIA_TYPE))
+                            .body(new FileSystemResource(meshCodecService.getOrCreateGlb(level)));
+                }
+                if ("mtc".equalsIgnoreCase(type)) {
+                    level = meshCodecService.getOrCreateMtc(level, quantizationBits);
+                }
+                return ResponseEntity.ok(new FileSystemResource(level));
+            } catch (Exception e) {
+                logger.error("获取LOD网格失败: id={}, maxTriangles={}", id, maxTriangles, e);
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+            }
+        }
+        // 指定量化位数的MTC（例如 compress-draco?format=mtc 生成的 name.q10.mtc）
+        if ("mtc".equalsIgnoreCase(type) && quantizationBits != null) {
+            ResponseEntity<Resource> response = modelService.getModelFile(id, "obj", actualToken);
+            if (response.getBody() == null) {
+                return response;
+            }
+            try {
+                return ResponseEntity.ok(new FileSystemResource(
+                        meshCodecService.getOrCreateMtc(response.getBody().getFile().toPath(), quantizationBits)));
+            } catch (Exception e) {
+                logger.error("获取MTC文件失败: id={}, bits={}", id, quantizationBits, e);
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+            }
+        }
+        if (glb) {
+            ResponseEntity<Resource> response = modelService.getModelFile(id, "glb", actualToken);
+            if (response.getBody() == null) {
+                return response;
+            }
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(MeshCodecService.GLB_MEDIA_TYPE))
+                    .body(response.getBody());
+        }
         return modelService.getModelFile(id, type, actualToken);
     }
 
+    /**
+     * 网格八叉树分块清单：先加载 coarse 粗略网格，再按视野或距离逐块加载 /chunks/{chunkId}
+     */
+    @GetMapping("/{id}/chunks")
+    public ResponseEntity<?> getMeshChunks(
+            @PathVariable Long id,
+            @RequestParam("token") String token) {
+        String actualToken = token != null && token.startsWith("Bearer ") ? token : "Bearer " + token;
+        ResponseEntity<Resource> response = modelService.getModelFile(id, "obj", actualToken);
+        if (response.getBody() == null) {
+            return response;
+        }
+        try {
+            return ResponseEntity.ok(meshChunkService.getManifest(response.getBody().getFile().toPath()));
+        } catch (Exception e) {
+            logger.error("网格分块失败: id={}", id, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("message", "网格分块失败: " + e.getMessage()));
+        }
+    }
+
+    @GetMapping("/{id}/chunks/{chunkId}")
+    public ResponseEntity<Resource> getMeshChunk(
+            @PathVariable Long id,
+            @PathVariable String chunkId,
+            @RequestParam("token") String token) {
+        String actualToken = token != null && token.startsWith("Bearer ") ? token : "Bearer " + token;
+        ResponseEntity<Resource> response = modelService.getModelFile(id, "obj", actualToken);
+        if (response.getBody() == null) {
+            return response;
+        }
+        try {
+            Path chunk = meshChunkService.getChunk(response.getBody().getFile().toPath(), chunkId);
+            if (chunk == null) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                    .body(new FileSystemResource(chunk));
+        } catch (Exception e) {
+            logger.error("获取网格分块失败: id={}, chunkId={}", id, chunkId, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * SWC渐进传输：先发送分支节点骨架，再按离根由近到远补全细节，分块传输、逐帧刷新。
+     * 默认NDJSON，Accept: application/x-swc-stream 时返回二进制帧
+     */
+    @GetMapping("/{id}/swc/stream")
+    public ResponseEntity<?> streamSwc(
+            @PathVariable Long id,
+            @RequestParam("token") String token,
+            @RequestParam(value = "lod", required = false) Double lod,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        String actualToken = token != null && token.startsWith("Bearer ") ? token : "Bearer " + token;
+        ResponseEntity<Resource> response = modelService.getModelFile(id, "swc", actualToken);
+        if (response.getBody() == null) {
+            return response;
+        }
+        try {
+            Path swcPath = swcLodService.getOrCreateLod(response.getBody().getFile().toPath(), lod);
+            SwcProgressiveStream stream = swcCodecService.openProgressive(swcPath);
+            boolean binary = swcCodecService.acceptsStreamBinary(accept);
+            StreamingResponseBody body = binary ? stream::writeBinary : stream::writeNdjson;
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(binary ? SwcCodecService.STREAM_MEDIA_TYPE : SwcCodecService.NDJSON_MEDIA_TYPE))
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                    .body(body);
+        } catch (Exception e) {
+            logger.error("SWC渐进传输失败: id={}, lod={}", id, lod, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("message", "SWC解析失败: " + e.getMessage()));
+        }
+    }
+
     @GetMapping("/{id}/download/{type}")
     public ResponseEntity<Resource> downloadModelFile(
             @PathVariable Long id,
@@ -202,8 +409,10 @@ public class ModelController {
             String contentType;
             if ("obj".equals(type)) {
                 contentType = "application/octet-stream";
-            } else if ("draco".equals(type)) {
+            } else if ("draco".equals(type) || "mtc".equals(type)) {
                 contentType = "application/octet-stream";
+            } else if ("glb".equals(type)) {
+                contentType = MeshCodecService.GLB_MEDIA_TYPE;
             } else {
                 contentType = "text/plain";
             }
@@ -296,16 +505,315 @@ public class ModelController {
     public ResponseEntity<?> createModel(
             @RequestParam("name") String name,
             @RequestParam("type") String type,
+            @RequestParam(value = "format", required = false, defaultValue = "drc") String format,
             @RequestHeader(value = "Authorization", required = false) String token,
-            @RequestParam("swcFile") MultipartFile swcFile) {
+            @RequestParam("swcFile") MultipartFile swcFile,
+            HttpServletRequest request) {
         
-        logger.info("创建在线模型: name={}, type={}", name, type);
+        logger.info("创建在线模型: name={}, type={}, format={}", name, type, format);
         
         if (name == null || name.trim().isEmpty()) {
             return ResponseEntity.badRequest().body("模型名称不能为空");
         }
         
-        return modelService.createModelFromOnlineBuilder(name, type, token, swcFile);
+        ModelingAdmissionService.Permit permit = admissionService.acquire(admissionKey(token, request));
+        try {
+            return modelService.createModelFromOnlineBuilder(name, type, format, token, swcFile);
+        } finally {
+            permit.close();
+        }
+    }
+
+    /**
+     * 批量建模：上传包含多个SWC文件的ZIP，返回任务ID，后台处理
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<?> createBatch(
+            @RequestParam("file") MultipartFile zipFile,
+            @RequestParam(value = "type", required = false, defaultValue = "raw") String type,
+            @RequestParam(value = "format", required = false, defaultValue = "mtc") String format,
+            @RequestHeader(value = "Authorization", required = false) String token) {
+        String username = getUsernameFromToken(token);
+        if (username == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("message", "批量建模需要登录"));
+        }
+        if (zipFile.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("message", "文件为空"));
+        }
+        logger.info("批量建模: user={}, file={}, size={}", username, zipFile.getOriginalFilename(), zipFile.getSize());
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(batchModelingService.submitZip(zipFile, type, format, username));
+        } catch (Exception e) {
+            logger.error("提交批量建模任务失败", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("message", "提交失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 批量建模：处理服务器上的目录（仅管理员）
+     */
+    @PostMapping("/batch/directory")
+    public ResponseEntity<?> createBatchFromDirectory(
+            @RequestParam("path") String directory,
+            @RequestParam(value = "type", required = false, defaultValue = "raw") String type,
+            @RequestParam(value = "format", required = false, defaultValue = "mtc") String format,
+            @RequestHeader(value = "Authorization", required = false) String token) {
+        String username = getUsernameFromToken(token);
+        if (!batchModelingService.isAdmin(username)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("message", "仅管理员可以处理服务器目录"));
+        }
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(batchModelingService.submitDirectory(directory, type, format, username));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        } catch (Exception e) {
+            logger.error("提交批量建模任务失败: path={}", directory, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("message", "提交失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 批量建模任务状态与逐项结果清单
+     */
+    @GetMapping("/batch/{jobId}")
+    public ResponseEntity<?> getBatch(
+            @PathVariable String jobId,
+            @RequestHeader(value = "Authorization", required = false) String token) {
+        ResponseEntity<?> denied = checkBatchAccess(jobId, token);
+        if (denied != null) {
+            return denied;
+        }
+        Map<String, Object> job = batchModelingService.getJob(jobId);
+        return job != null ? ResponseEntity.ok(job) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * 下载批量建模结果压缩包（含 manifest.json）
+     */
+    @GetMapping("/batch/{jobId}/archive")
+    public ResponseEntity<?> downloadBatchArchive(
+            @PathVariable String jobId,
+            @RequestHeader(value = "Authorization", required = false) String token) {
+        ResponseEntity<?> denied = checkBatchAccess(jobId, token);
+        if (denied != null) {
+            return denied;
+        }
+        Path archive = batchModelingService.getResultArchive(jobId);
+        if (archive == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_OCTET_STREAM)
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"batch_" + jobId + ".zip\"")
+            .body(new FileSystemResource(archive));
+    }
+
+    /**
+     * 批量建模任务只对提交者与管理员可见；允许访问时返回null
+     */
+    private ResponseEntity<?> checkBatchAccess(String jobId, String token) {
+        String username = getUsernameFromToken(token);
+        if (username == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("message", "查看批量建模任务需要登录"));
+        }
+        if (batchModelingService.getJob(jobId) == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!batchModelingService.canAccess(jobId, username)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("message", "没有权限访问此批量建模任务"));
+        }
+        return null;
+    }
+
+    /**
+     * 建模准入控制指标：运行数、队列深度、拒绝计数、最近平均服务耗时
+     */
+    @GetMapping("/admission/stats")
+    public ResponseEntity<Map<String, Object>> getAdmissionStats() {
+        return ResponseEntity.ok(admissionService.getStats());
+    }
+
+    /**
+     * 建模节点状态：在途请求、健康检查、摘除状态与延迟统计（含内部节点地址，仅管理员）
+     */
+    @GetMapping("/modeling/workers")
+    public ResponseEntity<?> getModelingWorkers(
+            @RequestHeader(value = "Authorization", required = false) String token) {
+        if (!batchModelingService.isAdmin(getUsernameFromToken(token))) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("message", "仅管理员可以查看建模节点"));
+        }
+        return ResponseEntity.ok(modelingClient.getWorkerStats());
+    }
+
+    /**
+     * 建模API熔断器状态
+     */
+    @GetMapping("/modeling/circuit")
+    public ResponseEntity<Map<String, Object>> getModelingCircuit() {
+        return ResponseEntity.ok(modelingClient.getCircuitStats());
+    }
+
+    /**
+     * 模型的形态学统计（由SWC实时计算，包含未持久化的字段）
+     */
+    @GetMapping("/{id}/morphometrics")
+    public ResponseEntity<?> getMorphometrics(
+            @PathVariable Long id,
+            @RequestHeader(value = "Authorization", required = false) String token) {
+        NeuronModel model = modelRepository.findById(id).orElse(null);
+        ResponseEntity<?> denied = checkSwcReadable(model, token);
+        if (denied != null) {
+            return denied;
+        }
+        try {
+            Morphometrics morphometrics = morphometricsService.compute(resolveRelativePath(model.getFilePath()));
+            return ResponseEntity.ok(morphometrics.toMap());
+        } catch (Exception e) {
+            logger.error("形态学统计失败: id={}", id, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("message", "统计失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 模型的Sholl曲线：半径从 start 开始、间隔 step，直到 end（缺省为离胞体最远节点的距离）
+     */
+    @GetMapping("/{id}/sholl")
+    public ResponseEntity<?> getSholl(
+            @PathVariable Long id,
+            @RequestParam(value = "start", required = false, defaultValue = "0") double start,
+            @RequestParam(value = "step", required = false) Double step,
+            @RequestParam(value = "end", required = false) Double end,
+            @RequestHeader(value = "Authorization", required = false) String token) {
+        NeuronModel model = modelRepository.findById(id).orElse(null);
+        ResponseEntity<?> denied = checkSwcReadable(model, token);
+        if (denied != null) {
+            return denied;
+        }
+        try {
+            return ResponseEntity.ok(shollService.profile(resolveRelativePath(model.getFilePath()), start, step, end).toMap());
+        } catch (Exception e) {
+            logger.error("Sholl分析失败: id={}", id, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("message", "Sholl分析失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 离点最近的骨架段（点选），maxDistance 为查找范围
+     */
+    @GetMapping("/{id}/spatial/nearest")
+    public ResponseEntity<?> spatialNearest(
+            @PathVariable Long id,
+            @RequestParam("x") double x,
+            @RequestParam("y") double y,
+            @RequestParam("z") double z,
+            @RequestParam(value = "maxDistance", required = false) Double maxDistance,
+            @RequestHeader(value = "Authorization", required = false) String token) {
+        NeuronModel model = modelRepository.findById(id).orElse(null);
+        ResponseEntity<?> denied = checkSwcReadable(model, token);
+        if (denied != null) {
+            return denied;
+        }
+        try {
+            return ResponseEntity.ok(spatialIndexService.nearest(resolveRelativePath(model.getFilePath()), x, y, z, maxDistance));
+        } catch (Exception e) {
+            logger.error("空间查询失败: id={}", id, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("message", "空间查询失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 射线拾取：从 (ox, oy, oz) 沿 (dx, dy, dz) 与骨架段表面的第一个交点
+     */
+    @GetMapping("/{id}/spatial/ray")
+    public ResponseEntity<?> spatialRay(
+            @PathVariable Long id,
+            @RequestParam("ox") double ox,
+            @RequestParam("oy") double oy,
+            @RequestParam("oz") double oz,
+            @RequestParam("dx") double dx,
+            @RequestParam("dy") double dy,
+            @RequestParam("dz") double dz,
+            @RequestParam(value = "maxDistance", required = false) Double maxDistance,
+            @RequestHeader(value = "Authorization", required = false) String token) {
+        NeuronModel model = modelRepository.findById(id).orElse(null);
+        ResponseEntity<?> denied = checkSwcReadable(model, token);
+        if (denied != null) {
+            return denied;
+        }
+        try {
+            return ResponseEntity.ok(spatialIndexService.raycast(resolveRelativePath(model.getFilePath()),
+                    new double[]{ox, oy, oz}, new double[]{dx, dy, dz}, maxDistance));
+        } catch (Exception e) {
+            logger.error("空间查询失败: id={}", id, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("message", "空间查询失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 区域裁剪：长方体（minX..maxZ）或球（x, y, z, radius）内的骨架段与轴线长度，nodes=true 时返回节点ID
+     */
+    @GetMapping("/{id}/spatial/region")
+    public ResponseEntity<?> spatialRegion(
+            @PathVariable Long id,
+            @RequestParam(value = "minX", required = false) Double minX,
+            @RequestParam(value = "minY", required = false) Double minY,
+            @RequestParam(value = "minZ", required = false) Double minZ,
+            @RequestParam(value = "maxX", required = false) Double maxX,
+            @RequestParam(value = "maxY", required = false) Double maxY,
+            @RequestParam(value = "maxZ", required = false) Double maxZ,
+            @RequestParam(value = "x", required = false) Double x,
+            @RequestParam(value = "y", required = false) Double y,
+            @RequestParam(value = "z", required = false) Double z,
+            @RequestParam(value = "radius", required = false) Double radius,
+            @RequestParam(value = "nodes", required = false, defaultValue = "false") boolean includeNodes,
+            @RequestHeader(value = "Authorization", required = false) String token) {
+        NeuronModel model = modelRepository.findById(id).orElse(null);
+        ResponseEntity<?> denied = checkSwcReadable(model, token);
+        if (denied != null) {
+            return denied;
+        }
+        try {
+            Path swcPath = resolveRelativePath(model.getFilePath());
+            if (x != null && y != null && z != null && radius != null) {
+                return ResponseEntity.ok(spatialIndexService.querySphere(swcPath, new double[]{x, y, z}, radius, includeNodes));
+            }
+            if (minX != null && minY != null && minZ != null && maxX != null && maxY != null && maxZ != null) {
+                return ResponseEntity.ok(spatialIndexService.queryBox(swcPath,
+                        new double[]{minX, minY, minZ, maxX, maxY, maxZ}, includeNodes));
+            }
+            return ResponseEntity.badRequest().body(Map.of("message", "需要 minX..maxZ 或 x, y, z, radius"));
+        } catch (Exception e) {
+            logger.error("空间查询失败: id={}", id, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("message", "空间查询失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * SWC模型可读时返回null；不存在、不是SWC或无权访问（非公开且不是所有者）时返回对应的错误响应
+     */
+    private ResponseEntity<?> checkSwcReadable(NeuronModel model, String token) {
+        if (model == null || model.getFilePath() == null || !model.getFilePath().toLowerCase().endsWith(".swc")) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!model.isPublic()) {
+            String username = getUsernameFromToken(token);
+            if (username == null || !username.equals(model.getUser().getUsername())) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("message", "没有权限访问此模型"));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 重新计算所有SWC模型的形态学统计并保存（仅管理员）
+     */
+    @PostMapping("/morphometrics/recompute")
+    public ResponseEntity<?> recomputeMorphometrics(
+            @RequestHeader(value = "Authorization", required = false) String token) {
+        if (!batchModelingService.isAdmin(getUsernameFromToken(token))) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("message", "仅管理员可以重算统计"));
+        }
+        return ResponseEntity.ok(morphometricsService.recomputeAll());
     }
 
     @PostMapping("/{id}/compress-draco")
@@ -313,9 +821,10 @@ public class ModelController {
             @PathVariable Long id,
             @RequestHeader(value = "Authorization", required = false) String token,
             @RequestParam(value = "compression_level", defaultValue = "7") int compressionLevel,
-            @RequestParam(value = "quantization_bits", defaultValue = "10") int quantizationBits) {
+            @RequestParam(value = "quantization_bits", defaultValue = "10") int quantizationBits,
+            @RequestParam(value = "format", required = false, defaultValue = "drc") String format) {
         
-        logger.info("压缩模型为Draco格式: id={}, level={}, bits={}", id, compressionLevel, quantizationBits);
+        logger.info("压缩模型: id={}, format={}, level={}, bits={}", id, format, compressionLevel, quantizationBits);
         
         try {
             // 获取模型
@@ -329,8 +838,27 @@ public class ModelController {
                 return ResponseEntity.badRequest().body("模型没有OBJ文件，无法压缩");
             }
             
-            // 调用Python服务进行压缩
             Path objPath = resolveRelativePath(model.getObjFilePath());
+
+            // mtc：JVM内置编解码器，结果缓存在OBJ旁边，通过 /{id}/file/mtc?quantization_bits={bits} 获取
+            if ("mtc".equalsIgnoreCase(format)) {
+                Map<String, Object> mtcResult = modelService.compressModelToMtc(objPath.toString(), quantizationBits);
+                if (mtcResult == null) {
+                    return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                        .body(Map.of("success", false, "message", "MTC压缩失败"));
+                }
+                return ResponseEntity.ok(Map.of(
+                    "success", true,
+                    "message", "MTC压缩成功",
+                    "quantization_bits", quantizationBits,
+                    "compression_ratio", mtcResult.get("compression_ratio"),
+                    "original_size", mtcResult.get("original_size"),
+                    "compressed_size", mtcResult.get("compressed_size"),
+                    "encode_ms", mtcResult.get("encode_ms")
+                ));
+            }
+
+            // 调用Python服务进行压缩
             Map<String, Object> dracoResult = modelService.compressModelToDraco(objPath.toString(), compressionLevel, quantizationBits);
             
             if (dracoResult != null && dracoResult.containsKey("success") && (Boolean) dracoResult.get("success")) {
@@ -425,7 +953,10 @@ public class ModelController {
     }
 
     private String getUsernameFromToken(String token) {
-        if (token != null && token.startsWith("Bearer ")) {
+        if (token == null) {
+            return null;
+        }
+        if (token.startsWith("Bearer ")) {
             token = token.substring(7);
         }
         
@@ -1,7 +1,13 @@
 package com.morphtesser.controller;
 
+import com.morphtesser.service.MeshChunkService;
+import com.morphtesser.service.MeshCodecService;
+import com.morphtesser.service.SwcCodecService;
+import com.morphtesser.service.SwcLodService;
+import com.morphtesser.swc.SwcProgressiveStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
@@ -9,8 +15,10 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.File;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
@@ -25,8 +33,23 @@ public class TempFileController {
 
     private static final Logger logger = LoggerFactory.getLogger(TempFileController.class);
 
+    // 会话内SWC的简化、SWB编码结果所在的子目录，随会话目录一起过期清理
+    private static final String DERIVED_DIR = ".derived";
+
     @Value("${dataset.online-modeling.temp-dir:./temp/online-modeling/}")
     private String tempDir;
+
+    @Autowired
+    private SwcCodecService swcCodecService;
+
+    @Autowired
+    private SwcLodService swcLodService;
+
+    @Autowired
+    private MeshCodecService meshCodecService;
+
+    @Autowired
+    private MeshChunkService meshChunkService;
     
     /**
      * 规范化临时目录路径（与ModelServiceImpl保持一致）
@@ -46,12 +69,15 @@ public class TempFileController {
     }
 
     /**
-     * 获取临时文件（SWC、OBJ、DRC）
+     * 获取临时文件（SWC、OBJ、DRC、MTC），SWC可按 Accept 返回SWB二进制格式，OBJ可按 format=glb 返回二进制glTF
      */
     @GetMapping("/{sessionId}/{filename}")
     public ResponseEntity<Resource> getTempFile(
             @PathVariable String sessionId,
-            @PathVariable String filename) {
+            @PathVariable String filename,
+            @RequestParam(value = "lod", required = false) Double lod,
+            @RequestParam(value = "format", required = false) String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
         try {
             // 安全检查：防止路径遍历攻击
             if (sessionId.contains("..") || filename.contains("..")) {
@@ -72,9 +98,27 @@ public class TempFileController {
             
             // 设置Content-Type
             String contentType = getContentType(filename);
+
+            // SWC文件可按 lod（简化误差容限，微米）返回简化骨架，并按 Accept 协商，application/x-swc-binary 时返回SWB二进制格式
+            boolean swc = filename.toLowerCase().endsWith(".swc");
+            if (swc) {
+                Path derivedDir = filePath.getParent().resolve(DERIVED_DIR);
+                Path swcPath = swcLodService.getOrCreateLod(filePath, lod, derivedDir);
+                if (swcCodecService.acceptsBinary(accept)) {
+                    swcPath = swcCodecService.getOrCreateBinary(swcPath, derivedDir);
+                    contentType = SwcCodecService.MEDIA_TYPE;
+                }
+                resource = new FileSystemResource(swcPath);
+            }
+            // OBJ文件按 format=glb 转码，GLB缓存在会话目录中OBJ旁边，随会话一起清理
+            if (filename.toLowerCase().endsWith(".obj") && "glb".equalsIgnoreCase(format)) {
+                resource = new FileSystemResource(meshCodecService.getOrCreateGlb(filePath));
+                contentType = MeshCodecService.GLB_MEDIA_TYPE;
+            }
             
             return ResponseEntity.ok()
                     .header(HttpHeaders.CONTENT_TYPE, contentType)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
                     .header(HttpHeaders.CACHE_CONTROL, "no-cache, no-store, must-revalidate")
                     .header(HttpHeaders.PRAGMA, "no-cache")
                     .header(HttpHeaders.EXPIRES, "0")
@@ -86,6 +130,89 @@ public class TempFileController {
         }
     }
 
+    /**
+     * 临时OBJ的八叉树分块清单（分块缓存在会话目录中，随会话清理）
+     */
+    @GetMapping("/{sessionId}/{filename}/chunks")
+    public ResponseEntity<?> getTempMeshChunks(@PathVariable String sessionId, @PathVariable String filename) {
+        Path objPath = resolveTempFile(sessionId, filename, ".obj");
+        if (objPath == null) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.CACHE_CONTROL, "no-cache, no-store, must-revalidate")
+                    .body(meshChunkService.getManifest(objPath));
+        } catch (Exception e) {
+            logger.error("临时网格分块失败: sessionId={}, filename={}", sessionId, filename, e);
+            return ResponseEntity.status(500).build();
+        }
+    }
+
+    @GetMapping("/{sessionId}/{filename}/chunks/{chunkId}")
+    public ResponseEntity<Resource> getTempMeshChunk(
+            @PathVariable String sessionId,
+            @PathVariable String filename,
+            @PathVariable String chunkId) {
+        Path objPath = resolveTempFile(sessionId, filename, ".obj");
+        if (objPath == null) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            Path chunk = meshChunkService.getChunk(objPath, chunkId);
+            if (chunk == null) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.CONTENT_TYPE, "application/octet-stream")
+                    .header(HttpHeaders.CACHE_CONTROL, "no-cache, no-store, must-revalidate")
+                    .body(new FileSystemResource(chunk));
+        } catch (Exception e) {
+            logger.error("获取临时网格分块失败: sessionId={}, filename={}, chunkId={}", sessionId, filename, chunkId, e);
+            return ResponseEntity.status(500).build();
+        }
+    }
+
+    /**
+     * 临时SWC的渐进传输（骨架在前、细节在后），默认NDJSON，Accept: application/x-swc-stream 时返回二进制帧
+     */
+    @GetMapping("/{sessionId}/{filename}/stream")
+    public ResponseEntity<?> streamTempSwc(
+            @PathVariable String sessionId,
+            @PathVariable String filename,
+            @RequestParam(value = "lod", required = false) Double lod,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        Path swcPath = resolveTempFile(sessionId, filename, ".swc");
+        if (swcPath == null) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            SwcProgressiveStream stream = swcCodecService.openProgressive(
+                    swcLodService.getOrCreateLod(swcPath, lod, swcPath.getParent().resolve(DERIVED_DIR)));
+            boolean binary = swcCodecService.acceptsStreamBinary(accept);
+            StreamingResponseBody body = binary ? stream::writeBinary : stream::writeNdjson;
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.CONTENT_TYPE, binary ? SwcCodecService.STREAM_MEDIA_TYPE : SwcCodecService.NDJSON_MEDIA_TYPE)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                    .header(HttpHeaders.CACHE_CONTROL, "no-cache, no-store, must-revalidate")
+                    .body(body);
+        } catch (Exception e) {
+            logger.error("临时SWC渐进传输失败: sessionId={}, filename={}", sessionId, filename, e);
+            return ResponseEntity.status(500).build();
+        }
+    }
+
+    /**
+     * 会话目录中存在的指定扩展名文件；路径不合法或文件不存在时返回null
+     */
+    private Path resolveTempFile(String sessionId, String filename, String extension) {
+        if (sessionId.contains("..") || filename.contains("..") || !filename.toLowerCase().endsWith(extension)) {
+            return null;
+        }
+        Path filePath = getNormalizedTempDir().resolve(sessionId).resolve(filename);
+        return Files.isRegularFile(filePath) ? filePath : null;
+    }
+
     /**
      * 清理指定会话的临时文件
      */
@@ -128,7 +255,10 @@ public class TempFileController {
             case "obj":
                 return "text/plain";  // OBJ文件是文本格式
             case "drc":
+            case "mtc":
                 return "application/octet-stream";
+            case "glb":
+                return MeshCodecService.GLB_MEDIA_TYPE;
             default:
                 return "application/octet-stream";
         }
@@ -14,6 +14,10 @@ public class NeuronModelDTO {
     private Double length;
     private Double surfaceArea;
     private Double volume;
+    private Integer branchPoints;
+    private Integer tips;
+    private Double maxPathDistance;
+    private Integer maxStrahlerOrder;
     private String objFilePath;
     private String previewImagePath;
     // 新增前端可用的HTTP路径
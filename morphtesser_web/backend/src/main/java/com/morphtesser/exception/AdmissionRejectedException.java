@@ -0,0 +1,31 @@
+package com.morphtesser.exception;
+
+/**
+ * 建模任务未获准入（并发已满、排队已满或等待超时），由 GlobalExceptionHandler 转换为 429
+ */
+public class AdmissionRejectedException extends RuntimeException {
+
+    private final String reason;
+    private final long estimatedWaitMs;
+
+    public AdmissionRejectedException(String message, String reason, long estimatedWaitMs) {
+        super(message);
+        this.reason = reason;
+        this.estimatedWaitMs = estimatedWaitMs;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public long getEstimatedWaitMs() {
+        return estimatedWaitMs;
+    }
+
+    /**
+     * Retry-After 响应头的秒数，至少为1
+     */
+    public long getRetryAfterSeconds() {
+        return Math.max(1, (estimatedWaitMs + 999) / 1000);
+    }
+}
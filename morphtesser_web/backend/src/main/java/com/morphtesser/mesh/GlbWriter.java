@@ -0,0 +1,149 @@
+package com.morphtesser.mesh;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 将三角网格写为二进制 glTF 2.0（GLB）
+ * <p>
+ * 单个 mesh/primitive：位置与法向量交错存放在同一个 bufferView（float32，步长 24 字节），
+ * 法向量为面积加权的顶点法向量；顶点数不超过 65535 时索引用 uint16，否则用 uint32。
+ * 浏览器端可直接把两个 bufferView 上传为顶点缓冲与索引缓冲，无需解析文本。
+ * 调用前通常先用 {@link MeshWelder} 焊接顶点，否则法向量不平滑。
+ */
+public final class GlbWriter {
+
+    public static final int MAGIC = 0x46546C67; // "glTF"
+    public static final int VERSION = 2;
+
+    private static final int CHUNK_JSON = 0x4E4F534A;
+    private static final int CHUNK_BIN = 0x004E4942;
+    private static final int STRIDE = 24;
+    private static final int ARRAY_BUFFER = 34962;
+    private static final int ELEMENT_ARRAY_BUFFER = 34963;
+    private static final int FLOAT = 5126;
+    private static final int UNSIGNED_SHORT = 5123;
+    private static final int UNSIGNED_INT = 5125;
+
+    private GlbWriter() {
+    }
+
+    public static byte[] write(MeshData mesh) {
+        int vertexCount = mesh.getVertexCount();
+        int indexCount = mesh.getTriangleCount() * 3;
+        if (vertexCount == 0 || indexCount == 0) {
+            throw new IllegalArgumentException("网格为空，无法写出GLB");
+        }
+        float[] positions = mesh.getPositions();
+        int[] indices = mesh.getIndices();
+        float[] normals = vertexNormals(positions, indices, vertexCount);
+
+        boolean shortIndices = vertexCount <= 0xFFFF;
+        int vertexBytes = vertexCount * STRIDE;
+        int indexBytes = indexCount * (shortIndices ? 2 : 4);
+        int binLength = vertexBytes + indexBytes;
+        int binPadded = pad(binLength);
+
+        float[] min = {Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY};
+        float[] max = {Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY};
+        ByteBuffer bin = ByteBuffer.allocate(binPadded).order(ByteOrder.LITTLE_ENDIAN);
+        for (int v = 0; v < vertexCount; v++) {
+            for (int c = 0; c < 3; c++) {
+                float value = positions[3 * v + c];
+                if (!Float.isFinite(value)) {
+                    throw new IllegalArgumentException("顶点坐标不是有限数值: 顶点 " + v);
+                }
+                min[c] = Math.min(min[c], value);
+                max[c] = Math.max(max[c], value);
+                bin.putFloat(value);
+            }
+            bin.putFloat(normals[3 * v]).putFloat(normals[3 * v + 1]).putFloat(normals[3 * v + 2]);
+        }
+        for (int i = 0; i < indexCount; i++) {
+            if (shortIndices) {
+                bin.putShort((short) indices[i]);
+            } else {
+                bin.putInt(indices[i]);
+            }
+        }
+
+        String json = "{\"asset\":{\"version\":\"2.0\",\"generator\":\"MorphTesser\"},"
+                + "\"scene\":0,\"scenes\":[{\"nodes\":[0]}],\"nodes\":[{\"mesh\":0}],"
+                + "\"meshes\":[{\"primitives\":[{\"attributes\":{\"POSITION\":0,\"NORMAL\":1},\"indices\":2,\"mode\":4}]}],"
+                + "\"buffers\":[{\"byteLength\":" + binLength + "}],"
+                + "\"bufferViews\":["
+                + "{\"buffer\":0,\"byteOffset\":0,\"byteLength\":" + vertexBytes
+                + ",\"byteStride\":" + STRIDE + ",\"target\":" + ARRAY_BUFFER + "},"
+                + "{\"buffer\":0,\"byteOffset\":" + vertexBytes + ",\"byteLength\":" + indexBytes
+                + ",\"target\":" + ELEMENT_ARRAY_BUFFER + "}],"
+                + "\"accessors\":["
+                + "{\"bufferView\":0,\"byteOffset\":0,\"componentType\":" + FLOAT + ",\"count\":" + vertexCount
+                + ",\"type\":\"VEC3\",\"min\":" + array(min) + ",\"max\":" + array(max) + "},"
+                + "{\"bufferView\":0,\"byteOffset\":12,\"componentType\":" + FLOAT + ",\"count\":" + vertexCount
+                + ",\"type\":\"VEC3\"},"
+                + "{\"bufferView\":1,\"byteOffset\":0,\"componentType\":" + (shortIndices ? UNSIGNED_SHORT : UNSIGNED_INT)
+                + ",\"count\":" + indexCount + ",\"type\":\"SCALAR\"}]}";
+        byte[] jsonBytes = json.getBytes(StandardCharsets.UTF_8);
+        int jsonPadded = pad(jsonBytes.length);
+
+        // 头部 12 字节 + 两个块各 8 字节块头；JSON 块用空格、BIN 块用 0 补齐到 4 字节
+        ByteBuffer out = ByteBuffer.allocate(12 + 8 + jsonPadded + 8 + binPadded).order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(MAGIC);
+        out.putInt(VERSION);
+        out.putInt(out.capacity());
+        out.putInt(jsonPadded);
+        out.putInt(CHUNK_JSON);
+        out.put(jsonBytes);
+        for (int i = jsonBytes.length; i < jsonPadded; i++) {
+            out.put((byte) ' ');
+        }
+        out.putInt(binPadded);
+        out.putInt(CHUNK_BIN);
+        out.put(bin.array());
+        return out.array();
+    }
+
+    /**
+     * 面积加权顶点法向量（三角形叉积不归一化直接累加）；孤立或退化顶点取 (0,0,1)
+     */
+    static float[] vertexNormals(float[] positions, int[] indices, int vertexCount) {
+        double[] sum = new double[vertexCount * 3];
+        for (int t = 0; t + 2 < indices.length; t += 3) {
+            int a = 3 * indices[t], b = 3 * indices[t + 1], c = 3 * indices[t + 2];
+            double ux = positions[b] - positions[a], uy = positions[b + 1] - positions[a + 1], uz = positions[b + 2] - positions[a + 2];
+            double vx = positions[c] - positions[a], vy = positions[c + 1] - positions[a + 1], vz = positions[c + 2] - positions[a + 2];
+            double nx = uy * vz - uz * vy, ny = uz * vx - ux * vz, nz = ux * vy - uy * vx;
+            sum[a] += nx;
+            sum[a + 1] += ny;
+            sum[a + 2] += nz;
+            sum[b] += nx;
+            sum[b + 1] += ny;
+            sum[b + 2] += nz;
+            sum[c] += nx;
+            sum[c + 1] += ny;
+            sum[c + 2] += nz;
+        }
+        float[] normals = new float[vertexCount * 3];
+        for (int v = 0; v < vertexCount; v++) {
+            double x = sum[3 * v], y = sum[3 * v + 1], z = sum[3 * v + 2];
+            double length = Math.sqrt(x * x + y * y + z * z);
+            if (length > 0) {
+                normals[3 * v] = (float) (x / length);
+                normals[3 * v + 1] = (float) (y / length);
+                normals[3 * v + 2] = (float) (z / length);
+            } else {
+                normals[3 * v + 2] = 1f;
+            }
+        }
+        return normals;
+    }
+
+    private static String array(float[] values) {
+        return "[" + values[0] + "," + values[1] + "," + values[2] + "]";
+    }
+
+    private static int pad(int length) {
+        return (length + 3) & ~3;
+    }
+}
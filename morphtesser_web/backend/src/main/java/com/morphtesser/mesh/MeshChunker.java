@@ -0,0 +1,207 @@
+package com.morphtesser.mesh;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 网格八叉树分块：三角形按重心归入八叉树单元，三角形数超过 maxTriangles 的单元继续八等分，
+ * 直到 maxDepth。每个叶子单元输出为一个独立的局部网格（块边界上的顶点在相邻块中重复），
+ * 可单独压缩与按需加载。
+ * <p>
+ * 块ID为八叉树路径："r" 为根，其后每一位是子单元编号 0-7（bit0=x、bit1=y、bit2=z 取上半部分），
+ * 输出按深度优先、ID字典序排列。
+ */
+public final class MeshChunker {
+
+    private MeshChunker() {
+    }
+
+    public static final class Chunk {
+        private final String id;
+        private final int depth;
+        private final float[] cell;
+        private final MeshData mesh;
+
+        Chunk(String id, int depth, float[] cell, MeshData mesh) {
+            this.id = id;
+            this.depth = depth;
+            this.cell = cell;
+            this.mesh = mesh;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public int getDepth() {
+            return depth;
+        }
+
+        /**
+         * 八叉树单元范围 [minX, minY, minZ, maxX, maxY, maxZ]
+         */
+        public float[] getCell() {
+            return cell;
+        }
+
+        /**
+         * 块内三角形的实际包围盒（跨单元边界的三角形会超出单元范围）
+         */
+        public float[] getBounds() {
+            return bounds(mesh.getPositions());
+        }
+
+        public MeshData getMesh() {
+            return mesh;
+        }
+    }
+
+    public static List<Chunk> split(MeshData mesh, int maxTriangles, int maxDepth) {
+        float[] positions = mesh.getPositions();
+        int[] indices = mesh.getIndices();
+        int triangleCount = mesh.getTriangleCount();
+        List<Chunk> chunks = new ArrayList<>();
+        if (triangleCount == 0) {
+            return chunks;
+        }
+
+        float[] centroids = new float[triangleCount * 3];
+        for (int t = 0; t < triangleCount; t++) {
+            int a = 3 * indices[3 * t], b = 3 * indices[3 * t + 1], c = 3 * indices[3 * t + 2];
+            for (int k = 0; k < 3; k++) {
+                centroids[3 * t + k] = (positions[a + k] + positions[b + k] + positions[c + k]) / 3f;
+            }
+        }
+        // 根单元取包围盒的外接立方体，子单元保持立方体
+        float[] box = bounds(positions);
+        float size = Math.max(box[3] - box[0], Math.max(box[4] - box[1], box[5] - box[2]));
+        if (!(size > 0)) {
+            size = 1f;
+        }
+
+        int[] order = new int[triangleCount];
+        for (int t = 0; t < triangleCount; t++) {
+            order[t] = t;
+        }
+        int[] scratch = new int[triangleCount];
+        int[] localIndex = new int[mesh.getVertexCount()];
+        int[] stamp = new int[mesh.getVertexCount()];
+
+        // 显式栈上的八叉树单元，出栈时按ID顺序处理
+        List<Cell> stack = new ArrayList<>();
+        stack.add(new Cell(0, triangleCount, 0, box[0], box[1], box[2], size, "r"));
+        while (!stack.isEmpty()) {
+            Cell node = stack.remove(stack.size() - 1);
+            int start = node.start;
+            int end = node.end;
+            int depth = node.depth;
+            float[] min = {node.minX, node.minY, node.minZ};
+            float cellSize = node.size;
+            String id = node.id;
+
+            if (end - start <= maxTriangles || depth >= maxDepth) {
+                float[] cell = {min[0], min[1], min[2], min[0] + cellSize, min[1] + cellSize, min[2] + cellSize};
+                chunks.add(new Chunk(id, depth, cell,
+                    extract(positions, indices, order, start, end, localIndex, stamp, chunks.size() + 1)));
+                continue;
+            }
+
+            // 按子单元计数排序
+            float half = cellSize / 2f;
+            int[] counts = new int[9];
+            for (int i = start; i < end; i++) {
+                counts[octant(centroids, order[i], min, half) + 1]++;
+            }
+            for (int o = 0; o < 8; o++) {
+                counts[o + 1] += counts[o];
+            }
+            int[] fill = Arrays.copyOf(counts, 8);
+            for (int i = start; i < end; i++) {
+                int t = order[i];
+                scratch[start + fill[octant(centroids, t, min, half)]++] = t;
+            }
+            System.arraycopy(scratch, start, order, start, end - start);
+            // 逆序入栈，出栈时按子单元编号顺序处理
+            for (int o = 7; o >= 0; o--) {
+                if (counts[o + 1] == counts[o]) {
+                    continue;
+                }
+                stack.add(new Cell(start + counts[o], start + counts[o + 1], depth + 1,
+                    min[0] + ((o & 1) != 0 ? half : 0),
+                    min[1] + ((o & 2) != 0 ? half : 0),
+                    min[2] + ((o & 4) != 0 ? half : 0), half, id + o));
+            }
+        }
+        return chunks;
+    }
+
+    private static final class Cell {
+        final int start;
+        final int end;
+        final int depth;
+        final float minX;
+        final float minY;
+        final float minZ;
+        final float size;
+        final String id;
+
+        Cell(int start, int end, int depth, float minX, float minY, float minZ, float size, String id) {
+            this.start = start;
+            this.end = end;
+            this.depth = depth;
+            this.minX = minX;
+            this.minY = minY;
+            this.minZ = minZ;
+            this.size = size;
+            this.id = id;
+        }
+    }
+
+    private static int octant(float[] centroids, int t, float[] min, float half) {
+        int o = 0;
+        if (centroids[3 * t] >= min[0] + half) o |= 1;
+        if (centroids[3 * t + 1] >= min[1] + half) o |= 2;
+        if (centroids[3 * t + 2] >= min[2] + half) o |= 4;
+        return o;
+    }
+
+    /**
+     * 取出 order[start, end) 中的三角形，顶点按首次引用重新编号；stamp 标记当前块已编号的顶点，避免每块清空数组
+     */
+    private static MeshData extract(float[] positions, int[] indices, int[] order, int start, int end,
+                                    int[] localIndex, int[] stamp, int chunkNumber) {
+        int[] local = new int[(end - start) * 3];
+        float[] localPositions = new float[Math.min(local.length, positions.length / 3) * 3];
+        int count = 0;
+        for (int i = start; i < end; i++) {
+            int t = order[i];
+            for (int k = 0; k < 3; k++) {
+                int v = indices[3 * t + k];
+                if (stamp[v] != chunkNumber) {
+                    stamp[v] = chunkNumber;
+                    localIndex[v] = count;
+                    System.arraycopy(positions, 3 * v, localPositions, 3 * count, 3);
+                    count++;
+                }
+                local[3 * (i - start) + k] = localIndex[v];
+            }
+        }
+        return new MeshData(Arrays.copyOf(localPositions, count * 3), local);
+    }
+
+    /**
+     * 顶点坐标的包围盒 [minX, minY, minZ, maxX, maxY, maxZ]
+     */
+    public static float[] bounds(float[] positions) {
+        float[] box = {Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY,
+            Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY};
+        for (int i = 0; i < positions.length; i += 3) {
+            for (int c = 0; c < 3; c++) {
+                box[c] = Math.min(box[c], positions[i + c]);
+                box[c + 3] = Math.max(box[c + 3], positions[i + c]);
+            }
+        }
+        return box;
+    }
+}
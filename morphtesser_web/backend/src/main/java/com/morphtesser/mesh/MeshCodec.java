@@ -0,0 +1,479 @@
+package com.morphtesser.mesh;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * MTC（MorphTesser Compact mesh）网格编解码器，纯Java实现，用于替代外部DracoPy脚本
+ *
+ * 编码流程：
+ * 1. Tipsify三角形重排，提高顶点缓存命中率与索引局部性
+ * 2. 按首次引用顺序重新编号顶点（未被引用的顶点被丢弃）
+ * 3. 顶点坐标在包围盒内按统一步长量化为 quantizationBits 位整数，做平行四边形预测后对残差 zigzag varint 编码
+ * 4. 连接性：三角形旋转到与前一三角形的共享边，共享时只需一个操作码和第三个顶点的引用；
+ *    顶点引用编码为 (下一个新顶点编号 - 索引) 的 varint，0 表示新顶点
+ * 5. 位置、操作码、顶点引用三个数据块分别做 zlib(Deflate) 熵编码
+ *
+ * 二进制布局（小端序）详见 docs/MESH_CODEC.md。
+ */
+public final class MeshCodec {
+
+    public static final int MAGIC = 0x3143544D; // "MTC1"
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 32;
+    public static final int DEFAULT_QUANTIZATION_BITS = 14;
+
+    private MeshCodec() {
+    }
+
+    public static byte[] encode(MeshData mesh) {
+        return encode(mesh, DEFAULT_QUANTIZATION_BITS);
+    }
+
+    public static byte[] encode(MeshData mesh, int quantizationBits) {
+        return encode(mesh, quantizationBits, null);
+    }
+
+    /**
+     * @param bounds 量化网格使用的包围盒 [minX, minY, minZ, maxX, maxY, maxZ]，为null时取本网格被引用顶点的包围盒；
+     *               同一网格的各分块传入整体包围盒，共享边界上的顶点量化到相同的格点，拼接处不会出现裂缝
+     */
+    public static byte[] encode(MeshData mesh, int quantizationBits, float[] bounds) {
+        if (quantizationBits < 1 || quantizationBits > 24) {
+            throw new IllegalArgumentException("量化位数必须在 1-24 之间: " + quantizationBits);
+        }
+        float[] positions = mesh.getPositions();
+        int[] ordered = TriangleReorder.tipsify(mesh.getIndices(), mesh.getVertexCount());
+        rotateToSharedEdges(ordered);
+
+        // 按首次引用顺序重新编号
+        int[] remap = new int[mesh.getVertexCount()];
+        Arrays.fill(remap, -1);
+        int[] order = new int[mesh.getVertexCount()];
+        int used = 0;
+        for (int i = 0; i < ordered.length; i++) {
+            int v = ordered[i];
+            if (remap[v] < 0) {
+                remap[v] = used;
+                order[used++] = v;
+            }
+            ordered[i] = remap[v];
+        }
+
+        // 包围盒与统一量化步长（保持各轴比例）
+        float[] min = {Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE};
+        float[] max = {-Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE};
+        if (bounds != null) {
+            System.arraycopy(bounds, 0, min, 0, 3);
+            System.arraycopy(bounds, 3, max, 0, 3);
+        } else {
+            for (int i = 0; i < used; i++) {
+                int base = order[i] * 3;
+                for (int c = 0; c < 3; c++) {
+                    float value = positions[base + c];
+                    if (value < min[c]) min[c] = value;
+                    if (value > max[c]) max[c] = value;
+                }
+            }
+            if (used == 0) {
+                Arrays.fill(min, 0f);
+                Arrays.fill(max, 0f);
+            }
+        }
+        float extent = Math.max(max[0] - min[0], Math.max(max[1] - min[1], max[2] - min[2]));
+        if (!(extent > 0f)) {
+            extent = 1f;
+        }
+        int maxQuantized = (1 << quantizationBits) - 1;
+        double scale = maxQuantized / (double) extent;
+
+        int[] quantized = new int[used * 3];
+        for (int i = 0; i < used; i++) {
+            int base = order[i] * 3;
+            for (int c = 0; c < 3; c++) {
+                int q = (int) Math.round((positions[base + c] - min[c]) * scale);
+                quantized[i * 3 + c] = Math.max(0, Math.min(q, maxQuantized));
+            }
+        }
+        int[] residuals = new int[used * 3];
+        predictPositions(ordered, used, quantized, residuals, true);
+        VarintSink positionSink = new VarintSink(used * 3 + 16);
+        for (int residual : residuals) {
+            positionSink.writeSigned(residual);
+        }
+
+        // 连接性：每个三角形一个操作码（0-2 表示与前一三角形第 e 条边相邻，3 表示独立三角形），
+        // 顶点引用写入单独的数据块
+        VarintSink operationSink = new VarintSink(ordered.length / 3 + 16);
+        VarintSink referenceSink = new VarintSink(ordered.length + 16);
+        int nextNew = 0;
+        for (int t = 0; t < ordered.length; t += 3) {
+            int edge = t > 0 ? sharedEdge(ordered, t - 3, ordered[t], ordered[t + 1]) : -1;
+            if (edge >= 0) {
+                operationSink.writeUnsigned(edge);
+            } else {
+                operationSink.writeUnsigned(3);
+                nextNew = writeReference(referenceSink, ordered[t], nextNew);
+                nextNew = writeReference(referenceSink, ordered[t + 1], nextNew);
+            }
+            nextNew = writeReference(referenceSink, ordered[t + 2], nextNew);
+        }
+
+        byte[] positionBlock = deflate(positionSink.buffer, positionSink.size);
+        byte[] operationBlock = deflate(operationSink.buffer, operationSink.size);
+        byte[] referenceBlock = deflate(referenceSink.buffer, referenceSink.size);
+
+        ByteBuffer out = ByteBuffer.allocate(HEADER_SIZE + 12
+                        + positionBlock.length + operationBlock.length + referenceBlock.length)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(MAGIC);
+        out.put((byte) VERSION);
+        out.put((byte) quantizationBits);
+        out.putShort((short) 0);
+        out.putInt(used);
+        out.putInt(ordered.length / 3);
+        out.putFloat(min[0]);
+        out.putFloat(min[1]);
+        out.putFloat(min[2]);
+        out.putFloat(extent);
+        out.putInt(positionBlock.length);
+        out.put(positionBlock);
+        out.putInt(operationBlock.length);
+        out.put(operationBlock);
+        out.putInt(referenceBlock.length);
+        out.put(referenceBlock);
+        return out.array();
+    }
+
+    public static MeshData decode(byte[] data) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        if (data.length < HEADER_SIZE || in.getInt() != MAGIC) {
+            throw new IOException("不是有效的MTC文件");
+        }
+        int version = in.get() & 0xFF;
+        if (version != VERSION) {
+            throw new IOException("不支持的MTC版本: " + version);
+        }
+        int quantizationBits = in.get() & 0xFF;
+        in.getShort();
+        int vertexCount = in.getInt();
+        int triangleCount = in.getInt();
+        float minX = in.getFloat();
+        float minY = in.getFloat();
+        float minZ = in.getFloat();
+        float extent = in.getFloat();
+        float step = extent / ((1 << quantizationBits) - 1);
+
+        byte[] positionBlock = readBlock(data, in);
+        byte[] operationBlock = readBlock(data, in);
+        byte[] referenceBlock = readBlock(data, in);
+
+        int[] indices = new int[triangleCount * 3];
+        VarintSource operations = new VarintSource(operationBlock);
+        VarintSource references = new VarintSource(referenceBlock);
+        int nextNew = 0;
+        for (int t = 0; t < indices.length; t += 3) {
+            int operation = operations.readUnsigned();
+            if (operation < 3) {
+                if (t == 0) {
+                    throw new IOException("MTC首个三角形不能引用前一三角形");
+                }
+                indices[t] = indices[t - 3 + (operation + 1) % 3];
+                indices[t + 1] = indices[t - 3 + operation];
+            } else {
+                int code = references.readUnsigned();
+                indices[t] = code == 0 ? nextNew++ : nextNew - code;
+                code = references.readUnsigned();
+                indices[t + 1] = code == 0 ? nextNew++ : nextNew - code;
+            }
+            int code = references.readUnsigned();
+            indices[t + 2] = code == 0 ? nextNew++ : nextNew - code;
+            for (int k = t; k < t + 3; k++) {
+                if (indices[k] < 0 || indices[k] >= vertexCount) {
+                    throw new IOException("MTC索引越界: " + indices[k]);
+                }
+            }
+        }
+
+        int[] residuals = new int[vertexCount * 3];
+        VarintSource positionSource = new VarintSource(positionBlock);
+        for (int i = 0; i < residuals.length; i++) {
+            residuals[i] = positionSource.readSigned();
+        }
+        int[] quantized = new int[vertexCount * 3];
+        predictPositions(indices, vertexCount, quantized, residuals, false);
+
+        float[] positions = new float[vertexCount * 3];
+        float[] origin = {minX, minY, minZ};
+        for (int i = 0; i < vertexCount; i++) {
+            for (int c = 0; c < 3; c++) {
+                positions[i * 3 + c] = origin[c] + quantized[i * 3 + c] * step;
+            }
+        }
+        return new MeshData(positions, indices);
+    }
+
+    /**
+     * 将每个三角形循环旋转（保持绕序），使其与前一个三角形共享的边位于前两个顶点
+     */
+    private static void rotateToSharedEdges(int[] indices) {
+        for (int t = 3; t < indices.length; t += 3) {
+            for (int r = 0; r < 3; r++) {
+                int a = indices[t + r];
+                int b = indices[t + (r + 1) % 3];
+                if (sharedEdge(indices, t - 3, a, b) >= 0) {
+                    if (r > 0) {
+                        int c = indices[t + (r + 2) % 3];
+                        indices[t] = a;
+                        indices[t + 1] = b;
+                        indices[t + 2] = c;
+                    }
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * 查找前一三角形中与有向边 (a,b) 反向相邻的边序号 e（满足 P[e]==b 且 P[e+1]==a），不存在返回 -1
+     */
+    private static int sharedEdge(int[] indices, int previous, int a, int b) {
+        for (int e = 0; e < 3; e++) {
+            if (indices[previous + e] == b && indices[previous + (e + 1) % 3] == a) {
+                return e;
+            }
+        }
+        return -1;
+    }
+
+    /** 顶点引用编码：0 表示新顶点，否则为 (下一个新顶点编号 - 索引) */
+    private static int writeReference(VarintSink sink, int index, int nextNew) {
+        if (index == nextNew) {
+            sink.writeUnsigned(0);
+            return nextNew + 1;
+        }
+        sink.writeUnsigned(nextNew - index);
+        return nextNew;
+    }
+
+    private static byte[] readBlock(byte[] data, ByteBuffer in) throws IOException {
+        int length = in.getInt();
+        if (length < 0 || in.position() + length > data.length) {
+            throw new IOException("MTC数据块长度无效: " + length);
+        }
+        byte[] block = inflate(data, in.position(), length);
+        in.position(in.position() + length);
+        return block;
+    }
+
+    /**
+     * 按三角形顺序遍历新顶点并做位置预测，编码时由坐标计算残差，解码时由残差恢复坐标。
+     * 预测规则：新顶点所在三角形另两个顶点已知且该边有已输出的相邻三角形时用平行四边形预测，
+     * 否则取三角形中已知顶点的均值，都没有时取前一个顶点。残差按分量分块存放（x..., y..., z...）。
+     */
+    private static void predictPositions(int[] indices, int vertexCount, int[] quantized, int[] residuals, boolean encode) {
+        EdgeMap edges = new EdgeMap(indices.length);
+        int[] predicted = new int[3];
+        int seen = 0;
+        for (int t = 0; t < indices.length; t += 3) {
+            for (int k = 0; k < 3; k++) {
+                int vertex = indices[t + k];
+                if (vertex != seen) {
+                    continue;
+                }
+                int a = indices[t + (k + 1) % 3];
+                int b = indices[t + (k + 2) % 3];
+                int opposite = (a < vertex && b < vertex) ? edges.get(a, b) : -1;
+                if (opposite >= 0) {
+                    for (int c = 0; c < 3; c++) {
+                        predicted[c] = quantized[a * 3 + c] + quantized[b * 3 + c] - quantized[opposite * 3 + c];
+                    }
+                } else {
+                    averageKnown(quantized, vertex, a, b, predicted);
+                }
+                for (int c = 0; c < 3; c++) {
+                    int slot = c * vertexCount + vertex;
+                    if (encode) {
+                        residuals[slot] = quantized[vertex * 3 + c] - predicted[c];
+                    } else {
+                        quantized[vertex * 3 + c] = predicted[c] + residuals[slot];
+                    }
+                }
+                seen++;
+            }
+            edges.put(indices[t], indices[t + 1], indices[t + 2]);
+            edges.put(indices[t + 1], indices[t + 2], indices[t]);
+            edges.put(indices[t + 2], indices[t], indices[t + 1]);
+        }
+    }
+
+    private static void averageKnown(int[] quantized, int vertex, int a, int b, int[] predicted) {
+        int known = 0;
+        predicted[0] = 0;
+        predicted[1] = 0;
+        predicted[2] = 0;
+        for (int v : new int[] {a, b}) {
+            if (v < vertex) {
+                predicted[0] += quantized[v * 3];
+                predicted[1] += quantized[v * 3 + 1];
+                predicted[2] += quantized[v * 3 + 2];
+                known++;
+            }
+        }
+        if (known == 2) {
+            predicted[0] /= 2;
+            predicted[1] /= 2;
+            predicted[2] /= 2;
+        } else if (known == 0 && vertex > 0) {
+            predicted[0] = quantized[(vertex - 1) * 3];
+            predicted[1] = quantized[(vertex - 1) * 3 + 1];
+            predicted[2] = quantized[(vertex - 1) * 3 + 2];
+        }
+    }
+
+    private static byte[] deflate(byte[] input, int length) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(input, 0, length);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, length / 2));
+            byte[] buffer = new byte[65536];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] data, int offset, int length) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, offset, length);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(length * 3);
+            byte[] buffer = new byte[65536];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                // 空数据块解压出 0 字节的同时即结束，不能当作数据不完整
+                if (n == 0 && !inflater.finished() && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("MTC数据块不完整");
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException("MTC数据块解压失败: " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /** 无向边 -> 对顶点 的开放寻址哈希表（后写入的覆盖先写入的） */
+    private static final class EdgeMap {
+        private final long[] keys;
+        private final int[] values;
+        private final int mask;
+
+        EdgeMap(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(16, expected * 2) - 1) << 1;
+            keys = new long[capacity];
+            values = new int[capacity];
+            Arrays.fill(keys, -1L);
+            mask = capacity - 1;
+        }
+
+        private static long key(int a, int b) {
+            return a < b ? ((long) a << 32) | b : ((long) b << 32) | a;
+        }
+
+        private int slot(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h >>> 40) & mask;
+        }
+
+        void put(int a, int b, int opposite) {
+            long key = key(a, b);
+            int i = slot(key);
+            while (keys[i] != -1L && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = opposite;
+        }
+
+        int get(int a, int b) {
+            long key = key(a, b);
+            int i = slot(key);
+            while (keys[i] != -1L) {
+                if (keys[i] == key) {
+                    return values[i];
+                }
+                i = (i + 1) & mask;
+            }
+            return -1;
+        }
+    }
+
+    /** 可增长的varint字节缓冲 */
+    private static final class VarintSink {
+        private byte[] buffer;
+        private int size;
+
+        VarintSink(int capacity) {
+            buffer = new byte[capacity];
+        }
+
+        void writeSigned(int value) {
+            writeUnsigned((value << 1) ^ (value >> 31));
+        }
+
+        void writeUnsigned(int value) {
+            if (size + 5 > buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2 + 5);
+            }
+            while ((value & ~0x7F) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+    }
+
+    private static final class VarintSource {
+        private final byte[] buffer;
+        private int position;
+
+        VarintSource(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        int readSigned() throws IOException {
+            int raw = readUnsigned();
+            return (raw >>> 1) ^ -(raw & 1);
+        }
+
+        int readUnsigned() throws IOException {
+            int result = 0;
+            int shift = 0;
+            while (true) {
+                if (position >= buffer.length) {
+                    throw new IOException("MTC数据块提前结束");
+                }
+                int b = buffer[position++];
+                result |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+                shift += 7;
+            }
+        }
+    }
+}
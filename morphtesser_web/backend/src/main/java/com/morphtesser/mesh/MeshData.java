@@ -0,0 +1,32 @@
+package com.morphtesser.mesh;
+
+/**
+ * 三角网格数据（扁平数组存储）
+ * positions 按 x,y,z 交错存放，indices 每三个元素构成一个三角形（0 起始）
+ */
+public class MeshData {
+
+    private final float[] positions;
+    private final int[] indices;
+
+    public MeshData(float[] positions, int[] indices) {
+        this.positions = positions;
+        this.indices = indices;
+    }
+
+    public float[] getPositions() {
+        return positions;
+    }
+
+    public int[] getIndices() {
+        return indices;
+    }
+
+    public int getVertexCount() {
+        return positions.length / 3;
+    }
+
+    public int getTriangleCount() {
+        return indices.length / 3;
+    }
+}
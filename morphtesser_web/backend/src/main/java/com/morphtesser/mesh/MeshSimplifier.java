@@ -0,0 +1,561 @@
+package com.morphtesser.mesh;
+
+import java.util.Arrays;
+
+/**
+ * 网格简化：基于二次误差度量（QEM，Garland &amp; Heckbert 1997）的边折叠
+ * <p>
+ * 每个顶点累积相邻三角形平面（按面积加权）的二次误差矩阵，边界边额外加入垂直于面片的约束平面，
+ * 候选边按折叠代价放入最小堆，每次取出代价最小的边折叠到使误差最小的位置，直到三角形数降到目标值。
+ * <ul>
+ *   <li>顶点 → 三角形邻接用扁平的角点链表（每个顶点一个链表头，每个角点一个 next），折叠时把被删顶点的链表接到保留顶点上</li>
+ *   <li>堆中的过期条目不删除，按两端顶点的版本号惰性丢弃</li>
+ *   <li>会导致面片翻转、产生非流形边或把两条边界捏合的折叠被拒绝</li>
+ * </ul>
+ * 只处理共享顶点的网格，未焊接的重复顶点之间不会合并。
+ */
+public final class MeshSimplifier {
+
+    // 边界约束平面相对面片误差的权重
+    private static final double BOUNDARY_WEIGHT = 10.0;
+
+    // 折叠后相邻面片法向量与原法向量夹角余弦的下限，低于该值视为翻转
+    private static final double MIN_NORMAL_COSINE = 0.2;
+
+    private MeshSimplifier() {
+    }
+
+    /**
+     * @param targetTriangles 目标三角形数，网格无法继续折叠时结果可能多于目标值
+     * @return 简化后的网格（不修改输入）；已不多于目标值时返回原网格
+     */
+    public static MeshData simplify(MeshData mesh, int targetTriangles) {
+        if (mesh.getTriangleCount() <= targetTriangles) {
+            return mesh;
+        }
+        return new State(mesh).run(Math.max(0, targetTriangles));
+    }
+
+    private static final class State {
+        final int vertexCount;
+        final int triangleCount;
+        final double[] position;
+        final int[] indices;
+        final double[] quadric;
+        final boolean[] triangleRemoved;
+        final boolean[] vertexRemoved;
+        final boolean[] boundary;
+        final int[] version;
+        final int[] head;
+        final int[] next;
+        final int[] mark;
+        int markStamp;
+        int liveTriangles;
+        final EdgeHeap heap;
+        final double[] candidate = new double[3];
+        final double[] before = new double[3];
+        final double[] after = new double[3];
+
+        State(MeshData mesh) {
+            vertexCount = mesh.getVertexCount();
+            triangleCount = mesh.getTriangleCount();
+            float[] source = mesh.getPositions();
+            position = new double[vertexCount * 3];
+            for (int i = 0; i < position.length; i++) {
+                position[i] = source[i];
+            }
+            indices = mesh.getIndices().clone();
+            quadric = new double[vertexCount * 10];
+            triangleRemoved = new boolean[triangleCount];
+            vertexRemoved = new boolean[vertexCount];
+            boundary = new boolean[vertexCount];
+            version = new int[vertexCount];
+            head = new int[vertexCount];
+            next = new int[triangleCount * 3];
+            mark = new int[vertexCount];
+            heap = new EdgeHeap(triangleCount * 2 + 16);
+
+            Arrays.fill(head, -1);
+            for (int t = 0; t < triangleCount; t++) {
+                int a = indices[t * 3], b = indices[t * 3 + 1], c = indices[t * 3 + 2];
+                if (a == b || b == c || c == a) {
+                    triangleRemoved[t] = true;
+                    continue;
+                }
+                liveTriangles++;
+                for (int k = 0; k < 3; k++) {
+                    int corner = t * 3 + k;
+                    int v = indices[corner];
+                    next[corner] = head[v];
+                    head[v] = corner;
+                }
+                addFaceQuadric(a, b, c);
+            }
+            addBoundaryQuadricsAndEdges();
+        }
+
+        private void addFaceQuadric(int a, int b, int c) {
+            double[] n = before;
+            double length = normal(a, b, c, position, -1, 0, 0, 0, n);
+            if (length == 0) {
+                return;
+            }
+            double nx = n[0] / length, ny = n[1] / length, nz = n[2] / length;
+            double d = -(nx * position[a * 3] + ny * position[a * 3 + 1] + nz * position[a * 3 + 2]);
+            double area = length * 0.5;
+            addPlane(a, nx, ny, nz, d, area);
+            addPlane(b, nx, ny, nz, d, area);
+            addPlane(c, nx, ny, nz, d, area);
+        }
+
+        /**
+         * 所有边排序去重：只属于一个三角形的边为边界边，两端加入约束平面；去重后的每条边作为初始候选
+         */
+        private void addBoundaryQuadricsAndEdges() {
+            long[] edges = new long[liveTriangles * 3];
+            int count = 0;
+            for (int t = 0; t < triangleCount; t++) {
+                if (triangleRemoved[t]) {
+                    continue;
+                }
+                for (int k = 0; k < 3; k++) {
+                    int u = indices[t * 3 + k], v = indices[t * 3 + (k + 1) % 3];
+                    edges[count++] = edgeKey(u, v);
+                }
+            }
+            Arrays.sort(edges, 0, count);
+            for (int i = 0; i < count; ) {
+                int j = i + 1;
+                while (j < count && edges[j] == edges[i]) {
+                    j++;
+                }
+                int u = (int) (edges[i] >>> 32), v = (int) edges[i];
+                if (j - i == 1) {
+                    addBoundaryPlane(u, v);
+                }
+                i = j;
+            }
+            for (int i = 0; i < count; i++) {
+                if (i > 0 && edges[i] == edges[i - 1]) {
+                    continue;
+                }
+                pushEdge((int) (edges[i] >>> 32), (int) edges[i]);
+            }
+        }
+
+        private void addBoundaryPlane(int u, int v) {
+            boundary[u] = true;
+            boundary[v] = true;
+            // 找到包含该边的三角形，约束平面过边且垂直于该三角形
+            for (int corner = head[u]; corner >= 0; corner = next[corner]) {
+                int t = corner / 3;
+                int a = indices[t * 3], b = indices[t * 3 + 1], c = indices[t * 3 + 2];
+                if (a != v && b != v && c != v) {
+                    continue;
+                }
+                double[] n = before;
+                double length = normal(a, b, c, position, -1, 0, 0, 0, n);
+                if (length == 0) {
+                    return;
+                }
+                double ex = position[v * 3] - position[u * 3];
+                double ey = position[v * 3 + 1] - position[u * 3 + 1];
+                double ez = position[v * 3 + 2] - position[u * 3 + 2];
+                double px = ey * n[2] - ez * n[1], py = ez * n[0] - ex * n[2], pz = ex * n[1] - ey * n[0];
+                double pl = Math.sqrt(px * px + py * py + pz * pz);
+                if (pl == 0) {
+                    return;
+                }
+                px /= pl;
+                py /= pl;
+                pz /= pl;
+                double d = -(px * position[u * 3] + py * position[u * 3 + 1] + pz * position[u * 3 + 2]);
+                double weight = BOUNDARY_WEIGHT * (ex * ex + ey * ey + ez * ez);
+                addPlane(u, px, py, pz, d, weight);
+                addPlane(v, px, py, pz, d, weight);
+                return;
+            }
+        }
+
+        private void addPlane(int v, double a, double b, double c, double d, double w) {
+            int q = v * 10;
+            quadric[q] += w * a * a;
+            quadric[q + 1] += w * a * b;
+            quadric[q + 2] += w * a * c;
+            quadric[q + 3] += w * a * d;
+            quadric[q + 4] += w * b * b;
+            quadric[q + 5] += w * b * c;
+            quadric[q + 6] += w * b * d;
+            quadric[q + 7] += w * c * c;
+            quadric[q + 8] += w * c * d;
+            quadric[q + 9] += w * d * d;
+        }
+
+        MeshData run(int targetTriangles) {
+            while (liveTriangles > targetTriangles && heap.size > 0) {
+                int u = heap.topA();
+                int v = heap.topB();
+                boolean stale = vertexRemoved[u] || vertexRemoved[v]
+                    || heap.topStampA() != version[u] || heap.topStampB() != version[v];
+                heap.pop();
+                if (stale) {
+                    continue;
+                }
+                optimalPosition(u, v, candidate);
+                if (canCollapse(u, v, candidate)) {
+                    collapse(u, v, candidate);
+                }
+            }
+            return compact();
+        }
+
+        /**
+         * 折叠合法性：两端公共邻点数必须等于共享该边的三角形数（否则产生非流形），
+         * 两个边界顶点之间的内部边不折叠（会捏合边界），相邻面片不能翻转或退化
+         */
+        private boolean canCollapse(int u, int v, double[] x) {
+            int stamp = ++markStamp;
+            int shared = 0;
+            for (int corner = head[u]; corner >= 0; corner = next[corner]) {
+                int t = corner / 3;
+                if (triangleRemoved[t]) {
+                    continue;
+                }
+                boolean containsV = false;
+                for (int k = 0; k < 3; k++) {
+                    int w = indices[t * 3 + k];
+                    containsV |= w == v;
+                    mark[w] = stamp;
+                }
+                if (containsV) {
+                    shared++;
+                }
+            }
+            if (shared == 0) {
+                return false;
+            }
+            if (boundary[u] && boundary[v] && shared > 1) {
+                return false;
+            }
+            int common = 0;
+            int stamp2 = ++markStamp;
+            for (int corner = head[v]; corner >= 0; corner = next[corner]) {
+                int t = corner / 3;
+                if (triangleRemoved[t]) {
+                    continue;
+                }
+                for (int k = 0; k < 3; k++) {
+                    int w = indices[t * 3 + k];
+                    if (w != u && w != v && mark[w] == stamp) {
+                        mark[w] = stamp2;
+                        common++;
+                    }
+                }
+            }
+            if (common != shared) {
+                return false;
+            }
+            return !flips(u, v, x) && !flips(v, u, x);
+        }
+
+        /**
+         * 把 moved 移到 x 后，包含 moved 但不包含 other 的三角形是否翻转或退化
+         */
+        private boolean flips(int moved, int other, double[] x) {
+            for (int corner = head[moved]; corner >= 0; corner = next[corner]) {
+                int t = corner / 3;
+                if (triangleRemoved[t]) {
+                    continue;
+                }
+                int a = indices[t * 3], b = indices[t * 3 + 1], c = indices[t * 3 + 2];
+                if (a == other || b == other || c == other) {
+                    continue;
+                }
+                double lb = normal(a, b, c, position, -1, 0, 0, 0, before);
+                double la = normal(a, b, c, position, moved, x[0], x[1], x[2], after);
+                if (la == 0 || lb == 0) {
+                    return true;
+                }
+                double dot = before[0] * after[0] + before[1] * after[1] + before[2] * after[2];
+                if (dot < MIN_NORMAL_COSINE * la * lb) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void collapse(int u, int v, double[] x) {
+            // u 的三角形：包含 v 的删除，其余把 u 换成 v
+            int corner = head[u];
+            while (corner >= 0) {
+                int following = next[corner];
+                int t = corner / 3;
+                if (!triangleRemoved[t]) {
+                    int base = t * 3;
+                    if (indices[base] == v || indices[base + 1] == v || indices[base + 2] == v) {
+                        triangleRemoved[t] = true;
+                        liveTriangles--;
+                    } else {
+                        indices[corner] = v;
+                        next[corner] = head[v];
+                        head[v] = corner;
+                    }
+                }
+                corner = following;
+            }
+            head[u] = -1;
+            vertexRemoved[u] = true;
+            boundary[v] |= boundary[u];
+            position[v * 3] = x[0];
+            position[v * 3 + 1] = x[1];
+            position[v * 3 + 2] = x[2];
+            for (int k = 0; k < 10; k++) {
+                quadric[v * 10 + k] += quadric[u * 10 + k];
+            }
+            version[v]++;
+
+            // 去掉 v 链表中已删除的三角形，同时为 v 的所有邻边重新计算代价
+            int stamp = ++markStamp;
+            mark[v] = stamp;
+            int previous = -1;
+            corner = head[v];
+            while (corner >= 0) {
+                int following = next[corner];
+                int t = corner / 3;
+                if (triangleRemoved[t]) {
+                    if (previous < 0) {
+                        head[v] = following;
+                    } else {
+                        next[previous] = following;
+                    }
+                } else {
+                    for (int k = 0; k < 3; k++) {
+                        int w = indices[t * 3 + k];
+                        if (mark[w] != stamp) {
+                            mark[w] = stamp;
+                            pushEdge(v, w);
+                        }
+                    }
+                    previous = corner;
+                }
+                corner = following;
+            }
+        }
+
+        private void pushEdge(int u, int v) {
+            optimalPosition(u, v, candidate);
+            heap.push(error(u, v, candidate[0], candidate[1], candidate[2]), u, v, version[u], version[v]);
+        }
+
+        /**
+         * 求 (Qu + Qv) 的最小误差点；矩阵接近奇异或解离边太远时，在两端点与中点中取误差最小者
+         */
+        private void optimalPosition(int u, int v, double[] out) {
+            int qu = u * 10, qv = v * 10;
+            double a = quadric[qu] + quadric[qv], b = quadric[qu + 1] + quadric[qv + 1];
+            double c = quadric[qu + 2] + quadric[qv + 2], d = quadric[qu + 3] + quadric[qv + 3];
+            double e = quadric[qu + 4] + quadric[qv + 4], f = quadric[qu + 5] + quadric[qv + 5];
+            double g = quadric[qu + 6] + quadric[qv + 6], h = quadric[qu + 7] + quadric[qv + 7];
+            double i = quadric[qu + 8] + quadric[qv + 8];
+            double ux = position[u * 3], uy = position[u * 3 + 1], uz = position[u * 3 + 2];
+            double vx = position[v * 3], vy = position[v * 3 + 1], vz = position[v * 3 + 2];
+            double mx = (ux + vx) * 0.5, my = (uy + vy) * 0.5, mz = (uz + vz) * 0.5;
+            double lengthSquared = (ux - vx) * (ux - vx) + (uy - vy) * (uy - vy) + (uz - vz) * (uz - vz);
+
+            // 对称矩阵 [a b c; b e f; c f h] x = -[d g i]，克拉默法则
+            double c00 = e * h - f * f, c01 = c * f - b * h, c02 = b * f - c * e;
+            double det = a * c00 + b * c01 + c * c02;
+            double scale = Math.abs(a) + Math.abs(e) + Math.abs(h);
+            double bestError = Double.POSITIVE_INFINITY;
+            if (Math.abs(det) > 1e-12 * scale * scale * scale && scale > 0) {
+                double c11 = a * h - c * c, c12 = b * c - a * f, c22 = a * e - b * b;
+                double x = -(c00 * d + c01 * g + c02 * i) / det;
+                double y = -(c01 * d + c11 * g + c12 * i) / det;
+                double z = -(c02 * d + c12 * g + c22 * i) / det;
+                double dx = x - mx, dy = y - my, dz = z - mz;
+                if (dx * dx + dy * dy + dz * dz <= 4 * lengthSquared) {
+                    out[0] = x;
+                    out[1] = y;
+                    out[2] = z;
+                    bestError = error(u, v, x, y, z);
+                }
+            }
+            double eu = error(u, v, ux, uy, uz);
+            if (eu < bestError) {
+                bestError = eu;
+                out[0] = ux;
+                out[1] = uy;
+                out[2] = uz;
+            }
+            double ev = error(u, v, vx, vy, vz);
+            if (ev < bestError) {
+                bestError = ev;
+                out[0] = vx;
+                out[1] = vy;
+                out[2] = vz;
+            }
+            if (error(u, v, mx, my, mz) < bestError) {
+                out[0] = mx;
+                out[1] = my;
+                out[2] = mz;
+            }
+        }
+
+        private double error(int u, int v, double x, double y, double z) {
+            int qu = u * 10, qv = v * 10;
+            double[] q = quadric;
+            double value = (q[qu] + q[qv]) * x * x + 2 * (q[qu + 1] + q[qv + 1]) * x * y
+                + 2 * (q[qu + 2] + q[qv + 2]) * x * z + 2 * (q[qu + 3] + q[qv + 3]) * x
+                + (q[qu + 4] + q[qv + 4]) * y * y + 2 * (q[qu + 5] + q[qv + 5]) * y * z
+                + 2 * (q[qu + 6] + q[qv + 6]) * y + (q[qu + 7] + q[qv + 7]) * z * z
+                + 2 * (q[qu + 8] + q[qv + 8]) * z + (q[qu + 9] + q[qv + 9]);
+            return Math.max(0, value);
+        }
+
+        private MeshData compact() {
+            int[] remap = new int[vertexCount];
+            Arrays.fill(remap, -1);
+            int[] out = new int[liveTriangles * 3];
+            int vertices = 0;
+            int count = 0;
+            for (int t = 0; t < triangleCount; t++) {
+                if (triangleRemoved[t]) {
+                    continue;
+                }
+                for (int k = 0; k < 3; k++) {
+                    int v = indices[t * 3 + k];
+                    if (remap[v] < 0) {
+                        remap[v] = vertices++;
+                    }
+                    out[count++] = remap[v];
+                }
+            }
+            float[] positions = new float[vertices * 3];
+            for (int v = 0; v < vertexCount; v++) {
+                if (remap[v] >= 0) {
+                    positions[remap[v] * 3] = (float) position[v * 3];
+                    positions[remap[v] * 3 + 1] = (float) position[v * 3 + 1];
+                    positions[remap[v] * 3 + 2] = (float) position[v * 3 + 2];
+                }
+            }
+            return new MeshData(positions, out);
+        }
+    }
+
+    private static long edgeKey(int u, int v) {
+        return u < v ? ((long) u << 32) | v : ((long) v << 32) | u;
+    }
+
+    /**
+     * 三角形 (a,b,c) 的未归一化法向量写入 out，返回其长度；moved 顶点的坐标用 (x,y,z) 代替
+     */
+    private static double normal(int a, int b, int c, double[] p, int moved, double x, double y, double z, double[] out) {
+        double ax = a == moved ? x : p[a * 3], ay = a == moved ? y : p[a * 3 + 1], az = a == moved ? z : p[a * 3 + 2];
+        double bx = b == moved ? x : p[b * 3], by = b == moved ? y : p[b * 3 + 1], bz = b == moved ? z : p[b * 3 + 2];
+        double cx = c == moved ? x : p[c * 3], cy = c == moved ? y : p[c * 3 + 1], cz = c == moved ? z : p[c * 3 + 2];
+        double e1x = bx - ax, e1y = by - ay, e1z = bz - az;
+        double e2x = cx - ax, e2y = cy - ay, e2z = cz - az;
+        out[0] = e1y * e2z - e1z * e2y;
+        out[1] = e1z * e2x - e1x * e2z;
+        out[2] = e1x * e2y - e1y * e2x;
+        return Math.sqrt(out[0] * out[0] + out[1] * out[1] + out[2] * out[2]);
+    }
+
+    /**
+     * 候选边最小堆（并行数组），过期条目按顶点版本号在出堆时丢弃
+     */
+    private static final class EdgeHeap {
+        double[] cost;
+        int[] a;
+        int[] b;
+        int[] stampA;
+        int[] stampB;
+        int size;
+
+        EdgeHeap(int capacity) {
+            cost = new double[capacity];
+            a = new int[capacity];
+            b = new int[capacity];
+            stampA = new int[capacity];
+            stampB = new int[capacity];
+        }
+
+        int topA() {
+            return a[0];
+        }
+
+        int topB() {
+            return b[0];
+        }
+
+        int topStampA() {
+            return stampA[0];
+        }
+
+        int topStampB() {
+            return stampB[0];
+        }
+
+        void push(double c, int u, int v, int su, int sv) {
+            if (size == cost.length) {
+                int capacity = cost.length * 2;
+                cost = Arrays.copyOf(cost, capacity);
+                a = Arrays.copyOf(a, capacity);
+                b = Arrays.copyOf(b, capacity);
+                stampA = Arrays.copyOf(stampA, capacity);
+                stampB = Arrays.copyOf(stampB, capacity);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (cost[parent] <= c) {
+                    break;
+                }
+                move(parent, i);
+                i = parent;
+            }
+            set(i, c, u, v, su, sv);
+        }
+
+        void pop() {
+            size--;
+            if (size == 0) {
+                return;
+            }
+            double c = cost[size];
+            int u = a[size], v = b[size], su = stampA[size], sv = stampB[size];
+            int i = 0;
+            while (true) {
+                int child = i * 2 + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && cost[child + 1] < cost[child]) {
+                    child++;
+                }
+                if (cost[child] >= c) {
+                    break;
+                }
+                move(child, i);
+                i = child;
+            }
+            set(i, c, u, v, su, sv);
+        }
+
+        private void move(int from, int to) {
+            cost[to] = cost[from];
+            a[to] = a[from];
+            b[to] = b[from];
+            stampA[to] = stampA[from];
+            stampB[to] = stampB[from];
+        }
+
+        private void set(int i, double c, int u, int v, int su, int sv) {
+            cost[i] = c;
+            a[i] = u;
+            b[i] = v;
+            stampA[i] = su;
+            stampB[i] = sv;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.morphtesser.mesh;
+
+import java.util.Arrays;
+
+/**
+ * 顶点焊接：坐标完全相同的顶点合并为一个（+0 与 -0 视为相同）
+ * <p>
+ * 输出顶点按在索引中首次出现的顺序编号，未被三角形引用的顶点被丢弃；
+ * 焊接后退化（有重复顶点）的三角形一并删除。
+ */
+public final class MeshWelder {
+
+    private MeshWelder() {
+    }
+
+    public static MeshData weld(MeshData mesh) {
+        float[] positions = mesh.getPositions();
+        int[] indices = mesh.getIndices();
+        int vertexCount = mesh.getVertexCount();
+
+        // 开放寻址哈希表：槽位存新顶点编号，-1 为空
+        int capacity = Integer.highestOneBit(Math.max(4, vertexCount) * 2 - 1) << 1;
+        int mask = capacity - 1;
+        int[] table = new int[capacity];
+        Arrays.fill(table, -1);
+        int[] remap = new int[vertexCount];
+        Arrays.fill(remap, -1);
+        float[] welded = new float[positions.length];
+        int count = 0;
+        int[] out = new int[indices.length];
+        int triangles = 0;
+        int[] corner = new int[3];
+        for (int t = 0; t + 2 < indices.length; t += 3) {
+            for (int k = 0; k < 3; k++) {
+                int v = indices[t + k];
+                if (remap[v] < 0) {
+                    float x = positions[3 * v] + 0.0f;
+                    float y = positions[3 * v + 1] + 0.0f;
+                    float z = positions[3 * v + 2] + 0.0f;
+                    int slot = hash(x, y, z) & mask;
+                    while (true) {
+                        int candidate = table[slot];
+                        if (candidate < 0) {
+                            table[slot] = count;
+                            welded[3 * count] = x;
+                            welded[3 * count + 1] = y;
+                            welded[3 * count + 2] = z;
+                            remap[v] = count++;
+                            break;
+                        }
+                        if (welded[3 * candidate] == x && welded[3 * candidate + 1] == y
+                                && welded[3 * candidate + 2] == z) {
+                            remap[v] = candidate;
+                            break;
+                        }
+                        slot = (slot + 1) & mask;
+                    }
+                }
+                corner[k] = remap[v];
+            }
+            if (corner[0] == corner[1] || corner[1] == corner[2] || corner[0] == corner[2]) {
+                continue;
+            }
+            out[triangles * 3] = corner[0];
+            out[triangles * 3 + 1] = corner[1];
+            out[triangles * 3 + 2] = corner[2];
+            triangles++;
+        }
+        return new MeshData(Arrays.copyOf(welded, count * 3), Arrays.copyOf(out, triangles * 3));
+    }
+
+    private static int hash(float x, float y, float z) {
+        long h = Float.floatToIntBits(x) * 0x9E3779B97F4A7C15L;
+        h = (h ^ Float.floatToIntBits(y)) * 0xC2B2AE3D27D4EB4FL;
+        h = (h ^ Float.floatToIntBits(z)) * 0x165667B19E3779F9L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
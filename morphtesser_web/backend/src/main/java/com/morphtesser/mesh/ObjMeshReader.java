@@ -0,0 +1,415 @@
+package com.morphtesser.mesh;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * OBJ读取器：只读取顶点位置（v）与面（f），多边形按扇形拆分为三角形；法向量（vn）只计数
+ * <p>
+ * 直接在字节缓冲上逐行解析，不为每行创建字符串，数值解析也不经过 String。
+ * {@link #read} 把几何写入可增长的 float/int 数组；{@link #scan} 不保留几何，只在同一遍扫描中统计
+ * 记录数、包围盒、索引越界与封闭性提示，内存占用只有顶点引用位图（每顶点 1 bit），适合几百 MB 的OBJ。
+ */
+public final class ObjMeshReader {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private static final double[] POW10 = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private ObjMeshReader() {
+    }
+
+    public static MeshData read(Path objPath) throws IOException {
+        try (InputStream in = Files.newInputStream(objPath)) {
+            return read(in);
+        }
+    }
+
+    public static MeshData read(byte[] objBytes) throws IOException {
+        return read(new ByteArrayInputStream(objBytes));
+    }
+
+    /**
+     * @throws IOException 格式错误或面索引越界
+     */
+    public static MeshData read(InputStream in) throws IOException {
+        Parser parser = new Parser(in, true);
+        parser.run();
+        if (parser.stats.firstError != null) {
+            throw new IOException(parser.stats.firstError);
+        }
+        return new MeshData(Arrays.copyOf(parser.positions, parser.positionCount),
+            Arrays.copyOf(parser.indices, parser.indexCount));
+    }
+
+    public static ObjStats scan(Path objPath) throws IOException {
+        try (InputStream in = Files.newInputStream(objPath)) {
+            return scan(in);
+        }
+    }
+
+    public static ObjStats scan(byte[] objBytes) throws IOException {
+        return scan(new ByteArrayInputStream(objBytes));
+    }
+
+    /**
+     * 只统计不保留几何；格式错误与越界索引记录在结果中，不抛异常
+     */
+    public static ObjStats scan(InputStream in) throws IOException {
+        Parser parser = new Parser(in, false);
+        parser.run();
+        return parser.stats;
+    }
+
+    private static final class Parser {
+        private final InputStream in;
+        private final boolean keepGeometry;
+        final ObjStats stats = new ObjStats();
+
+        private byte[] buffer = new byte[BUFFER_SIZE];
+        private int position;
+        private int limit;
+        private boolean eof;
+        private int cursor;
+        private int end;
+        private int lineNo;
+        private boolean numberOk;
+
+        float[] positions;
+        int positionCount;
+        int[] indices;
+        int indexCount;
+        private int[] face = new int[16];
+        private long[] referenced = new long[1024];
+        private int maxIndex = -1;
+        private long edgeHashA;
+        private long edgeHashB;
+
+        Parser(InputStream in, boolean keepGeometry) {
+            this.in = in;
+            this.keepGeometry = keepGeometry;
+            if (keepGeometry) {
+                positions = new float[3 * 1024];
+                indices = new int[3 * 2048];
+            }
+        }
+
+        void run() throws IOException {
+            long start = System.nanoTime();
+            while (true) {
+                int newline = -1;
+                for (int i = position; i < limit; i++) {
+                    if (buffer[i] == '\n') {
+                        newline = i;
+                        break;
+                    }
+                }
+                if (newline < 0) {
+                    if (!eof) {
+                        fill();
+                        continue;
+                    }
+                    if (position < limit) {
+                        parseLine(position, limit);
+                    }
+                    break;
+                }
+                parseLine(position, newline);
+                position = newline + 1;
+            }
+            finish();
+            stats.elapsedMicros = (System.nanoTime() - start) / 1000;
+        }
+
+        /**
+         * 把未处理的半行移到缓冲区开头再读入；单行超过缓冲区时扩容
+         */
+        private void fill() throws IOException {
+            int remaining = limit - position;
+            if (position > 0) {
+                System.arraycopy(buffer, position, buffer, 0, remaining);
+            } else if (remaining == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            position = 0;
+            limit = remaining;
+            int n = in.read(buffer, limit, buffer.length - limit);
+            if (n < 0) {
+                eof = true;
+            } else {
+                limit += n;
+                stats.bytes += n;
+            }
+        }
+
+        private void parseLine(int start, int stop) {
+            lineNo++;
+            cursor = start;
+            end = stop;
+            if (end > cursor && buffer[end - 1] == '\r') {
+                end--;
+            }
+            skipSpaces();
+            if (cursor + 1 >= end) {
+                return;
+            }
+            byte first = buffer[cursor];
+            byte second = buffer[cursor + 1];
+            if (first == 'v' && isSpace(second)) {
+                cursor++;
+                vertex();
+            } else if (first == 'v' && second == 'n' && (cursor + 2 == end || isSpace(buffer[cursor + 2]))) {
+                stats.normals++;
+            } else if (first == 'f' && isSpace(second)) {
+                cursor++;
+                face();
+            }
+        }
+
+        private void vertex() {
+            double x = parseNumber();
+            double y = numberOk ? parseNumber() : 0;
+            double z = numberOk ? parseNumber() : 0;
+            if (!numberOk) {
+                error("OBJ第" + lineNo + "行顶点坐标不完整");
+                stats.malformedLines++;
+                return;
+            }
+            stats.vertices++;
+            stats.minX = Math.min(stats.minX, x);
+            stats.minY = Math.min(stats.minY, y);
+            stats.minZ = Math.min(stats.minZ, z);
+            stats.maxX = Math.max(stats.maxX, x);
+            stats.maxY = Math.max(stats.maxY, y);
+            stats.maxZ = Math.max(stats.maxZ, z);
+            if (keepGeometry) {
+                if (positionCount + 3 > positions.length) {
+                    positions = Arrays.copyOf(positions, positions.length * 2);
+                }
+                positions[positionCount++] = (float) x;
+                positions[positionCount++] = (float) y;
+                positions[positionCount++] = (float) z;
+            }
+        }
+
+        private void face() {
+            int n = 0;
+            int vertexCount = stats.vertices;
+            while (true) {
+                skipSpaces();
+                if (cursor >= end) {
+                    break;
+                }
+                boolean negative = buffer[cursor] == '-';
+                if (negative || buffer[cursor] == '+') {
+                    cursor++;
+                }
+                long value = 0;
+                int digits = 0;
+                while (cursor < end && buffer[cursor] >= '0' && buffer[cursor] <= '9') {
+                    value = Math.min(value * 10 + (buffer[cursor] - '0'), Integer.MAX_VALUE);
+                    digits++;
+                    cursor++;
+                }
+                // 跳过 /vt/vn 部分
+                while (cursor < end && !isSpace(buffer[cursor])) {
+                    cursor++;
+                }
+                if (digits == 0) {
+                    error("OBJ第" + lineNo + "行面索引格式错误");
+                    stats.malformedLines++;
+                    return;
+                }
+                // OBJ 索引从1开始，负数表示相对末尾
+                long index = negative ? vertexCount - value : value - 1;
+                if (value == 0 || index < 0) {
+                    error("OBJ面索引越界: " + (negative ? -value : value) + " (顶点数=" + vertexCount + ")");
+                    stats.invalidIndices++;
+                    index = 0;
+                }
+                if (n == face.length) {
+                    face = Arrays.copyOf(face, n * 2);
+                }
+                face[n++] = (int) index;
+            }
+            if (n < 3) {
+                error("OBJ第" + lineNo + "行面顶点数不足3个");
+                stats.malformedLines++;
+                return;
+            }
+            stats.faces++;
+            stats.triangles += n - 2;
+            stats.polygonEdges += n;
+            if (n > 3) {
+                stats.polygonFaces++;
+            }
+            boolean degenerate = false;
+            for (int i = 0; i < n; i++) {
+                int v = face[i];
+                maxIndex = Math.max(maxIndex, v);
+                // 越界的巨大索引不应撑大位图
+                if (v - vertexCount < BUFFER_SIZE) {
+                    markReferenced(v);
+                }
+                addEdge(v, face[i + 1 == n ? 0 : i + 1]);
+                for (int j = i + 1; j < n && !degenerate; j++) {
+                    degenerate = face[j] == v;
+                }
+            }
+            if (degenerate) {
+                stats.degenerateFaces++;
+            }
+            if (keepGeometry) {
+                int needed = (n - 2) * 3;
+                if (indexCount + needed > indices.length) {
+                    indices = Arrays.copyOf(indices, Math.max(indices.length * 2, indexCount + needed));
+                }
+                for (int i = 1; i + 1 < n; i++) {
+                    indices[indexCount++] = face[0];
+                    indices[indexCount++] = face[i];
+                    indices[indexCount++] = face[i + 1];
+                }
+            }
+        }
+
+        /**
+         * 封闭且朝向一致的网格中每条有向边 (u,v) 都对应一条 (v,u)：两者哈希之差的总和为 0。
+         * 用两个独立哈希降低误判概率，不需要保存边表
+         */
+        private void addEdge(int u, int v) {
+            long forward = ((long) u << 32) | (v & 0xFFFFFFFFL);
+            long backward = ((long) v << 32) | (u & 0xFFFFFFFFL);
+            edgeHashA += mix(forward) - mix(backward);
+            edgeHashB += mix(forward ^ 0x5DEECE66DL) - mix(backward ^ 0x5DEECE66DL);
+        }
+
+        private void markReferenced(int v) {
+            int word = v >>> 6;
+            if (word >= referenced.length) {
+                referenced = Arrays.copyOf(referenced, Math.max(referenced.length * 2, word + 1));
+            }
+            referenced[word] |= 1L << v;
+        }
+
+        private void finish() {
+            int vertexCount = stats.vertices;
+            // 正数索引允许引用后面才定义的顶点，最后统一检查
+            if (maxIndex >= vertexCount) {
+                error("OBJ面索引越界: " + (maxIndex + 1) + " (顶点数=" + vertexCount + ")");
+                stats.invalidIndices++;
+            }
+            int used = 0;
+            int words = Math.min(referenced.length, (vertexCount + 63) >>> 6);
+            for (int w = 0; w < words; w++) {
+                long bits = referenced[w];
+                if (w == words - 1 && (vertexCount & 63) != 0) {
+                    bits &= (1L << (vertexCount & 63)) - 1;
+                }
+                used += Long.bitCount(bits);
+            }
+            stats.unreferencedVertices = vertexCount - used;
+            stats.closed = stats.triangles > 0 && stats.invalidIndices == 0 && edgeHashA == 0 && edgeHashB == 0;
+        }
+
+        private void error(String message) {
+            if (stats.firstError == null) {
+                stats.firstError = message;
+            }
+        }
+
+        /**
+         * 解析十进制浮点数（可带符号、小数点与指数）；有效数字不超过 15 位且指数较小时直接由整数尾数换算，
+         * 其余情况交给 Double.parseDouble。失败时 numberOk 为 false
+         */
+        private double parseNumber() {
+            skipSpaces();
+            int start = cursor;
+            boolean negative = false;
+            if (cursor < end && (buffer[cursor] == '-' || buffer[cursor] == '+')) {
+                negative = buffer[cursor] == '-';
+                cursor++;
+            }
+            long mantissa = 0;
+            int significant = 0;
+            int exponent = 0;
+            boolean anyDigit = false;
+            while (cursor < end && buffer[cursor] >= '0' && buffer[cursor] <= '9') {
+                anyDigit = true;
+                if (significant < 18) {
+                    mantissa = mantissa * 10 + (buffer[cursor] - '0');
+                    if (mantissa != 0) {
+                        significant++;
+                    }
+                } else {
+                    exponent++;
+                }
+                cursor++;
+            }
+            if (cursor < end && buffer[cursor] == '.') {
+                cursor++;
+                while (cursor < end && buffer[cursor] >= '0' && buffer[cursor] <= '9') {
+                    anyDigit = true;
+                    if (significant < 18) {
+                        mantissa = mantissa * 10 + (buffer[cursor] - '0');
+                        if (mantissa != 0) {
+                            significant++;
+                        }
+                        exponent--;
+                    }
+                    cursor++;
+                }
+            }
+            if (anyDigit && cursor < end && (buffer[cursor] == 'e' || buffer[cursor] == 'E')) {
+                cursor++;
+                boolean negativeExponent = false;
+                if (cursor < end && (buffer[cursor] == '-' || buffer[cursor] == '+')) {
+                    negativeExponent = buffer[cursor] == '-';
+                    cursor++;
+                }
+                int value = 0;
+                boolean exponentDigit = false;
+                while (cursor < end && buffer[cursor] >= '0' && buffer[cursor] <= '9') {
+                    value = Math.min(value * 10 + (buffer[cursor] - '0'), 100_000);
+                    exponentDigit = true;
+                    cursor++;
+                }
+                anyDigit = exponentDigit;
+                exponent += negativeExponent ? -value : value;
+            }
+            numberOk = anyDigit && (cursor == end || isSpace(buffer[cursor]));
+            if (!numberOk) {
+                return 0;
+            }
+            double result;
+            if (significant <= 15 && exponent >= -22 && exponent <= 22) {
+                result = exponent >= 0 ? mantissa * POW10[exponent] : mantissa / POW10[-exponent];
+                return negative ? -result : result;
+            }
+            return Double.parseDouble(new String(buffer, start, cursor - start, StandardCharsets.US_ASCII));
+        }
+
+        private void skipSpaces() {
+            while (cursor < end && isSpace(buffer[cursor])) {
+                cursor++;
+            }
+        }
+
+        private static boolean isSpace(byte b) {
+            return b == ' ' || b == '\t' || b == '\r';
+        }
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,122 @@
+package com.morphtesser.mesh;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * OBJ单遍扫描统计（见 {@link ObjMeshReader#scan}）：记录数、包围盒、索引校验与封闭性提示
+ */
+public class ObjStats {
+
+    long bytes;
+    int vertices;
+    int normals;
+    int faces;
+    long triangles;
+    int polygonFaces;
+    int degenerateFaces;
+    int invalidIndices;
+    int malformedLines;
+    String firstError;
+    int unreferencedVertices;
+    long polygonEdges;
+    boolean closed;
+    double minX = Double.POSITIVE_INFINITY;
+    double minY = Double.POSITIVE_INFINITY;
+    double minZ = Double.POSITIVE_INFINITY;
+    double maxX = Double.NEGATIVE_INFINITY;
+    double maxY = Double.NEGATIVE_INFINITY;
+    double maxZ = Double.NEGATIVE_INFINITY;
+    long elapsedMicros;
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public int getVertices() {
+        return vertices;
+    }
+
+    public int getNormals() {
+        return normals;
+    }
+
+    public int getFaces() {
+        return faces;
+    }
+
+    public long getTriangles() {
+        return triangles;
+    }
+
+    public int getInvalidIndices() {
+        return invalidIndices;
+    }
+
+    public int getMalformedLines() {
+        return malformedLines;
+    }
+
+    public String getFirstError() {
+        return firstError;
+    }
+
+    public int getUnreferencedVertices() {
+        return unreferencedVertices;
+    }
+
+    /**
+     * 是否是可用的网格：有顶点和面，没有格式错误与越界索引
+     */
+    public boolean isValid() {
+        return vertices > 0 && triangles > 0 && invalidIndices == 0 && malformedLines == 0;
+    }
+
+    /**
+     * 封闭性提示：每条有向边都有方向相反的另一条边（按边哈希求和判断，存在极小的误判概率），
+     * 即网格封闭且朝向一致。非流形网格也可能满足该条件
+     */
+    public boolean isWatertight() {
+        return closed;
+    }
+
+    /**
+     * 欧拉示性数 V - E + F（只在封闭时有意义，否则返回null）；单个封闭连通分量为 2 - 2×亏格
+     */
+    public Long getEulerCharacteristic() {
+        if (!closed) {
+            return null;
+        }
+        return (long) (vertices - unreferencedVertices) - polygonEdges / 2 + faces;
+    }
+
+    public double[] getBoundingBox() {
+        if (vertices == 0) {
+            return null;
+        }
+        return new double[] {minX, minY, minZ, maxX, maxY, maxZ};
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("valid", isValid());
+        if (firstError != null) {
+            map.put("error", firstError);
+        }
+        map.put("bytes", bytes);
+        map.put("vertices", vertices);
+        map.put("normals", normals);
+        map.put("faces", faces);
+        map.put("triangles", triangles);
+        map.put("polygonFaces", polygonFaces);
+        map.put("degenerateFaces", degenerateFaces);
+        map.put("invalidIndices", invalidIndices);
+        map.put("malformedLines", malformedLines);
+        map.put("unreferencedVertices", unreferencedVertices);
+        map.put("watertight", closed);
+        map.put("eulerCharacteristic", getEulerCharacteristic());
+        map.put("boundingBox", getBoundingBox());
+        map.put("elapsedMicros", elapsedMicros);
+        return map;
+    }
+}
@@ -0,0 +1,124 @@
+package com.morphtesser.mesh;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * OBJ写出器：输出 v / f 行，索引从1开始
+ * 坐标按固定小数位直接格式化到字节缓冲区，不经过 Float.toString 与 String 拼接
+ */
+public final class ObjWriter {
+
+    public static final int DEFAULT_DECIMALS = 4;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // 单行最长字节数（"v " + 3 个数值 + 空格与换行），缓冲区剩余空间不足时先刷出
+    private static final int MAX_LINE = 96;
+
+    private static final long[] POW10 = {1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L};
+
+    private ObjWriter() {
+    }
+
+    public static void write(MeshData mesh, Path objPath) throws IOException {
+        try (OutputStream out = Files.newOutputStream(objPath)) {
+            write(mesh, out, DEFAULT_DECIMALS);
+        }
+    }
+
+    public static byte[] toBytes(MeshData mesh) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(mesh.getVertexCount() * 32 + mesh.getTriangleCount() * 24);
+        try {
+            write(mesh, out, DEFAULT_DECIMALS);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return out.toByteArray();
+    }
+
+    public static void write(MeshData mesh, OutputStream out, int decimals) throws IOException {
+        if (decimals < 0 || decimals >= POW10.length) {
+            throw new IllegalArgumentException("小数位数需在 0-" + (POW10.length - 1) + " 之间");
+        }
+        byte[] buf = new byte[BUFFER_SIZE];
+        int pos = 0;
+        float[] positions = mesh.getPositions();
+        for (int i = 0; i < positions.length; i += 3) {
+            if (pos > BUFFER_SIZE - MAX_LINE) {
+                out.write(buf, 0, pos);
+                pos = 0;
+            }
+            buf[pos++] = 'v';
+            buf[pos++] = ' ';
+            pos = writeFloat(buf, pos, positions[i], decimals);
+            buf[pos++] = ' ';
+            pos = writeFloat(buf, pos, positions[i + 1], decimals);
+            buf[pos++] = ' ';
+            pos = writeFloat(buf, pos, positions[i + 2], decimals);
+            buf[pos++] = '\n';
+        }
+        int[] indices = mesh.getIndices();
+        for (int i = 0; i < indices.length; i += 3) {
+            if (pos > BUFFER_SIZE - MAX_LINE) {
+                out.write(buf, 0, pos);
+                pos = 0;
+            }
+            buf[pos++] = 'f';
+            buf[pos++] = ' ';
+            pos = writeLong(buf, pos, indices[i] + 1L);
+            buf[pos++] = ' ';
+            pos = writeLong(buf, pos, indices[i + 1] + 1L);
+            buf[pos++] = ' ';
+            pos = writeLong(buf, pos, indices[i + 2] + 1L);
+            buf[pos++] = '\n';
+        }
+        out.write(buf, 0, pos);
+        out.flush();
+    }
+
+    private static int writeFloat(byte[] buf, int pos, float value, int decimals) {
+        if (!Float.isFinite(value) || Math.abs(value) >= 1e12f) {
+            byte[] text = Float.toString(value).getBytes(StandardCharsets.US_ASCII);
+            System.arraycopy(text, 0, buf, pos, text.length);
+            return pos + text.length;
+        }
+        long scaled = Math.round((double) value * POW10[decimals]);
+        if (scaled < 0) {
+            buf[pos++] = '-';
+            scaled = -scaled;
+        }
+        long integer = scaled / POW10[decimals];
+        long fraction = scaled % POW10[decimals];
+        pos = writeLong(buf, pos, integer);
+        if (decimals > 0) {
+            buf[pos++] = '.';
+            for (int d = decimals - 1; d >= 0; d--) {
+                buf[pos + d] = (byte) ('0' + fraction % 10);
+                fraction /= 10;
+            }
+            pos += decimals;
+        }
+        return pos;
+    }
+
+    private static int writeLong(byte[] buf, int pos, long value) {
+        if (value == 0) {
+            buf[pos++] = '0';
+            return pos;
+        }
+        int digits = 0;
+        for (long v = value; v > 0; v /= 10) {
+            digits++;
+        }
+        for (int d = digits - 1; d >= 0; d--) {
+            buf[pos + d] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return pos + digits;
+    }
+}
@@ -0,0 +1,359 @@
+package com.morphtesser.mesh;
+
+import com.morphtesser.swc.SwcMorphology;
+import com.morphtesser.swc.SwcTree;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * SWC网格生成器：按分支扫掠连续管道，分叉点、末端与胞体节点放置球体
+ * <p>
+ * 分支为从根节点、分叉点或胞体节点出发，沿单子节点链一直走到下一个分叉点/末端的路径。
+ * 每个分支内相邻圆环使用旋转最小化标架传递，避免管道扭曲；两端均为胞体的段不扫掠，由胞体球体覆盖。
+ * 所有分支与球体的顶点/索引区间事先算好，分支在 fork/join 线程池中并行写入同一组数组。
+ */
+public final class SwcTessellator {
+
+    public static final int DEFAULT_SIDES = 12;
+
+    // 半径为0或缺失时使用的最小半径，避免退化三角形
+    private static final float MIN_RADIUS = 0.05f;
+
+    // 少于该节点数的任务不再拆分
+    private static final int SPLIT_THRESHOLD = 4096;
+
+    private SwcTessellator() {
+    }
+
+    public static MeshData tessellate(SwcMorphology morphology) {
+        return tessellate(morphology, DEFAULT_SIDES, ForkJoinPool.commonPool());
+    }
+
+    public static MeshData tessellate(SwcMorphology morphology, int sides, ForkJoinPool pool) {
+        if (sides < 3) {
+            throw new IllegalArgumentException("sides 至少为 3");
+        }
+        Layout layout = new Layout(morphology, sides);
+        if (morphology.size() < SPLIT_THRESHOLD) {
+            layout.emitBranches(0, layout.branchCount);
+            layout.emitSpheres(0, layout.sphereCount);
+        } else {
+            pool.invoke(new BranchTask(layout, 0, layout.branchCount));
+            pool.invoke(new SphereTask(layout, 0, layout.sphereCount));
+        }
+        return new MeshData(layout.positions, layout.indices);
+    }
+
+    private static final class BranchTask extends RecursiveAction {
+        private final Layout layout;
+        private final int from;
+        private final int to;
+
+        private BranchTask(Layout layout, int from, int to) {
+            this.layout = layout;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            int nodes = layout.branches.start(to) - layout.branches.start(from);
+            if (to - from <= 1 || nodes <= SPLIT_THRESHOLD) {
+                layout.emitBranches(from, to);
+                return;
+            }
+            // 按节点数而不是分支数对半拆分，避免长分支集中在一侧
+            int target = layout.branches.start(from) + nodes / 2;
+            int mid = from + 1;
+            while (mid < to - 1 && layout.branches.start(mid) < target) {
+                mid++;
+            }
+            invokeAll(new BranchTask(layout, from, mid), new BranchTask(layout, mid, to));
+        }
+    }
+
+    private static final class SphereTask extends RecursiveAction {
+        private final Layout layout;
+        private final int from;
+        private final int to;
+
+        private SphereTask(Layout layout, int from, int to) {
+            this.layout = layout;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                layout.emitSpheres(from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new SphereTask(layout, from, mid), new SphereTask(layout, mid, to));
+        }
+    }
+
+    /**
+     * 分支划分（见 {@link SwcTree#branches}）与输出区间：第 b 个分支占 branches.start(b) .. branches.end(b)，
+     * 分支的第一个节点是出发的分叉点/根/胞体节点
+     */
+    private static final class Layout {
+        private final SwcMorphology m;
+        private final int sides;
+        private final int latitudes;
+        private final float[] unitSphere;
+        private final int[] sphereTemplate;
+
+        private final SwcTree.Branches branches;
+        private final int branchCount;
+        private final int[] spheres;
+        private final int sphereCount;
+
+        private final int sphereVertexBase;
+        private final int sphereIndexBase;
+        private final float[] positions;
+        private final int[] indices;
+
+        private Layout(SwcMorphology m, int sides) {
+            this.m = m;
+            this.sides = sides;
+            this.latitudes = Math.max(2, sides / 2);
+            this.unitSphere = buildUnitSphere(sides, latitudes);
+            this.sphereTemplate = buildSphereIndices(sides, latitudes);
+
+            SwcTree tree = SwcTree.of(m);
+            // 胞体轮廓段由胞体球体覆盖，不扫掠
+            this.branches = tree.branches(false);
+            this.branchCount = branches.count();
+            // 根、分叉点、末端与胞体节点放置球体，封闭管道端口并填补分叉处的缝隙
+            int[] order = tree.preOrder();
+            int[] sphereNodes = new int[order.length];
+            int sphereTotal = 0;
+            for (int u : order) {
+                if (tree.isJunction(u)) {
+                    sphereNodes[sphereTotal++] = u;
+                }
+            }
+            this.spheres = sphereNodes;
+            this.sphereCount = sphereTotal;
+            int branchNodes = branches.totalNodes();
+
+            // 分支 b 的顶点从 sides * branches.start(b) 开始，三角形从 2 * sides * (branches.start(b) - b) 开始
+            int tubeVertices = branchNodes * sides;
+            int tubeTriangles = 2 * sides * (branchNodes - branchCount);
+            int sphereVertices = unitSphere.length / 3;
+            this.sphereVertexBase = tubeVertices;
+            this.sphereIndexBase = tubeTriangles * 3;
+            this.positions = new float[(tubeVertices + sphereTotal * sphereVertices) * 3];
+            this.indices = new int[tubeTriangles * 3 + sphereTotal * sphereTemplate.length];
+        }
+
+        private void emitBranches(int from, int to) {
+            float[] frame = new float[9];
+            float[] scratch = new float[6];
+            for (int b = from; b < to; b++) {
+                emitBranch(b, frame, scratch);
+            }
+        }
+
+        private void emitBranch(int b, float[] frame, float[] scratch) {
+            int start = branches.start(b);
+            int end = branches.end(b);
+            int vertex = start * sides;
+            int index = 2 * sides * (start - b) * 3;
+
+            // frame: [0..2] 切向 t，[3..5] u，[6..8] v
+            frame[0] = 0;
+            frame[1] = 0;
+            frame[2] = 0;
+            for (int k = start; k < end; k++) {
+                int node = branches.node(k);
+                tangent(k, start, end, frame, scratch);
+                if (k == start) {
+                    resetFrame(frame, scratch);
+                } else {
+                    transportFrame(frame, scratch);
+                }
+                float r = Math.max(m.radius(node), MIN_RADIUS);
+                int offset = (vertex + (k - start) * sides) * 3;
+                for (int s = 0; s < sides; s++) {
+                    double angle = 2 * Math.PI * s / sides;
+                    float c = (float) Math.cos(angle) * r;
+                    float sn = (float) Math.sin(angle) * r;
+                    positions[offset++] = m.x(node) + c * frame[3] + sn * frame[6];
+                    positions[offset++] = m.y(node) + c * frame[4] + sn * frame[7];
+                    positions[offset++] = m.z(node) + c * frame[5] + sn * frame[8];
+                }
+                if (k > start) {
+                    int ring0 = vertex + (k - 1 - start) * sides;
+                    int ring1 = ring0 + sides;
+                    for (int s = 0; s < sides; s++) {
+                        int a = ring0 + s;
+                        int bb = ring0 + (s + 1) % sides;
+                        int c = ring1 + s;
+                        int d = ring1 + (s + 1) % sides;
+                        indices[index++] = a;
+                        indices[index++] = bb;
+                        indices[index++] = d;
+                        indices[index++] = a;
+                        indices[index++] = d;
+                        indices[index++] = c;
+                    }
+                }
+            }
+        }
+
+        /**
+         * 节点处的切向：端点取相邻段方向，中间节点取前后段单位方向之和
+         */
+        private void tangent(int k, int start, int end, float[] frame, float[] scratch) {
+            float tx = 0, ty = 0, tz = 0;
+            if (k > start && direction(branches.node(k - 1), branches.node(k), scratch)) {
+                tx += scratch[0];
+                ty += scratch[1];
+                tz += scratch[2];
+            }
+            if (k < end - 1 && direction(branches.node(k), branches.node(k + 1), scratch)) {
+                tx += scratch[0];
+                ty += scratch[1];
+                tz += scratch[2];
+            }
+            float len = (float) Math.sqrt(tx * tx + ty * ty + tz * tz);
+            if (len < 1e-6f) {
+                // 零长度段或折返：沿用上一个切向
+                if (frame[0] == 0 && frame[1] == 0 && frame[2] == 0) {
+                    frame[2] = 1;
+                }
+                return;
+            }
+            frame[0] = tx / len;
+            frame[1] = ty / len;
+            frame[2] = tz / len;
+        }
+
+        /**
+         * a -> b 的单位方向写入 out[0..2]，零长度段返回 false
+         */
+        private boolean direction(int a, int b, float[] out) {
+            float dx = m.x(b) - m.x(a);
+            float dy = m.y(b) - m.y(a);
+            float dz = m.z(b) - m.z(a);
+            float len = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+            if (len < 1e-6f) {
+                return false;
+            }
+            out[0] = dx / len;
+            out[1] = dy / len;
+            out[2] = dz / len;
+            return true;
+        }
+
+        private void resetFrame(float[] frame, float[] scratch) {
+            TubeMesher.perpendicularBasis(frame[0], frame[1], frame[2], scratch);
+            System.arraycopy(scratch, 0, frame, 3, 6);
+        }
+
+        /**
+         * 把上一个 u 投影到新切向的法平面上（旋转最小化标架的一阶近似），再由 t × u 得到 v
+         */
+        private void transportFrame(float[] frame, float[] scratch) {
+            float dot = frame[3] * frame[0] + frame[4] * frame[1] + frame[5] * frame[2];
+            float ux = frame[3] - dot * frame[0];
+            float uy = frame[4] - dot * frame[1];
+            float uz = frame[5] - dot * frame[2];
+            float len = (float) Math.sqrt(ux * ux + uy * uy + uz * uz);
+            if (len < 1e-4f) {
+                resetFrame(frame, scratch);
+                return;
+            }
+            frame[3] = ux / len;
+            frame[4] = uy / len;
+            frame[5] = uz / len;
+            frame[6] = frame[1] * frame[5] - frame[2] * frame[4];
+            frame[7] = frame[2] * frame[3] - frame[0] * frame[5];
+            frame[8] = frame[0] * frame[4] - frame[1] * frame[3];
+        }
+
+        private void emitSpheres(int from, int to) {
+            int sphereVertices = unitSphere.length / 3;
+            for (int i = from; i < to; i++) {
+                int node = spheres[i];
+                float r = Math.max(m.radius(node), MIN_RADIUS);
+                int vertex = sphereVertexBase + i * sphereVertices;
+                int offset = vertex * 3;
+                for (int k = 0; k < unitSphere.length; k += 3) {
+                    positions[offset++] = m.x(node) + unitSphere[k] * r;
+                    positions[offset++] = m.y(node) + unitSphere[k + 1] * r;
+                    positions[offset++] = m.z(node) + unitSphere[k + 2] * r;
+                }
+                int index = sphereIndexBase + i * sphereTemplate.length;
+                for (int t : sphereTemplate) {
+                    indices[index++] = vertex + t;
+                }
+            }
+        }
+    }
+
+    /**
+     * 单位UV球：两极各一个顶点，中间 latitudes-1 圈，每圈 sides 个顶点
+     */
+    private static float[] buildUnitSphere(int sides, int latitudes) {
+        int rings = latitudes - 1;
+        float[] vertices = new float[(2 + rings * sides) * 3];
+        int o = 0;
+        vertices[o++] = 0;
+        vertices[o++] = 0;
+        vertices[o++] = 1;
+        for (int lat = 1; lat <= rings; lat++) {
+            double theta = Math.PI * lat / latitudes;
+            float z = (float) Math.cos(theta);
+            float rr = (float) Math.sin(theta);
+            for (int s = 0; s < sides; s++) {
+                double phi = 2 * Math.PI * s / sides;
+                vertices[o++] = (float) Math.cos(phi) * rr;
+                vertices[o++] = (float) Math.sin(phi) * rr;
+                vertices[o++] = z;
+            }
+        }
+        vertices[o++] = 0;
+        vertices[o++] = 0;
+        vertices[o] = -1;
+        return vertices;
+    }
+
+    private static int[] buildSphereIndices(int sides, int latitudes) {
+        int rings = latitudes - 1;
+        int south = 1 + rings * sides;
+        int[] idx = new int[2 * sides * rings * 3];
+        int o = 0;
+        for (int s = 0; s < sides; s++) {
+            int next = (s + 1) % sides;
+            idx[o++] = 0;
+            idx[o++] = 1 + s;
+            idx[o++] = 1 + next;
+        }
+        for (int lat = 0; lat < rings - 1; lat++) {
+            int row0 = 1 + lat * sides;
+            int row1 = row0 + sides;
+            for (int s = 0; s < sides; s++) {
+                int next = (s + 1) % sides;
+                idx[o++] = row0 + s;
+                idx[o++] = row1 + s;
+                idx[o++] = row1 + next;
+                idx[o++] = row0 + s;
+                idx[o++] = row1 + next;
+                idx[o++] = row0 + next;
+            }
+        }
+        int last = 1 + (rings - 1) * sides;
+        for (int s = 0; s < sides; s++) {
+            int next = (s + 1) % sides;
+            idx[o++] = south;
+            idx[o++] = last + next;
+            idx[o++] = last + s;
+        }
+        return idx;
+    }
+}
@@ -0,0 +1,124 @@
+package com.morphtesser.mesh;
+
+import java.util.Arrays;
+
+/**
+ * 三角形重排序（Tipsify，Sander et al. 2007）
+ * 以顶点为扇心依次输出相邻三角形，使相邻三角形共享的顶点尽量留在后变换缓存中，
+ * 同时让索引序列更局部化，便于后续的增量编码与熵编码。
+ */
+public final class TriangleReorder {
+
+    /** 默认模拟的顶点缓存大小 */
+    public static final int DEFAULT_CACHE_SIZE = 16;
+
+    private TriangleReorder() {
+    }
+
+    public static int[] tipsify(int[] indices, int vertexCount) {
+        return tipsify(indices, vertexCount, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param indices     三角形索引（每3个一组）
+     * @param vertexCount 顶点数
+     * @param cacheSize   模拟缓存大小
+     * @return 重排后的新索引数组（不修改输入）
+     */
+    public static int[] tipsify(int[] indices, int vertexCount, int cacheSize) {
+        int triangleCount = indices.length / 3;
+        int[] output = new int[triangleCount * 3];
+        if (triangleCount == 0) {
+            return output;
+        }
+
+        // 顶点 -> 三角形 邻接表（CSR）
+        int[] live = new int[vertexCount];
+        for (int index : indices) {
+            live[index]++;
+        }
+        int[] offsets = new int[vertexCount + 1];
+        for (int v = 0; v < vertexCount; v++) {
+            offsets[v + 1] = offsets[v] + live[v];
+        }
+        int[] adjacency = new int[offsets[vertexCount]];
+        int[] fill = new int[vertexCount];
+        for (int t = 0; t < triangleCount; t++) {
+            for (int k = 0; k < 3; k++) {
+                int v = indices[t * 3 + k];
+                adjacency[offsets[v] + fill[v]++] = t;
+            }
+        }
+
+        int[] cacheTime = new int[vertexCount];
+        boolean[] emitted = new boolean[triangleCount];
+        int[] deadEnd = new int[indices.length];
+        int deadEndSize = 0;
+        int[] candidates = new int[64];
+        int outCount = 0;
+        int timestamp = cacheSize + 1;
+        int cursor = 0;
+        int fanning = indices[0];
+
+        while (fanning >= 0) {
+            int candidateCount = 0;
+            for (int a = offsets[fanning]; a < offsets[fanning + 1]; a++) {
+                int t = adjacency[a];
+                if (emitted[t]) {
+                    continue;
+                }
+                emitted[t] = true;
+                for (int k = 0; k < 3; k++) {
+                    int v = indices[t * 3 + k];
+                    output[outCount++] = v;
+                    deadEnd[deadEndSize++] = v;
+                    if (candidateCount == candidates.length) {
+                        candidates = Arrays.copyOf(candidates, candidates.length * 2);
+                    }
+                    candidates[candidateCount++] = v;
+                    live[v]--;
+                    if (timestamp - cacheTime[v] > cacheSize) {
+                        cacheTime[v] = timestamp++;
+                    }
+                }
+            }
+
+            // 在候选顶点中选择扇形输出后仍能留在缓存内、且进入缓存最早的顶点作为下一个扇心
+            int next = -1;
+            int best = -1;
+            for (int c = 0; c < candidateCount; c++) {
+                int v = candidates[c];
+                if (live[v] <= 0) {
+                    continue;
+                }
+                int priority = 0;
+                if (timestamp - cacheTime[v] + 2 * live[v] <= cacheSize) {
+                    priority = timestamp - cacheTime[v];
+                }
+                if (priority > best) {
+                    best = priority;
+                    next = v;
+                }
+            }
+
+            if (next == -1) {
+                // 死胡同：先回溯最近输出的顶点，再顺序扫描
+                while (deadEndSize > 0) {
+                    int v = deadEnd[--deadEndSize];
+                    if (live[v] > 0) {
+                        next = v;
+                        break;
+                    }
+                }
+                while (next == -1 && cursor < vertexCount) {
+                    if (live[cursor] > 0) {
+                        next = cursor;
+                    }
+                    cursor++;
+                }
+            }
+            fanning = next;
+        }
+        return output;
+    }
+}
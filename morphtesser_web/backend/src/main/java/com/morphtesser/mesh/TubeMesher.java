@@ -0,0 +1,151 @@
+package com.morphtesser.mesh;
+
+import com.morphtesser.swc.SwcMorphology;
+
+import java.util.Arrays;
+
+/**
+ * 简易管状网格：每个 (父节点, 子节点) 段生成一个不封口的圆台，胞体根节点生成八面体
+ * 不处理分叉处的连接，质量低于建模服务的结果，但只需毫秒级，用于建模服务不可用时的降级
+ */
+public final class TubeMesher {
+
+    public static final int DEFAULT_SIDES = 8;
+
+    // 半径为0或缺失时使用的最小半径，避免退化三角形
+    private static final float MIN_RADIUS = 0.05f;
+
+    private TubeMesher() {
+    }
+
+    public static MeshData mesh(SwcMorphology morphology) {
+        return mesh(morphology, DEFAULT_SIDES);
+    }
+
+    public static MeshData mesh(SwcMorphology morphology, int sides) {
+        if (sides < 3) {
+            throw new IllegalArgumentException("sides 至少为 3");
+        }
+        int n = morphology.size();
+        int segments = 0;
+        int somaRoots = 0;
+        for (int i = 0; i < n; i++) {
+            if (morphology.parent(i) >= 0) {
+                segments++;
+            } else if (morphology.isSoma(i)) {
+                somaRoots++;
+            }
+        }
+
+        float[] positions = new float[(segments * 2 * sides + somaRoots * 6) * 3];
+        int[] indices = new int[(segments * 2 * sides + somaRoots * 8) * 3];
+        int vertexCount = 0;
+        int indexCount = 0;
+        float[] basis = new float[6];
+
+        for (int i = 0; i < n; i++) {
+            int p = morphology.parent(i);
+            if (p < 0) {
+                if (morphology.isSoma(i)) {
+                    vertexCount = addOctahedron(morphology, i, positions, vertexCount, indices, indexCount);
+                    indexCount += 24;
+                }
+                continue;
+            }
+            float dx = morphology.x(i) - morphology.x(p);
+            float dy = morphology.y(i) - morphology.y(p);
+            float dz = morphology.z(i) - morphology.z(p);
+            float length = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+            if (length < 1e-6f) {
+                continue;
+            }
+            perpendicularBasis(dx / length, dy / length, dz / length, basis);
+
+            int base = vertexCount;
+            vertexCount = addRing(morphology, p, basis, sides, positions, vertexCount);
+            vertexCount = addRing(morphology, i, basis, sides, positions, vertexCount);
+            for (int k = 0; k < sides; k++) {
+                int a = base + k;
+                int b = base + (k + 1) % sides;
+                int c = a + sides;
+                int d = b + sides;
+                indices[indexCount++] = a;
+                indices[indexCount++] = b;
+                indices[indexCount++] = d;
+                indices[indexCount++] = a;
+                indices[indexCount++] = d;
+                indices[indexCount++] = c;
+            }
+        }
+
+        return new MeshData(trim(positions, vertexCount * 3), trim(indices, indexCount));
+    }
+
+    private static int addRing(SwcMorphology m, int node, float[] basis, int sides, float[] positions, int vertexCount) {
+        float r = Math.max(m.radius(node), MIN_RADIUS);
+        int offset = vertexCount * 3;
+        for (int k = 0; k < sides; k++) {
+            double angle = 2 * Math.PI * k / sides;
+            float c = (float) Math.cos(angle) * r;
+            float s = (float) Math.sin(angle) * r;
+            positions[offset++] = m.x(node) + c * basis[0] + s * basis[3];
+            positions[offset++] = m.y(node) + c * basis[1] + s * basis[4];
+            positions[offset++] = m.z(node) + c * basis[2] + s * basis[5];
+        }
+        return vertexCount + sides;
+    }
+
+    private static int addOctahedron(SwcMorphology m, int node, float[] positions, int vertexCount, int[] indices, int indexCount) {
+        float r = Math.max(m.radius(node), MIN_RADIUS);
+        float[][] dirs = {{1, 0, 0}, {-1, 0, 0}, {0, 1, 0}, {0, -1, 0}, {0, 0, 1}, {0, 0, -1}};
+        int offset = vertexCount * 3;
+        for (float[] dir : dirs) {
+            positions[offset++] = m.x(node) + dir[0] * r;
+            positions[offset++] = m.y(node) + dir[1] * r;
+            positions[offset++] = m.z(node) + dir[2] * r;
+        }
+        int[][] faces = {{0, 2, 4}, {2, 1, 4}, {1, 3, 4}, {3, 0, 4}, {2, 0, 5}, {1, 2, 5}, {3, 1, 5}, {0, 3, 5}};
+        for (int[] face : faces) {
+            indices[indexCount++] = vertexCount + face[0];
+            indices[indexCount++] = vertexCount + face[1];
+            indices[indexCount++] = vertexCount + face[2];
+        }
+        return vertexCount + 6;
+    }
+
+    /**
+     * 计算与单位向量 (dx,dy,dz) 垂直的两个单位向量 u、v，依次写入 basis[0..2]、basis[3..5]
+     */
+    static void perpendicularBasis(float dx, float dy, float dz, float[] basis) {
+        // 选与方向最不平行的坐标轴做叉乘
+        float ax = 0, ay = 0, az = 0;
+        if (Math.abs(dx) <= Math.abs(dy) && Math.abs(dx) <= Math.abs(dz)) {
+            ax = 1;
+        } else if (Math.abs(dy) <= Math.abs(dz)) {
+            ay = 1;
+        } else {
+            az = 1;
+        }
+        float ux = dy * az - dz * ay;
+        float uy = dz * ax - dx * az;
+        float uz = dx * ay - dy * ax;
+        float ul = (float) Math.sqrt(ux * ux + uy * uy + uz * uz);
+        ux /= ul;
+        uy /= ul;
+        uz /= ul;
+        basis[0] = ux;
+        basis[1] = uy;
+        basis[2] = uz;
+        basis[3] = dy * uz - dz * uy;
+        basis[4] = dz * ux - dx * uz;
+        basis[5] = dx * uy - dy * ux;
+    }
+
+    private static float[] trim(float[] array, int length) {
+        return array.length == length ? array : Arrays.copyOf(array, length);
+    }
+
+    private static int[] trim(int[] array, int length) {
+        return array.length == length ? array : Arrays.copyOf(array, length);
+    }
+}
@@ -7,6 +7,7 @@ import lombok.Data;
 
 import jakarta.persistence.*;
 import java.util.Date;
+import java.util.Map;
 
 @Data
 @Entity
@@ -54,6 +55,46 @@ public class NeuronModel {
     @Column(name = "volume")
     private Double volume;
 
+    @Column(name = "branch_points")
+    private Integer branchPoints;
+
+    @Column(name = "tips")
+    private Integer tips;
+
+    @Column(name = "stems")
+    private Integer stems;
+
+    @Column(name = "max_path_distance")
+    private Double maxPathDistance;
+
+    @Column(name = "max_euclidean_distance")
+    private Double maxEuclideanDistance;
+
+    @Column(name = "max_strahler_order")
+    private Integer maxStrahlerOrder;
+
+    @Column(name = "max_branch_order")
+    private Integer maxBranchOrder;
+
+    // 包围盒（SWC坐标）
+    @Column(name = "bbox_min_x")
+    private Double bboxMinX;
+
+    @Column(name = "bbox_min_y")
+    private Double bboxMinY;
+
+    @Column(name = "bbox_min_z")
+    private Double bboxMinZ;
+
+    @Column(name = "bbox_max_x")
+    private Double bboxMaxX;
+
+    @Column(name = "bbox_max_y")
+    private Double bboxMaxY;
+
+    @Column(name = "bbox_max_z")
+    private Double bboxMaxZ;
+
     @Column(name = "obj_file_path")
     private String objFilePath;
 
@@ -63,12 +104,30 @@ public class NeuronModel {
     @Column(name = "compression_ratio")
     private Double compressionRatio;
 
+    // OBJ网格统计（上传建模后单遍扫描得到）
+    @Column(name = "mesh_vertex_count")
+    private Integer meshVertexCount;
+
+    @Column(name = "mesh_triangle_count")
+    private Long meshTriangleCount;
+
+    @Column(name = "mesh_watertight")
+    private Boolean meshWatertight;
+
     @Column(name = "preview_image_path")
     private String previewImagePath;
 
     @Column(name = "is_public")
     private boolean isPublic = false;
 
+    // 上传时的SWC校验报告，只随上传响应返回，不入库
+    @Transient
+    private Map<String, Object> validationReport;
+
+    // 完整的OBJ扫描统计，只随上传响应返回，不入库
+    @Transient
+    private Map<String, Object> meshStats;
+
     @ManyToOne
     @JoinColumn(name = "user_id", nullable = false)
     @JsonBackReference
@@ -167,6 +226,110 @@ public class NeuronModel {
         this.volume = volume;
     }
 
+    public Integer getBranchPoints() {
+        return branchPoints;
+    }
+
+    public void setBranchPoints(Integer branchPoints) {
+        this.branchPoints = branchPoints;
+    }
+
+    public Integer getTips() {
+        return tips;
+    }
+
+    public void setTips(Integer tips) {
+        this.tips = tips;
+    }
+
+    public Integer getStems() {
+        return stems;
+    }
+
+    public void setStems(Integer stems) {
+        this.stems = stems;
+    }
+
+    public Double getMaxPathDistance() {
+        return maxPathDistance;
+    }
+
+    public void setMaxPathDistance(Double maxPathDistance) {
+        this.maxPathDistance = maxPathDistance;
+    }
+
+    public Double getMaxEuclideanDistance() {
+        return maxEuclideanDistance;
+    }
+
+    public void setMaxEuclideanDistance(Double maxEuclideanDistance) {
+        this.maxEuclideanDistance = maxEuclideanDistance;
+    }
+
+    public Integer getMaxStrahlerOrder() {
+        return maxStrahlerOrder;
+    }
+
+    public void setMaxStrahlerOrder(Integer maxStrahlerOrder) {
+        this.maxStrahlerOrder = maxStrahlerOrder;
+    }
+
+    public Integer getMaxBranchOrder() {
+        return maxBranchOrder;
+    }
+
+    public void setMaxBranchOrder(Integer maxBranchOrder) {
+        this.maxBranchOrder = maxBranchOrder;
+    }
+
+    public Double getBboxMinX() {
+        return bboxMinX;
+    }
+
+    public void setBboxMinX(Double bboxMinX) {
+        this.bboxMinX = bboxMinX;
+    }
+
+    public Double getBboxMinY() {
+        return bboxMinY;
+    }
+
+    public void setBboxMinY(Double bboxMinY) {
+        this.bboxMinY = bboxMinY;
+    }
+
+    public Double getBboxMinZ() {
+        return bboxMinZ;
+    }
+
+    public void setBboxMinZ(Double bboxMinZ) {
+        this.bboxMinZ = bboxMinZ;
+    }
+
+    public Double getBboxMaxX() {
+        return bboxMaxX;
+    }
+
+    public void setBboxMaxX(Double bboxMaxX) {
+        this.bboxMaxX = bboxMaxX;
+    }
+
+    public Double getBboxMaxY() {
+        return bboxMaxY;
+    }
+
+    public void setBboxMaxY(Double bboxMaxY) {
+        this.bboxMaxY = bboxMaxY;
+    }
+
+    public Double getBboxMaxZ() {
+        return bboxMaxZ;
+    }
+
+    public void setBboxMaxZ(Double bboxMaxZ) {
+        this.bboxMaxZ = bboxMaxZ;
+    }
+
     public Date getCreatedAt() {
         return createdAt;
     }
@@ -183,6 +346,46 @@ public class NeuronModel {
         this.updatedAt = updatedAt;
     }
 
+    public Map<String, Object> getValidationReport() {
+        return validationReport;
+    }
+
+    public void setValidationReport(Map<String, Object> validationReport) {
+        this.validationReport = validationReport;
+    }
+
+    public Integer getMeshVertexCount() {
+        return meshVertexCount;
+    }
+
+    public void setMeshVertexCount(Integer meshVertexCount) {
+        this.meshVertexCount = meshVertexCount;
+    }
+
+    public Long getMeshTriangleCount() {
+        return meshTriangleCount;
+    }
+
+    public void setMeshTriangleCount(Long meshTriangleCount) {
+        this.meshTriangleCount = meshTriangleCount;
+    }
+
+    public Boolean getMeshWatertight() {
+        return meshWatertight;
+    }
+
+    public void setMeshWatertight(Boolean meshWatertight) {
+        this.meshWatertight = meshWatertight;
+    }
+
+    public Map<String, Object> getMeshStats() {
+        return meshStats;
+    }
+
+    public void setMeshStats(Map<String, Object> meshStats) {
+        this.meshStats = meshStats;
+    }
+
     public User getUser() {
         return user;
     }
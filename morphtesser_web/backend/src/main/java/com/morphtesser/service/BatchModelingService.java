@@ -0,0 +1,47 @@
+package com.morphtesser.service;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * 批量建模：一次提交ZIP压缩包（或服务器目录）中的多个SWC文件，
+ * 后台以有界并发流水线（解析 -> 建模 -> 压缩）处理，生成逐项结果清单与结果压缩包
+ */
+public interface BatchModelingService {
+
+    /**
+     * 提交ZIP压缩包，条目在后台逐个流式读取，不会先整体解压；条目数、单个条目与解出总量均有上限
+     *
+     * @param zipFile  包含SWC文件的ZIP
+     * @param type     建模类型：refine / raw
+     * @param format   输出格式：mtc（默认）或 obj
+     * @param username 提交用户
+     * @return 任务概要（job_id、status 等）
+     */
+    Map<String, Object> submitZip(MultipartFile zipFile, String type, String format, String username) throws IOException;
+
+    /**
+     * 提交服务器目录（仅管理员，且目录必须位于 modeling.batch.server-dir-root 之下）
+     */
+    Map<String, Object> submitDirectory(String directory, String type, String format, String username) throws IOException;
+
+    /**
+     * 任务状态与逐项结果清单，任务不存在时返回null
+     */
+    Map<String, Object> getJob(String jobId);
+
+    /**
+     * 任务提交者与管理员可以查看任务和下载结果；任务不存在时返回false
+     */
+    boolean canAccess(String jobId, String username);
+
+    /**
+     * 结果压缩包路径（含所有输出文件与 manifest.json），任务未完成或不存在时返回null
+     */
+    Path getResultArchive(String jobId);
+
+    boolean isAdmin(String username);
+}
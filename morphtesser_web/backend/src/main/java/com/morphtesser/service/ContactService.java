@@ -0,0 +1,34 @@
+package com.morphtesser.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * 神经元之间的潜在接触点检测：一个神经元的轴突与另一个神经元的树突（基底或顶端）表面距离不超过 d 的位置。
+ * <p>
+ * 先用各神经元轴突、树突部分的包围盒筛出可能接触的神经元对，再对每一对在两者的段BVH（{@link SpatialIndexService}）上
+ * 做双树遍历（见 {@link com.morphtesser.swc.SegmentBvh#contacts}）；筛选阶段只保留包围盒，段BVH按对从索引缓存中取。
+ * 各神经元对并行计算，每个接触点算出后立即以NDJSON写出。调用方需限制为管理员（占用分析线程池）。
+ */
+public interface ContactService {
+
+    /**
+     * 校验参数并确定参与检测的神经元：modelIds 与轴线穿过长方体 box 的神经元的交集，只给出其一时即为其一
+     *
+     * @param modelIds 模型ID列表，为空时只按区域选择；不存在的模型被忽略
+     * @param box      [minX, minY, minZ, maxX, maxY, maxZ]，为空时只按ID选择
+     * @param distance 接触距离阈值（微米）
+     * @return 数据集不存在时返回null
+     * @throws IllegalArgumentException 两种选择方式都未给出、距离超出范围或神经元数超过上限
+     */
+    List<String> selectNeurons(String datasetId, List<String> modelIds, double[] box, double distance);
+
+    /**
+     * 检测 modelIds 两两之间（A 的轴突对 B 的树突，A、B 各取一次）的接触点并写出：
+     * 第一行为概要，每个接触点一行，最后一行为统计；接触点行的顺序不固定
+     *
+     * @param box 不为空时只输出位置在该区域内的接触点
+     */
+    void writeContacts(String datasetId, List<String> modelIds, double distance, double[] box, OutputStream out) throws IOException;
+}
@@ -0,0 +1,26 @@
+package com.morphtesser.service;
+
+import java.io.File;
+import java.nio.file.Path;
+
+/**
+ * 公共数据集的文件定位：数据集目录为 {dataset.public.base-dir}/{datasetId}/results，每个神经元一个子目录 {modelId}，
+ * 取其中按文件名排序的第一个SWC文件。datasetId、modelId 来自请求路径，解析后不在数据集根目录下的一律视为不存在。
+ */
+public interface DatasetFileService {
+
+    /**
+     * 数据集的 results 目录，不存在时返回null
+     */
+    Path resultsDir(String datasetId);
+
+    /**
+     * 数据集中单个神经元的SWC路径，不存在时返回null
+     */
+    Path resolveSwc(String datasetId, String modelId);
+
+    /**
+     * 神经元目录下的第一个SWC文件，没有时返回null
+     */
+    File firstSwc(File modelDir);
+}
@@ -0,0 +1,28 @@
+package com.morphtesser.service;
+
+import java.util.Map;
+
+/**
+ * 数据集级空间检索：找出穿过指定区域的神经元及其在区域内的轴线长度。
+ * <p>
+ * 第一级为各神经元包围盒上的R树（见 {@link com.morphtesser.swc.StrRTree}），第二级对包围盒部分相交的神经元
+ * 用段BVH（{@link SpatialIndexService}）裁剪轴线；包围盒完全在区域内的神经元直接使用预先统计的总长度。
+ */
+public interface DatasetSpatialService {
+
+    /**
+     * 轴线穿过长方体 [minX, minY, minZ, maxX, maxY, maxZ] 的神经元，按区域内轴线长度从大到小排列
+     *
+     * @param datasetId 公共数据集ID
+     * @param limit 最多返回的神经元数，为空时全部返回
+     * @return 数据集不存在时返回null
+     */
+    Map<String, Object> queryBox(String datasetId, double[] box, Integer limit);
+
+    /**
+     * 轴线穿过球体的神经元，按区域内轴线长度从大到小排列
+     *
+     * @return 数据集不存在时返回null
+     */
+    Map<String, Object> querySphere(String datasetId, double[] center, double radius, Integer limit);
+}
@@ -0,0 +1,36 @@
+package com.morphtesser.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * 大网格的八叉树空间分块（见 {@link com.morphtesser.mesh.MeshChunker}），供客户端渐进或按视野局部加载。
+ * 分块结果缓存在OBJ旁的 {name}.chunks/ 目录中，OBJ更新后重新生成
+ */
+public interface MeshChunkService {
+
+    /** 粗略整体网格的块ID */
+    String COARSE_CHUNK = "coarse";
+
+    /**
+     * 分块清单：整体包围盒、粗略网格，以及各叶子块的ID、八叉树单元、实际包围盒、三角形数与文件大小
+     *
+     * @param objPath OBJ文件路径
+     */
+    Map<String, Object> getManifest(Path objPath) throws IOException;
+
+    /**
+     * 单个块的MTC文件
+     *
+     * @param objPath OBJ文件路径
+     * @param chunkId 清单中的块ID或 {@link #COARSE_CHUNK}
+     * @return 块文件路径；ID不在清单中时返回null
+     */
+    Path getChunk(Path objPath, String chunkId) throws IOException;
+
+    /**
+     * 删除OBJ文件旁的分块目录
+     */
+    void deleteDerived(Path objPath) throws IOException;
+}
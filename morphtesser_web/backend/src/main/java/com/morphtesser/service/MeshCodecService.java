@@ -0,0 +1,72 @@
+package com.morphtesser.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+public interface MeshCodecService {
+
+    String GLB_MEDIA_TYPE = "model/gltf-binary";
+
+    /**
+     * 在JVM内将OBJ文件压缩为MTC格式（替代DracoPy外部进程）
+     *
+     * @param objFilePath OBJ文件路径
+     * @param outputPath 输出MTC文件路径
+     * @param quantizationBits 位置量化位数 (1-24)
+     * @return 包含压缩结果的Map（success、output_path、original_size、compressed_size、compression_ratio、encode_ms），失败返回null
+     */
+    Map<String, Object> compressObj(String objFilePath, String outputPath, int quantizationBits);
+
+    /**
+     * OBJ文件旁的MTC缓存文件路径：默认量化位数为 name.mtc，其他位数为 name.q{bits}.mtc，不同精度的结果互不覆盖
+     *
+     * @param quantizationBits 位置量化位数，为 null 时取 mesh.codec.quantization-bits
+     */
+    Path mtcPath(Path objPath, Integer quantizationBits);
+
+    /**
+     * 获取OBJ文件旁的MTC缓存文件（默认量化位数），不存在或已过期时重新生成
+     *
+     * @param objPath OBJ文件路径
+     * @return MTC文件路径
+     */
+    Path getOrCreateMtc(Path objPath) throws IOException;
+
+    /**
+     * 同 {@link #getOrCreateMtc(Path)}，使用指定的量化位数（文件名见 {@link #mtcPath}）
+     */
+    Path getOrCreateMtc(Path objPath, Integer quantizationBits) throws IOException;
+
+    /**
+     * 将内存中的OBJ数据编码为MTC，结果缓存到 mesh.cache-dir。
+     * 缓存文件名由缓存键与OBJ内容摘要组成，同一缓存键的OBJ内容变化后写入新文件并删除旧文件
+     *
+     * @param cacheKey 缓存键，应包含决定OBJ来源的全部参数（例如 embed_{id}_{quality}_{base摘要}）
+     * @param objBytes OBJ文件内容
+     * @return MTC数据
+     */
+    byte[] encodeCached(String cacheKey, byte[] objBytes) throws IOException;
+
+    /**
+     * 获取OBJ文件旁的GLB（二进制glTF）缓存文件，不存在或已过期时重新转码
+     *
+     * @param objPath OBJ文件路径
+     * @return GLB文件路径
+     */
+    Path getOrCreateGlb(Path objPath) throws IOException;
+
+    /**
+     * 将内存中的OBJ数据转码为GLB，缓存方式同 {@link #encodeCached}
+     *
+     * @param cacheKey 缓存键
+     * @param objBytes OBJ文件内容
+     * @return GLB数据
+     */
+    byte[] encodeGlbCached(String cacheKey, byte[] objBytes) throws IOException;
+
+    /**
+     * 删除OBJ文件旁的MTC（各量化位数）与GLB缓存文件
+     */
+    void deleteDerived(Path objPath) throws IOException;
+}
@@ -0,0 +1,48 @@
+package com.morphtesser.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 网格细节层次（LOD）金字塔：按 mesh.lod.levels 中的比例用二次误差边折叠简化OBJ
+ * （见 {@link com.morphtesser.mesh.MeshSimplifier}），各层级写在OBJ旁边（name.lod25.obj），
+ * 清单 name.lod.json 记录每一层的三角形数
+ */
+public interface MeshLodService {
+
+    /**
+     * 在后台线程生成金字塔；已是最新时立即完成，同一文件正在生成时返回同一个Future
+     *
+     * @param objPath OBJ文件路径
+     */
+    CompletableFuture<Void> generateAsync(Path objPath);
+
+    /**
+     * 按三角形预算选择层级：三角形数不超过预算的最精细层级，都超出时取最粗层级。
+     * 金字塔尚未生成（或OBJ已修改）时触发后台生成并返回原文件
+     *
+     * @param objPath      OBJ文件路径
+     * @param maxTriangles 三角形预算，为 null 或不大于 0 时返回原文件
+     * @return 选中层级的OBJ文件路径
+     */
+    Path selectLevel(Path objPath, Integer maxTriangles) throws IOException;
+
+    /**
+     * 与 {@link #selectLevel} 相同，用于不落在模型目录中的OBJ（嵌入页代理）：
+     * OBJ数据按缓存键与内容摘要写入 mesh.cache-dir，金字塔生成在同一目录；内容变化后删除同一缓存键的旧文件。
+     * maxTriangles 为 null 或不大于 0 时返回 null，调用方直接使用原数据
+     */
+    Path selectLevelCached(String cacheKey, byte[] objBytes, Integer maxTriangles) throws IOException;
+
+    /**
+     * 金字塔清单（各层比例、三角形数、文件名）；尚未生成时返回null
+     */
+    Map<String, Object> getManifest(Path objPath) throws IOException;
+
+    /**
+     * 删除OBJ文件旁的金字塔层级、清单，以及由各层级生成的MTC/GLB文件
+     */
+    void deleteDerived(Path objPath) throws IOException;
+}
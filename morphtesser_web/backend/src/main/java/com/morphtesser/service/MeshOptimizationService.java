@@ -0,0 +1,39 @@
+package com.morphtesser.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * 建模后的网格后处理：焊接重复顶点，按顶点缓存重排三角形与顶点（见 {@link com.morphtesser.mesh.MeshOptimizer}）。
+ * 在 MTC/Draco 压缩与LOD生成之前执行。
+ * <p>
+ * 优化结果只含顶点位置与三角形，写入旁路文件 {@code name.opt.obj}，用户上传/建模得到的OBJ（可能含 vn/vt、分组、材质）保持不变；
+ * 只使用几何的派生流程（MTC、Draco、GLB、LOD、分块）通过 {@link #geometrySource} 读取
+ */
+public interface MeshOptimizationService {
+
+    /**
+     * 优化OBJ文件的几何并写入旁路文件（原子替换），原文件不变
+     *
+     * @param objPath OBJ文件路径
+     * @return 优化报告（vertices_before、vertices_after、triangles_before、triangles_after、acmr_before、acmr_after、optimize_ms），
+     *         未启用时返回null
+     */
+    Map<String, Object> optimizeObj(Path objPath) throws IOException;
+
+    /**
+     * 旁路文件路径：name.obj -> name.opt.obj
+     */
+    Path optimizedPath(Path objPath);
+
+    /**
+     * 读取几何时应使用的文件：旁路文件存在且不早于原OBJ时返回旁路文件，否则返回原OBJ
+     */
+    Path geometrySource(Path objPath) throws IOException;
+
+    /**
+     * 删除旁路文件（模型删除时调用）
+     */
+    void deleteDerived(Path objPath) throws IOException;
+}
@@ -14,7 +14,12 @@ public interface ModelService {
     ResponseEntity<List<NeuronModel>> getUserModels(String token);
     ResponseEntity<?> deleteModel(Long id, String token);
     ResponseEntity<Resource> getModelFile(Long id, String type, String token);
-    ResponseEntity<?> createModelFromOnlineBuilder(String name, String type, String token, MultipartFile swcFile);
+    /**
+     * 在线建模（临时文件，不保存到数据库）
+     *
+     * @param format 压缩格式：drc（DracoPy，默认）或 mtc（JVM内置编解码器）
+     */
+    ResponseEntity<?> createModelFromOnlineBuilder(String name, String type, String format, String token, MultipartFile swcFile);
     
     /**
      * 将模型的OBJ文件压缩为Draco格式
@@ -25,4 +30,13 @@ public interface ModelService {
      * @return 包含压缩结果的Map
      */
     Map<String, Object> compressModelToDraco(String objFilePath, int compressionLevel, int quantizationBits);
+
+    /**
+     * 使用JVM内置编解码器将模型的OBJ文件压缩为MTC格式
+     *
+     * @param objFilePath OBJ文件路径
+     * @param quantizationBits 量化位数 (1-24)
+     * @return 包含压缩结果的Map，失败返回null
+     */
+    Map<String, Object> compressModelToMtc(String objFilePath, int quantizationBits);
 } 
\ No newline at end of file
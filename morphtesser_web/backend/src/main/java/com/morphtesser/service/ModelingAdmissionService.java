@@ -0,0 +1,37 @@
+package com.morphtesser.service;
+
+import java.util.Map;
+
+/**
+ * 建模接口（/api/models/create、/api/models/upload）的准入控制：
+ * 全局并发上限、单用户并发上限以及有界等待队列
+ */
+public interface ModelingAdmissionService {
+
+    /**
+     * 申请一个建模名额，名额已满时在有界队列中等待；预计等待超过上限时直接拒绝
+     *
+     * @param userKey 用户标识（用户名，未登录时为客户端IP）
+     * @return 名额，任务结束后必须 close
+     * @throws com.morphtesser.exception.AdmissionRejectedException 单用户超限、队列已满或等待超时
+     */
+    Permit acquire(String userKey);
+
+    /**
+     * 不排队的申请（供批量建模等后台任务使用）：只在有空闲名额且没有请求在排队时立即取得，否则返回null，
+     * 由调用方稍后重试；不计入拒绝计数
+     *
+     * @param userKey 任务标识，应与交互式请求的用户标识区分，避免占用用户的单用户名额
+     */
+    Permit tryAcquire(String userKey);
+
+    /**
+     * 当前运行数、排队数、拒绝计数、最近服务耗时，以及按该耗时与 max-wait-ms 算出的实际队列容量
+     */
+    Map<String, Object> getStats();
+
+    interface Permit extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
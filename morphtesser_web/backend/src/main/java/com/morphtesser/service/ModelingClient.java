@@ -0,0 +1,43 @@
+package com.morphtesser.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Python建模API客户端。配置多个建模节点（python.modeling.api.urls）时在节点间负载均衡，
+ * 否则只使用 python.modeling.api.url
+ */
+public interface ModelingClient {
+
+    /**
+     * 同步调用建模API
+     *
+     * @param swcFilePath SWC文件路径
+     * @param resultType  结果类型：refined 或 obj（raw/fast）
+     * @return OBJ文件内容；API返回错误、JSON或明显不是OBJ的响应时返回null
+     */
+    byte[] requestObj(String swcFilePath, String resultType);
+
+    /**
+     * 异步调用建模API。返回的Future被cancel时会断开底层HTTP连接，
+     * 不会再占用本地线程，也让上游能感知到客户端已放弃该请求。
+     * Future不会异常完成（失败时结果为null），被取消时除外。
+     */
+    CompletableFuture<byte[]> requestObjAsync(String swcFilePath, String resultType);
+
+    /**
+     * 各建模节点的状态：在途请求数、健康状态、是否被摘除、请求/失败计数与延迟统计
+     */
+    List<Map<String, Object>> getWorkerStats();
+
+    /**
+     * 熔断器是否处于打开或半开状态（此时调用方应考虑降级）
+     */
+    boolean isCircuitOpen();
+
+    /**
+     * 熔断器状态与窗口统计
+     */
+    Map<String, Object> getCircuitStats();
+}
@@ -0,0 +1,33 @@
+package com.morphtesser.service;
+
+import com.morphtesser.model.NeuronModel;
+import com.morphtesser.swc.Morphometrics;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * SWC形态学统计（总长度、表面积、体积、分叉/末端数、最大路径距离、Strahler/分支级数、包围盒）
+ */
+public interface MorphometricsService {
+
+    /**
+     * 读取SWC并计算形态学统计
+     *
+     * @param swcPath SWC文件路径
+     */
+    Morphometrics compute(Path swcPath) throws IOException;
+
+    /**
+     * 将统计结果写入模型实体（不保存）
+     */
+    void applyTo(NeuronModel model, Morphometrics morphometrics);
+
+    /**
+     * 并行重新计算所有SWC模型的统计并保存
+     *
+     * @return updated、failed、skipped 与耗时 elapsed_ms
+     */
+    Map<String, Object> recomputeAll();
+}
@@ -0,0 +1,34 @@
+package com.morphtesser.service;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * 数据集全体神经元两两之间的 NBLAST 式相似度矩阵（见 {@link com.morphtesser.swc.Dotprops}）
+ * <p>
+ * 批量任务在后台按分块并行计算，定期把已完成的块记入进度文件；服务重启后再次启动同一数据集的任务时从断点继续。
+ * 矩阵文件格式见 docs/SWC_CODEC.md。
+ */
+public interface NblastService {
+
+    /**
+     * 启动（或从断点继续）数据集的相似度矩阵计算；任务已在运行或已完成时直接返回状态。
+     * 断点与结果按数据集指纹（模型目录及SWC文件的名称、大小、修改时间）区分，数据集变化后重新计算
+     *
+     * @param datasetId 公共数据集ID
+     * @return 数据集不存在时返回null
+     */
+    Map<String, Object> start(String datasetId);
+
+    /**
+     * 任务状态：神经元数、已完成块数、速度与预计剩余时间；已有矩阵与当前数据集不一致时状态为 stale
+     *
+     * @return 数据集不存在时返回null
+     */
+    Map<String, Object> status(String datasetId);
+
+    /**
+     * 已全部计算完成的矩阵文件，未完成时返回null
+     */
+    Path getMatrix(String datasetId);
+}
@@ -0,0 +1,32 @@
+package com.morphtesser.service;
+
+import com.morphtesser.swc.ShollProfile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Sholl分析（同心球交点数随半径的变化），结果按文件与参数缓存
+ */
+public interface ShollService {
+
+    /**
+     * 单个神经元的Sholl曲线
+     *
+     * @param swcPath SWC文件路径
+     * @param start 第一个球的半径
+     * @param step 半径间隔，为空或不大于0时使用 sholl.default-step
+     * @param end 最大半径，为空或不大于 start 时取离中心最远节点的距离
+     */
+    ShollProfile profile(Path swcPath, double start, Double step, Double end) throws IOException;
+
+    /**
+     * 数据集内所有神经元的Sholl曲线（并行计算），返回平均/最大曲线及参与统计的神经元数
+     *
+     * @param datasetId 公共数据集ID
+     * @param includeNeurons 是否在结果中附带每个神经元的曲线
+     * @return 数据集不存在时返回null
+     */
+    Map<String, Object> datasetProfile(String datasetId, double start, Double step, Double end, boolean includeNeurons);
+}
@@ -0,0 +1,28 @@
+package com.morphtesser.service;
+
+import java.util.Map;
+
+/**
+ * 相似神经元检索：每个神经元计算定长形态特征向量（见 {@link com.morphtesser.swc.MorphologyFeatures}），
+ * 按数据集组成特征矩阵并持久化，检索时在标准化特征空间中找k近邻。
+ * <p>
+ * 特征由后台批量任务并行计算，数据集首次被检索或目录内容变化时自动启动；任务完成前返回 status=building。
+ */
+public interface SimilarityService {
+
+    /**
+     * 数据集内与指定神经元最相似的 k 个神经元（按距离从小到大，不含自身）
+     *
+     * @param datasetId 公共数据集ID
+     * @param modelId   查询神经元的模型目录名
+     * @return 数据集不存在、或特征已就绪但其中没有该神经元时返回null
+     */
+    Map<String, Object> similar(String datasetId, String modelId, int k);
+
+    /**
+     * 数据集特征矩阵与批量任务的状态
+     *
+     * @return 数据集不存在时返回null
+     */
+    Map<String, Object> status(String datasetId);
+}
@@ -0,0 +1,47 @@
+package com.morphtesser.service;
+
+import com.morphtesser.swc.SegmentBvh;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * 神经元骨架的段级空间索引（见 {@link SegmentBvh}），按文件缓存，SWC修改后重建
+ */
+public interface SpatialIndexService {
+
+    /**
+     * SWC文件的段BVH，缓存中不存在时解析并构建
+     *
+     * @param swcPath SWC文件路径
+     */
+    SegmentBvh getIndex(Path swcPath) throws IOException;
+
+    /**
+     * 离点最近的段：段两端的节点ID、到段表面的距离（在段内为负）与轴线上的最近点
+     *
+     * @param maxDistance 距离上限，为空时不限制
+     * @return 范围内没有段时 hit 为 null
+     */
+    Map<String, Object> nearest(Path swcPath, double x, double y, double z, Double maxDistance) throws IOException;
+
+    /**
+     * 射线拾取：射线从 origin 出发沿 direction（不必归一化）与段表面的第一个交点
+     *
+     * @param maxDistance 射线长度上限，为空时不限制
+     */
+    Map<String, Object> raycast(Path swcPath, double[] origin, double[] direction, Double maxDistance) throws IOException;
+
+    /**
+     * 区域裁剪：轴线穿过长方体 [minX, minY, minZ, maxX, maxY, maxZ] 的段及区域内的轴线长度
+     *
+     * @param includeNodes 是否返回相交段的节点ID列表
+     */
+    Map<String, Object> queryBox(Path swcPath, double[] box, boolean includeNodes) throws IOException;
+
+    /**
+     * 区域裁剪：轴线穿过球体的段及区域内的轴线长度
+     */
+    Map<String, Object> querySphere(Path swcPath, double[] center, double radius, boolean includeNodes) throws IOException;
+}
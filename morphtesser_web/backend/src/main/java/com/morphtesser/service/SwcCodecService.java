@@ -0,0 +1,50 @@
+package com.morphtesser.service;
+
+import com.morphtesser.swc.SwcProgressiveStream;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * SWC二进制传输格式（SWB，见 {@link com.morphtesser.swc.SwcCodec}）的生成与缓存
+ */
+public interface SwcCodecService {
+
+    String MEDIA_TYPE = "application/x-swc-binary";
+
+    /** 渐进传输的二进制帧格式，见 {@link SwcProgressiveStream} */
+    String STREAM_MEDIA_TYPE = "application/x-swc-stream";
+
+    String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+
+    /**
+     * 获取SWC文件对应的SWB缓存文件，不存在或SWC已修改时重新编码。
+     * 缓存位于 swc.codec.cache-dir（按大小与访问时间淘汰），按文件路径、修改时间与大小区分
+     *
+     * @param swcPath SWC文件路径
+     * @return SWB文件路径
+     */
+    Path getOrCreateBinary(Path swcPath) throws IOException;
+
+    /**
+     * 同 {@link #getOrCreateBinary(Path)}，结果缓存到指定目录（例如临时会话目录，随会话一起清理）
+     */
+    Path getOrCreateBinary(Path swcPath, Path cacheDir) throws IOException;
+
+    /**
+     * Accept 请求头是否显式要求SWB（通配符 * / * 不算，保持默认返回文本SWC）
+     */
+    boolean acceptsBinary(String acceptHeader);
+
+    /**
+     * 解析SWC并计算渐进传输顺序（骨架在前、细节在后），由调用方逐帧写出
+     *
+     * @param swcPath SWC文件路径
+     */
+    SwcProgressiveStream openProgressive(Path swcPath) throws IOException;
+
+    /**
+     * Accept 请求头是否显式要求渐进传输的二进制帧格式，否则返回NDJSON
+     */
+    boolean acceptsStreamBinary(String acceptHeader);
+}
@@ -0,0 +1,26 @@
+package com.morphtesser.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * SWC骨架的细节层次（LOD）：按误差容限做 Douglas-Peucker 简化（见 {@link com.morphtesser.swc.SwcSimplifier}），
+ * 供预览等只需要整体形态的场景使用
+ */
+public interface SwcLodService {
+
+    /**
+     * 获取SWC文件按误差容限简化后的文件，按（文件、容限）缓存到 swc.lod.cache-dir（按大小与访问时间淘汰）。
+     * tolerance 为 null 或不大于 0 时返回原文件
+     *
+     * @param swcPath   SWC文件路径
+     * @param tolerance 误差容限（与SWC坐标同单位，通常为微米），超过 swc.lod.max-tolerance 时取上限
+     * @return 简化后的SWC文件路径
+     */
+    Path getOrCreateLod(Path swcPath, Double tolerance) throws IOException;
+
+    /**
+     * 同 {@link #getOrCreateLod(Path, Double)}，结果缓存到指定目录（例如临时会话目录，随会话一起清理）
+     */
+    Path getOrCreateLod(Path swcPath, Double tolerance, Path cacheDir) throws IOException;
+}
@@ -0,0 +1,32 @@
+package com.morphtesser.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * JVM内的SWC网格生成（不依赖Python建模服务）
+ */
+public interface SwcMeshingService {
+
+    /**
+     * 由SWC生成管状网格并返回OBJ内容，用于建模服务熔断时的降级
+     *
+     * @param swcPath SWC文件路径
+     * @return OBJ文件内容
+     */
+    byte[] meshFallback(Path swcPath) throws IOException;
+
+    /**
+     * 由SWC生成扫掠管道网格（分叉、末端与胞体处放置球体）并返回OBJ内容，
+     * 用于 fast/raw 建模模式，不经过Python建模服务
+     *
+     * @param swcPath SWC文件路径
+     * @return OBJ文件内容
+     */
+    byte[] tessellate(Path swcPath) throws IOException;
+
+    /**
+     * 该建模类型是否在JVM内生成（modeling.native.types，默认只有 fast）
+     */
+    boolean handlesType(String type);
+}
@@ -0,0 +1,21 @@
+package com.morphtesser.service;
+
+import com.morphtesser.swc.SwcValidationReport;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * 建模前的SWC校验与修复（环、重复ID、孤立子树、无效半径、缺失胞体、ID压缩）
+ */
+public interface SwcValidationService {
+
+    /**
+     * 校验并修复已保存的SWC文件；有修改时原地写回修复后的内容（文件头注释记录修复项）。
+     * 关闭校验（swc.validation.enabled=false）时返回null
+     *
+     * @param swcPath SWC文件路径
+     * @return 校验报告；isRejected() 为 true 时文件不可用于建模，文件保持原样
+     */
+    SwcValidationReport validateFile(Path swcPath) throws IOException;
+}
@@ -0,0 +1,658 @@
+package com.morphtesser.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.morphtesser.service.BatchModelingService;
+import com.morphtesser.service.MeshCodecService;
+import com.morphtesser.service.ModelingAdmissionService;
+import com.morphtesser.service.ModelingClient;
+import com.morphtesser.service.SwcMeshingService;
+import com.morphtesser.service.SwcValidationService;
+import com.morphtesser.swc.SwcReader;
+import com.morphtesser.swc.SwcValidationReport;
+import com.morphtesser.util.FileCacheUtils;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+@Service
+public class BatchModelingServiceImpl implements BatchModelingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchModelingServiceImpl.class);
+
+    @Autowired
+    private ModelingClient modelingClient;
+
+    @Autowired
+    private MeshCodecService meshCodecService;
+
+    @Autowired
+    private SwcMeshingService swcMeshingService;
+
+    @Autowired
+    private SwcValidationService swcValidationService;
+
+    @Autowired
+    private ModelingAdmissionService admissionService;
+
+    @Value("${python.modeling.fallback.enabled:true}")
+    private boolean fallbackMeshingEnabled;
+
+    @Value("${modeling.batch.work-dir:./temp/batch-modeling/}")
+    private String workDir;
+
+    // 同时执行的建模任务数（所有批量任务共享）
+    @Value("${modeling.batch.parallelism:4}")
+    private int parallelism;
+
+    // 单个批量任务已解出但尚未处理完的条目上限，读取ZIP的速度受其约束
+    @Value("${modeling.batch.max-in-flight:8}")
+    private int maxInFlight;
+
+    // ZIP条目数（含目录与非SWC条目）上限
+    @Value("${modeling.batch.max-entries:2000}")
+    private int maxEntries;
+
+    // 单个SWC条目与整个任务解出内容的大小上限（MB），防止压缩炸弹占满磁盘
+    @Value("${modeling.batch.max-entry-mb:100}")
+    private long maxEntryMb;
+
+    @Value("${modeling.batch.max-total-mb:4096}")
+    private long maxTotalMb;
+
+    // 已结束任务（含工作目录与结果压缩包）的保留时间
+    @Value("${modeling.batch.job-ttl-hours:24}")
+    private int jobTtlHours;
+
+    // 没有空闲建模名额时，条目隔多久（毫秒）重新申请；等待期间不占用工作线程
+    @Value("${modeling.batch.admission-retry-ms:2000}")
+    private long admissionRetryMs;
+
+    @Value("${modeling.batch.admin-users:}")
+    private String adminUsers;
+
+    @Value("${modeling.batch.server-dir-root:/app/data}")
+    private String serverDirRoot;
+
+    @Value("${mesh.codec.quantization-bits:14}")
+    private int quantizationBits;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private final Map<String, BatchJob> jobs = new ConcurrentHashMap<>();
+    private ExecutorService coordinators;
+    private ExecutorService workers;
+    private ScheduledExecutorService retries;
+    private Set<String> admins;
+
+    @PostConstruct
+    public void init() {
+        coordinators = Executors.newCachedThreadPool(namedThreads("batch-modeling-reader-"));
+        workers = Executors.newFixedThreadPool(Math.max(1, parallelism), namedThreads("batch-modeling-worker-"));
+        retries = Executors.newSingleThreadScheduledExecutor(namedThreads("batch-modeling-retry-"));
+        admins = Arrays.stream(adminUsers.split(","))
+            .map(String::trim)
+            .filter(s -> !s.isEmpty())
+            .collect(Collectors.toCollection(HashSet::new));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        coordinators.shutdownNow();
+        workers.shutdownNow();
+        retries.shutdownNow();
+    }
+
+    @Override
+    public boolean isAdmin(String username) {
+        return username != null && admins.contains(username);
+    }
+
+    @Override
+    public Map<String, Object> submitZip(MultipartFile zipFile, String type, String format, String username) throws IOException {
+        BatchJob job = createJob(type, format, username, zipFile.getOriginalFilename());
+        // 仅把上传内容原样落盘（请求结束后Spring会清理上传临时文件），条目在后台流式读取
+        Path zipPath = job.dir.resolve("input.zip");
+        zipFile.transferTo(zipPath);
+        coordinators.execute(() -> runJob(job, () -> readZipEntries(job, zipPath)));
+        return job.summary();
+    }
+
+    @Override
+    public Map<String, Object> submitDirectory(String directory, String type, String format, String username) throws IOException {
+        Path root = Paths.get(serverDirRoot).toAbsolutePath().normalize();
+        Path source = Paths.get(directory).toAbsolutePath().normalize();
+        if (!source.startsWith(root)) {
+            throw new IllegalArgumentException("目录必须位于 " + root + " 之下");
+        }
+        if (!Files.isDirectory(source)) {
+            throw new IllegalArgumentException("目录不存在: " + source);
+        }
+        // 任务概要中只给出相对根目录的路径，不暴露服务器的绝对路径
+        BatchJob job = createJob(type, format, username, root.relativize(source).toString());
+        coordinators.execute(() -> runJob(job, () -> readDirectoryEntries(job, source)));
+        return job.summary();
+    }
+
+    @Override
+    public Map<String, Object> getJob(String jobId) {
+        BatchJob job = jobs.get(jobId);
+        if (job == null) {
+            return null;
+        }
+        Map<String, Object> result = job.summary();
+        result.put("items", job.snapshotItems());
+        return result;
+    }
+
+    @Override
+    public boolean canAccess(String jobId, String username) {
+        BatchJob job = jobs.get(jobId);
+        return job != null && username != null && (username.equals(job.username) || isAdmin(username));
+    }
+
+    @Override
+    public Path getResultArchive(String jobId) {
+        BatchJob job = jobs.get(jobId);
+        if (job == null || !"completed".equals(job.status)) {
+            return null;
+        }
+        Path archive = job.dir.resolve("results.zip");
+        return Files.exists(archive) ? archive : null;
+    }
+
+    /**
+     * 删除结束超过保留时间的任务及其工作目录；工作目录下不属于任何任务的目录（如重启前的任务）按修改时间清理
+     */
+    @Scheduled(fixedRate = 3600000)
+    public void evictExpiredJobs() {
+        Instant cutoff = Instant.now().minus(jobTtlHours, ChronoUnit.HOURS);
+        int evicted = 0;
+        for (BatchJob job : jobs.values()) {
+            if (job.finishedAt != null && job.finishedAt.toInstant().isBefore(cutoff) && jobs.remove(job.id, job)) {
+                deleteJobDir(job.dir);
+                evicted++;
+            }
+        }
+        Path root = Paths.get(workDir).toAbsolutePath().normalize();
+        if (Files.isDirectory(root)) {
+            try (Stream<Path> dirs = Files.list(root)) {
+                for (Path dir : dirs.filter(Files::isDirectory).collect(Collectors.toList())) {
+                    if (!jobs.containsKey(dir.getFileName().toString())
+                            && Files.getLastModifiedTime(dir).toInstant().isBefore(cutoff)) {
+                        deleteJobDir(dir);
+                        evicted++;
+                    }
+                }
+            } catch (IOException e) {
+                logger.warn("扫描批量建模工作目录失败: {}", e.getMessage());
+            }
+        }
+        if (evicted > 0) {
+            logger.info("批量建模任务清理完成: 删除 {} 个过期任务（结束超过 {} 小时）", evicted, jobTtlHours);
+        }
+    }
+
+    private void deleteJobDir(Path dir) {
+        try {
+            FileCacheUtils.deleteRecursively(dir);
+        } catch (IOException e) {
+            logger.warn("删除批量建模工作目录失败: {}, {}", dir, e.getMessage());
+        }
+    }
+
+    private BatchJob createJob(String type, String format, String username, String source) throws IOException {
+        String jobId = UUID.randomUUID().toString();
+        Path dir = Paths.get(workDir).toAbsolutePath().normalize().resolve(jobId);
+        Files.createDirectories(dir.resolve("items"));
+        Files.createDirectories(dir.resolve("results"));
+        BatchJob job = new BatchJob(jobId, dir, type, "obj".equalsIgnoreCase(format) ? "obj" : "mtc", username, source);
+        jobs.put(jobId, job);
+        logger.info("创建批量建模任务: jobId={}, user={}, source={}, type={}, format={}",
+            jobId, username, source, job.type, job.format);
+        return job;
+    }
+
+    private interface EntrySource {
+        void read() throws Exception;
+    }
+
+    private void runJob(BatchJob job, EntrySource source) {
+        job.status = "running";
+        try {
+            source.read();
+            awaitItems(job);
+            writeResults(job);
+            job.status = "completed";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.fail("任务被中断");
+        } catch (Exception e) {
+            logger.error("批量建模任务失败: jobId={}", job.id, e);
+            // 读取中途失败时已提交的条目仍在处理，等它们结束后才标记任务结束（结束后的任务目录会被过期清理删除）
+            try {
+                awaitItems(job);
+            } catch (InterruptedException interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            job.fail(e.getMessage());
+        }
+        job.finishedAt = new Date();
+        logger.info("批量建模任务结束: jobId={}, status={}, 成功 {}/{}",
+            job.id, job.status, job.succeeded.get(), job.items.size());
+    }
+
+    /**
+     * 等待所有已提交条目处理完毕
+     */
+    private void awaitItems(BatchJob job) throws InterruptedException {
+        job.inFlight.acquire(maxInFlight);
+        job.inFlight.release(maxInFlight);
+    }
+
+    private void readZipEntries(BatchJob job, Path zipPath) throws IOException, InterruptedException {
+        try (ZipInputStream zis = new ZipInputStream(Files.newInputStream(zipPath))) {
+            ZipEntry entry;
+            int entries = 0;
+            while ((entry = zis.getNextEntry()) != null) {
+                if (++entries > maxEntries) {
+                    throw new IOException("ZIP条目数量超过上限 " + maxEntries);
+                }
+                if (!entry.isDirectory() && isSwc(entry.getName())) {
+                    enqueue(job, entry.getName(), zis);
+                }
+                zis.closeEntry();
+            }
+        } finally {
+            // 条目已全部落盘，上传的压缩包不再需要
+            Files.deleteIfExists(zipPath);
+        }
+    }
+
+    private void readDirectoryEntries(BatchJob job, Path source) throws IOException, InterruptedException {
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(source)) {
+            files = walk.filter(Files::isRegularFile)
+                .filter(p -> isSwc(p.getFileName().toString()))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+        for (Path file : files) {
+            try (InputStream in = Files.newInputStream(file)) {
+                enqueue(job, source.relativize(file).toString(), in);
+            }
+        }
+    }
+
+    /**
+     * 落盘单个SWC条目并提交到工作线程池；在途条目达到上限时阻塞，形成背压
+     */
+    private void enqueue(BatchJob job, String entryName, InputStream in) throws IOException, InterruptedException {
+        if (job.items.size() >= maxEntries) {
+            throw new IOException("SWC文件数量超过上限 " + maxEntries);
+        }
+        job.inFlight.acquire();
+        int index = job.items.size();
+        BatchItem item = new BatchItem(entryName, uniqueBaseName(job, entryName));
+        job.items.add(item);
+        Path swcPath = job.dir.resolve("items").resolve(item.baseName + ".swc");
+        try {
+            copyLimited(job, entryName, in, swcPath);
+        } catch (IOException e) {
+            job.inFlight.release();
+            throw e;
+        }
+        logger.debug("批量建模条目入队: jobId={}, index={}, entry={}", job.id, index, entryName);
+        workers.execute(() -> prepareItem(job, item, swcPath));
+    }
+
+    /**
+     * 复制条目内容，超过单条目或任务总量上限时停止读取并报错（不再继续解压剩余数据）
+     */
+    private void copyLimited(BatchJob job, String entryName, InputStream in, Path target) throws IOException {
+        long maxEntryBytes = maxEntryMb * 1024 * 1024;
+        long maxTotalBytes = maxTotalMb * 1024 * 1024;
+        byte[] buffer = new byte[8192];
+        long copied = 0;
+        try (OutputStream out = Files.newOutputStream(target)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                copied += read;
+                if (copied > maxEntryBytes) {
+                    throw new IOException("SWC文件 " + entryName + " 超过大小上限 " + maxEntryMb + "MB");
+                }
+                if (job.extractedBytes.addAndGet(read) > maxTotalBytes) {
+                    throw new IOException("解出内容总量超过上限 " + maxTotalMb + "MB");
+                }
+                out.write(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(target);
+            throw e;
+        }
+    }
+
+    /**
+     * 校验与解析阶段；通过后进入建模阶段，失败时条目结束
+     */
+    private void prepareItem(BatchJob job, BatchItem item, Path swcPath) {
+        item.status = "running";
+        try {
+            long start = System.nanoTime();
+            // 校验与修复（与单个上传一致），无法修复的条目不占用建模服务
+            SwcValidationReport validation = swcValidationService.validateFile(swcPath);
+            if (validation != null) {
+                item.validation = validation.toMap();
+                if (validation.isRejected()) {
+                    throw new IOException("SWC文件无效: " + validation.getRejectReason());
+                }
+            }
+            item.nodes = SwcReader.read(swcPath).size();
+            if (item.nodes == 0) {
+                throw new IOException("SWC文件中没有有效节点");
+            }
+            item.parseMs = (System.nanoTime() - start) / 1_000_000.0;
+        } catch (Exception e) {
+            failItem(job, item, swcPath, e.getMessage());
+            return;
+        }
+        meshWhenAdmitted(job, item, swcPath);
+    }
+
+    /**
+     * 建模阶段：与在线建模接口共用准入控制，但使用批量任务自己的标识（不占用户交互式请求的单用户名额），
+     * 且不在队列中等待；没有空闲名额时释放工作线程，隔 admission-retry-ms 后重新提交，不阻塞其他任务的条目
+     */
+    private void meshWhenAdmitted(BatchJob job, BatchItem item, Path swcPath) {
+        ModelingAdmissionService.Permit permit = admissionService.tryAcquire("batch:" + job.username);
+        if (permit == null) {
+            item.status = "waiting";
+            try {
+                retries.schedule(() -> resubmit(job, item, swcPath), admissionRetryMs, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                failItem(job, item, swcPath, "任务被中断");
+            }
+            return;
+        }
+        item.status = "running";
+        try {
+            meshItem(job, item, swcPath);
+            item.status = "success";
+            job.succeeded.incrementAndGet();
+            finishItem(job, swcPath);
+        } catch (Exception e) {
+            failItem(job, item, swcPath, e.getMessage());
+        } finally {
+            permit.close();
+        }
+    }
+
+    private void resubmit(BatchJob job, BatchItem item, Path swcPath) {
+        try {
+            workers.execute(() -> meshWhenAdmitted(job, item, swcPath));
+        } catch (RejectedExecutionException e) {
+            failItem(job, item, swcPath, "任务被中断");
+        }
+    }
+
+    private void failItem(BatchJob job, BatchItem item, Path swcPath, String error) {
+        logger.warn("批量建模条目失败: jobId={}, entry={}, error={}", job.id, item.entry, error);
+        item.status = "failed";
+        item.error = error;
+        job.failed.incrementAndGet();
+        finishItem(job, swcPath);
+    }
+
+    /**
+     * 条目结束（成功或失败）：删除输入文件并归还在途名额
+     */
+    private void finishItem(BatchJob job, Path swcPath) {
+        try {
+            Files.deleteIfExists(swcPath);
+        } catch (IOException ignored) {
+            // 输入文件随任务目录一起清理
+        } finally {
+            job.inFlight.release();
+        }
+    }
+
+    /**
+     * 建模与压缩阶段（持有建模名额期间执行）
+     */
+    private void meshItem(BatchJob job, BatchItem item, Path swcPath) throws IOException {
+        long start = System.nanoTime();
+        String resultType = "refine".equalsIgnoreCase(job.type) ? "refined" : "obj";
+        byte[] objBytes = swcMeshingService.handlesType(job.type)
+            ? swcMeshingService.tessellate(swcPath)
+            : modelingClient.requestObj(swcPath.toString(), resultType);
+        if (objBytes == null && "refined".equals(resultType)) {
+            objBytes = modelingClient.requestObj(swcPath.toString(), "obj");
+        }
+        if (objBytes == null && fallbackMeshingEnabled && modelingClient.isCircuitOpen()) {
+            objBytes = swcMeshingService.meshFallback(swcPath);
+            item.fallback = true;
+        }
+        if (objBytes == null) {
+            throw new IOException("建模API未返回有效OBJ");
+        }
+        Path objPath = job.dir.resolve("results").resolve(item.baseName + ".obj");
+        Files.write(objPath, objBytes);
+        long meshed = System.nanoTime();
+        item.meshMs = (meshed - start) / 1_000_000.0;
+        item.objSize = objBytes.length;
+
+        if ("mtc".equals(job.format)) {
+            Path mtcPath = job.dir.resolve("results").resolve(item.baseName + ".mtc");
+            Map<String, Object> compressed = meshCodecService.compressObj(objPath.toString(), mtcPath.toString(), quantizationBits);
+            if (compressed == null) {
+                throw new IOException("MTC压缩失败");
+            }
+            item.outputFile = "results/" + mtcPath.getFileName();
+            item.outputSize = (Long) compressed.get("compressed_size");
+            // 压缩包中只保留压缩结果
+            Files.deleteIfExists(objPath);
+        } else {
+            item.outputFile = "results/" + objPath.getFileName();
+            item.outputSize = objBytes.length;
+        }
+        item.compressMs = (System.nanoTime() - meshed) / 1_000_000.0;
+    }
+
+    /**
+     * 写出 manifest.json 并打包结果
+     */
+    private void writeResults(BatchJob job) throws IOException {
+        Map<String, Object> manifest = job.summary();
+        manifest.put("items", job.snapshotItems());
+        byte[] manifestBytes = objectMapper.writeValueAsBytes(manifest);
+        Files.write(job.dir.resolve("manifest.json"), manifestBytes);
+
+        Path archive = job.dir.resolve("results.zip");
+        Path tmp = job.dir.resolve("results.zip.tmp");
+        try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(tmp))) {
+            zos.putNextEntry(new ZipEntry("manifest.json"));
+            zos.write(manifestBytes);
+            zos.closeEntry();
+            for (BatchItem item : job.snapshotItemsRaw()) {
+                if (item.outputFile == null) {
+                    continue;
+                }
+                zos.putNextEntry(new ZipEntry(item.outputFile));
+                Files.copy(job.dir.resolve(item.outputFile), zos);
+                zos.closeEntry();
+            }
+        }
+        Files.move(tmp, archive, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static boolean isSwc(String name) {
+        return name.toLowerCase().endsWith(".swc");
+    }
+
+    /**
+     * 由条目名生成安全且不重复的文件名（防止 ../ 之类的路径穿越）
+     */
+    private static String uniqueBaseName(BatchJob job, String entryName) {
+        String fileName = entryName.replace('\\', '/');
+        fileName = fileName.substring(fileName.lastIndexOf('/') + 1);
+        String base = fileName.substring(0, fileName.length() - ".swc".length()).replaceAll("[^A-Za-z0-9._-]", "_");
+        if (base.isEmpty() || base.startsWith(".")) {
+            base = "neuron" + base;
+        }
+        String candidate = base;
+        for (int i = 1; !job.usedNames.add(candidate); i++) {
+            candidate = base + "_" + i;
+        }
+        return candidate;
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private final class BatchJob {
+        private final String id;
+        private final Path dir;
+        private final String type;
+        private final String format;
+        private final String username;
+        private final String source;
+        private final Date createdAt = new Date();
+        private final List<BatchItem> items = Collections.synchronizedList(new ArrayList<>());
+        private final Set<String> usedNames = new HashSet<>();
+        private final Semaphore inFlight = new Semaphore(maxInFlight);
+        private final AtomicInteger succeeded = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private final AtomicLong extractedBytes = new AtomicLong();
+        private volatile String status = "queued";
+        private volatile String error;
+        private volatile Date finishedAt;
+
+        private BatchJob(String id, Path dir, String type, String format, String username, String source) {
+            this.id = id;
+            this.dir = dir;
+            this.type = type;
+            this.format = format;
+            this.username = username;
+            this.source = source;
+        }
+
+        private void fail(String message) {
+            status = "failed";
+            error = message;
+        }
+
+        private Map<String, Object> summary() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("job_id", id);
+            map.put("status", status);
+            map.put("type", type);
+            map.put("format", format);
+            map.put("username", username);
+            map.put("source", source);
+            map.put("created_at", createdAt);
+            map.put("finished_at", finishedAt);
+            map.put("total", items.size());
+            map.put("succeeded", succeeded.get());
+            map.put("failed", failed.get());
+            map.put("error", error);
+            if ("completed".equals(status)) {
+                map.put("archive_url", "/api/models/batch/" + id + "/archive");
+            }
+            return map;
+        }
+
+        private List<BatchItem> snapshotItemsRaw() {
+            synchronized (items) {
+                return new ArrayList<>(items);
+            }
+        }
+
+        private List<Map<String, Object>> snapshotItems() {
+            return snapshotItemsRaw().stream().map(BatchItem::toMap).collect(Collectors.toList());
+        }
+    }
+
+    private static final class BatchItem {
+        private final String entry;
+        private final String baseName;
+        private volatile String status = "queued";
+        private volatile String error;
+        private volatile boolean fallback;
+        private volatile int nodes;
+        private volatile long objSize;
+        private volatile long outputSize;
+        private volatile String outputFile;
+        private volatile double parseMs;
+        private volatile double meshMs;
+        private volatile double compressMs;
+        private volatile Map<String, Object> validation;
+
+        private BatchItem(String entry, String baseName) {
+            this.entry = entry;
+            this.baseName = baseName;
+        }
+
+        private Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("entry", entry);
+            map.put("status", status);
+            map.put("fallback", fallback);
+            map.put("nodes", nodes);
+            map.put("obj_size", objSize);
+            map.put("output_file", outputFile);
+            map.put("output_size", outputSize);
+            map.put("parse_ms", parseMs);
+            map.put("mesh_ms", meshMs);
+            map.put("compress_ms", compressMs);
+            map.put("validation", validation);
+            map.put("error", error);
+            return map;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.morphtesser.service.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 熔断器：CLOSED（正常）-> OPEN（快速失败）-> HALF_OPEN（放行少量探测请求）-> CLOSED
+ * 最近 windowSize 次调用中失败（含超过 slowCallMs 的慢调用）比例达到阈值时熔断
+ */
+public class CircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long slowCallMs;
+    private final long openMs;
+    private final int halfOpenCalls;
+
+    // 环形窗口：true 表示失败或慢调用
+    private final boolean[] outcomes;
+    private int recorded;
+    private int cursor;
+    private int failuresInWindow;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+    private long rejected;
+    private long slowCalls;
+    private long tripCount;
+
+    public CircuitBreaker(String name, int windowSize, int minimumCalls, double failureRateThreshold,
+                          long slowCallMs, long openMs, int halfOpenCalls) {
+        this.name = name;
+        this.windowSize = Math.max(1, windowSize);
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, this.windowSize));
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallMs = slowCallMs;
+        this.openMs = openMs;
+        this.halfOpenCalls = Math.max(1, halfOpenCalls);
+        this.outcomes = new boolean[this.windowSize];
+    }
+
+    /**
+     * 申请一次调用；返回 false 表示熔断中，应快速失败。
+     * 返回 true 后必须调用 onSuccess / onFailure / onIgnored 之一
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < openMs) {
+                rejected++;
+                return false;
+            }
+            transition(State.HALF_OPEN);
+            halfOpenPermits = halfOpenCalls;
+            halfOpenSuccesses = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermits == 0) {
+                rejected++;
+                return false;
+            }
+            halfOpenPermits--;
+        }
+        return true;
+    }
+
+    public synchronized void onSuccess(long elapsedMs) {
+        if (elapsedMs > slowCallMs) {
+            slowCalls++;
+            onFailure();
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            if (++halfOpenSuccesses >= halfOpenCalls) {
+                transition(State.CLOSED);
+                resetWindow();
+            }
+            return;
+        }
+        record(false);
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            trip();
+            return;
+        }
+        if (state == State.OPEN) {
+            return;
+        }
+        record(true);
+        if (recorded >= minimumCalls && failuresInWindow * 100.0 / recorded >= failureRateThreshold) {
+            trip();
+        }
+    }
+
+    /**
+     * 调用被主动取消或被输入本身拒绝（4xx、非OBJ回复），不计入统计；半开状态下归还探测名额
+     */
+    public synchronized void onIgnored() {
+        if (state == State.HALF_OPEN && halfOpenPermits < halfOpenCalls) {
+            halfOpenPermits++;
+        }
+    }
+
+    public synchronized State getState() {
+        // OPEN 到期后在下一次 tryAcquire 时才真正进入 HALF_OPEN，这里如实反映“仍在熔断中”与否
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openMs) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("name", name);
+        stats.put("state", getState().name());
+        stats.put("window_calls", recorded);
+        stats.put("window_failures", failuresInWindow);
+        stats.put("failure_rate", recorded == 0 ? 0.0 : failuresInWindow * 100.0 / recorded);
+        stats.put("failure_rate_threshold", failureRateThreshold);
+        stats.put("slow_call_ms", slowCallMs);
+        stats.put("slow_calls", slowCalls);
+        stats.put("rejected", rejected);
+        stats.put("trip_count", tripCount);
+        stats.put("open_ms", openMs);
+        return stats;
+    }
+
+    private void trip() {
+        tripCount++;
+        openedAt = System.currentTimeMillis();
+        transition(State.OPEN);
+        resetWindow();
+    }
+
+    private void transition(State next) {
+        if (state != next) {
+            logger.warn("熔断器 {} 状态变化: {} -> {}", name, state, next);
+            state = next;
+        }
+    }
+
+    private void record(boolean failure) {
+        if (recorded == windowSize) {
+            if (outcomes[cursor]) {
+                failuresInWindow--;
+            }
+        } else {
+            recorded++;
+        }
+        outcomes[cursor] = failure;
+        if (failure) {
+            failuresInWindow++;
+        }
+        cursor = (cursor + 1) % windowSize;
+    }
+
+    private void resetWindow() {
+        recorded = 0;
+        cursor = 0;
+        failuresInWindow = 0;
+    }
+}
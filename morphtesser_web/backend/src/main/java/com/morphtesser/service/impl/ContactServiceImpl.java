@@ -0,0 +1,286 @@
+package com.morphtesser.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.morphtesser.config.AnalysisExecutorConfig;
+import com.morphtesser.service.ContactService;
+import com.morphtesser.service.DatasetFileService;
+import com.morphtesser.service.DatasetSpatialService;
+import com.morphtesser.service.SpatialIndexService;
+import com.morphtesser.swc.SegmentBvh;
+import com.morphtesser.swc.StrRTree;
+import com.morphtesser.swc.SwcMorphology;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+@Service
+public class ContactServiceImpl implements ContactService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContactServiceImpl.class);
+
+    private static final int AXON = SegmentBvh.typeBit(2);
+    private static final int DENDRITE = SegmentBvh.typeBit(3) | SegmentBvh.typeBit(4);
+    private static final long FLUSH_INTERVAL_NANOS = 200_000_000L;
+
+    // 一次检测最多的神经元数（有序神经元对数为其平方量级）
+    @Value("${contact.max-neurons:2000}")
+    private int maxNeurons;
+
+    // 接触距离阈值上限（微米）
+    @Value("${contact.max-distance:20.0}")
+    private double maxDistance;
+
+    @Autowired
+    private SpatialIndexService spatialIndexService;
+
+    @Autowired
+    private DatasetSpatialService datasetSpatialService;
+
+    @Autowired
+    private DatasetFileService datasetFileService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Autowired
+    @Qualifier(AnalysisExecutorConfig.ANALYSIS_POOL)
+    private ForkJoinPool pool;
+
+    @Override
+    public List<String> selectNeurons(String datasetId, List<String> modelIds, double[] box, double distance) {
+        if (!(distance >= 0) || distance > maxDistance) {
+            throw new IllegalArgumentException("接触距离应在 0 到 " + maxDistance + " 之间");
+        }
+        boolean byIds = modelIds != null && !modelIds.isEmpty();
+        if (!byIds && box == null) {
+            throw new IllegalArgumentException("需要指定模型ID或区域");
+        }
+        if (datasetFileService.resultsDir(datasetId) == null) {
+            return null;
+        }
+        Set<String> selected = new LinkedHashSet<>();
+        if (byIds) {
+            for (String modelId : modelIds) {
+                if (datasetFileService.resolveSwc(datasetId, modelId) != null) {
+                    selected.add(modelId);
+                }
+            }
+        }
+        if (box != null) {
+            Map<String, Object> region = datasetSpatialService.queryBox(datasetId, box, null);
+            Set<String> inRegion = new LinkedHashSet<>();
+            if (region != null) {
+                for (Object item : (List<?>) region.get("results")) {
+                    inRegion.add((String) ((Map<?, ?>) item).get("modelId"));
+                }
+            }
+            if (byIds) {
+                selected.retainAll(inRegion);
+            } else {
+                selected = inRegion;
+            }
+        }
+        if (selected.size() > maxNeurons) {
+            throw new IllegalArgumentException("神经元数 " + selected.size() + " 超过上限 " + maxNeurons);
+        }
+        return new ArrayList<>(selected);
+    }
+
+    @Override
+    public void writeContacts(String datasetId, List<String> modelIds, double distance, double[] box, OutputStream out) throws IOException {
+        long begin = System.nanoTime();
+        int n = modelIds.size();
+        String[] quoted = new String[n];
+        // 段索引不在这里保留，第二级按神经元对从 SpatialIndexService 的缓存中取，内存占用受其上限约束
+        Path[] swcs = new Path[n];
+        // 轴突、树突段（含半径）的包围盒，没有该类型的段或加载失败时为空
+        float[][] axonBounds = new float[n][];
+        float[][] dendriteBounds = new float[n][];
+        AtomicInteger failed = new AtomicInteger();
+        for (int i = 0; i < n; i++) {
+            quoted[i] = objectMapper.writeValueAsString(modelIds.get(i));
+        }
+        pool.submit(() -> IntStream.range(0, n).parallel().forEach(i -> {
+            try {
+                Path swc = datasetFileService.resolveSwc(datasetId, modelIds.get(i));
+                if (swc == null) {
+                    failed.incrementAndGet();
+                    return;
+                }
+                SwcMorphology m = spatialIndexService.getIndex(swc).morphology();
+                axonBounds[i] = typeBounds(m, AXON);
+                dendriteBounds[i] = typeBounds(m, DENDRITE);
+                swcs[i] = swc;
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                logger.warn("加载段索引失败: {}/{}, {}", datasetId, modelIds.get(i), e.getMessage());
+            }
+        })).join();
+
+        // 第一级：树突包围盒上的R树，每个轴突包围盒外扩 distance 后查询，得到候选神经元对
+        int[] withDendrite = IntStream.range(0, n).filter(i -> dendriteBounds[i] != null).toArray();
+        float[] packed = new float[withDendrite.length * 6];
+        for (int k = 0; k < withDendrite.length; k++) {
+            System.arraycopy(dendriteBounds[withDendrite[k]], 0, packed, 6 * k, 6);
+        }
+        StrRTree rtree = StrRTree.build(packed, withDendrite.length);
+        int[][] candidates = new int[n][];
+        long candidatePairs = 0;
+        for (int i = 0; i < n; i++) {
+            float[] a = axonBounds[i];
+            if (a == null) {
+                continue;
+            }
+            double[] query = {a[0] - distance, a[1] - distance, a[2] - distance, a[3] + distance, a[4] + distance, a[5] + distance};
+            int self = i;
+            candidates[i] = Arrays.stream(rtree.queryBox(query)).map(k -> withDendrite[k]).filter(j -> j != self).toArray();
+            candidatePairs += candidates[i].length;
+        }
+        long totalPairs = (long) n * (n - 1);
+
+        ContactWriter writer = new ContactWriter(out);
+        writer.write("{\"datasetId\":" + objectMapper.writeValueAsString(datasetId) + ",\"neurons\":" + n
+            + ",\"failed\":" + failed.get() + ",\"distance\":" + distance + ",\"pairs\":" + totalPairs
+            + ",\"candidatePairs\":" + candidatePairs + "}\n", true);
+
+        // 第二级：各候选神经元对的双树遍历，按轴突一方的神经元并行，每个接触点算出后立即写出
+        AtomicInteger contactPairs = new AtomicInteger();
+        AtomicLong contacts = new AtomicLong();
+        pool.submit(() -> IntStream.range(0, n).parallel().filter(i -> candidates[i] != null).forEach(i -> {
+            SegmentBvh pre = loadIndex(datasetId, modelIds.get(i), swcs[i]);
+            if (pre == null) {
+                return;
+            }
+            for (int j : candidates[i]) {
+                if (writer.failed()) {
+                    return;
+                }
+                SegmentBvh post = loadIndex(datasetId, modelIds.get(j), swcs[j]);
+                if (post == null) {
+                    continue;
+                }
+                int count = 0;
+                for (SegmentBvh.Contact c : pre.contacts(post, distance, AXON, DENDRITE)) {
+                    double x = (c.getX() + c.getOtherX()) * 0.5;
+                    double y = (c.getY() + c.getOtherY()) * 0.5;
+                    double z = (c.getZ() + c.getOtherZ()) * 0.5;
+                    if (box != null && (x < box[0] || y < box[1] || z < box[2] || x > box[3] || y > box[4] || z > box[5])) {
+                        continue;
+                    }
+                    writer.write("{\"pre\":" + quoted[i] + ",\"post\":" + quoted[j]
+                        + ",\"preNode\":" + pre.morphology().id(c.getNode())
+                        + ",\"postNode\":" + post.morphology().id(c.getOtherNode())
+                        + ",\"distance\":" + round(c.getDistance())
+                        + ",\"x\":" + round(x) + ",\"y\":" + round(y) + ",\"z\":" + round(z) + "}\n", false);
+                    count++;
+                }
+                if (count > 0) {
+                    contactPairs.incrementAndGet();
+                    contacts.addAndGet(count);
+                }
+            }
+        })).join();
+        if (writer.failed()) {
+            throw writer.error;
+        }
+        writer.write("{\"done\":true,\"contactPairs\":" + contactPairs.get() + ",\"contacts\":" + contacts.get()
+            + ",\"elapsed_ms\":" + (System.nanoTime() - begin) / 1_000_000.0 + "}\n", true);
+        logger.info("接触点检测完成: {} ({} 个神经元, 候选 {} / {} 对, {} 个接触点, 耗时 {} ms)", datasetId, n, candidatePairs,
+            totalPairs, contacts.get(), (System.nanoTime() - begin) / 1_000_000);
+    }
+
+    /**
+     * 第二级计算时重新取段索引（通常命中 SpatialIndexService 的缓存）；失败时记录日志并跳过相关的神经元对
+     */
+    private SegmentBvh loadIndex(String datasetId, String modelId, Path swc) {
+        try {
+            return spatialIndexService.getIndex(swc);
+        } catch (Exception e) {
+            logger.warn("加载段索引失败: {}/{}, {}", datasetId, modelId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 多个计算线程共用的输出：按行整体写入，间隔一段时间刷新一次；写入失败（客户端断开）后其余线程停止计算
+     */
+    private static final class ContactWriter {
+        private final OutputStream out;
+        private long lastFlush = System.nanoTime();
+        private volatile IOException error;
+
+        ContactWriter(OutputStream out) {
+            this.out = out;
+        }
+
+        boolean failed() {
+            return error != null;
+        }
+
+        synchronized void write(String lines, boolean flush) {
+            if (error != null) {
+                return;
+            }
+            try {
+                out.write(lines.getBytes(StandardCharsets.UTF_8));
+                long now = System.nanoTime();
+                if (flush || now - lastFlush > FLUSH_INTERVAL_NANOS) {
+                    out.flush();
+                    lastFlush = now;
+                }
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+    }
+
+    /**
+     * 指定类型的段（父节点到该节点，含两端半径）的包围盒，没有该类型的段时返回null
+     */
+    private static float[] typeBounds(SwcMorphology m, int types) {
+        float[] box = {Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY,
+            Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY};
+        boolean any = false;
+        for (int i = 0; i < m.size(); i++) {
+            int p = m.parent(i);
+            if (p < 0 || (SegmentBvh.typeBit(m.type(i)) & types) == 0) {
+                continue;
+            }
+            any = true;
+            expand(box, m, p);
+            expand(box, m, i);
+        }
+        return any ? box : null;
+    }
+
+    private static void expand(float[] box, SwcMorphology m, int node) {
+        float r = Math.max(0f, m.radius(node));
+        box[0] = Math.min(box[0], m.x(node) - r);
+        box[1] = Math.min(box[1], m.y(node) - r);
+        box[2] = Math.min(box[2], m.z(node) - r);
+        box[3] = Math.max(box[3], m.x(node) + r);
+        box[4] = Math.max(box[4], m.y(node) + r);
+        box[5] = Math.max(box[5], m.z(node) + r);
+    }
+
+    private static double round(double v) {
+        return Math.round(v * 1000) / 1000.0;
+    }
+}
@@ -0,0 +1,52 @@
+package com.morphtesser.service.impl;
+
+import com.morphtesser.service.DatasetFileService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+@Service
+public class DatasetFileServiceImpl implements DatasetFileService {
+
+    @Value("${dataset.public.base-dir:/app/data/public-datasets/}")
+    private String datasetsDir;
+
+    @Override
+    public Path resultsDir(String datasetId) {
+        Path base = Paths.get(datasetsDir).toAbsolutePath().normalize();
+        Path resultsPath = base.resolve(datasetId).resolve("results").normalize();
+        if (!resultsPath.startsWith(base) || !Files.isDirectory(resultsPath)) {
+            return null;
+        }
+        return resultsPath;
+    }
+
+    @Override
+    public Path resolveSwc(String datasetId, String modelId) {
+        Path resultsPath = resultsDir(datasetId);
+        if (resultsPath == null) {
+            return null;
+        }
+        Path modelDir = resultsPath.resolve(modelId).normalize();
+        if (!modelDir.startsWith(resultsPath) || modelDir.equals(resultsPath)) {
+            return null;
+        }
+        File swc = firstSwc(modelDir.toFile());
+        return swc == null ? null : swc.toPath();
+    }
+
+    @Override
+    public File firstSwc(File modelDir) {
+        File[] files = modelDir.listFiles((dir, name) -> name.toLowerCase().endsWith(".swc"));
+        if (files == null || files.length == 0) {
+            return null;
+        }
+        Arrays.sort(files);
+        return files[0];
+    }
+}
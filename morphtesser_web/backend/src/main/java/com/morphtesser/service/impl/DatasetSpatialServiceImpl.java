@@ -0,0 +1,406 @@
+package com.morphtesser.service.impl;
+
+import com.morphtesser.config.AnalysisExecutorConfig;
+import com.morphtesser.service.DatasetFileService;
+import com.morphtesser.service.DatasetSpatialService;
+import com.morphtesser.service.SpatialIndexService;
+import com.morphtesser.swc.SegmentBvh;
+import com.morphtesser.swc.StrRTree;
+import com.morphtesser.swc.SwcMorphology;
+import com.morphtesser.swc.SwcReader;
+import com.morphtesser.util.FileCacheUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+@Service
+public class DatasetSpatialServiceImpl implements DatasetSpatialService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DatasetSpatialServiceImpl.class);
+
+    private static final int TABLE_MAGIC = 0x3158424e; // "NBX1"
+
+    @Autowired
+    private DatasetFileService datasetFileService;
+
+    // 神经元包围盒表的持久化目录，重启后只重新统计修改过的SWC
+    @Value("${spatial.dataset.cache-dir:/app/cache/spatial}")
+    private String cacheDir;
+
+    // 距上次检查超过该时间（毫秒）时在后台重新扫描数据集目录，发现原地覆盖的SWC；增删模型目录会立即重建
+    @Value("${spatial.dataset.recheck-ms:60000}")
+    private long recheckMs;
+
+    @Autowired
+    private SpatialIndexService spatialIndexService;
+
+    @Autowired
+    @Qualifier(AnalysisExecutorConfig.ANALYSIS_POOL)
+    private ForkJoinPool pool;
+
+    private final Map<String, DatasetIndex> indexes = new ConcurrentHashMap<>();
+    private final Map<String, Object> locks = new ConcurrentHashMap<>();
+
+    /**
+     * 一个数据集的神经元表：SWC文件及其修改时间/大小、节点包围盒、总轴线长度，以及包围盒上的R树
+     */
+    private static final class DatasetIndex {
+        long resultsModified;
+        long checkedAt;
+        String[] modelIds;
+        Path[] swcs;
+        long[] modified;
+        long[] sizes;
+        double[] cable;
+        float[] bounds;
+        StrRTree tree;
+        final AtomicBoolean refreshing = new AtomicBoolean();
+
+        int size() {
+            return modelIds.length;
+        }
+    }
+
+    @Override
+    public Map<String, Object> queryBox(String datasetId, double[] box, Integer limit) {
+        return query(datasetId, box, null, 0, limit);
+    }
+
+    @Override
+    public Map<String, Object> querySphere(String datasetId, double[] center, double radius, Integer limit) {
+        return query(datasetId, null, center, radius, limit);
+    }
+
+    private Map<String, Object> query(String datasetId, double[] box, double[] center, double radius, Integer limit) {
+        DatasetIndex index = getIndex(datasetId);
+        if (index == null) {
+            return null;
+        }
+        long begin = System.nanoTime();
+        int[] candidates = box != null ? index.tree.queryBox(box) : index.tree.querySphere(center[0], center[1], center[2], radius);
+
+        // 包围盒完全在区域内的神经元不需要逐段裁剪，其余的用段BVH并行裁剪；包围盒相交但没有段穿过区域的不计入结果
+        double[] lengths = new double[candidates.length];
+        boolean[] hits = new boolean[candidates.length];
+        AtomicInteger clipped = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        pool.submit(() -> IntStream.range(0, candidates.length).parallel().forEach(k -> {
+            int i = candidates[k];
+            if (box != null ? containedInBox(index.bounds, i, box) : containedInSphere(index.bounds, i, center, radius)) {
+                lengths[k] = index.cable[i];
+                hits[k] = true;
+                return;
+            }
+            clipped.incrementAndGet();
+            try {
+                SegmentBvh bvh = spatialIndexService.getIndex(index.swcs[i]);
+                SegmentBvh.Region region = box != null ? bvh.queryBox(box)
+                    : bvh.querySphere(center[0], center[1], center[2], radius);
+                lengths[k] = region.getCableLength();
+                hits[k] = region.getNodes().length > 0;
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                logger.warn("神经元空间裁剪失败: {}, {}", index.swcs[i], e.getMessage());
+            }
+        })).join();
+
+        List<Integer> matched = new ArrayList<>();
+        for (int k = 0; k < candidates.length; k++) {
+            if (hits[k]) {
+                matched.add(k);
+            }
+        }
+        matched.sort((a, b) -> Double.compare(lengths[b], lengths[a]));
+        int count = limit != null && limit >= 0 ? Math.min(limit, matched.size()) : matched.size();
+        List<Map<String, Object>> neurons = new ArrayList<>(count);
+        double totalLength = 0;
+        for (int k : matched) {
+            totalLength += lengths[k];
+        }
+        for (int k = 0; k < count; k++) {
+            int c = matched.get(k);
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("modelId", index.modelIds[candidates[c]]);
+            item.put("cableLength", lengths[c]);
+            neurons.add(item);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("datasetId", datasetId);
+        result.put("neurons", index.size());
+        result.put("candidates", candidates.length);
+        result.put("clipped", clipped.get());
+        result.put("failed", failed.get());
+        result.put("matched", matched.size());
+        result.put("cableLength", totalLength);
+        result.put("results", neurons);
+        result.put("elapsed_ms", (System.nanoTime() - begin) / 1_000_000.0);
+        return result;
+    }
+
+    private static boolean containedInBox(float[] bounds, int i, double[] box) {
+        int o = i * 6;
+        return bounds[o] >= box[0] && bounds[o + 1] >= box[1] && bounds[o + 2] >= box[2]
+            && bounds[o + 3] <= box[3] && bounds[o + 4] <= box[4] && bounds[o + 5] <= box[5];
+    }
+
+    // 包围盒离球心最远的角在球内
+    private static boolean containedInSphere(float[] bounds, int i, double[] center, double radius) {
+        int o = i * 6;
+        double d2 = 0;
+        for (int c = 0; c < 3; c++) {
+            double d = Math.max(center[c] - bounds[o + c], bounds[o + c + 3] - center[c]);
+            d2 += d * d;
+        }
+        return d2 <= radius * radius;
+    }
+
+    private DatasetIndex getIndex(String datasetId) {
+        Path resultsPath = datasetFileService.resultsDir(datasetId);
+        if (resultsPath == null) {
+            return null;
+        }
+        long resultsModified = resultsPath.toFile().lastModified();
+        DatasetIndex index = indexes.get(datasetId);
+        if (index != null && index.resultsModified == resultsModified) {
+            // 目录本身未变，只可能有SWC被原地覆盖：到期后在后台重新扫描，期间继续使用当前索引
+            if (System.currentTimeMillis() - index.checkedAt >= recheckMs && index.refreshing.compareAndSet(false, true)) {
+                DatasetIndex current = index;
+                pool.execute(() -> {
+                    try {
+                        rebuild(datasetId, resultsPath, current);
+                    } catch (Exception e) {
+                        current.refreshing.set(false);
+                        logger.warn("数据集空间索引刷新失败: {}, {}", datasetId, e.getMessage());
+                    }
+                });
+            }
+            return index;
+        }
+        return rebuild(datasetId, resultsPath, null);
+    }
+
+    /**
+     * 同一数据集只由一个线程重建，其余线程等待后直接使用
+     */
+    private DatasetIndex rebuild(String datasetId, Path resultsPath, DatasetIndex stale) {
+        synchronized (locks.computeIfAbsent(datasetId, k -> new Object())) {
+            long resultsModified = resultsPath.toFile().lastModified();
+            DatasetIndex index = indexes.get(datasetId);
+            if (index == null || index == stale || index.resultsModified != resultsModified) {
+                DatasetIndex previous = index != null ? index : readTable(datasetId);
+                index = build(datasetId, resultsPath.toFile(), resultsModified, previous);
+                indexes.put(datasetId, index);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * 扫描 results 下的模型目录；修改时间与大小都未变的SWC沿用上次的统计，其余的并行解析
+     */
+    private DatasetIndex build(String datasetId, File resultsDir, long resultsModified, DatasetIndex previous) {
+        long begin = System.nanoTime();
+        File[] modelDirs = resultsDir.listFiles(File::isDirectory);
+        if (modelDirs == null) {
+            modelDirs = new File[0];
+        }
+        Arrays.sort(modelDirs);
+        Map<String, Integer> previousRows = new HashMap<>();
+        if (previous != null) {
+            for (int i = 0; i < previous.size(); i++) {
+                previousRows.put(previous.modelIds[i], i);
+            }
+        }
+
+        File[] dirs = modelDirs;
+        int n = dirs.length;
+        String[] modelIds = new String[n];
+        Path[] swcs = new Path[n];
+        long[] modified = new long[n];
+        long[] sizes = new long[n];
+        double[] cable = new double[n];
+        float[] bounds = new float[n * 6];
+        boolean[] valid = new boolean[n];
+        AtomicInteger parsed = new AtomicInteger();
+        pool.submit(() -> IntStream.range(0, n).parallel().forEach(i -> {
+            modelIds[i] = dirs[i].getName();
+            File swc = datasetFileService.firstSwc(dirs[i]);
+            if (swc == null) {
+                return;
+            }
+            swcs[i] = swc.toPath();
+            modified[i] = swc.lastModified();
+            sizes[i] = swc.length();
+            Integer row = previousRows.get(modelIds[i]);
+            if (row != null && swcs[i].equals(previous.swcs[row])
+                    && previous.modified[row] == modified[i] && previous.sizes[row] == sizes[i]) {
+                cable[i] = previous.cable[row];
+                System.arraycopy(previous.bounds, row * 6, bounds, i * 6, 6);
+                valid[i] = true;
+                return;
+            }
+            try {
+                SwcMorphology m = SwcReader.read(swcs[i], true);
+                if (m.size() == 0) {
+                    return;
+                }
+                measure(m, bounds, i * 6);
+                cable[i] = cableLength(m);
+                valid[i] = true;
+                parsed.incrementAndGet();
+            } catch (Exception e) {
+                logger.warn("神经元包围盒统计失败: {}, {}", swc, e.getMessage());
+            }
+        })).join();
+
+        // 去掉没有SWC或解析失败的模型目录
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            if (valid[i]) {
+                modelIds[count] = modelIds[i];
+                swcs[count] = swcs[i];
+                modified[count] = modified[i];
+                sizes[count] = sizes[i];
+                cable[count] = cable[i];
+                System.arraycopy(bounds, i * 6, bounds, count * 6, 6);
+                count++;
+            }
+        }
+        DatasetIndex index = new DatasetIndex();
+        index.resultsModified = resultsModified;
+        index.checkedAt = System.currentTimeMillis();
+        index.modelIds = Arrays.copyOf(modelIds, count);
+        index.swcs = Arrays.copyOf(swcs, count);
+        index.modified = Arrays.copyOf(modified, count);
+        index.sizes = Arrays.copyOf(sizes, count);
+        index.cable = Arrays.copyOf(cable, count);
+        index.bounds = Arrays.copyOf(bounds, count * 6);
+        index.tree = StrRTree.build(index.bounds, count);
+        if (parsed.get() > 0 || previous == null || previous.size() != count) {
+            writeTable(datasetId, index);
+        }
+        logger.info("数据集空间索引: {} ({} 个神经元, 重新解析 {} 个, R树 {} 个节点/高度 {}, 耗时 {} ms)", datasetId, count,
+            parsed.get(), index.tree.nodeCount(), index.tree.height(), (System.nanoTime() - begin) / 1_000_000);
+        return index;
+    }
+
+    private static void measure(SwcMorphology m, float[] bounds, int o) {
+        Arrays.fill(bounds, o, o + 3, Float.POSITIVE_INFINITY);
+        Arrays.fill(bounds, o + 3, o + 6, Float.NEGATIVE_INFINITY);
+        for (int i = 0; i < m.size(); i++) {
+            bounds[o] = Math.min(bounds[o], m.x(i));
+            bounds[o + 1] = Math.min(bounds[o + 1], m.y(i));
+            bounds[o + 2] = Math.min(bounds[o + 2], m.z(i));
+            bounds[o + 3] = Math.max(bounds[o + 3], m.x(i));
+            bounds[o + 4] = Math.max(bounds[o + 4], m.y(i));
+            bounds[o + 5] = Math.max(bounds[o + 5], m.z(i));
+        }
+    }
+
+    private static double cableLength(SwcMorphology m) {
+        double total = 0;
+        for (int i = 0; i < m.size(); i++) {
+            int p = m.parent(i);
+            if (p >= 0) {
+                double dx = m.x(i) - m.x(p);
+                double dy = m.y(i) - m.y(p);
+                double dz = m.z(i) - m.z(p);
+                total += Math.sqrt(dx * dx + dy * dy + dz * dz);
+            }
+        }
+        return total;
+    }
+
+    private Path tableFile(String datasetId) {
+        return Paths.get(cacheDir, datasetId.replaceAll("[^A-Za-z0-9._-]", "_") + ".nbx");
+    }
+
+    /**
+     * 持久化的神经元表，读取失败（不存在、格式不符）时返回null，所有SWC重新解析
+     */
+    private DatasetIndex readTable(String datasetId) {
+        Path file = tableFile(datasetId);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != TABLE_MAGIC) {
+                return null;
+            }
+            int n = in.readInt();
+            DatasetIndex index = new DatasetIndex();
+            index.modelIds = new String[n];
+            index.swcs = new Path[n];
+            index.modified = new long[n];
+            index.sizes = new long[n];
+            index.cable = new double[n];
+            index.bounds = new float[n * 6];
+            for (int i = 0; i < n; i++) {
+                index.modelIds[i] = in.readUTF();
+                index.swcs[i] = Paths.get(in.readUTF());
+                index.modified[i] = in.readLong();
+                index.sizes[i] = in.readLong();
+                index.cable[i] = in.readDouble();
+                for (int c = 0; c < 6; c++) {
+                    index.bounds[i * 6 + c] = in.readFloat();
+                }
+            }
+            return index;
+        } catch (IOException e) {
+            logger.warn("数据集空间索引缓存读取失败: {}, {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 先写临时文件再原子替换；缓存目录不可写时只记录日志，下次启动重新解析
+     */
+    private void writeTable(String datasetId, DatasetIndex index) {
+        Path file = tableFile(datasetId);
+        try {
+            FileCacheUtils.writeAtomically(file, stream -> {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+                out.writeInt(TABLE_MAGIC);
+                out.writeInt(index.size());
+                for (int i = 0; i < index.size(); i++) {
+                    out.writeUTF(index.modelIds[i]);
+                    out.writeUTF(index.swcs[i].toString());
+                    out.writeLong(index.modified[i]);
+                    out.writeLong(index.sizes[i]);
+                    out.writeDouble(index.cable[i]);
+                    for (int c = 0; c < 6; c++) {
+                        out.writeFloat(index.bounds[i * 6 + c]);
+                    }
+                }
+                out.flush();
+            });
+        } catch (IOException e) {
+            logger.warn("数据集空间索引缓存写入失败: {}, {}", file, e.getMessage());
+        }
+    }
+}
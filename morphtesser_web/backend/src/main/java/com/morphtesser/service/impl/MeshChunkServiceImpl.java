@@ -0,0 +1,241 @@
+package com.morphtesser.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.morphtesser.mesh.MeshChunker;
+import com.morphtesser.mesh.MeshCodec;
+import com.morphtesser.mesh.MeshData;
+import com.morphtesser.mesh.MeshSimplifier;
+import com.morphtesser.mesh.ObjMeshReader;
+import com.morphtesser.service.MeshChunkService;
+import com.morphtesser.service.MeshOptimizationService;
+import com.morphtesser.util.FileCacheUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@Service
+public class MeshChunkServiceImpl implements MeshChunkService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MeshChunkServiceImpl.class);
+
+    private static final String MANIFEST_FILE = "manifest.json";
+
+    // 块ID只能是八叉树路径或粗略网格，防止路径遍历
+    private static final Pattern CHUNK_ID = Pattern.compile("r[0-7]{0,16}|" + COARSE_CHUNK);
+
+    private static final Pattern VERSION = Pattern.compile("v-?\\d+(?:-(\\d+))?-[0-9a-f]{8}");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // 单块三角形数上限，超过时继续八等分
+    @Value("${mesh.chunk.max-triangles:65536}")
+    private int maxTriangles;
+
+    @Value("${mesh.chunk.max-depth:6}")
+    private int maxDepth;
+
+    // 粗略整体网格的目标三角形数，客户端先加载它再逐块细化
+    @Value("${mesh.chunk.coarse-triangles:20000}")
+    private int coarseTriangles;
+
+    @Value("${mesh.codec.quantization-bits:14}")
+    private int quantizationBits;
+
+    @Autowired
+    private MeshOptimizationService meshOptimizationService;
+
+    // 正在进行的分块：同一OBJ只由一个线程分块，其余线程等待同一个结果（失败时也一起失败，不会各自重建）
+    private final Map<Path, CompletableFuture<Map<String, Object>>> builds = new ConcurrentHashMap<>();
+
+    @Override
+    public Map<String, Object> getManifest(Path objPath) throws IOException {
+        Map<String, Object> manifest = readFreshManifest(objPath);
+        if (manifest != null) {
+            return manifest;
+        }
+        Path key = objPath.toAbsolutePath().normalize();
+        CompletableFuture<Map<String, Object>> created = new CompletableFuture<>();
+        CompletableFuture<Map<String, Object>> running = builds.putIfAbsent(key, created);
+        if (running != null) {
+            return await(running);
+        }
+        // 结果发布后才移除，等待者都已拿到同一个 Future；之后到达的线程先读到新清单
+        try {
+            manifest = readFreshManifest(objPath);
+            if (manifest == null) {
+                manifest = build(objPath);
+            }
+            created.complete(manifest);
+            return manifest;
+        } catch (IOException | RuntimeException | Error e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            builds.remove(key, created);
+        }
+    }
+
+    private static Map<String, Object> await(CompletableFuture<Map<String, Object>> build) throws IOException {
+        try {
+            return build.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IOException("网格分块失败: " + cause.getMessage(), cause);
+        }
+    }
+
+    @Override
+    public Path getChunk(Path objPath, String chunkId) throws IOException {
+        if (chunkId == null || !CHUNK_ID.matcher(chunkId).matches()) {
+            return null;
+        }
+        // 块文件位于清单指向的版本目录中，清单写入前版本目录已完整，不会读到正在重建的块
+        Map<String, Object> manifest = getManifest(objPath);
+        Path chunkPath = chunkDir(objPath).resolve((String) manifest.get("version")).resolve(chunkId + ".mtc");
+        return Files.exists(chunkPath) ? chunkPath : null;
+    }
+
+    @Override
+    public void deleteDerived(Path objPath) throws IOException {
+        FileCacheUtils.deleteRecursively(chunkDir(objPath));
+    }
+
+    private Map<String, Object> build(Path objPath) throws IOException {
+        long start = System.nanoTime();
+        long sourceModified = Files.getLastModifiedTime(objPath).toMillis();
+        MeshData mesh = ObjMeshReader.read(meshOptimizationService.geometrySource(objPath));
+        Path dir = chunkDir(objPath);
+        // 每次分块写入新的版本目录，清单最后写入并指向它；读取方要么看到旧清单与旧目录，要么看到新的。
+        // 版本名 v{OBJ修改时间}-{分块开始时间}-{随机}，发布后只删除开始时间更早的版本
+        long builtAt = System.currentTimeMillis();
+        String version = "v" + sourceModified + "-" + builtAt + "-" + UUID.randomUUID().toString().substring(0, 8);
+        Path versionDir = dir.resolve(version);
+        Files.createDirectories(versionDir);
+        // 所有块与粗略网格按整体包围盒量化，相邻块共享的顶点解码后坐标完全一致
+        float[] meshBounds = MeshChunker.bounds(mesh.getPositions());
+
+        List<Map<String, Object>> entries = new ArrayList<>();
+        long totalBytes = 0;
+        for (MeshChunker.Chunk chunk : MeshChunker.split(mesh, maxTriangles, maxDepth)) {
+            byte[] encoded = MeshCodec.encode(chunk.getMesh(), quantizationBits, meshBounds);
+            FileCacheUtils.writeAtomically(versionDir.resolve(chunk.getId() + ".mtc"), encoded);
+            totalBytes += encoded.length;
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("id", chunk.getId());
+            entry.put("depth", chunk.getDepth());
+            entry.put("cell", chunk.getCell());
+            entry.put("bounds", chunk.getBounds());
+            entry.put("triangles", chunk.getMesh().getTriangleCount());
+            entry.put("vertices", chunk.getMesh().getVertexCount());
+            entry.put("bytes", encoded.length);
+            entries.add(entry);
+        }
+
+        // 三角形不多时粗略网格就是原网格
+        MeshData coarse = mesh.getTriangleCount() > coarseTriangles ? MeshSimplifier.simplify(mesh, coarseTriangles) : mesh;
+        byte[] coarseEncoded = MeshCodec.encode(coarse, quantizationBits, meshBounds);
+        FileCacheUtils.writeAtomically(versionDir.resolve(COARSE_CHUNK + ".mtc"), coarseEncoded);
+        Map<String, Object> coarseEntry = new LinkedHashMap<>();
+        coarseEntry.put("id", COARSE_CHUNK);
+        coarseEntry.put("triangles", coarse.getTriangleCount());
+        coarseEntry.put("vertices", coarse.getVertexCount());
+        coarseEntry.put("bytes", coarseEncoded.length);
+
+        Map<String, Object> manifest = new LinkedHashMap<>();
+        manifest.put("source", objPath.getFileName().toString());
+        manifest.put("sourceModified", sourceModified);
+        manifest.put("version", version);
+        manifest.put("format", "mtc");
+        manifest.put("triangles", mesh.getTriangleCount());
+        manifest.put("vertices", mesh.getVertexCount());
+        manifest.put("bounds", entries.isEmpty() ? null : boundsOf(entries));
+        manifest.put("maxTrianglesPerChunk", maxTriangles);
+        manifest.put("chunkBytes", totalBytes);
+        manifest.put("coarse", coarseEntry);
+        manifest.put("chunks", entries);
+        // 清单最后写入，存在即表示所有块已就绪；之后删除更早的版本与旧格式的块文件，
+        // 不动更晚开始的版本（可能正在写入，随后发布的清单会指向它）
+        FileCacheUtils.writeAtomically(dir.resolve(MANIFEST_FILE), objectMapper.writeValueAsBytes(manifest));
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                Matcher matcher = VERSION.matcher(name);
+                boolean olderVersion = Files.isDirectory(file) && matcher.matches() && builtAt(matcher) < builtAt;
+                boolean legacyChunk = Files.isRegularFile(file) && name.endsWith(".mtc");
+                if (olderVersion || legacyChunk) {
+                    FileCacheUtils.deleteRecursively(file);
+                }
+            }
+        }
+        logger.info("网格分块完成: {} ({} 三角形 -> {} 块, 共 {} bytes, 耗时 {} ms)", objPath,
+            mesh.getTriangleCount(), entries.size(), totalBytes, (System.nanoTime() - start) / 1_000_000);
+        return manifest;
+    }
+
+    /**
+     * 版本名中的分块开始时间；没有该字段的早期版本名视为最早
+     */
+    private static long builtAt(Matcher version) {
+        return version.group(1) != null ? Long.parseLong(version.group(1)) : 0;
+    }
+
+    private static float[] boundsOf(List<Map<String, Object>> entries) {
+        float[] box = {Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY,
+            Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY};
+        for (Map<String, Object> entry : entries) {
+            float[] bounds = (float[]) entry.get("bounds");
+            for (int c = 0; c < 3; c++) {
+                box[c] = Math.min(box[c], bounds[c]);
+                box[c + 3] = Math.max(box[c + 3], bounds[c + 3]);
+            }
+        }
+        return box;
+    }
+
+    /**
+     * 读取清单；OBJ在清单生成之后被修改过（或清单来自没有版本目录的旧格式）时视为过期，返回null
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> readFreshManifest(Path objPath) throws IOException {
+        Path manifestPath = chunkDir(objPath).resolve(MANIFEST_FILE);
+        if (!Files.exists(manifestPath) || !Files.exists(objPath)) {
+            return null;
+        }
+        Map<String, Object> manifest = objectMapper.readValue(manifestPath.toFile(), Map.class);
+        Object modified = manifest.get("sourceModified");
+        if (!(modified instanceof Number) || !(manifest.get("version") instanceof String)
+                || ((Number) modified).longValue() != Files.getLastModifiedTime(objPath).toMillis()) {
+            return null;
+        }
+        return manifest;
+    }
+
+    private static Path chunkDir(Path objPath) {
+        String fileName = objPath.getFileName().toString();
+        String base = fileName.toLowerCase().endsWith(".obj") ? fileName.substring(0, fileName.length() - 4) : fileName;
+        return objPath.resolveSibling(base + ".chunks");
+    }
+}
@@ -0,0 +1,208 @@
+package com.morphtesser.service.impl;
+
+import com.morphtesser.mesh.GlbWriter;
+import com.morphtesser.mesh.MeshCodec;
+import com.morphtesser.mesh.MeshData;
+import com.morphtesser.mesh.MeshWelder;
+import com.morphtesser.mesh.ObjMeshReader;
+import com.morphtesser.service.MeshCodecService;
+import com.morphtesser.service.MeshOptimizationService;
+import com.morphtesser.util.FileCacheUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+@Service
+public class MeshCodecServiceImpl implements MeshCodecService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MeshCodecServiceImpl.class);
+
+    @Value("${mesh.codec.quantization-bits:14}")
+    private int defaultQuantizationBits;
+
+    @Value("${mesh.cache-dir:/app/cache/mesh}")
+    private String meshCacheDir;
+
+    // 网格缓存目录的大小上限（MB）与未被访问的最长保留时间（天），超出时按最近使用时间淘汰
+    @Value("${mesh.cache-max-mb:2048}")
+    private long cacheMaxMb;
+
+    @Value("${mesh.cache-max-age-days:30}")
+    private int cacheMaxAgeDays;
+
+    @Autowired
+    private MeshOptimizationService meshOptimizationService;
+
+    @Override
+    public Map<String, Object> compressObj(String objFilePath, String outputPath, int quantizationBits) {
+        try {
+            File objFile = new File(objFilePath);
+            if (!objFile.exists()) {
+                logger.warn("OBJ文件不存在，无法进行MTC压缩: {}", objFilePath);
+                return null;
+            }
+            long start = System.nanoTime();
+            MeshData mesh = ObjMeshReader.read(meshOptimizationService.geometrySource(objFile.toPath()));
+            long parsed = System.nanoTime();
+            byte[] encoded = MeshCodec.encode(mesh, quantizationBits);
+            long encodedAt = System.nanoTime();
+            FileCacheUtils.writeAtomically(Paths.get(outputPath), encoded);
+
+            long originalSize = objFile.length();
+            Map<String, Object> result = new HashMap<>();
+            result.put("success", true);
+            result.put("output_path", outputPath);
+            result.put("original_size", originalSize);
+            result.put("compressed_size", (long) encoded.length);
+            result.put("compression_ratio", originalSize > 0 ? 1.0 - (double) encoded.length / originalSize : 0.0);
+            result.put("method", "mtc");
+            result.put("vertices_count", mesh.getVertexCount());
+            result.put("faces_count", mesh.getTriangleCount());
+            result.put("parse_ms", (parsed - start) / 1_000_000.0);
+            result.put("encode_ms", (encodedAt - parsed) / 1_000_000.0);
+            logger.info("MTC压缩成功: {} -> {} ({} -> {} bytes, 解析 {} ms, 编码 {} ms)",
+                    objFilePath, outputPath, originalSize, encoded.length,
+                    result.get("parse_ms"), result.get("encode_ms"));
+            return result;
+        } catch (Exception e) {
+            logger.warn("MTC压缩失败: {} ({})", objFilePath, e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public Path mtcPath(Path objPath, Integer quantizationBits) {
+        int bits = quantizationBits != null ? quantizationBits : defaultQuantizationBits;
+        return sibling(objPath, bits == defaultQuantizationBits ? ".mtc" : ".q" + bits + ".mtc");
+    }
+
+    @Override
+    public Path getOrCreateMtc(Path objPath) throws IOException {
+        return getOrCreateMtc(objPath, null);
+    }
+
+    @Override
+    public Path getOrCreateMtc(Path objPath, Integer quantizationBits) throws IOException {
+        int bits = quantizationBits != null ? quantizationBits : defaultQuantizationBits;
+        Path mtcPath = mtcPath(objPath, bits);
+        if (FileCacheUtils.isFresh(mtcPath, objPath)) {
+            FileCacheUtils.touch(mtcPath);
+            return mtcPath;
+        }
+        Map<String, Object> result = compressObj(objPath.toString(), mtcPath.toString(), bits);
+        if (result == null) {
+            throw new IOException("MTC压缩失败: " + objPath);
+        }
+        return mtcPath;
+    }
+
+    @Override
+    public byte[] encodeCached(String cacheKey, byte[] objBytes) throws IOException {
+        String key = FileCacheUtils.safeName(cacheKey);
+        String digest = FileCacheUtils.sha256(objBytes);
+        Path cacheFile = Paths.get(meshCacheDir, key + "_" + digest + ".mtc");
+        if (Files.exists(cacheFile)) {
+            FileCacheUtils.touch(cacheFile);
+            return Files.readAllBytes(cacheFile);
+        }
+        byte[] encoded = MeshCodec.encode(ObjMeshReader.read(objBytes), defaultQuantizationBits);
+        try {
+            FileCacheUtils.writeAtomically(cacheFile, encoded);
+            FileCacheUtils.evictVersions(cacheFile.getParent(), key, digest);
+        } catch (IOException e) {
+            logger.warn("MTC缓存写入失败: {} ({})", cacheFile, e.getMessage());
+        }
+        return encoded;
+    }
+
+    @Override
+    public Path getOrCreateGlb(Path objPath) throws IOException {
+        Path glbPath = sibling(objPath, ".glb");
+        if (FileCacheUtils.isFresh(glbPath, objPath)) {
+            FileCacheUtils.touch(glbPath);
+            return glbPath;
+        }
+        long start = System.nanoTime();
+        MeshData mesh = ObjMeshReader.read(meshOptimizationService.geometrySource(objPath));
+        byte[] glb = transcodeGlb(mesh);
+        FileCacheUtils.writeAtomically(glbPath, glb);
+        logger.info("GLB转码成功: {} -> {} ({} 顶点, {} 三角形, {} bytes, 耗时 {} ms)", objPath, glbPath,
+                mesh.getVertexCount(), mesh.getTriangleCount(), glb.length, (System.nanoTime() - start) / 1_000_000);
+        return glbPath;
+    }
+
+    @Override
+    public byte[] encodeGlbCached(String cacheKey, byte[] objBytes) throws IOException {
+        String key = FileCacheUtils.safeName(cacheKey);
+        String digest = FileCacheUtils.sha256(objBytes);
+        Path cacheFile = Paths.get(meshCacheDir, key + "_" + digest + ".glb");
+        if (Files.exists(cacheFile)) {
+            FileCacheUtils.touch(cacheFile);
+            return Files.readAllBytes(cacheFile);
+        }
+        byte[] glb = transcodeGlb(ObjMeshReader.read(objBytes));
+        try {
+            FileCacheUtils.writeAtomically(cacheFile, glb);
+            FileCacheUtils.evictVersions(cacheFile.getParent(), key, digest);
+        } catch (IOException e) {
+            logger.warn("GLB缓存写入失败: {} ({})", cacheFile, e.getMessage());
+        }
+        return glb;
+    }
+
+    @Override
+    public void deleteDerived(Path objPath) throws IOException {
+        String base = baseName(objPath);
+        FileCacheUtils.deleteFiles(objPath.toAbsolutePath().getParent(),
+                name -> name.equals(base + ".mtc") || name.equals(base + ".glb") || name.matches(Pattern.quote(base) + "\\.q\\d+\\.mtc"));
+    }
+
+    @Scheduled(fixedRate = 3600000)
+    public void evictCache() {
+        try {
+            int deleted = FileCacheUtils.evictLeastRecentlyUsed(Paths.get(meshCacheDir), cacheMaxMb * 1024 * 1024,
+                    Duration.ofDays(cacheMaxAgeDays));
+            if (deleted > 0) {
+                logger.info("网格缓存淘汰: 删除 {} 个文件", deleted);
+            }
+        } catch (IOException e) {
+            logger.warn("网格缓存淘汰失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 焊接重复顶点后写为GLB（OBJ中按面重复的顶点焊接后法向量才平滑）
+     */
+    private byte[] transcodeGlb(MeshData mesh) throws IOException {
+        try {
+            return GlbWriter.write(MeshWelder.weld(mesh));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("GLB转码失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * OBJ文件旁同名、扩展名不同的缓存文件
+     */
+    private static Path sibling(Path objPath, String extension) {
+        return objPath.resolveSibling(baseName(objPath) + extension);
+    }
+
+    private static String baseName(Path objPath) {
+        String fileName = objPath.getFileName().toString();
+        return fileName.toLowerCase().endsWith(".obj") ? fileName.substring(0, fileName.length() - 4) : fileName;
+    }
+}
@@ -0,0 +1,235 @@
+package com.morphtesser.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.morphtesser.mesh.MeshData;
+import com.morphtesser.mesh.MeshOptimizer;
+import com.morphtesser.mesh.MeshSimplifier;
+import com.morphtesser.mesh.ObjMeshReader;
+import com.morphtesser.mesh.ObjWriter;
+import com.morphtesser.service.MeshLodService;
+import com.morphtesser.service.MeshOptimizationService;
+import com.morphtesser.util.FileCacheUtils;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+
+@Service
+public class MeshLodServiceImpl implements MeshLodService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MeshLodServiceImpl.class);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // 金字塔各层相对原网格的三角形比例（1.0 即原网格）
+    @Value("${mesh.lod.levels:1.0,0.25,0.05}")
+    private String levelsConfig;
+
+    // 目标三角形数低于该值的层级不再生成
+    @Value("${mesh.lod.min-triangles:500}")
+    private int minTriangles;
+
+    // 后台简化线程数
+    @Value("${mesh.lod.parallelism:1}")
+    private int parallelism;
+
+    @Value("${mesh.cache-dir:/app/cache/mesh}")
+    private String meshCacheDir;
+
+    @Autowired
+    private MeshOptimizationService meshOptimizationService;
+
+    private double[] levels;
+    private ExecutorService executor;
+    private final Map<Path, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        levels = Arrays.stream(levelsConfig.split(","))
+            .map(String::trim)
+            .filter(s -> !s.isEmpty())
+            .mapToDouble(Double::parseDouble)
+            .filter(r -> r > 0 && r < 1)
+            .map(r -> -r)
+            .sorted()
+            .map(r -> -r)
+            .distinct()
+            .toArray();
+        executor = Executors.newFixedThreadPool(Math.max(1, parallelism), r -> {
+            Thread thread = new Thread(r, "mesh-lod");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public CompletableFuture<Void> generateAsync(Path objPath) {
+        Path key = objPath.toAbsolutePath().normalize();
+        try {
+            if (readFreshManifest(key) != null) {
+                return CompletableFuture.completedFuture(null);
+            }
+        } catch (IOException e) {
+            logger.debug("读取LOD清单失败，重新生成: {} ({})", key, e.getMessage());
+        }
+        return inFlight.computeIfAbsent(key, k -> CompletableFuture.runAsync(() -> {
+            try {
+                generate(k);
+            } catch (Exception e) {
+                logger.warn("LOD生成失败: {} ({})", k, e.getMessage());
+            } finally {
+                inFlight.remove(k);
+            }
+        }, executor));
+    }
+
+    @Override
+    public Path selectLevel(Path objPath, Integer maxTriangles) throws IOException {
+        if (maxTriangles == null || maxTriangles <= 0) {
+            return objPath;
+        }
+        Map<String, Object> manifest = readFreshManifest(objPath);
+        if (manifest == null) {
+            generateAsync(objPath);
+            return objPath;
+        }
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> entries = (List<Map<String, Object>>) manifest.get("levels");
+        // 清单中的层级按三角形数从多到少排列
+        Map<String, Object> chosen = entries.get(entries.size() - 1);
+        for (Map<String, Object> entry : entries) {
+            if (((Number) entry.get("triangles")).longValue() <= maxTriangles) {
+                chosen = entry;
+                break;
+            }
+        }
+        Path levelPath = objPath.resolveSibling((String) chosen.get("file"));
+        return Files.exists(levelPath) ? levelPath : objPath;
+    }
+
+    @Override
+    public Path selectLevelCached(String cacheKey, byte[] objBytes, Integer maxTriangles) throws IOException {
+        if (maxTriangles == null || maxTriangles <= 0) {
+            return null;
+        }
+        String key = FileCacheUtils.safeName(cacheKey);
+        String digest = FileCacheUtils.sha256(objBytes);
+        Path objPath = Paths.get(meshCacheDir, key + "_" + digest + ".obj");
+        if (Files.exists(objPath)) {
+            FileCacheUtils.touch(objPath);
+            FileCacheUtils.touch(manifestPath(objPath));
+        } else {
+            FileCacheUtils.writeAtomically(objPath, objBytes);
+            FileCacheUtils.evictVersions(objPath.getParent(), key, digest);
+        }
+        Path level = selectLevel(objPath, maxTriangles);
+        FileCacheUtils.touch(level);
+        return level;
+    }
+
+    @Override
+    public Map<String, Object> getManifest(Path objPath) throws IOException {
+        return readFreshManifest(objPath);
+    }
+
+    @Override
+    public void deleteDerived(Path objPath) throws IOException {
+        Pattern derived = Pattern.compile(Pattern.quote(baseName(objPath)) + "\\.lod(\\d+\\..+|\\.json)");
+        FileCacheUtils.deleteFiles(objPath.toAbsolutePath().getParent(), name -> derived.matcher(name).matches());
+    }
+
+    private void generate(Path objPath) throws IOException {
+        long start = System.nanoTime();
+        MeshData mesh = ObjMeshReader.read(meshOptimizationService.geometrySource(objPath));
+        long sourceModified = Files.getLastModifiedTime(objPath).toMillis();
+        String base = baseName(objPath);
+
+        List<Map<String, Object>> entries = new ArrayList<>();
+        entries.add(levelEntry(1.0, mesh, objPath.getFileName().toString()));
+        // 每一层从上一层继续简化，比每层都从原网格开始快得多
+        MeshData current = mesh;
+        for (double ratio : levels) {
+            int target = (int) Math.round(mesh.getTriangleCount() * ratio);
+            if (target < minTriangles) {
+                break;
+            }
+            long levelStart = System.nanoTime();
+            // 简化后的三角形顺序杂乱，写出前重新按顶点缓存排序
+            current = MeshOptimizer.optimize(MeshSimplifier.simplify(current, target));
+            String fileName = base + ".lod" + Math.round(ratio * 100) + ".obj";
+            MeshData level = current;
+            FileCacheUtils.writeAtomically(objPath.resolveSibling(fileName),
+                out -> ObjWriter.write(level, out, ObjWriter.DEFAULT_DECIMALS));
+            entries.add(levelEntry(ratio, current, fileName));
+            logger.info("LOD层级生成: {} {}% -> {} 三角形, {} ms", objPath.getFileName(), Math.round(ratio * 100),
+                current.getTriangleCount(), (System.nanoTime() - levelStart) / 1_000_000);
+        }
+
+        Map<String, Object> manifest = new LinkedHashMap<>();
+        manifest.put("source", objPath.getFileName().toString());
+        manifest.put("sourceModified", sourceModified);
+        manifest.put("levels", entries);
+        FileCacheUtils.writeAtomically(manifestPath(objPath), objectMapper.writeValueAsBytes(manifest));
+        logger.info("LOD金字塔完成: {} ({} 个层级, 共 {} ms)", objPath, entries.size(),
+            (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static Map<String, Object> levelEntry(double ratio, MeshData mesh, String fileName) {
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("ratio", ratio);
+        entry.put("triangles", mesh.getTriangleCount());
+        entry.put("vertices", mesh.getVertexCount());
+        entry.put("file", fileName);
+        return entry;
+    }
+
+    /**
+     * 读取清单；OBJ在清单生成之后被修改过时视为过期，返回null
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> readFreshManifest(Path objPath) throws IOException {
+        Path manifestPath = manifestPath(objPath);
+        if (!Files.exists(manifestPath) || !Files.exists(objPath)) {
+            return null;
+        }
+        Map<String, Object> manifest = objectMapper.readValue(manifestPath.toFile(), Map.class);
+        Object modified = manifest.get("sourceModified");
+        if (!(modified instanceof Number)
+                || ((Number) modified).longValue() != Files.getLastModifiedTime(objPath).toMillis()) {
+            return null;
+        }
+        return manifest;
+    }
+
+    private static String baseName(Path objPath) {
+        String fileName = objPath.getFileName().toString();
+        return fileName.toLowerCase().endsWith(".obj") ? fileName.substring(0, fileName.length() - 4) : fileName;
+    }
+
+    private static Path manifestPath(Path objPath) {
+        return objPath.resolveSibling(baseName(objPath) + ".lod.json");
+    }
+}
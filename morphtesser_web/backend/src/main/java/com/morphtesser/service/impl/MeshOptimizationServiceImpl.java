@@ -0,0 +1,81 @@
+package com.morphtesser.service.impl;
+
+import com.morphtesser.mesh.MeshData;
+import com.morphtesser.mesh.MeshOptimizer;
+import com.morphtesser.mesh.ObjMeshReader;
+import com.morphtesser.mesh.ObjWriter;
+import com.morphtesser.service.MeshOptimizationService;
+import com.morphtesser.util.FileCacheUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Service
+public class MeshOptimizationServiceImpl implements MeshOptimizationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MeshOptimizationServiceImpl.class);
+
+    // 建模服务输出约 5 位有效数字，5 位小数重写不损失精度
+    private static final int OBJ_DECIMALS = 5;
+
+    @Value("${mesh.optimize.enabled:true}")
+    private boolean enabled;
+
+    // 模拟的GPU后变换缓存大小（顶点数）
+    @Value("${mesh.optimize.cache-size:16}")
+    private int cacheSize;
+
+    @Override
+    public Map<String, Object> optimizeObj(Path objPath) throws IOException {
+        if (!enabled) {
+            return null;
+        }
+        long start = System.nanoTime();
+        MeshData mesh = ObjMeshReader.read(objPath);
+        MeshData optimized = MeshOptimizer.optimize(mesh, cacheSize);
+        double acmrBefore = MeshOptimizer.acmr(mesh, cacheSize);
+        double acmrAfter = MeshOptimizer.acmr(optimized, cacheSize);
+
+        Path optimizedPath = optimizedPath(objPath);
+        FileCacheUtils.writeAtomically(optimizedPath, out -> ObjWriter.write(optimized, out, OBJ_DECIMALS));
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("vertices_before", mesh.getVertexCount());
+        report.put("vertices_after", optimized.getVertexCount());
+        report.put("triangles_before", mesh.getTriangleCount());
+        report.put("triangles_after", optimized.getTriangleCount());
+        report.put("acmr_before", acmrBefore);
+        report.put("acmr_after", acmrAfter);
+        report.put("optimize_ms", (System.nanoTime() - start) / 1_000_000.0);
+        report.put("optimized_file", optimizedPath.getFileName().toString());
+        logger.info("网格顺序优化: {} 顶点 {} -> {}, ACMR {} -> {}, 耗时 {} ms", objPath,
+                mesh.getVertexCount(), optimized.getVertexCount(),
+                String.format("%.3f", acmrBefore), String.format("%.3f", acmrAfter), report.get("optimize_ms"));
+        return report;
+    }
+
+    @Override
+    public Path optimizedPath(Path objPath) {
+        String fileName = objPath.getFileName().toString();
+        String base = fileName.toLowerCase().endsWith(".obj") ? fileName.substring(0, fileName.length() - 4) : fileName;
+        return objPath.resolveSibling(base + ".opt.obj");
+    }
+
+    @Override
+    public Path geometrySource(Path objPath) throws IOException {
+        Path optimizedPath = optimizedPath(objPath);
+        return FileCacheUtils.isFresh(optimizedPath, objPath) ? optimizedPath : objPath;
+    }
+
+    @Override
+    public void deleteDerived(Path objPath) throws IOException {
+        Files.deleteIfExists(optimizedPath(objPath));
+    }
+}
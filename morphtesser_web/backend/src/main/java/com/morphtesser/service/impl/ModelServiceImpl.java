@@ -1,12 +1,24 @@
 package com.morphtesser.service.impl;
 
+import com.morphtesser.mesh.ObjMeshReader;
+import com.morphtesser.mesh.ObjStats;
 import com.morphtesser.model.NeuronModel;
 import com.morphtesser.model.User;
 import com.morphtesser.repository.ModelRepository;
 import com.morphtesser.repository.UserRepository;
 import com.morphtesser.security.JwtUtils;
+import com.morphtesser.service.MeshChunkService;
+import com.morphtesser.service.MeshCodecService;
+import com.morphtesser.service.MeshLodService;
+import com.morphtesser.service.MeshOptimizationService;
+import com.morphtesser.service.ModelingClient;
 import com.morphtesser.service.ModelService;
+import com.morphtesser.service.MorphometricsService;
 import com.morphtesser.service.PythonService;
+import com.morphtesser.service.SwcCodecService;
+import com.morphtesser.service.SwcMeshingService;
+import com.morphtesser.service.SwcValidationService;
+import com.morphtesser.swc.SwcValidationReport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -19,9 +31,6 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
-import org.springframework.util.LinkedMultiValueMap;
-import org.springframework.util.MultiValueMap;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
@@ -33,6 +42,10 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.HashMap;
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
@@ -82,10 +95,52 @@ public class ModelServiceImpl implements ModelService {
     
     @Autowired
     private PythonService pythonService;
+
+    @Autowired
+    private MeshCodecService meshCodecService;
+
+    @Autowired
+    private MeshLodService meshLodService;
+
+    @Autowired
+    private MeshChunkService meshChunkService;
+
+    @Autowired
+    private MeshOptimizationService meshOptimizationService;
     
-    // Python建模API URL（支持内网穿透地址）
-    @Value("${python.modeling.api.url:http://localhost:8000/swc2obj/}")
-    private String pythonModelingApiUrl;
+    @Autowired
+    private ModelingClient modelingClient;
+
+    @Autowired
+    private SwcMeshingService swcMeshingService;
+
+    @Autowired
+    private MorphometricsService morphometricsService;
+
+    @Autowired
+    private SwcValidationService swcValidationService;
+
+    @Autowired
+    private SwcCodecService swcCodecService;
+
+    // 建模服务熔断时是否使用本地管状网格降级（否则直接快速失败）
+    @Value("${python.modeling.fallback.enabled:true}")
+    private boolean fallbackMeshingEnabled;
+
+    // refine 时是否同时提交 raw 请求（推测执行）
+    @Value("${python.modeling.speculative.enabled:false}")
+    private boolean speculativeModelingEnabled;
+
+    // raw 完成后等待 refined 的宽限时间
+    @Value("${python.modeling.speculative.grace-ms:30000}")
+    private long speculativeGraceMs;
+
+    // 建模请求的连接与读取超时（与 ModelingClientImpl 相同），用于限定推测执行的总等待时间
+    @Value("${python.modeling.connect-timeout-ms:5000}")
+    private long modelingConnectTimeoutMs;
+
+    @Value("${python.modeling.read-timeout-ms:${python.modeling.breaker.slow-call-ms:120000}}")
+    private long modelingReadTimeoutMs;
 
     // Draco压缩脚本配置
     @Value("${draco.compressor.python:python3}")
@@ -93,6 +148,9 @@ public class ModelServiceImpl implements ModelService {
 
     @Value("${draco.compressor.script:/app/tools/draco_compressor.py}")
     private String dracoCompressorScript;
+
+    @Value("${mesh.codec.quantization-bits:14}")
+    private int meshCodecQuantizationBits;
     
     // 在线建模临时文件目录（不保存到数据库）
     @Value("${dataset.online-modeling.temp-dir:./temp/online-modeling/}")
@@ -133,16 +191,48 @@ public class ModelServiceImpl implements ModelService {
             int dotIndex = fileName.lastIndexOf('.');
             String extension = dotIndex >= 0 ? fileName.substring(dotIndex) : "";
             if (extension.equalsIgnoreCase(".swc")) {
+                // 建模前校验与修复，无法修复的文件直接拒绝，不占用建模服务
+                SwcValidationReport validation = swcValidationService.validateFile(swcPath);
+                if (validation != null && validation.isRejected()) {
+                    Files.deleteIfExists(swcPath);
+                    Files.deleteIfExists(targetDir);
+                    modelRepository.delete(savedModel);
+                    return ResponseEntity.badRequest().body(Map.of(
+                        "message", "SWC文件无效: " + validation.getRejectReason(),
+                        "validation", validation.toMap()));
+                }
+                if (validation != null) {
+                    model.setValidationReport(validation.toMap());
+                }
                 Map<String, Object> result = pythonService.convertSwcToObj(swcPath.toString());
                 // Python返回obj的绝对路径，转为相对路径
-                String objAbsPath = (String) result.get("objPath");
+                String objAbsPath = result != null ? (String) result.get("objPath") : null;
                 if (objAbsPath != null) {
                     String objRelPath = toRelative(Paths.get(objAbsPath));
                     model.setObjFilePath(objRelPath);
+                    // 先按顶点缓存重排网格，再在后台生成LOD金字塔，供按三角形预算取网格
+                    Map<String, Object> optimization = optimizeMesh(Paths.get(objAbsPath));
+                    meshLodService.generateAsync(Paths.get(objAbsPath));
+                    try {
+                        ObjStats meshStats = ObjMeshReader.scan(Paths.get(objAbsPath));
+                        model.setMeshVertexCount(meshStats.getVertices());
+                        model.setMeshTriangleCount(meshStats.getTriangles());
+                        model.setMeshWatertight(meshStats.isWatertight());
+                        Map<String, Object> statsMap = meshStats.toMap();
+                        if (optimization != null) {
+                            statsMap.put("optimization", optimization);
+                        }
+                        model.setMeshStats(statsMap);
+                    } catch (IOException e) {
+                        logger.warn("OBJ网格统计失败: {}", objAbsPath, e);
+                    }
+                }
+                // 形态学统计在JVM内由SWC计算
+                try {
+                    morphometricsService.applyTo(model, morphometricsService.compute(swcPath));
+                } catch (IOException e) {
+                    logger.warn("形态学统计失败: {}", swcPath, e);
                 }
-                model.setLength((Double) result.get("length"));
-                model.setSurfaceArea((Double) result.get("surfaceArea"));
-                model.setVolume((Double) result.get("volume"));
                 
                 // TODO: 后续可以在这里添加Draco压缩步骤
                 // 目前保持原有的SWC到OBJ转换流程
@@ -201,12 +291,17 @@ public class ModelServiceImpl implements ModelService {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body("没有权限删除此模型");
         }
         try {
-            // 删除文件（SWC/OBJ）
+            // 删除文件（SWC/OBJ/Draco）以及由OBJ生成的缓存文件
             if (model.getFilePath() != null) {
                 Files.deleteIfExists(resolveRelativePath(model.getFilePath()));
             }
             if (model.getObjFilePath() != null) {
-                Files.deleteIfExists(resolveRelativePath(model.getObjFilePath()));
+                Path objPath = resolveRelativePath(model.getObjFilePath());
+                deleteDerivedFiles(objPath);
+                Files.deleteIfExists(objPath);
+            }
+            if (model.getDracoFilePath() != null) {
+                Files.deleteIfExists(resolveRelativePath(model.getDracoFilePath()));
             }
             modelRepository.delete(model);
             logger.info("模型删除成功: id={}, name={}, user={}", id, model.getName(), username);
@@ -217,6 +312,16 @@ public class ModelServiceImpl implements ModelService {
         }
     }
 
+    /**
+     * 删除由OBJ生成、缓存在OBJ旁边的文件：MTC（各量化位数）、GLB、LOD金字塔与分块目录
+     */
+    private void deleteDerivedFiles(Path objPath) throws IOException {
+        meshCodecService.deleteDerived(objPath);
+        meshLodService.deleteDerived(objPath);
+        meshChunkService.deleteDerived(objPath);
+        meshOptimizationService.deleteDerived(objPath);
+    }
+
     @Override
     public ResponseEntity<Resource> getModelFile(Long id, String type, String token) {
         String username = getUsernameFromToken(token);
@@ -238,6 +343,24 @@ public class ModelServiceImpl implements ModelService {
                 relPath = model.getFilePath();
             } else if ("draco".equalsIgnoreCase(type)) {
                 relPath = model.getDracoFilePath();
+            } else if ("swb".equalsIgnoreCase(type)) {
+                // SWB 按需从SWC生成，缓存在 swc.codec.cache-dir
+                if (model.getFilePath() == null) return ResponseEntity.notFound().build();
+                Path swcAbsPath = resolveRelativePath(model.getFilePath());
+                if (!Files.exists(swcAbsPath)) return ResponseEntity.notFound().build();
+                return ResponseEntity.ok(new FileSystemResource(swcCodecService.getOrCreateBinary(swcAbsPath)));
+            } else if ("mtc".equalsIgnoreCase(type)) {
+                // MTC 按需从OBJ生成并缓存在OBJ旁边
+                if (model.getObjFilePath() == null) return ResponseEntity.notFound().build();
+                Path objAbsPath = resolveRelativePath(model.getObjFilePath());
+                if (!Files.exists(objAbsPath)) return ResponseEntity.notFound().build();
+                return ResponseEntity.ok(new FileSystemResource(meshCodecService.getOrCreateMtc(objAbsPath)));
+            } else if ("glb".equalsIgnoreCase(type)) {
+                // GLB 按需从OBJ转码并缓存在OBJ旁边
+                if (model.getObjFilePath() == null) return ResponseEntity.notFound().build();
+                Path objAbsPath = resolveRelativePath(model.getObjFilePath());
+                if (!Files.exists(objAbsPath)) return ResponseEntity.notFound().build();
+                return ResponseEntity.ok(new FileSystemResource(meshCodecService.getOrCreateGlb(objAbsPath)));
             } else {
                 return ResponseEntity.badRequest().build();
             }
@@ -256,7 +379,7 @@ public class ModelServiceImpl implements ModelService {
     }
 
     @Override
-    public ResponseEntity<?> createModelFromOnlineBuilder(String name, String type, String token, MultipartFile swcFile) {
+    public ResponseEntity<?> createModelFromOnlineBuilder(String name, String type, String format, String token, MultipartFile swcFile) {
         // 使用临时目录，不保存到数据库
         String sessionId = UUID.randomUUID().toString();
         
@@ -284,82 +407,70 @@ public class ModelServiceImpl implements ModelService {
             String swcFileName = "input.swc";
             String swcFilePath = Paths.get(sessionDir, swcFileName).toString();
             swcFile.transferTo(new File(swcFilePath));
+            SwcValidationReport validation = swcValidationService.validateFile(Paths.get(swcFilePath));
+            if (validation != null && validation.isRejected()) {
+                deleteDirectory(sessionDirFile);
+                return ResponseEntity.badRequest().body(Map.of(
+                    "message", "SWC文件无效: " + validation.getRejectReason(),
+                    "validation", validation.toMap()));
+            }
             // 调用FastAPI服务，获得OBJ（通过内网穿透访问本地主机的API）
-            RestTemplate restTemplate = new RestTemplate();
-            String url = pythonModelingApiUrl; 
-            MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
-            body.add("file", new FileSystemResource(swcFilePath));
-            // 关键：根据 type 传递 result_type
-            String resultType;
-            if ("refine".equalsIgnoreCase(type)) {
-                resultType = "refined";
+            boolean refine = "refine".equalsIgnoreCase(type);
+            ModelingOutcome outcome;
+            if (swcMeshingService.handlesType(type)) {
+                // fast（以及配置的其他类型）在JVM内直接生成网格，不经过Python建模服务
+                outcome = new ModelingOutcome("obj", swcMeshingService.tessellate(Paths.get(swcFilePath)));
+            } else if (refine && speculativeModelingEnabled) {
+                outcome = modelSpeculatively(swcFilePath);
             } else {
-                // raw / fast / 默认都走 obj
-                resultType = "obj";
-            }
-            body.add("result_type", resultType);
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.MULTIPART_FORM_DATA);
-            HttpEntity<MultiValueMap<String, Object>> requestEntity = new HttpEntity<>(body, headers);
-            ResponseEntity<byte[]> response = restTemplate.exchange(
-                url, HttpMethod.POST, requestEntity, byte[].class);
-            String objFileName = "refine".equals(type) ? "output_refined.obj" : "output.obj";
-            String objFilePath = Paths.get(sessionDir, objFileName).toString();
-
-            // 判定是否真正得到了 OBJ：避免将 JSON 错误写入 OBJ 导致 0 字节或极小文件
-            MediaType responseContentType = response.getHeaders().getContentType();
-            String contentType = responseContentType != null ? responseContentType.toString() : "";
-            byte[] bodyBytes = response.getBody();
-            boolean isJson = contentType.contains("application/json");
-            boolean looksTooSmall = bodyBytes == null || bodyBytes.length < 200; // 小文件大概率不是有效OBJ
-
-            boolean wroteObj = false;
-            if (response.getStatusCode() == HttpStatus.OK && !isJson && !looksTooSmall) {
-                Files.write(Paths.get(objFilePath), bodyBytes);
-                wroteObj = true;
+                // 关键：根据 type 传递 result_type；raw / fast / 默认都走 obj
+                String resultType = refine ? "refined" : "obj";
+                byte[] objBytes = modelingClient.requestObj(swcFilePath, resultType);
+                outcome = objBytes != null ? new ModelingOutcome(resultType, objBytes) : null;
+                // refined 失败则回退 raw
+                if (outcome == null && refine) {
+                    byte[] rawBytes = modelingClient.requestObj(swcFilePath, "obj");
+                    outcome = rawBytes != null ? new ModelingOutcome("obj", rawBytes) : null;
+                }
             }
 
-            // refined 失败则回退 raw
-            if (!wroteObj && "refine".equals(type)) {
-                MultiValueMap<String, Object> body2 = new LinkedMultiValueMap<>();
-                body2.add("file", new FileSystemResource(swcFilePath));
-                body2.add("result_type", "obj");
-                HttpEntity<MultiValueMap<String, Object>> req2 = new HttpEntity<>(body2, headers);
-                ResponseEntity<byte[]> resp2 = restTemplate.exchange(url, HttpMethod.POST, req2, byte[].class);
-
-                MediaType resp2ContentType = resp2.getHeaders().getContentType();
-                String ct2 = resp2ContentType != null ? resp2ContentType.toString() : "";
-                byte[] b2 = resp2.getBody();
-                boolean json2 = ct2.contains("application/json");
-                boolean small2 = b2 == null || b2.length < 200;
-                // 覆盖为 raw 命名
-                objFileName = "output.obj";
-                objFilePath = Paths.get(sessionDir, objFileName).toString();
-                if (resp2.getStatusCode() == HttpStatus.OK && !json2 && !small2) {
-                    Files.write(Paths.get(objFilePath), b2);
-                    wroteObj = true;
-                }
+            // 建模服务熔断中：使用JVM内的管状网格降级，保证用户拿到可用模型
+            if (outcome == null && fallbackMeshingEnabled && modelingClient.isCircuitOpen()) {
+                logger.warn("建模服务熔断中，使用本地降级网格: sessionId={}", sessionId);
+                outcome = new ModelingOutcome("fallback", swcMeshingService.meshFallback(Paths.get(swcFilePath)));
             }
 
-            if (!wroteObj) {
+            if (outcome == null) {
                 throw new RuntimeException("Out of memory: OBJ file was not generated. Modeling failed.");
             }
+            String objFileName = "refined".equals(outcome.resultType) ? "output_refined.obj"
+                : "fallback".equals(outcome.resultType) ? "output_fallback.obj" : "output.obj";
+            String objFilePath = Paths.get(sessionDir, objFileName).toString();
+            Files.write(Paths.get(objFilePath), outcome.objBytes);
+            // 压缩之前焊接顶点并按顶点缓存重排（写入旁路文件），压缩率与渲染效率都更好
+            Map<String, Object> optimization = optimizeMesh(Paths.get(objFilePath));
+            ObjStats meshStats = ObjMeshReader.scan(Paths.get(objFilePath));
             
-            // 启用Draco压缩（使用 draco_encoder 二进制）
-            String dracoFileName = objFileName.replace(".obj", ".drc");
-            String dracoFilePath = Paths.get(sessionDir, dracoFileName).toString();
-            
-            runDracoCompressor(objFilePath, dracoFilePath, 7, 14);
+            // 压缩：mtc 使用JVM内置编解码器，其他情况使用 DracoPy
+            boolean useMtc = "mtc".equalsIgnoreCase(format);
+            String compressedFileName = objFileName.replace(".obj", useMtc ? ".mtc" : ".drc");
+            String compressedFilePath = Paths.get(sessionDir, compressedFileName).toString();
+
+            if (useMtc) {
+                meshCodecService.compressObj(objFilePath, compressedFilePath, meshCodecQuantizationBits);
+            } else {
+                runDracoCompressor(objFilePath, compressedFilePath, 7, 14);
+            }
             
             // 在线建模不保存到数据库，使用临时路径和会话ID
             String swcHttpPath = "/api/temp/online-modeling/" + sessionId + "/" + swcFileName;
             String objHttpPath = "/api/temp/online-modeling/" + sessionId + "/" + objFileName;
-            String dracoHttpPath = null;
+            String compressedHttpPath = null;
             
-            // 检查Draco文件是否存在
-            File dracoFile = new File(dracoFilePath);
-            if (dracoFile.exists()) {
-                dracoHttpPath = "/api/temp/online-modeling/" + sessionId + "/" + dracoFileName;
+            // 检查压缩文件是否存在
+            File compressedFile = new File(compressedFilePath);
+            if (compressedFile.exists()) {
+                compressedHttpPath = "/api/temp/online-modeling/" + sessionId + "/" + compressedFileName;
             }
             
             // 获取OBJ文件大小
@@ -369,8 +480,8 @@ public class ModelServiceImpl implements ModelService {
                 objSize = objFile.length();
             }
             
-            logger.info("在线建模成功（临时文件）: sessionId={}, name={}, swcHttpPath={}, objHttpPath={}, dracoHttpPath={}", 
-                sessionId, name, swcHttpPath, objHttpPath, dracoHttpPath);
+            logger.info("在线建模成功（临时文件）: sessionId={}, name={}, swcHttpPath={}, objHttpPath={}, compressedHttpPath={}", 
+                sessionId, name, swcHttpPath, objHttpPath, compressedHttpPath);
             
             // 返回结果（不保存到数据库）
             Map<String, Object> result = new HashMap<>();
@@ -378,12 +489,21 @@ public class ModelServiceImpl implements ModelService {
             result.put("name", name);
             result.put("swcUrl", swcHttpPath);
             result.put("objUrl", objHttpPath);
-            if (dracoHttpPath != null) {
-                result.put("dracoUrl", dracoHttpPath);
+            if (compressedHttpPath != null) {
+                result.put(useMtc ? "mtcUrl" : "dracoUrl", compressedHttpPath);
             }
             result.put("objSize", objSize);
+            result.put("resultType", outcome.resultType);
+            result.put("fallback", "fallback".equals(outcome.resultType));
+            result.put("meshStats", meshStats.toMap());
+            if (optimization != null) {
+                result.put("meshOptimization", optimization);
+            }
             result.put("createdAt", new Date());
             result.put("isTemporary", true);  // 标记为临时数据
+            if (validation != null) {
+                result.put("validation", validation.toMap());
+            }
             return ResponseEntity.ok(result);
         } catch (Exception e) {
             // 清理失败的临时文件
@@ -398,7 +518,103 @@ public class ModelServiceImpl implements ModelService {
     }
     
     /**
-     * 递归删除目录（辅助方法）
+     * 网格顺序优化失败不影响建模结果，只记录日志
+     */
+    private Map<String, Object> optimizeMesh(Path objPath) {
+        try {
+            return meshOptimizationService.optimizeObj(objPath);
+        } catch (Exception e) {
+            logger.warn("网格顺序优化失败，保留原网格: {} ({})", objPath, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 推测执行：refined 与 raw 同时提交。
+     * refined 先成功则直接采用并取消 raw；raw 先成功则再给 refined 一个宽限窗口
+     * （python.modeling.speculative.grace-ms），窗口内完成则采用 refined，否则采用 raw 并取消 refined。
+     * 任一方失败（含异常结束）时等待另一方的结果。
+     * 总等待时间不超过两次尝试（建模客户端对不可用节点换节点重试一次）的连接与读取超时之和加宽限窗口，
+     * 超出时视为建模失败，避免请求线程连同其建模名额一直被占用。
+     */
+    private ModelingOutcome modelSpeculatively(String swcFilePath) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2 * (modelingConnectTimeoutMs + modelingReadTimeoutMs) + speculativeGraceMs;
+        CompletableFuture<byte[]> refined = modelingClient.requestObjAsync(swcFilePath, "refined");
+        CompletableFuture<byte[]> raw = modelingClient.requestObjAsync(swcFilePath, "obj");
+        try {
+            CompletableFuture.anyOf(refined, raw).exceptionally(e -> null).get(remainingMs(deadline), TimeUnit.MILLISECONDS);
+
+            if (refined.isDone()) {
+                byte[] refinedBytes = resultOf(refined, "refined", deadline);
+                if (refinedBytes != null) {
+                    logger.info("推测建模: refined 先完成，取消 raw");
+                    raw.cancel(true);
+                    return new ModelingOutcome("refined", refinedBytes);
+                }
+                byte[] rawBytes = resultOf(raw, "obj", deadline);
+                logger.info("推测建模: refined 失败，使用 raw (成功={})", rawBytes != null);
+                return rawBytes != null ? new ModelingOutcome("obj", rawBytes) : null;
+            }
+
+            byte[] rawBytes = resultOf(raw, "obj", deadline);
+            if (rawBytes == null) {
+                byte[] refinedBytes = resultOf(refined, "refined", deadline);
+                logger.info("推测建模: raw 失败，等待 refined (成功={})", refinedBytes != null);
+                return refinedBytes != null ? new ModelingOutcome("refined", refinedBytes) : null;
+            }
+            try {
+                byte[] refinedBytes = resultOf(refined, "refined",
+                    Math.min(deadline, System.currentTimeMillis() + speculativeGraceMs));
+                if (refinedBytes != null) {
+                    logger.info("推测建模: refined 在宽限窗口内完成");
+                    return new ModelingOutcome("refined", refinedBytes);
+                }
+            } catch (TimeoutException e) {
+                logger.info("推测建模: refined 超出宽限窗口 {} ms，使用 raw", speculativeGraceMs);
+            }
+            return new ModelingOutcome("obj", rawBytes);
+        } catch (TimeoutException e) {
+            logger.warn("推测建模超时: 两个请求在 {} ms 内都未返回结果", 2 * (modelingConnectTimeoutMs + modelingReadTimeoutMs) + speculativeGraceMs);
+            return null;
+        } catch (ExecutionException e) {
+            logger.warn("推测建模异常: {}", e.getMessage());
+            return null;
+        } finally {
+            // 输家（以及异常路径上仍在运行的请求）一律取消，已完成的 Future 不受影响
+            refined.cancel(true);
+            raw.cancel(true);
+        }
+    }
+
+    /**
+     * 在 deadline 前等待结果；请求异常结束时视为失败（null）
+     */
+    private byte[] resultOf(CompletableFuture<byte[]> future, String resultType, long deadline)
+            throws InterruptedException, TimeoutException {
+        try {
+            return future.get(remainingMs(deadline), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            logger.warn("推测建模: {} 请求异常结束: {}", resultType, e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+            return null;
+        }
+    }
+
+    private static long remainingMs(long deadline) {
+        return Math.max(0, deadline - System.currentTimeMillis());
+    }
+
+    private static final class ModelingOutcome {
+        private final String resultType;
+        private final byte[] objBytes;
+
+        private ModelingOutcome(String resultType, byte[] objBytes) {
+            this.resultType = resultType;
+            this.objBytes = objBytes;
+        }
+    }
+
+    /**
+     * 调用 DracoPy 脚本压缩OBJ；输入使用顶点缓存优化后的旁路文件（存在且新鲜时），输出路径由原OBJ决定
      */
     private boolean runDracoCompressor(String objFilePath, String dracoFilePath, int compressionLevel, int quantizationBits) {
         try {
@@ -408,10 +624,11 @@ public class ModelServiceImpl implements ModelService {
                 return false;
             }
 
+            String geometryPath = meshOptimizationService.geometrySource(Paths.get(objFilePath)).toString();
             String[] cmd = new String[] {
                 dracoCompressorPython,
                 dracoCompressorScript,
-                objFilePath,
+                geometryPath,
                 dracoFilePath,
                 String.valueOf(compressionLevel),
                 String.valueOf(quantizationBits)
@@ -515,4 +732,12 @@ public class ModelServiceImpl implements ModelService {
             return null;
         }
     }
-} 
\ No newline at end of file
+
+    @Override
+    public Map<String, Object> compressModelToMtc(String objFilePath, int quantizationBits) {
+        logger.info("压缩模型为MTC格式: {}, bits={}", objFilePath, quantizationBits);
+        // 文件名包含量化位数（默认位数除外），不会覆盖 /file/mtc 默认提供的文件
+        Path mtcPath = meshCodecService.mtcPath(Paths.get(objFilePath), quantizationBits);
+        return meshCodecService.compressObj(objFilePath, mtcPath.toString(), quantizationBits);
+    }
+}
@@ -0,0 +1,195 @@
+package com.morphtesser.service.impl;
+
+import com.morphtesser.exception.AdmissionRejectedException;
+import com.morphtesser.service.ModelingAdmissionService;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+public class ModelingAdmissionServiceImpl implements ModelingAdmissionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ModelingAdmissionServiceImpl.class);
+
+    // 服务耗时指数滑动平均的权重
+    private static final double SERVICE_TIME_ALPHA = 0.2;
+
+    @Value("${modeling.admission.max-concurrent:4}")
+    private int maxConcurrent;
+
+    @Value("${modeling.admission.max-per-user:2}")
+    private int maxPerUser;
+
+    // 预计等待超过 max-wait-ms 的请求也会被拒绝，实际可排队深度见 effectiveQueueCapacity
+    @Value("${modeling.admission.queue-capacity:8}")
+    private int queueCapacity;
+
+    @Value("${modeling.admission.max-wait-ms:30000}")
+    private long maxWaitMs;
+
+    // 冷启动时（尚无完成的任务）用于估算等待时间
+    @Value("${modeling.admission.initial-service-ms:15000}")
+    private long initialServiceMs;
+
+    private Semaphore slots;
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final ConcurrentHashMap<String, Integer> perUser = new ConcurrentHashMap<>();
+
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejectedUserLimit = new AtomicLong();
+    private final AtomicLong rejectedQueueFull = new AtomicLong();
+    private final AtomicLong rejectedTimeout = new AtomicLong();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+
+    private volatile double avgServiceMs;
+
+    @PostConstruct
+    public void init() {
+        maxConcurrent = Math.max(1, maxConcurrent);
+        slots = new Semaphore(maxConcurrent, true);
+        avgServiceMs = initialServiceMs;
+        logger.info("建模准入控制: 全局并发={}, 单用户并发={}, 队列容量={}（按初始服务耗时实际为 {}）, 最长等待={} ms",
+            maxConcurrent, maxPerUser, queueCapacity, effectiveQueueCapacity(), maxWaitMs);
+    }
+
+    @Override
+    public Permit acquire(String userKey) {
+        String key = userKey != null ? userKey : "anonymous";
+        // 计数的增减都通过 merge / computeIfPresent 原子完成，保证单用户上限在并发下严格成立
+        int userCount = perUser.merge(key, 1, Integer::sum);
+        if (userCount > maxPerUser) {
+            releaseUser(key);
+            rejectedUserLimit.incrementAndGet();
+            throw new AdmissionRejectedException("当前用户的建模任务过多，请等待已有任务完成", "user_limit", estimateWaitMs(0));
+        }
+
+        // 不带超时的 tryAcquire() 会无视公平性插到排队者前面，这里用 0 超时的版本
+        boolean acquired = acquireSlot(0);
+        if (!acquired) {
+            int depth = queued.incrementAndGet();
+            long estimatedWaitMs = estimateWaitMs(depth);
+            if (depth > queueCapacity || estimatedWaitMs > maxWaitMs) {
+                // 预计等待超过上限时立即拒绝，不占用请求线程空等
+                queued.decrementAndGet();
+                releaseUser(key);
+                rejectedQueueFull.incrementAndGet();
+                throw new AdmissionRejectedException("建模队列已满，请稍后重试", "queue_full", estimatedWaitMs);
+            }
+            maxQueueDepth.accumulateAndGet(depth, Math::max);
+            try {
+                acquired = acquireSlot(maxWaitMs);
+            } finally {
+                queued.decrementAndGet();
+            }
+            if (!acquired) {
+                releaseUser(key);
+                rejectedTimeout.incrementAndGet();
+                throw new AdmissionRejectedException("建模排队等待超时，请稍后重试", "timeout", estimateWaitMs(queued.get()));
+            }
+        }
+
+        return admit(key);
+    }
+
+    @Override
+    public Permit tryAcquire(String userKey) {
+        String key = userKey != null ? userKey : "anonymous";
+        if (perUser.merge(key, 1, Integer::sum) > maxPerUser) {
+            releaseUser(key);
+            return null;
+        }
+        // 有交互式请求在公平队列中等待时不会取得名额，后台任务让位于交互式请求
+        if (!acquireSlot(0)) {
+            releaseUser(key);
+            return null;
+        }
+        return admit(key);
+    }
+
+    private Permit admit(String key) {
+        running.incrementAndGet();
+        admitted.incrementAndGet();
+        long start = System.currentTimeMillis();
+        AtomicBoolean closed = new AtomicBoolean();
+        return () -> {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            recordServiceTime(System.currentTimeMillis() - start);
+            running.decrementAndGet();
+            completed.incrementAndGet();
+            slots.release();
+            releaseUser(key);
+        };
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("max_concurrent", maxConcurrent);
+        stats.put("max_per_user", maxPerUser);
+        stats.put("queue_capacity", queueCapacity);
+        stats.put("effective_queue_capacity", effectiveQueueCapacity());
+        stats.put("max_wait_ms", maxWaitMs);
+        stats.put("running", running.get());
+        stats.put("queue_depth", queued.get());
+        stats.put("max_queue_depth", maxQueueDepth.get());
+        stats.put("admitted", admitted.get());
+        stats.put("completed", completed.get());
+        stats.put("rejected_user_limit", rejectedUserLimit.get());
+        stats.put("rejected_queue_full", rejectedQueueFull.get());
+        stats.put("rejected_timeout", rejectedTimeout.get());
+        stats.put("avg_service_ms", Math.round(avgServiceMs));
+        stats.put("estimated_wait_ms", estimateWaitMs(queued.get() + 1));
+        return stats;
+    }
+
+    /**
+     * 估算排在第 position 位的任务需要等待的时间：前面每满一轮并发需要一个平均服务耗时
+     */
+    private long estimateWaitMs(int position) {
+        if (position <= 0) {
+            return Math.round(avgServiceMs);
+        }
+        long rounds = (position + maxConcurrent - 1) / maxConcurrent;
+        return Math.round(rounds * avgServiceMs);
+    }
+
+    /**
+     * 按当前平均服务耗时，预计等待不超过 max-wait-ms 的最大排队深度（不超过 queue-capacity）
+     */
+    private int effectiveQueueCapacity() {
+        long rounds = avgServiceMs > 0 ? (long) (maxWaitMs / avgServiceMs) : queueCapacity;
+        return (int) Math.min(queueCapacity, rounds * maxConcurrent);
+    }
+
+    private boolean acquireSlot(long timeoutMs) {
+        try {
+            return slots.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private synchronized void recordServiceTime(long elapsedMs) {
+        avgServiceMs = avgServiceMs + SERVICE_TIME_ALPHA * (elapsedMs - avgServiceMs);
+    }
+
+    private void releaseUser(String key) {
+        perUser.computeIfPresent(key, (k, count) -> count <= 1 ? null : count - 1);
+    }
+}
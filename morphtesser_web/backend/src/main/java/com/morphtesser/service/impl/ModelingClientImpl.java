@@ -0,0 +1,511 @@
+package com.morphtesser.service.impl;
+
+import com.morphtesser.mesh.ObjMeshReader;
+import com.morphtesser.mesh.ObjStats;
+import com.morphtesser.service.ModelingClient;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+@Service
+public class ModelingClientImpl implements ModelingClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(ModelingClientImpl.class);
+
+    // 每个节点保留最近多少次请求耗时用于计算分位数
+    private static final int LATENCY_WINDOW = 256;
+
+    // Python建模API URL（支持内网穿透地址）
+    @Value("${python.modeling.api.url:http://localhost:8000/swc2obj/}")
+    private String pythonModelingApiUrl;
+
+    // 多个建模节点，逗号分隔；为空时只使用 python.modeling.api.url
+    @Value("${python.modeling.api.urls:}")
+    private String pythonModelingApiUrls;
+
+    // 负载均衡策略：p2c（随机两选一）或 least-outstanding（全局最少在途请求）
+    @Value("${python.modeling.balancer:p2c}")
+    private String balancer;
+
+    // 连续失败多少次后摘除节点
+    @Value("${python.modeling.eject.consecutive-failures:3}")
+    private int ejectAfterFailures;
+
+    // 摘除后至少多久才允许健康检查恢复
+    @Value("${python.modeling.eject.duration-ms:30000}")
+    private long ejectDurationMs;
+
+    // 健康检查路径（相对节点根地址），FastAPI 默认提供 /docs
+    @Value("${python.modeling.health.path:/docs}")
+    private String healthPath;
+
+    @Value("${python.modeling.health.timeout-ms:3000}")
+    private int healthTimeoutMs;
+
+    // 建模请求的连接与读取超时；读取超时默认等于慢调用阈值，超时计为节点故障与熔断失败
+    @Value("${python.modeling.connect-timeout-ms:5000}")
+    private int connectTimeoutMs;
+
+    @Value("${python.modeling.read-timeout-ms:${python.modeling.breaker.slow-call-ms:120000}}")
+    private int readTimeoutMs;
+
+    // 熔断器：最近 window-size 次调用中失败（含慢调用）比例达到阈值后熔断 open-ms
+    @Value("${python.modeling.breaker.enabled:true}")
+    private boolean breakerEnabled;
+
+    @Value("${python.modeling.breaker.window-size:20}")
+    private int breakerWindowSize;
+
+    @Value("${python.modeling.breaker.minimum-calls:5}")
+    private int breakerMinimumCalls;
+
+    @Value("${python.modeling.breaker.failure-rate-threshold:50}")
+    private double breakerFailureRateThreshold;
+
+    @Value("${python.modeling.breaker.slow-call-ms:120000}")
+    private long breakerSlowCallMs;
+
+    @Value("${python.modeling.breaker.open-ms:30000}")
+    private long breakerOpenMs;
+
+    @Value("${python.modeling.breaker.half-open-calls:2}")
+    private int breakerHalfOpenCalls;
+
+    private List<Worker> workers;
+    private CircuitBreaker circuitBreaker;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "modeling-client-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    @PostConstruct
+    public void init() {
+        List<String> urls = Arrays.stream(pythonModelingApiUrls.split(","))
+            .map(String::trim)
+            .filter(s -> !s.isEmpty())
+            .distinct()
+            .collect(Collectors.toList());
+        if (urls.isEmpty()) {
+            urls = List.of(pythonModelingApiUrl);
+        }
+        workers = urls.stream().map(Worker::new).collect(Collectors.toList());
+        if (breakerEnabled) {
+            circuitBreaker = new CircuitBreaker("python-modeling", breakerWindowSize, breakerMinimumCalls,
+                breakerFailureRateThreshold, breakerSlowCallMs, breakerOpenMs, breakerHalfOpenCalls);
+        }
+        logger.info("建模节点: {}，负载均衡策略: {}", urls, balancer);
+    }
+
+    @Override
+    public byte[] requestObj(String swcFilePath, String resultType) {
+        return execute(swcFilePath, resultType, null, null);
+    }
+
+    @Override
+    public CompletableFuture<byte[]> requestObjAsync(String swcFilePath, String resultType) {
+        AtomicReference<HttpURLConnection> connection = new AtomicReference<>();
+        CompletableFuture<byte[]> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            if (future.isDone()) {
+                return;
+            }
+            // execute 自身捕获请求异常，这里兜住其余的运行时异常与错误，保证 Future 一定结束
+            try {
+                future.complete(execute(swcFilePath, resultType, connection, future));
+            } catch (Throwable t) {
+                logger.error("建模请求异常: result_type={}", resultType, t);
+                future.completeExceptionally(t);
+            }
+        });
+        future.whenComplete((result, ex) -> {
+            if (future.isCancelled()) {
+                HttpURLConnection conn = connection.get();
+                if (conn != null) {
+                    logger.info("取消建模请求: result_type={}", resultType);
+                    conn.disconnect();
+                }
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public List<Map<String, Object>> getWorkerStats() {
+        return workers.stream().map(Worker::toStats).collect(Collectors.toList());
+    }
+
+    /**
+     * 选择节点并发送请求。节点不可达、超时或返回5xx时换一个节点重试一次；
+     * 节点返回但内容不是OBJ（4xx、JSON错误等，例如SWC本身无法建模）时不重试，也不计为节点故障或熔断失败：
+     * 这类结果由输入文件引起，几次错误的上传不应让所有用户都被熔断到本地兜底建模。
+     * 只有节点不可达、超时与5xx计入熔断失败。熔断器打开时直接返回null
+     */
+    private byte[] execute(String swcFilePath, String resultType,
+                           AtomicReference<HttpURLConnection> connectionHolder, CompletableFuture<byte[]> future) {
+        if (circuitBreaker != null && !circuitBreaker.tryAcquire()) {
+            logger.info("建模API熔断中，快速失败: result_type={}", resultType);
+            return null;
+        }
+        long start = System.currentTimeMillis();
+        Worker first = choose(null);
+        try {
+            byte[] result = executeOn(first, swcFilePath, resultType, connectionHolder, future);
+            recordResult(start, future, result);
+            return result;
+        } catch (WorkerUnavailableException e) {
+            if (workers.size() < 2 || (future != null && future.isCancelled())) {
+                recordUnavailable(future);
+                return null;
+            }
+        }
+        Worker second = choose(first);
+        try {
+            byte[] result = executeOn(second, swcFilePath, resultType, connectionHolder, future);
+            recordResult(start, future, result);
+            return result;
+        } catch (WorkerUnavailableException e) {
+            recordUnavailable(future);
+            return null;
+        }
+    }
+
+    /**
+     * 节点给出了回复：得到OBJ计为成功（慢调用仍计为失败），被输入拒绝时不计入统计
+     */
+    private void recordResult(long start, CompletableFuture<byte[]> future, byte[] result) {
+        if (circuitBreaker == null) {
+            return;
+        }
+        if (result == null || (future != null && future.isCancelled())) {
+            circuitBreaker.onIgnored();
+        } else {
+            circuitBreaker.onSuccess(System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * 节点不可达、超时或返回5xx
+     */
+    private void recordUnavailable(CompletableFuture<byte[]> future) {
+        if (circuitBreaker == null) {
+            return;
+        }
+        if (future != null && future.isCancelled()) {
+            circuitBreaker.onIgnored();
+        } else {
+            circuitBreaker.onFailure();
+        }
+    }
+
+    @Override
+    public boolean isCircuitOpen() {
+        return circuitBreaker != null && circuitBreaker.getState() != CircuitBreaker.State.CLOSED;
+    }
+
+    @Override
+    public Map<String, Object> getCircuitStats() {
+        if (circuitBreaker == null) {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("enabled", false);
+            return stats;
+        }
+        Map<String, Object> stats = circuitBreaker.getStats();
+        stats.put("enabled", true);
+        return stats;
+    }
+
+    private byte[] executeOn(Worker worker, String swcFilePath, String resultType,
+                             AtomicReference<HttpURLConnection> connectionHolder,
+                             CompletableFuture<byte[]> future) throws WorkerUnavailableException {
+        long start = System.currentTimeMillis();
+        worker.outstanding.incrementAndGet();
+        try {
+            SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory() {
+                @Override
+                protected void prepareConnection(HttpURLConnection connection, String httpMethod) throws IOException {
+                    super.prepareConnection(connection, httpMethod);
+                    if (connectionHolder != null) {
+                        connectionHolder.set(connection);
+                    }
+                    // 先登记连接再检查取消状态，保证与 whenComplete 中的断开逻辑不会漏掉
+                    if (future != null && future.isCancelled()) {
+                        throw new IOException("建模请求已取消");
+                    }
+                }
+            };
+            requestFactory.setConnectTimeout(connectTimeoutMs);
+            requestFactory.setReadTimeout(readTimeoutMs);
+            RestTemplate restTemplate = new RestTemplate(requestFactory);
+            MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+            body.add("file", new FileSystemResource(swcFilePath));
+            body.add("result_type", resultType);
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+            HttpEntity<MultiValueMap<String, Object>> requestEntity = new HttpEntity<>(body, headers);
+            ResponseEntity<byte[]> response = restTemplate.exchange(
+                worker.url, HttpMethod.POST, requestEntity, byte[].class);
+            long elapsed = System.currentTimeMillis() - start;
+            worker.recordSuccess(elapsed);
+
+            // 判定是否真正得到了 OBJ：解析一遍响应，避免将 JSON 错误或残缺网格写入 OBJ
+            MediaType responseContentType = response.getHeaders().getContentType();
+            String contentType = responseContentType != null ? responseContentType.toString() : "";
+            byte[] bodyBytes = response.getBody();
+            boolean isJson = contentType.contains("application/json");
+            ObjStats stats = bodyBytes != null && !isJson ? ObjMeshReader.scan(bodyBytes) : null;
+            if (response.getStatusCode() == HttpStatus.OK && stats != null && stats.isValid()) {
+                logger.info("建模API返回OBJ: worker={}, result_type={}, size={} bytes, 顶点 {}, 三角形 {}, 封闭 {}, 耗时 {} ms",
+                    worker.url, resultType, bodyBytes.length, stats.getVertices(), stats.getTriangles(),
+                    stats.isWatertight(), elapsed);
+                return bodyBytes;
+            }
+            logger.warn("建模API未返回有效OBJ: worker={}, result_type={}, status={}, contentType={}, size={}, error={}",
+                worker.url, resultType, response.getStatusCode(), contentType, bodyBytes == null ? 0 : bodyBytes.length,
+                stats == null ? null : stats.getFirstError());
+            return null;
+        } catch (ResourceAccessException | HttpServerErrorException e) {
+            long elapsed = System.currentTimeMillis() - start;
+            if (future != null && future.isCancelled()) {
+                // 主动取消导致的断开不计入节点故障
+                return null;
+            }
+            worker.recordFailure(elapsed, ejectAfterFailures, ejectDurationMs);
+            logger.warn("建模节点不可用: worker={}, result_type={}, 耗时 {} ms, error={}",
+                worker.url, resultType, elapsed, e.getMessage());
+            throw new WorkerUnavailableException();
+        } catch (Exception e) {
+            // 含 4xx（HttpClientErrorException）：节点正常工作，请求本身被拒绝
+            logger.warn("调用建模API失败: worker={}, result_type={}, 耗时 {} ms, error={}",
+                worker.url, resultType, System.currentTimeMillis() - start, e.getMessage());
+            return null;
+        } finally {
+            worker.outstanding.decrementAndGet();
+        }
+    }
+
+    /**
+     * 在可用节点中选择一个；全部被摘除时退化为在所有节点中选择
+     */
+    private Worker choose(Worker exclude) {
+        if (workers.size() == 1) {
+            return workers.get(0);
+        }
+        long now = System.currentTimeMillis();
+        List<Worker> candidates = new ArrayList<>(workers.size());
+        for (Worker worker : workers) {
+            if (worker != exclude && worker.isAvailable(now)) {
+                candidates.add(worker);
+            }
+        }
+        if (candidates.isEmpty()) {
+            for (Worker worker : workers) {
+                if (worker != exclude) {
+                    candidates.add(worker);
+                }
+            }
+        }
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+        if ("least-outstanding".equalsIgnoreCase(balancer)) {
+            Worker best = candidates.get(0);
+            for (int i = 1; i < candidates.size(); i++) {
+                if (candidates.get(i).isBetterThan(best)) {
+                    best = candidates.get(i);
+                }
+            }
+            return best;
+        }
+        // power of two choices：随机取两个，选在途请求更少的
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int i = random.nextInt(candidates.size());
+        int j = random.nextInt(candidates.size() - 1);
+        if (j >= i) {
+            j++;
+        }
+        Worker a = candidates.get(i);
+        Worker b = candidates.get(j);
+        return b.isBetterThan(a) ? b : a;
+    }
+
+    /**
+     * 主动健康检查：探测每个节点的 health.path，成功则清零连续失败并恢复到期的摘除节点
+     */
+    @Scheduled(fixedDelayString = "${python.modeling.health.interval-ms:10000}",
+               initialDelayString = "${python.modeling.health.interval-ms:10000}")
+    public void checkWorkers() {
+        if (workers == null || workers.size() < 2) {
+            return;
+        }
+        for (Worker worker : workers) {
+            boolean healthy = probe(worker);
+            worker.lastHealthCheck = System.currentTimeMillis();
+            worker.healthy = healthy;
+            if (healthy) {
+                if (worker.ejectedUntil > 0 && worker.ejectedUntil <= worker.lastHealthCheck) {
+                    logger.info("建模节点恢复: {}", worker.url);
+                    worker.ejectedUntil = 0;
+                    worker.consecutiveFailures.set(0);
+                }
+            } else {
+                worker.recordFailure(0, ejectAfterFailures, ejectDurationMs);
+            }
+        }
+    }
+
+    private boolean probe(Worker worker) {
+        HttpURLConnection connection = null;
+        try {
+            URI uri = URI.create(worker.url).resolve(healthPath);
+            connection = (HttpURLConnection) uri.toURL().openConnection();
+            connection.setConnectTimeout(healthTimeoutMs);
+            connection.setReadTimeout(healthTimeoutMs);
+            connection.setRequestMethod("GET");
+            return connection.getResponseCode() < 500;
+        } catch (Exception e) {
+            logger.debug("建模节点健康检查失败: {}, error={}", worker.url, e.getMessage());
+            return false;
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static final class WorkerUnavailableException extends Exception {
+        private WorkerUnavailableException() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static final class Worker {
+        private final String url;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final long[] latencies = new long[LATENCY_WINDOW];
+        private int latencyCount;
+        private volatile double ewmaLatencyMs;
+        private volatile boolean healthy = true;
+        private volatile long ejectedUntil;
+        private volatile long lastHealthCheck;
+
+        private Worker(String url) {
+            this.url = url;
+        }
+
+        private boolean isAvailable(long now) {
+            return ejectedUntil == 0 || (ejectedUntil <= now && healthy);
+        }
+
+        private boolean isBetterThan(Worker other) {
+            int a = outstanding.get();
+            int b = other.outstanding.get();
+            return a != b ? a < b : ewmaLatencyMs < other.ewmaLatencyMs;
+        }
+
+        private void recordSuccess(long elapsedMs) {
+            requests.incrementAndGet();
+            consecutiveFailures.set(0);
+            ejectedUntil = 0;
+            recordLatency(elapsedMs);
+        }
+
+        private void recordFailure(long elapsedMs, int ejectAfter, long ejectDurationMs) {
+            if (elapsedMs > 0) {
+                requests.incrementAndGet();
+                failures.incrementAndGet();
+            }
+            long now = System.currentTimeMillis();
+            if (consecutiveFailures.incrementAndGet() >= ejectAfter && ejectedUntil <= now) {
+                ejectedUntil = now + ejectDurationMs;
+                logger.warn("摘除建模节点 {} ms: {}", ejectDurationMs, url);
+            }
+        }
+
+        private synchronized void recordLatency(long elapsedMs) {
+            latencies[latencyCount % LATENCY_WINDOW] = elapsedMs;
+            latencyCount++;
+            ewmaLatencyMs = latencyCount == 1 ? elapsedMs : ewmaLatencyMs + 0.2 * (elapsedMs - ewmaLatencyMs);
+        }
+
+        private synchronized long[] sortedLatencies() {
+            long[] copy = Arrays.copyOf(latencies, Math.min(latencyCount, LATENCY_WINDOW));
+            Arrays.sort(copy);
+            return copy;
+        }
+
+        private Map<String, Object> toStats() {
+            long[] sorted = sortedLatencies();
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("url", url);
+            stats.put("outstanding", outstanding.get());
+            stats.put("healthy", healthy);
+            stats.put("ejected", ejectedUntil > System.currentTimeMillis());
+            stats.put("consecutive_failures", consecutiveFailures.get());
+            stats.put("requests", requests.get());
+            stats.put("failures", failures.get());
+            stats.put("ewma_latency_ms", Math.round(ewmaLatencyMs));
+            stats.put("p50_latency_ms", percentile(sorted, 0.50));
+            stats.put("p95_latency_ms", percentile(sorted, 0.95));
+            stats.put("max_latency_ms", sorted.length > 0 ? sorted[sorted.length - 1] : 0);
+            stats.put("last_health_check", lastHealthCheck);
+            return stats;
+        }
+
+        private static long percentile(long[] sorted, double p) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            return sorted[Math.min(sorted.length - 1, (int) Math.floor(p * sorted.length))];
+        }
+    }
+}
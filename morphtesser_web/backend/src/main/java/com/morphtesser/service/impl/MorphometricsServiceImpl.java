@@ -0,0 +1,111 @@
+package com.morphtesser.service.impl;
+
+import com.morphtesser.config.AnalysisExecutorConfig;
+import com.morphtesser.model.NeuronModel;
+import com.morphtesser.repository.ModelRepository;
+import com.morphtesser.service.MorphometricsService;
+import com.morphtesser.swc.Morphometrics;
+import com.morphtesser.swc.MorphometricsCalculator;
+import com.morphtesser.swc.SwcReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+public class MorphometricsServiceImpl implements MorphometricsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MorphometricsServiceImpl.class);
+
+    @Value("${dataset.upload.base-dir:/app/uploads}")
+    private String datasetUploadBaseDir;
+
+    @Autowired
+    private ModelRepository modelRepository;
+
+    @Autowired
+    @Qualifier(AnalysisExecutorConfig.ANALYSIS_POOL)
+    private ForkJoinPool pool;
+
+    @Override
+    public Morphometrics compute(Path swcPath) throws IOException {
+        return MorphometricsCalculator.compute(SwcReader.read(swcPath, true));
+    }
+
+    @Override
+    public void applyTo(NeuronModel model, Morphometrics m) {
+        model.setLength(m.getTotalLength());
+        model.setSurfaceArea(m.getSurfaceArea());
+        model.setVolume(m.getVolume());
+        model.setBranchPoints(m.getBranchPoints());
+        model.setTips(m.getTips());
+        model.setStems(m.getStems());
+        model.setMaxPathDistance(m.getMaxPathDistance());
+        model.setMaxEuclideanDistance(m.getMaxEuclideanDistance());
+        model.setMaxStrahlerOrder(m.getMaxStrahlerOrder());
+        model.setMaxBranchOrder(m.getMaxBranchOrder());
+        if (m.getNodeCount() > 0) {
+            model.setBboxMinX(m.getMinX());
+            model.setBboxMinY(m.getMinY());
+            model.setBboxMinZ(m.getMinZ());
+            model.setBboxMaxX(m.getMaxX());
+            model.setBboxMaxY(m.getMaxY());
+            model.setBboxMaxZ(m.getMaxZ());
+        }
+    }
+
+    @Override
+    public Map<String, Object> recomputeAll() {
+        long start = System.nanoTime();
+        List<NeuronModel> models = modelRepository.findAll();
+        Path base = Paths.get(datasetUploadBaseDir).toAbsolutePath().normalize();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicInteger skipped = new AtomicInteger();
+
+        // 每个神经元独立计算，结果写入各自的实体，最后统一保存
+        List<NeuronModel> updated = pool.submit(() -> models.parallelStream()
+            .filter(model -> {
+                String relative = model.getFilePath();
+                if (relative == null || !relative.toLowerCase().endsWith(".swc")) {
+                    skipped.incrementAndGet();
+                    return false;
+                }
+                Path swcPath = base.resolve(relative).normalize();
+                if (!Files.isRegularFile(swcPath)) {
+                    skipped.incrementAndGet();
+                    return false;
+                }
+                try {
+                    applyTo(model, compute(swcPath));
+                    return true;
+                } catch (Exception e) {
+                    failed.incrementAndGet();
+                    logger.warn("形态学统计失败: id={}, path={}, {}", model.getId(), swcPath, e.getMessage());
+                    return false;
+                }
+            })
+            .collect(ArrayList<NeuronModel>::new, ArrayList::add, ArrayList::addAll)).join();
+        modelRepository.saveAll(updated);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("updated", updated.size());
+        result.put("failed", failed.get());
+        result.put("skipped", skipped.get());
+        result.put("elapsed_ms", (System.nanoTime() - start) / 1_000_000);
+        logger.info("形态学统计重算完成: {}", result);
+        return result;
+    }
+}
@@ -0,0 +1,499 @@
+package com.morphtesser.service.impl;
+
+import com.morphtesser.config.AnalysisExecutorConfig;
+import com.morphtesser.service.DatasetFileService;
+import com.morphtesser.service.NblastService;
+import com.morphtesser.swc.Dotprops;
+import com.morphtesser.swc.KdTree;
+import com.morphtesser.swc.SwcReader;
+import com.morphtesser.util.FileCacheUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+@Service
+public class NblastServiceImpl implements NblastService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NblastServiceImpl.class);
+
+    private static final int MATRIX_MAGIC = 0x314d424e; // "NBM1"
+    private static final int HEADER_SIZE = 32;
+    private static final String MATRIX_FILE = "matrix.nbm";
+    private static final String PROGRESS_FILE = "progress.bin";
+    private static final String FINGERPRINT_FILE = "fingerprint.txt";
+
+    @Autowired
+    private DatasetFileService datasetFileService;
+
+    // 矩阵与进度文件目录，每个数据集一个子目录
+    @Value("${nblast.work-dir:/app/cache/nblast}")
+    private String workDir;
+
+    // 骨架重采样间隔（微米）
+    @Value("${nblast.step:1.0}")
+    private double step;
+
+    // 估计切向量的近邻点数
+    @Value("${nblast.k:5}")
+    private int neighbors;
+
+    // 距离衰减尺度（微米），得分 sqrt(|dot| * exp(-d²/2σ²))
+    @Value("${nblast.sigma:3.0}")
+    private double sigma;
+
+    // 距离截断（微米），超过时得分按 0 计；默认 6σ 处得分已低于 1e-4
+    @Value("${nblast.cutoff:18.0}")
+    private double cutoff;
+
+    // 分块边长（神经元数），一块内的查询与目标在计算期间留在缓存中
+    @Value("${nblast.tile-size:32}")
+    private int tileSize;
+
+    // 两次写进度文件的最短间隔（毫秒），崩溃后最多重算这段时间内完成的块
+    @Value("${nblast.checkpoint-ms:30000}")
+    private long checkpointMs;
+
+    @Autowired
+    @Qualifier(AnalysisExecutorConfig.ANALYSIS_POOL)
+    private ForkJoinPool pool;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * 一个数据集的计算任务；done 与 pending 只在 synchronized (this) 中访问
+     */
+    private static final class Job {
+        final String datasetId;
+        final Path dir;
+        volatile String state = "preparing";
+        volatile String error;
+        volatile int neurons;
+        volatile int tiles;
+        volatile long startedAt;
+        volatile long finishedAt;
+        volatile String fingerprint;
+        final AtomicInteger tilesDone = new AtomicInteger();
+        final AtomicInteger tilesThisRun = new AtomicInteger();
+        final AtomicLong pairsThisRun = new AtomicLong();
+        BitSet done = new BitSet();
+        final List<Integer> pending = new ArrayList<>();
+        long lastCheckpoint;
+
+        Job(String datasetId, Path dir) {
+            this.datasetId = datasetId;
+            this.dir = dir;
+        }
+    }
+
+    @Override
+    public Map<String, Object> start(String datasetId) {
+        Path resultsPath = datasetFileService.resultsDir(datasetId);
+        if (resultsPath == null) {
+            return null;
+        }
+        String fingerprint = fingerprint(resultsPath.toFile());
+        synchronized (jobs) {
+            Job job = jobs.get(datasetId);
+            // 已完成的任务在数据集文件变化（增删神经元或SWC被覆盖）后重新计算
+            if (job == null || "failed".equals(job.state)
+                    || ("complete".equals(job.state) && !fingerprint.equals(job.fingerprint))) {
+                job = new Job(datasetId, jobDir(datasetId));
+                jobs.put(datasetId, job);
+                Job started = job;
+                started.startedAt = System.currentTimeMillis();
+                pool.execute(() -> run(started, resultsPath.toFile()));
+            }
+            return toMap(job);
+        }
+    }
+
+    @Override
+    public Map<String, Object> status(String datasetId) {
+        Path resultsPath = datasetFileService.resultsDir(datasetId);
+        if (resultsPath == null) {
+            return null;
+        }
+        Job job = jobs.get(datasetId);
+        if (job != null && !"complete".equals(job.state)) {
+            return toMap(job);
+        }
+        String fingerprint = fingerprint(resultsPath.toFile());
+        if (job != null) {
+            Map<String, Object> result = toMap(job);
+            if (!fingerprint.equals(job.fingerprint)) {
+                result.put("state", "stale");
+            }
+            return result;
+        }
+        // 本次运行中未启动过：根据磁盘上的进度文件报告
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("datasetId", datasetId);
+        Path dir = jobDir(datasetId);
+        try {
+            Header header = readHeader(dir.resolve(MATRIX_FILE));
+            if (header == null) {
+                result.put("state", "none");
+                return result;
+            }
+            int tiles = tileCount(header.ids.length, header.tileSize);
+            int done = readProgress(dir.resolve(PROGRESS_FILE), tiles * tiles).cardinality();
+            // 矩阵对应的数据集文件已变化时不再沿用，再次启动会重新计算
+            boolean current = fingerprint.equals(readFingerprint(dir));
+            result.put("state", !current ? "stale" : done == tiles * tiles ? "complete" : "paused");
+            result.put("neurons", header.ids.length);
+            result.put("tiles", tiles * tiles);
+            result.put("tilesDone", done);
+        } catch (IOException e) {
+            result.put("state", "none");
+        }
+        return result;
+    }
+
+    @Override
+    public Path getMatrix(String datasetId) {
+        Map<String, Object> status = status(datasetId);
+        if (status == null || !"complete".equals(status.get("state"))) {
+            return null;
+        }
+        return jobDir(datasetId).resolve(MATRIX_FILE);
+    }
+
+    private Map<String, Object> toMap(Job job) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("datasetId", job.datasetId);
+        result.put("state", job.state);
+        result.put("neurons", job.neurons);
+        result.put("tiles", job.tiles);
+        result.put("tilesDone", job.tilesDone.get());
+        result.put("startedAt", job.startedAt);
+        if (job.finishedAt > 0) {
+            result.put("finishedAt", job.finishedAt);
+        }
+        double seconds = ((job.finishedAt > 0 ? job.finishedAt : System.currentTimeMillis()) - job.startedAt) / 1000.0;
+        int run = job.tilesThisRun.get();
+        if (seconds > 0 && run > 0) {
+            result.put("pairsPerSecond", job.pairsThisRun.get() / seconds);
+            int remaining = job.tiles - job.tilesDone.get();
+            result.put("etaSeconds", "running".equals(job.state) ? remaining * seconds / run : 0);
+        }
+        if (job.error != null) {
+            result.put("error", job.error);
+        }
+        return result;
+    }
+
+    private void run(Job job, File resultsDir) {
+        try {
+            long begin = System.nanoTime();
+            File[] modelDirs = resultsDir.listFiles(File::isDirectory);
+            if (modelDirs == null) {
+                modelDirs = new File[0];
+            }
+            Arrays.sort(modelDirs);
+            String[] ids = new String[modelDirs.length];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = modelDirs[i].getName();
+            }
+            int n = ids.length;
+            int tiles = tileCount(n, tileSize);
+            job.fingerprint = fingerprint(resultsDir);
+            job.neurons = n;
+            job.tiles = tiles * tiles;
+
+            // 转为 dotprops；解析失败的神经元为空点集，得分均为 0
+            File[] dirs = modelDirs;
+            Dotprops[] dotprops = new Dotprops[n];
+            AtomicInteger failed = new AtomicInteger();
+            pool.submit(() -> IntStream.range(0, n).parallel().forEach(i -> {
+                try {
+                    File swc = datasetFileService.firstSwc(dirs[i]);
+                    if (swc != null) {
+                        dotprops[i] = Dotprops.of(SwcReader.read(swc.toPath(), true), step, neighbors);
+                    }
+                } catch (Exception e) {
+                    failed.incrementAndGet();
+                    logger.warn("dotprops 转换失败: {}, {}", dirs[i], e.getMessage());
+                }
+            })).join();
+            long points = 0;
+            for (Dotprops d : dotprops) {
+                points += d != null ? d.size() : 0;
+            }
+            logger.info("NBLAST dotprops 完成: {} ({} 个神经元, {} 个点, 失败 {}, 耗时 {} ms)", job.datasetId, n, points,
+                failed.get(), (System.nanoTime() - begin) / 1_000_000);
+
+            Files.createDirectories(job.dir);
+            Path matrixPath = job.dir.resolve(MATRIX_FILE);
+            Path progressPath = job.dir.resolve(PROGRESS_FILE);
+            long dataOffset = prepareMatrix(job.dir, ids, job.fingerprint);
+            synchronized (job) {
+                job.done = readProgress(progressPath, tiles * tiles);
+                job.tilesDone.set(job.done.cardinality());
+                job.lastCheckpoint = System.currentTimeMillis();
+            }
+            job.state = "running";
+
+            try (FileChannel matrix = FileChannel.open(matrixPath, StandardOpenOption.WRITE);
+                 FileChannel progress = FileChannel.open(progressPath, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                BitSet skip;
+                synchronized (job) {
+                    skip = (BitSet) job.done.clone();
+                }
+                int[] remaining = IntStream.range(0, tiles * tiles).filter(t -> !skip.get(t)).toArray();
+                // 线程池与其他分析请求共用，分批提交，期间到达的请求不必等整个矩阵算完
+                int batch = pool.getParallelism() * 4;
+                for (int from = 0; from < remaining.length; from += batch) {
+                    int start = from;
+                    int end = Math.min(remaining.length, from + batch);
+                    pool.submit(() -> IntStream.range(start, end).parallel().forEach(k -> {
+                        int t = remaining[k];
+                        computeTile(dotprops, n, t / tiles, t % tiles, matrix, dataOffset, job);
+                        checkpoint(job, t, matrix, progress, false);
+                    })).join();
+                }
+                checkpoint(job, -1, matrix, progress, true);
+            }
+            job.state = "complete";
+            logger.info("NBLAST 矩阵完成: {} ({} x {}, 本次 {} 块, 耗时 {} s)", job.datasetId, n, n, job.tilesThisRun.get(),
+                (System.nanoTime() - begin) / 1_000_000_000);
+        } catch (Exception e) {
+            job.state = "failed";
+            job.error = e.getMessage();
+            logger.error("NBLAST 计算失败: {}", job.datasetId, e);
+        } finally {
+            job.finishedAt = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * 计算第 (bi, bj) 块：bi 块的神经元为查询、bj 块的为目标，逐行写入矩阵文件
+     */
+    private void computeTile(Dotprops[] dotprops, int n, int bi, int bj, FileChannel matrix, long dataOffset, Job job) {
+        int rowStart = bi * tileSize;
+        int rowEnd = Math.min(n, rowStart + tileSize);
+        int colStart = bj * tileSize;
+        int colEnd = Math.min(n, colStart + tileSize);
+        KdTree.Search search = new KdTree.Search();
+        ByteBuffer row = ByteBuffer.allocate((colEnd - colStart) * 2).order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            for (int q = rowStart; q < rowEnd; q++) {
+                row.clear();
+                for (int t = colStart; t < colEnd; t++) {
+                    double score;
+                    if (q == t) {
+                        score = dotprops[q] != null && dotprops[q].size() > 0 ? 1 : 0;
+                    } else if (dotprops[q] == null || dotprops[t] == null) {
+                        score = 0;
+                    } else {
+                        score = dotprops[q].score(dotprops[t], sigma, cutoff, search);
+                    }
+                    row.putShort((short) Math.round(Math.max(0, Math.min(1, score)) * 65535));
+                }
+                row.flip();
+                long position = dataOffset + ((long) q * n + colStart) * 2;
+                while (row.hasRemaining()) {
+                    position += matrix.write(row, position);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("写入矩阵失败: " + e.getMessage(), e);
+        }
+        job.pairsThisRun.addAndGet((long) (rowEnd - rowStart) * (colEnd - colStart));
+    }
+
+    /**
+     * 记录完成的块；距上次超过 checkpoint-ms（或 force）时先把矩阵刷到磁盘，再把这些块号追加到进度文件
+     */
+    private void checkpoint(Job job, int tile, FileChannel matrix, FileChannel progress, boolean force) {
+        synchronized (job) {
+            if (tile >= 0) {
+                job.pending.add(tile);
+                job.done.set(tile);
+                job.tilesDone.incrementAndGet();
+                job.tilesThisRun.incrementAndGet();
+            }
+            long now = System.currentTimeMillis();
+            if (job.pending.isEmpty() || (!force && now - job.lastCheckpoint < checkpointMs)) {
+                return;
+            }
+            try {
+                matrix.force(false);
+                ByteBuffer buffer = ByteBuffer.allocate(job.pending.size() * 4).order(ByteOrder.LITTLE_ENDIAN);
+                for (int t : job.pending) {
+                    buffer.putInt(t);
+                }
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    progress.write(buffer);
+                }
+                progress.force(false);
+                job.pending.clear();
+                job.lastCheckpoint = now;
+            } catch (IOException e) {
+                throw new IllegalStateException("写入进度失败: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * 矩阵文件已存在、神经元列表与参数都相同且数据集指纹未变时沿用（断点继续），否则重新创建并清空进度
+     *
+     * @return 矩阵数据在文件中的起始位置
+     */
+    private long prepareMatrix(Path dir, String[] ids, String fingerprint) throws IOException {
+        Path matrixPath = dir.resolve(MATRIX_FILE);
+        Path progressPath = dir.resolve(PROGRESS_FILE);
+        Header existing = readHeader(matrixPath);
+        if (existing != null && Arrays.equals(existing.ids, ids) && existing.tileSize == tileSize
+                && existing.step == (float) step && existing.sigma == (float) sigma && existing.cutoff == (float) cutoff
+                && existing.k == neighbors && Files.exists(progressPath) && fingerprint.equals(readFingerprint(dir))) {
+            return existing.dataOffset;
+        }
+        // 先作废旧指纹，矩阵重建中途失败时不会被误认为与数据集一致
+        Files.deleteIfExists(dir.resolve(FINGERPRINT_FILE));
+        byte[] idBytes = String.join("\n", ids).getBytes(StandardCharsets.UTF_8);
+        long dataOffset = align4(HEADER_SIZE + idBytes.length);
+        ByteBuffer header = ByteBuffer.allocate((int) dataOffset).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MATRIX_MAGIC).putInt(ids.length).putFloat((float) sigma).putFloat((float) cutoff)
+            .putFloat((float) step).putInt(neighbors).putInt(tileSize).putInt(idBytes.length).put(idBytes);
+        header.position(0);
+        try (FileChannel channel = FileChannel.open(matrixPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            // 预先扩展到完整大小，各块按位置写入
+            long total = dataOffset + (long) ids.length * ids.length * 2;
+            if (total > dataOffset) {
+                channel.write(ByteBuffer.allocate(1), total - 1);
+            }
+        }
+        Files.write(progressPath, new byte[0]);
+        FileCacheUtils.writeAtomically(dir.resolve(FINGERPRINT_FILE), fingerprint.getBytes(StandardCharsets.UTF_8));
+        return dataOffset;
+    }
+
+    /**
+     * 数据集指纹：各模型目录名及其SWC文件的名称、大小与修改时间的摘要
+     */
+    private String fingerprint(File resultsDir) {
+        File[] modelDirs = resultsDir.listFiles(File::isDirectory);
+        if (modelDirs == null) {
+            modelDirs = new File[0];
+        }
+        Arrays.sort(modelDirs);
+        StringBuilder sb = new StringBuilder();
+        for (File dir : modelDirs) {
+            File swc = datasetFileService.firstSwc(dir);
+            sb.append(dir.getName()).append('|');
+            if (swc != null) {
+                sb.append(swc.getName()).append('|').append(swc.length()).append('|').append(swc.lastModified());
+            }
+            sb.append('\n');
+        }
+        return FileCacheUtils.sha256(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String readFingerprint(Path dir) throws IOException {
+        Path file = dir.resolve(FINGERPRINT_FILE);
+        return Files.exists(file) ? Files.readString(file, StandardCharsets.UTF_8).trim() : null;
+    }
+
+    private static final class Header {
+        String[] ids;
+        float sigma;
+        float cutoff;
+        float step;
+        int k;
+        int tileSize;
+        long dataOffset;
+    }
+
+    private static Header readHeader(Path matrixPath) throws IOException {
+        if (!Files.exists(matrixPath) || Files.size(matrixPath) < HEADER_SIZE) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(matrixPath, StandardOpenOption.READ)) {
+            ByteBuffer fixed = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (fixed.hasRemaining() && channel.read(fixed) >= 0) {
+                // 读满固定头部
+            }
+            fixed.flip();
+            if (fixed.getInt() != MATRIX_MAGIC) {
+                return null;
+            }
+            Header header = new Header();
+            int n = fixed.getInt();
+            header.sigma = fixed.getFloat();
+            header.cutoff = fixed.getFloat();
+            header.step = fixed.getFloat();
+            header.k = fixed.getInt();
+            header.tileSize = fixed.getInt();
+            int idLength = fixed.getInt();
+            ByteBuffer idBytes = ByteBuffer.allocate(idLength);
+            while (idBytes.hasRemaining() && channel.read(idBytes) >= 0) {
+                // 读满ID列表
+            }
+            String joined = new String(idBytes.array(), 0, idBytes.position(), StandardCharsets.UTF_8);
+            header.ids = n == 0 ? new String[0] : joined.split("\n", -1);
+            header.dataOffset = align4(HEADER_SIZE + idLength);
+            if (header.ids.length != n || Files.size(matrixPath) < header.dataOffset + (long) n * n * 2) {
+                return null;
+            }
+            return header;
+        }
+    }
+
+    private static BitSet readProgress(Path progressPath, int tiles) throws IOException {
+        BitSet done = new BitSet(tiles);
+        if (!Files.exists(progressPath)) {
+            return done;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(progressPath)).order(ByteOrder.LITTLE_ENDIAN);
+        // 末尾不完整的记录（写入中断）忽略
+        while (buffer.remaining() >= 4) {
+            int t = buffer.getInt();
+            if (t >= 0 && t < tiles) {
+                done.set(t);
+            }
+        }
+        return done;
+    }
+
+    private static long align4(long value) {
+        return (value + 3) & ~3L;
+    }
+
+    private static int tileCount(int n, int tileSize) {
+        return (n + tileSize - 1) / tileSize;
+    }
+
+    private Path jobDir(String datasetId) {
+        return Paths.get(workDir, datasetId.replaceAll("[^A-Za-z0-9._-]", "_"));
+    }
+}
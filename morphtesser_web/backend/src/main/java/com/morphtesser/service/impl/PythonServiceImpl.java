@@ -2,9 +2,13 @@ package com.morphtesser.service.impl;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.morphtesser.swc.Morphometrics;
+import com.morphtesser.service.MorphometricsService;
 import com.morphtesser.service.PythonService;
+import com.morphtesser.service.SwcMeshingService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
@@ -35,6 +39,12 @@ public class PythonServiceImpl implements PythonService {
     @Value("${python.executable}")
     private String pythonExecutable;
     
+    @Autowired
+    private SwcMeshingService swcMeshingService;
+
+    @Autowired
+    private MorphometricsService morphometricsService;
+
     private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper;
     
@@ -141,7 +151,7 @@ public class PythonServiceImpl implements PythonService {
             File scriptFile = new File(pythonScriptPath);
             if (!scriptFile.exists()) {
                 logger.error("Python脚本不存在: {}", pythonScriptPath);
-                return getDefaultResult(objFilePath);
+                return getDefaultResult(swcFilePath, objFilePath);
             }
             
             // 构建Python命令
@@ -178,34 +188,47 @@ public class PythonServiceImpl implements PythonService {
             
             if (exitCode != 0) {
                 logger.error("Python脚本执行失败: {}", output.toString());
-                return getDefaultResult(objFilePath);
+                return getDefaultResult(swcFilePath, objFilePath);
             }
             
             logger.info("Python脚本执行成功: {}", output.toString());
             
-            // 解析输出并返回结果
-            // 这里假设Python脚本输出了一些统计信息
             Map<String, Object> result = new HashMap<>();
-            result.put("length", 100.0);
-            result.put("surface_area", 200.0);
-            result.put("volume", 300.0);
+            putMorphometrics(result, swcFilePath);
             result.put("obj_path", objFilePath);
             
             return result;
             
         } catch (Exception e) {
             logger.error("处理SWC文件失败", e);
-            return getDefaultResult(swcFilePath.replace(".swc", ".obj"));
+            return getDefaultResult(swcFilePath, swcFilePath.replace(".swc", ".obj"));
+        }
+    }
+
+    // 统计信息由SWC直接计算，与建模是否成功无关；SWC无法解析时不写入统计字段
+    private void putMorphometrics(Map<String, Object> result, String swcFilePath) {
+        try {
+            Morphometrics m = morphometricsService.compute(Paths.get(swcFilePath));
+            result.put("length", m.getTotalLength());
+            result.put("surface_area", m.getSurfaceArea());
+            result.put("volume", m.getVolume());
+        } catch (Exception e) {
+            logger.warn("形态学统计失败: {}", swcFilePath, e);
         }
     }
 
-    private Map<String, Object> getDefaultResult(String objFilePath) {
-        // 返回默认值
+    private Map<String, Object> getDefaultResult(String swcFilePath, String objFilePath) {
         Map<String, Object> result = new HashMap<>();
-        result.put("length", 10.0);
-        result.put("surface_area", 20.0);
-        result.put("volume", 30.0);
+        putMorphometrics(result, swcFilePath);
         result.put("obj_path", objFilePath);
+
+        // 优先在JVM内由SWC生成网格
+        try {
+            java.nio.file.Files.write(Paths.get(objFilePath), swcMeshingService.tessellate(Paths.get(swcFilePath)));
+            return result;
+        } catch (Exception e) {
+            logger.error("本地建模失败，使用默认球体模型: {}", swcFilePath, e);
+        }
         
         // 尝试复制默认球体模型到目标路径
         try {
@@ -0,0 +1,180 @@
+package com.morphtesser.service.impl;
+
+import com.morphtesser.config.AnalysisExecutorConfig;
+import com.morphtesser.service.DatasetFileService;
+import com.morphtesser.service.ShollService;
+import com.morphtesser.swc.ShollAnalysis;
+import com.morphtesser.swc.ShollProfile;
+import com.morphtesser.swc.SwcReader;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+public class ShollServiceImpl implements ShollService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShollServiceImpl.class);
+
+    @Autowired
+    private DatasetFileService datasetFileService;
+
+    @Value("${sholl.default-step:10}")
+    private double defaultStep;
+
+    // 单条曲线的球数上限，防止极小的 step 占用过多内存
+    @Value("${sholl.max-bins:10000}")
+    private int maxBins;
+
+    // 缓存的曲线条数（单个神经元与数据集结果分别计数）
+    @Value("${sholl.cache-size:2048}")
+    private int cacheSize;
+
+    @Autowired
+    @Qualifier(AnalysisExecutorConfig.ANALYSIS_POOL)
+    private ForkJoinPool pool;
+
+    private Map<String, ShollProfile> profileCache;
+    private Map<String, Map<String, Object>> datasetCache;
+
+    @PostConstruct
+    public void init() {
+        profileCache = lruCache(cacheSize);
+        datasetCache = lruCache(Math.max(16, cacheSize / 64));
+    }
+
+    private static <V> Map<String, V> lruCache(int capacity) {
+        return Collections.synchronizedMap(new LinkedHashMap<String, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > capacity;
+            }
+        });
+    }
+
+    private double effectiveStep(Double step) {
+        return step != null && step > 0 ? step : defaultStep;
+    }
+
+    private static double effectiveEnd(Double end) {
+        return end != null ? end : 0;
+    }
+
+    @Override
+    public ShollProfile profile(Path swcPath, double start, Double step, Double end) throws IOException {
+        double s = effectiveStep(step);
+        double e = effectiveEnd(end);
+        // 文件被覆盖后修改时间或大小变化，旧缓存自然失效
+        String key = swcPath.toAbsolutePath().normalize() + "|" + Files.getLastModifiedTime(swcPath).toMillis()
+            + "|" + Files.size(swcPath) + "|" + start + "|" + s + "|" + e;
+        ShollProfile cached = profileCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        ShollProfile profile = ShollAnalysis.compute(SwcReader.read(swcPath, true), start, s, e, maxBins);
+        profileCache.put(key, profile);
+        return profile;
+    }
+
+    @Override
+    public Map<String, Object> datasetProfile(String datasetId, double start, Double step, Double end, boolean includeNeurons) {
+        Path resultsPath = datasetFileService.resultsDir(datasetId);
+        if (resultsPath == null) {
+            return null;
+        }
+        File resultsDir = resultsPath.toFile();
+        File[] modelDirs = resultsDir.listFiles(File::isDirectory);
+        if (modelDirs == null) {
+            return null;
+        }
+        double s = effectiveStep(step);
+        double e = effectiveEnd(end);
+        String key = datasetId + "|" + resultsDir.lastModified() + "|" + modelDirs.length + "|" + start + "|" + s + "|" + e
+            + "|" + includeNeurons;
+        Map<String, Object> cached = datasetCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        long begin = System.nanoTime();
+        AtomicInteger failed = new AtomicInteger();
+        Arrays.sort(modelDirs);
+        // 每个神经元独立计算，结果按目录顺序排列
+        List<Map.Entry<String, ShollProfile>> profiles = pool.submit(() -> Arrays.stream(modelDirs).parallel()
+            .map(dir -> {
+                File swc = datasetFileService.firstSwc(dir);
+                if (swc == null) {
+                    return null;
+                }
+                try {
+                    return Map.entry(dir.getName(), profile(swc.toPath(), start, s, e));
+                } catch (Exception ex) {
+                    failed.incrementAndGet();
+                    logger.warn("Sholl分析失败: {}, {}", swc, ex.getMessage());
+                    return null;
+                }
+            })
+            .filter(Objects::nonNull)
+            .toList()).join();
+
+        // 各神经元的球半径序列相同（start + k * step），只是长度不同，短的按0补齐
+        int bins = 0;
+        for (Map.Entry<String, ShollProfile> entry : profiles) {
+            bins = Math.max(bins, entry.getValue().size());
+        }
+        long[] sum = new long[bins];
+        int[] max = new int[bins];
+        for (Map.Entry<String, ShollProfile> entry : profiles) {
+            ShollProfile profile = entry.getValue();
+            for (int k = 0; k < profile.size(); k++) {
+                sum[k] += profile.intersections(k);
+                max[k] = Math.max(max[k], profile.intersections(k));
+            }
+        }
+        double[] radii = new double[bins];
+        double[] mean = new double[bins];
+        for (int k = 0; k < bins; k++) {
+            radii[k] = start + k * s;
+            mean[k] = profiles.isEmpty() ? 0 : (double) sum[k] / profiles.size();
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("datasetId", datasetId);
+        result.put("start", start);
+        result.put("step", s);
+        result.put("neurons", profiles.size());
+        result.put("failed", failed.get());
+        result.put("radii", radii);
+        result.put("mean", mean);
+        result.put("max", max);
+        if (includeNeurons) {
+            List<Map<String, Object>> neurons = new ArrayList<>(profiles.size());
+            for (Map.Entry<String, ShollProfile> entry : profiles) {
+                Map<String, Object> item = entry.getValue().toMap();
+                item.put("modelId", entry.getKey());
+                neurons.add(item);
+            }
+            result.put("profiles", neurons);
+        }
+        result.put("elapsed_ms", (System.nanoTime() - begin) / 1_000_000);
+        datasetCache.put(key, result);
+        return result;
+    }
+}
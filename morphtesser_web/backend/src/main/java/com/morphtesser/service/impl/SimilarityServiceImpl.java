@@ -0,0 +1,392 @@
+package com.morphtesser.service.impl;
+
+import com.morphtesser.config.AnalysisExecutorConfig;
+import com.morphtesser.service.DatasetFileService;
+import com.morphtesser.service.SimilarityService;
+import com.morphtesser.swc.FeatureMatrix;
+import com.morphtesser.swc.MorphologyFeatures;
+import com.morphtesser.swc.SwcReader;
+import com.morphtesser.util.FileCacheUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+@Service
+public class SimilarityServiceImpl implements SimilarityService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SimilarityServiceImpl.class);
+
+    private static final int FILE_MAGIC = 0x3156464e; // "NFV1"
+
+    @Autowired
+    private DatasetFileService datasetFileService;
+
+    // 特征矩阵的持久化目录，重启后直接加载，只重新计算修改过的SWC
+    @Value("${similarity.cache-dir:/app/cache/similarity}")
+    private String cacheDir;
+
+    // 距上次检查超过该时间（毫秒）时在后台重新扫描数据集目录；增删模型目录会立即触发
+    @Value("${similarity.recheck-ms:600000}")
+    private long recheckMs;
+
+    // 单次检索返回的近邻数上限
+    @Value("${similarity.max-k:100}")
+    private int maxK;
+
+    @Autowired
+    @Qualifier(AnalysisExecutorConfig.ANALYSIS_POOL)
+    private ForkJoinPool pool;
+
+    private final Map<String, DatasetFeatures> features = new ConcurrentHashMap<>();
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * 一个数据集的特征：每行对应一个模型目录，raw 为未标准化的特征（行优先），matrix 为标准化后的分块矩阵
+     */
+    private static final class DatasetFeatures {
+        long resultsModified;
+        long checkedAt;
+        long computedAt;
+        String[] modelIds;
+        Path[] swcs;
+        long[] modified;
+        long[] sizes;
+        float[] raw;
+        FeatureMatrix matrix;
+        Map<String, Integer> rows;
+
+        int size() {
+            return modelIds.length;
+        }
+    }
+
+    /**
+     * 批量计算任务的进度，同一数据集同时只运行一个
+     */
+    private static final class Job {
+        final AtomicBoolean running = new AtomicBoolean();
+        final AtomicInteger done = new AtomicInteger();
+        volatile int total;
+        volatile int computed;
+        volatile long startedAt;
+        volatile long finishedAt;
+        volatile String error;
+    }
+
+    @Override
+    public Map<String, Object> similar(String datasetId, String modelId, int k) {
+        Path resultsPath = datasetFileService.resultsDir(datasetId);
+        if (resultsPath == null) {
+            return null;
+        }
+        DatasetFeatures current = load(datasetId, resultsPath);
+        if (current == null) {
+            return status(datasetId);
+        }
+        Integer row = current.rows.get(modelId);
+        if (row == null) {
+            return null;
+        }
+
+        long begin = System.nanoTime();
+        FeatureMatrix.Neighbors neighbors = current.matrix.nearest(current.matrix.row(row), Math.max(1, Math.min(k, maxK)), row);
+        List<Map<String, Object>> results = new ArrayList<>(neighbors.size());
+        for (int n = 0; n < neighbors.size(); n++) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("modelId", current.modelIds[neighbors.row(n)]);
+            item.put("distance", neighbors.distance(n));
+            results.add(item);
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("status", "ready");
+        result.put("datasetId", datasetId);
+        result.put("modelId", modelId);
+        result.put("neurons", current.size());
+        result.put("features", featureMap(current.raw, row));
+        result.put("results", results);
+        result.put("elapsed_ms", (System.nanoTime() - begin) / 1_000_000.0);
+        return result;
+    }
+
+    @Override
+    public Map<String, Object> status(String datasetId) {
+        Path resultsPath = datasetFileService.resultsDir(datasetId);
+        if (resultsPath == null) {
+            return null;
+        }
+        DatasetFeatures current = load(datasetId, resultsPath);
+        Job job = jobs.get(datasetId);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("status", current != null ? "ready" : "building");
+        result.put("datasetId", datasetId);
+        result.put("dimension", MorphologyFeatures.DIMENSION);
+        result.put("names", MorphologyFeatures.NAMES);
+        if (current != null) {
+            result.put("neurons", current.size());
+            result.put("computedAt", current.computedAt);
+            result.put("matrixBytes", current.matrix.memoryBytes());
+        }
+        if (job != null) {
+            Map<String, Object> progress = new LinkedHashMap<>();
+            progress.put("running", job.running.get());
+            progress.put("total", job.total);
+            progress.put("done", job.done.get());
+            progress.put("computed", job.computed);
+            progress.put("startedAt", job.startedAt);
+            progress.put("finishedAt", job.finishedAt);
+            progress.put("error", job.error);
+            result.put("job", progress);
+        }
+        return result;
+    }
+
+    private Map<String, Object> featureMap(float[] raw, int row) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (int j = 0; j < MorphologyFeatures.DIMENSION; j++) {
+            map.put(MorphologyFeatures.NAMES[j], raw[row * MorphologyFeatures.DIMENSION + j]);
+        }
+        return map;
+    }
+
+    /**
+     * 当前可用的特征（内存中没有时读取持久化文件）；不存在或已过期时启动后台任务，期间继续使用旧特征
+     */
+    private DatasetFeatures load(String datasetId, Path resultsPath) {
+        DatasetFeatures current = features.get(datasetId);
+        if (current == null) {
+            synchronized (features) {
+                current = features.get(datasetId);
+                if (current == null) {
+                    current = readFile(datasetId);
+                    if (current != null) {
+                        features.put(datasetId, current);
+                    }
+                }
+            }
+        }
+        long resultsModified = resultsPath.toFile().lastModified();
+        if (current == null || current.resultsModified != resultsModified
+                || System.currentTimeMillis() - current.checkedAt >= recheckMs) {
+            startJob(datasetId, resultsPath);
+        }
+        return current;
+    }
+
+    private void startJob(String datasetId, Path resultsPath) {
+        Job job = jobs.computeIfAbsent(datasetId, k -> new Job());
+        if (!job.running.compareAndSet(false, true)) {
+            return;
+        }
+        job.done.set(0);
+        job.total = 0;
+        job.computed = 0;
+        job.error = null;
+        job.startedAt = System.currentTimeMillis();
+        pool.execute(() -> {
+            try {
+                DatasetFeatures updated = compute(datasetId, resultsPath.toFile(), features.get(datasetId), job);
+                features.put(datasetId, updated);
+            } catch (Exception e) {
+                job.error = e.getMessage();
+                logger.error("形态特征批量计算失败: {}", datasetId, e);
+            } finally {
+                job.finishedAt = System.currentTimeMillis();
+                job.running.set(false);
+            }
+        });
+    }
+
+    /**
+     * 扫描 results 下的模型目录；修改时间与大小都未变的SWC沿用上次的特征，其余的并行计算
+     */
+    private DatasetFeatures compute(String datasetId, File resultsDir, DatasetFeatures previous, Job job) {
+        long begin = System.nanoTime();
+        long resultsModified = resultsDir.lastModified();
+        File[] modelDirs = resultsDir.listFiles(File::isDirectory);
+        if (modelDirs == null) {
+            modelDirs = new File[0];
+        }
+        Arrays.sort(modelDirs);
+        File[] dirs = modelDirs;
+        int n = dirs.length;
+        int d = MorphologyFeatures.DIMENSION;
+        job.total = n;
+
+        String[] modelIds = new String[n];
+        Path[] swcs = new Path[n];
+        long[] modified = new long[n];
+        long[] sizes = new long[n];
+        float[] raw = new float[n * d];
+        boolean[] valid = new boolean[n];
+        AtomicInteger computed = new AtomicInteger();
+        pool.submit(() -> IntStream.range(0, n).parallel().forEach(i -> {
+            try {
+                modelIds[i] = dirs[i].getName();
+                File swc = datasetFileService.firstSwc(dirs[i]);
+                if (swc == null) {
+                    return;
+                }
+                swcs[i] = swc.toPath();
+                modified[i] = swc.lastModified();
+                sizes[i] = swc.length();
+                Integer row = previous != null ? previous.rows.get(modelIds[i]) : null;
+                if (row != null && swcs[i].equals(previous.swcs[row])
+                        && previous.modified[row] == modified[i] && previous.sizes[row] == sizes[i]) {
+                    System.arraycopy(previous.raw, row * d, raw, i * d, d);
+                    valid[i] = true;
+                    return;
+                }
+                System.arraycopy(MorphologyFeatures.compute(SwcReader.read(swcs[i], true)), 0, raw, i * d, d);
+                valid[i] = true;
+                computed.incrementAndGet();
+            } catch (Exception e) {
+                logger.warn("形态特征计算失败: {}, {}", dirs[i], e.getMessage());
+            } finally {
+                job.done.incrementAndGet();
+            }
+        })).join();
+
+        // 去掉没有SWC或解析失败的模型目录
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            if (valid[i]) {
+                modelIds[count] = modelIds[i];
+                swcs[count] = swcs[i];
+                modified[count] = modified[i];
+                sizes[count] = sizes[i];
+                System.arraycopy(raw, i * d, raw, count * d, d);
+                count++;
+            }
+        }
+        DatasetFeatures result = assemble(Arrays.copyOf(modelIds, count), Arrays.copyOf(swcs, count),
+            Arrays.copyOf(modified, count), Arrays.copyOf(sizes, count), Arrays.copyOf(raw, count * d));
+        result.resultsModified = resultsModified;
+        result.checkedAt = System.currentTimeMillis();
+        boolean changed = computed.get() > 0 || previous == null || previous.size() != count;
+        result.computedAt = changed || previous == null ? result.checkedAt : previous.computedAt;
+        job.computed = computed.get();
+        if (changed) {
+            writeFile(datasetId, result);
+        }
+        logger.info("形态特征批量计算完成: {} ({} 个神经元, 重新计算 {} 个, 耗时 {} ms)", datasetId, count, computed.get(),
+            (System.nanoTime() - begin) / 1_000_000);
+        return result;
+    }
+
+    private static DatasetFeatures assemble(String[] modelIds, Path[] swcs, long[] modified, long[] sizes, float[] raw) {
+        DatasetFeatures result = new DatasetFeatures();
+        result.modelIds = modelIds;
+        result.swcs = swcs;
+        result.modified = modified;
+        result.sizes = sizes;
+        result.raw = raw;
+        result.matrix = FeatureMatrix.of(raw, modelIds.length, MorphologyFeatures.DIMENSION);
+        result.rows = new HashMap<>(modelIds.length * 2);
+        for (int i = 0; i < modelIds.length; i++) {
+            result.rows.put(modelIds[i], i);
+        }
+        return result;
+    }
+
+    private Path featureFile(String datasetId) {
+        return Paths.get(cacheDir, datasetId.replaceAll("[^A-Za-z0-9._-]", "_") + ".nfv");
+    }
+
+    /**
+     * 读取持久化的特征；不存在、格式或维数不符（特征定义变化）时返回null
+     */
+    private DatasetFeatures readFile(String datasetId) {
+        Path file = featureFile(datasetId);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        long begin = System.nanoTime();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != MorphologyFeatures.DIMENSION) {
+                return null;
+            }
+            long resultsModified = in.readLong();
+            long computedAt = in.readLong();
+            int n = in.readInt();
+            int d = MorphologyFeatures.DIMENSION;
+            String[] modelIds = new String[n];
+            Path[] swcs = new Path[n];
+            long[] modified = new long[n];
+            long[] sizes = new long[n];
+            float[] raw = new float[n * d];
+            for (int i = 0; i < n; i++) {
+                modelIds[i] = in.readUTF();
+                swcs[i] = Paths.get(in.readUTF());
+                modified[i] = in.readLong();
+                sizes[i] = in.readLong();
+                for (int j = 0; j < d; j++) {
+                    raw[i * d + j] = in.readFloat();
+                }
+            }
+            DatasetFeatures result = assemble(modelIds, swcs, modified, sizes, raw);
+            result.resultsModified = resultsModified;
+            result.computedAt = computedAt;
+            // 读取后按需重新扫描一次，发现停机期间被覆盖的SWC
+            result.checkedAt = 0;
+            logger.info("形态特征已加载: {} ({} 个神经元, 耗时 {} ms)", datasetId, n, (System.nanoTime() - begin) / 1_000_000);
+            return result;
+        } catch (IOException e) {
+            logger.warn("形态特征文件读取失败: {}, {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 先写临时文件再原子替换；缓存目录不可写时只记录日志，下次启动重新计算
+     */
+    private void writeFile(String datasetId, DatasetFeatures data) {
+        Path file = featureFile(datasetId);
+        try {
+            FileCacheUtils.writeAtomically(file, stream -> {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+                int d = MorphologyFeatures.DIMENSION;
+                out.writeInt(FILE_MAGIC);
+                out.writeInt(d);
+                out.writeLong(data.resultsModified);
+                out.writeLong(data.computedAt);
+                out.writeInt(data.size());
+                for (int i = 0; i < data.size(); i++) {
+                    out.writeUTF(data.modelIds[i]);
+                    out.writeUTF(data.swcs[i].toString());
+                    out.writeLong(data.modified[i]);
+                    out.writeLong(data.sizes[i]);
+                    for (int j = 0; j < d; j++) {
+                        out.writeFloat(data.raw[i * d + j]);
+                    }
+                }
+                out.flush();
+            });
+        } catch (IOException e) {
+            logger.warn("形态特征文件写入失败: {}, {}", file, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.morphtesser.service.impl;
+
+import com.morphtesser.config.AnalysisExecutorConfig;
+import com.morphtesser.service.SpatialIndexService;
+import com.morphtesser.swc.SegmentBvh;
+import com.morphtesser.swc.SwcMorphology;
+import com.morphtesser.swc.SwcReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+@Service
+public class SpatialIndexServiceImpl implements SpatialIndexService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SpatialIndexServiceImpl.class);
+
+    // 缓存的索引总段数上限（每段约 60 字节），超过时淘汰最久未使用的索引
+    @Value("${spatial.cache-max-segments:20000000}")
+    private long cacheMaxSegments;
+
+    @Autowired
+    @Qualifier(AnalysisExecutorConfig.ANALYSIS_POOL)
+    private ForkJoinPool pool;
+
+    // 按访问顺序排列，所有访问都在 synchronized (cache) 中
+    private final LinkedHashMap<String, SegmentBvh> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedSegments;
+
+    // 正在构建的索引：同一文件只构建一次，其余线程等待同一个结果
+    private final Map<String, CompletableFuture<SegmentBvh>> builds = new ConcurrentHashMap<>();
+
+    @Override
+    public SegmentBvh getIndex(Path swcPath) throws IOException {
+        // 文件被覆盖后修改时间或大小变化，旧索引自然失效
+        String key = swcPath.toAbsolutePath().normalize() + "|" + Files.getLastModifiedTime(swcPath).toMillis()
+            + "|" + Files.size(swcPath);
+        SegmentBvh index = cached(key);
+        if (index != null) {
+            return index;
+        }
+        CompletableFuture<SegmentBvh> created = new CompletableFuture<>();
+        CompletableFuture<SegmentBvh> running = builds.putIfAbsent(key, created);
+        if (running != null) {
+            return await(running);
+        }
+        // 放入缓存并发布结果后才移除，之后到达的线程直接命中缓存
+        try {
+            index = cached(key);
+            if (index == null) {
+                long start = System.nanoTime();
+                SwcMorphology morphology = SwcReader.read(swcPath, true);
+                index = SegmentBvh.build(morphology, pool);
+                logger.info("段空间索引构建完成: {} ({} 段, {} 个BVH节点, 深度 {}, 耗时 {} ms)", swcPath,
+                    index.segmentCount(), index.nodeCount(), index.depth(), (System.nanoTime() - start) / 1_000_000);
+                put(key, index);
+            }
+            created.complete(index);
+            return index;
+        } catch (IOException | RuntimeException | Error e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            builds.remove(key, created);
+        }
+    }
+
+    private static SegmentBvh await(CompletableFuture<SegmentBvh> build) throws IOException {
+        try {
+            return build.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IOException("段空间索引构建失败: " + cause.getMessage(), cause);
+        }
+    }
+
+    private SegmentBvh cached(String key) {
+        synchronized (cache) {
+            return cache.get(key);
+        }
+    }
+
+    private void put(String key, SegmentBvh index) {
+        synchronized (cache) {
+            SegmentBvh previous = cache.put(key, index);
+            if (previous != null) {
+                cachedSegments -= previous.segmentCount();
+            }
+            cachedSegments += index.segmentCount();
+            Iterator<Map.Entry<String, SegmentBvh>> it = cache.entrySet().iterator();
+            while (cachedSegments > cacheMaxSegments && it.hasNext()) {
+                Map.Entry<String, SegmentBvh> eldest = it.next();
+                // 刚放入的索引即使超过上限也保留，供本次查询使用
+                if (eldest.getValue() == index) {
+                    continue;
+                }
+                cachedSegments -= eldest.getValue().segmentCount();
+                it.remove();
+            }
+        }
+    }
+
+    @Override
+    public Map<String, Object> nearest(Path swcPath, double x, double y, double z, Double maxDistance) throws IOException {
+        SegmentBvh index = getIndex(swcPath);
+        SegmentBvh.Hit hit = index.nearest(x, y, z, maxDistance != null ? maxDistance : Double.POSITIVE_INFINITY);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("hit", hitToMap(index, hit));
+        result.put("segments", index.segmentCount());
+        return result;
+    }
+
+    @Override
+    public Map<String, Object> raycast(Path swcPath, double[] origin, double[] direction, Double maxDistance) throws IOException {
+        SegmentBvh index = getIndex(swcPath);
+        SegmentBvh.Hit hit = index.raycast(origin[0], origin[1], origin[2], direction[0], direction[1], direction[2],
+            maxDistance != null ? maxDistance : Double.POSITIVE_INFINITY);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("hit", hitToMap(index, hit));
+        result.put("segments", index.segmentCount());
+        return result;
+    }
+
+    @Override
+    public Map<String, Object> queryBox(Path swcPath, double[] box, boolean includeNodes) throws IOException {
+        SegmentBvh index = getIndex(swcPath);
+        return regionToMap(index, index.queryBox(box), includeNodes);
+    }
+
+    @Override
+    public Map<String, Object> querySphere(Path swcPath, double[] center, double radius, boolean includeNodes) throws IOException {
+        SegmentBvh index = getIndex(swcPath);
+        return regionToMap(index, index.querySphere(center[0], center[1], center[2], radius), includeNodes);
+    }
+
+    private static Map<String, Object> hitToMap(SegmentBvh index, SegmentBvh.Hit hit) {
+        if (hit == null) {
+            return null;
+        }
+        SwcMorphology m = index.morphology();
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("node", m.id(hit.getNode()));
+        map.put("parent", hit.getParent() >= 0 ? m.id(hit.getParent()) : -1);
+        map.put("type", m.type(hit.getNode()));
+        map.put("distance", hit.getDistance());
+        map.put("t", hit.getT());
+        map.put("point", new double[]{hit.getX(), hit.getY(), hit.getZ()});
+        return map;
+    }
+
+    private static Map<String, Object> regionToMap(SegmentBvh index, SegmentBvh.Region region, boolean includeNodes) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("count", region.getNodes().length);
+        map.put("cableLength", region.getCableLength());
+        if (includeNodes) {
+            SwcMorphology m = index.morphology();
+            int[] ids = new int[region.getNodes().length];
+            for (int k = 0; k < ids.length; k++) {
+                ids[k] = m.id(region.getNodes()[k]);
+            }
+            map.put("nodes", ids);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,118 @@
+package com.morphtesser.service.impl;
+
+import com.morphtesser.service.SwcCodecService;
+import com.morphtesser.swc.SwcCodec;
+import com.morphtesser.swc.SwcMorphology;
+import com.morphtesser.swc.SwcProgressiveStream;
+import com.morphtesser.swc.SwcReader;
+import com.morphtesser.util.FileCacheUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+@Service
+public class SwcCodecServiceImpl implements SwcCodecService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SwcCodecServiceImpl.class);
+
+    private static final MediaType BINARY_TYPE = MediaType.parseMediaType(MEDIA_TYPE);
+
+    private static final MediaType STREAM_TYPE = MediaType.parseMediaType(STREAM_MEDIA_TYPE);
+
+    @Value("${swc.codec.cache-dir:/app/cache/swb}")
+    private String cacheDir;
+
+    // 坐标量化步长（与SWC坐标同单位），0.01 即保留两位小数
+    @Value("${swc.codec.coord-step:0.01}")
+    private float coordStep;
+
+    @Value("${swc.codec.radius-step:0.01}")
+    private float radiusStep;
+
+    // 缓存目录的大小上限（MB）与未被访问的最长保留时间（天），超出时按最近使用时间淘汰
+    @Value("${swc.codec.cache-max-mb:2048}")
+    private long cacheMaxMb;
+
+    @Value("${swc.codec.cache-max-age-days:30}")
+    private int cacheMaxAgeDays;
+
+    @Override
+    public Path getOrCreateBinary(Path swcPath) throws IOException {
+        return getOrCreateBinary(swcPath, Paths.get(cacheDir));
+    }
+
+    @Override
+    public Path getOrCreateBinary(Path swcPath, Path cacheDir) throws IOException {
+        Path cacheFile = cacheDir.resolve(FileCacheUtils.cacheKey(swcPath, coordStep, radiusStep) + ".swb");
+        if (Files.exists(cacheFile)) {
+            FileCacheUtils.touch(cacheFile);
+            return cacheFile;
+        }
+        long start = System.nanoTime();
+        SwcMorphology morphology = SwcReader.read(swcPath);
+        byte[] encoded = SwcCodec.encode(morphology, coordStep, radiusStep);
+        FileCacheUtils.writeAtomically(cacheFile, encoded);
+        logger.info("SWB编码完成: {} ({} 个节点, {} -> {} bytes, {} ms)", swcPath, morphology.size(),
+                Files.size(swcPath), encoded.length, (System.nanoTime() - start) / 1_000_000);
+        return cacheFile;
+    }
+
+    @Scheduled(fixedRate = 3600000)
+    public void evictCache() {
+        try {
+            int deleted = FileCacheUtils.evictLeastRecentlyUsed(Paths.get(cacheDir), cacheMaxMb * 1024 * 1024,
+                    Duration.ofDays(cacheMaxAgeDays));
+            if (deleted > 0) {
+                logger.info("SWB缓存淘汰: 删除 {} 个文件", deleted);
+            }
+        } catch (IOException e) {
+            logger.warn("SWB缓存淘汰失败: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public SwcProgressiveStream openProgressive(Path swcPath) throws IOException {
+        long start = System.nanoTime();
+        SwcProgressiveStream stream = SwcProgressiveStream.of(SwcReader.read(swcPath));
+        logger.info("SWC渐进传输: {} ({} 个节点, 骨架 {} 个, 排序 {} ms)", swcPath, stream.size(),
+                stream.getSkeletonCount(), (System.nanoTime() - start) / 1_000_000);
+        return stream;
+    }
+
+    @Override
+    public boolean acceptsBinary(String acceptHeader) {
+        return accepts(acceptHeader, BINARY_TYPE);
+    }
+
+    @Override
+    public boolean acceptsStreamBinary(String acceptHeader) {
+        return accepts(acceptHeader, STREAM_TYPE);
+    }
+
+    private boolean accepts(String acceptHeader, MediaType binaryType) {
+        if (acceptHeader == null || acceptHeader.isBlank()) {
+            return false;
+        }
+        try {
+            for (MediaType type : MediaType.parseMediaTypes(acceptHeader)) {
+                if (!type.isWildcardType() && !type.isWildcardSubtype() && type.getQualityValue() > 0
+                        && type.isCompatibleWith(binaryType)) {
+                    return true;
+                }
+            }
+        } catch (InvalidMediaTypeException e) {
+            logger.debug("无法解析Accept请求头: {}", acceptHeader);
+        }
+        return false;
+    }
+}
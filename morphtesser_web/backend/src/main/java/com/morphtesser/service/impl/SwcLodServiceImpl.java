@@ -0,0 +1,85 @@
+package com.morphtesser.service.impl;
+
+import com.morphtesser.service.SwcLodService;
+import com.morphtesser.swc.SwcMorphology;
+import com.morphtesser.swc.SwcReader;
+import com.morphtesser.swc.SwcSimplifier;
+import com.morphtesser.swc.SwcWriter;
+import com.morphtesser.util.FileCacheUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Locale;
+
+@Service
+public class SwcLodServiceImpl implements SwcLodService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SwcLodServiceImpl.class);
+
+    @Value("${swc.lod.cache-dir:/app/cache/swc-lod}")
+    private String cacheDir;
+
+    // 容限上限，避免任意大的值把整棵树简化成只剩分叉点（仍然正确，但缓存没有意义）
+    @Value("${swc.lod.max-tolerance:100}")
+    private double maxTolerance;
+
+    // 缓存目录的大小上限（MB）与未被访问的最长保留时间（天），超出时按最近使用时间淘汰
+    @Value("${swc.lod.cache-max-mb:2048}")
+    private long cacheMaxMb;
+
+    @Value("${swc.lod.cache-max-age-days:30}")
+    private int cacheMaxAgeDays;
+
+    @Override
+    public Path getOrCreateLod(Path swcPath, Double tolerance) throws IOException {
+        return getOrCreateLod(swcPath, tolerance, Paths.get(cacheDir));
+    }
+
+    @Override
+    public Path getOrCreateLod(Path swcPath, Double tolerance, Path cacheDir) throws IOException {
+        if (tolerance == null || !(tolerance > 0)) {
+            return swcPath;
+        }
+        // 容限取两位小数，避免浮点表示不同的同一容限产生多份缓存
+        double effective = Math.round(Math.min(tolerance, maxTolerance) * 100) / 100.0;
+        if (effective <= 0) {
+            return swcPath;
+        }
+        String toleranceLabel = String.format(Locale.ROOT, "%.2f", effective);
+        Path cacheFile = cacheDir.resolve(FileCacheUtils.cacheKey(swcPath) + "_lod" + toleranceLabel + ".swc");
+        if (Files.exists(cacheFile)) {
+            FileCacheUtils.touch(cacheFile);
+            return cacheFile;
+        }
+        long start = System.nanoTime();
+        SwcMorphology original = SwcReader.read(swcPath);
+        SwcMorphology simplified = SwcSimplifier.simplify(original, effective);
+        String header = "LOD tolerance=" + toleranceLabel + " nodes=" + simplified.size() + "/" + original.size()
+                + " source=" + swcPath.getFileName();
+        FileCacheUtils.writeAtomically(cacheFile, out -> SwcWriter.write(simplified, out, header));
+        logger.info("SWC简化完成: {} (容限 {}, {} -> {} 个节点, {} ms)", swcPath, toleranceLabel, original.size(),
+                simplified.size(), (System.nanoTime() - start) / 1_000_000);
+        return cacheFile;
+    }
+
+    @Scheduled(fixedRate = 3600000)
+    public void evictCache() {
+        try {
+            int deleted = FileCacheUtils.evictLeastRecentlyUsed(Paths.get(cacheDir), cacheMaxMb * 1024 * 1024,
+                    Duration.ofDays(cacheMaxAgeDays));
+            if (deleted > 0) {
+                logger.info("SWC简化缓存淘汰: 删除 {} 个文件", deleted);
+            }
+        } catch (IOException e) {
+            logger.warn("SWC简化缓存淘汰失败: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.morphtesser.service.impl;
+
+import com.morphtesser.config.AnalysisExecutorConfig;
+import com.morphtesser.mesh.MeshData;
+import com.morphtesser.mesh.ObjWriter;
+import com.morphtesser.mesh.SwcTessellator;
+import com.morphtesser.mesh.TubeMesher;
+import com.morphtesser.service.SwcMeshingService;
+import com.morphtesser.swc.SwcMorphology;
+import com.morphtesser.swc.SwcReader;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+@Service
+public class SwcMeshingServiceImpl implements SwcMeshingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SwcMeshingServiceImpl.class);
+
+    // 降级网格每个圆台的边数
+    @Value("${python.modeling.fallback.sides:8}")
+    private int fallbackSides;
+
+    // 本地网格每个圆环的边数
+    @Value("${modeling.native.sides:12}")
+    private int nativeSides;
+
+    // 在JVM内直接建模的类型（逗号分隔），其余类型调用Python建模服务
+    @Value("${modeling.native.types:fast}")
+    private String nativeTypes;
+
+    @Autowired
+    @Qualifier(AnalysisExecutorConfig.ANALYSIS_POOL)
+    private ForkJoinPool pool;
+
+    private Set<String> nativeTypeSet;
+
+    @PostConstruct
+    public void init() {
+        nativeTypeSet = Arrays.stream(nativeTypes.split(","))
+            .map(t -> t.trim().toLowerCase())
+            .filter(t -> !t.isEmpty())
+            .collect(Collectors.toSet());
+    }
+
+    @Override
+    public boolean handlesType(String type) {
+        return type != null && nativeTypeSet.contains(type.toLowerCase());
+    }
+
+    @Override
+    public byte[] tessellate(Path swcPath) throws IOException {
+        long start = System.nanoTime();
+        SwcMorphology morphology = SwcReader.read(swcPath);
+        if (morphology.size() == 0) {
+            throw new IOException("SWC文件中没有有效节点");
+        }
+        long parsed = System.nanoTime();
+        MeshData mesh = SwcTessellator.tessellate(morphology, nativeSides, pool);
+        long meshed = System.nanoTime();
+        byte[] obj = ObjWriter.toBytes(mesh);
+        logger.info("本地建模完成: {} 节点 -> {} 顶点 / {} 三角形, 解析 {} ms, 网格 {} ms, 写OBJ {} ms",
+            morphology.size(), mesh.getVertexCount(), mesh.getTriangleCount(),
+            (parsed - start) / 1_000_000.0, (meshed - parsed) / 1_000_000.0, (System.nanoTime() - meshed) / 1_000_000.0);
+        return obj;
+    }
+
+    @Override
+    public byte[] meshFallback(Path swcPath) throws IOException {
+        long start = System.nanoTime();
+        SwcMorphology morphology = SwcReader.read(swcPath);
+        if (morphology.size() == 0) {
+            throw new IOException("SWC文件中没有有效节点");
+        }
+        MeshData mesh = TubeMesher.mesh(morphology, fallbackSides);
+        byte[] obj = ObjWriter.toBytes(mesh);
+        logger.info("本地降级建模完成: {} 节点 -> {} 顶点 / {} 三角形, 耗时 {} ms",
+            morphology.size(), mesh.getVertexCount(), mesh.getTriangleCount(), (System.nanoTime() - start) / 1_000_000.0);
+        return obj;
+    }
+}
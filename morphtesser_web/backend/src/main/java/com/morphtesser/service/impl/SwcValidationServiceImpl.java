@@ -0,0 +1,89 @@
+package com.morphtesser.service.impl;
+
+import com.morphtesser.service.SwcValidationService;
+import com.morphtesser.swc.SwcReader;
+import com.morphtesser.swc.SwcValidationReport;
+import com.morphtesser.swc.SwcValidator;
+import com.morphtesser.swc.SwcWriter;
+import com.morphtesser.util.FileCacheUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+@Service
+public class SwcValidationServiceImpl implements SwcValidationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SwcValidationServiceImpl.class);
+
+    @Value("${swc.validation.enabled:true}")
+    private boolean enabled;
+
+    // 半径为0、负数或非有限值时替换成的半径
+    @Value("${swc.validation.min-radius:0.1}")
+    private float minRadius;
+
+    // 允许自动挂接的孤立子树数，超过时拒绝
+    @Value("${swc.validation.max-subtrees:200}")
+    private int maxSubtrees;
+
+    @Value("${swc.validation.max-nodes:5000000}")
+    private int maxNodes;
+
+    @Override
+    public SwcValidationReport validateFile(Path swcPath) throws IOException {
+        if (!enabled) {
+            return null;
+        }
+        SwcValidator.Result result = SwcValidator.validate(SwcReader.read(swcPath, true), minRadius, maxSubtrees, maxNodes);
+        SwcValidationReport report = result.getReport();
+        if (report.isRejected()) {
+            logger.warn("SWC校验未通过: {}, {}", swcPath, report.getRejectReason());
+            return report;
+        }
+        if (report.isRepaired()) {
+            // 保留原文件的注释行（来源、缩放、重建信息等），修复说明写在其后
+            byte[] comments = commentLines(swcPath);
+            FileCacheUtils.writeAtomically(swcPath, out -> {
+                out.write(comments);
+                SwcWriter.write(result.getMorphology(), out, header(report));
+            });
+            logger.info("SWC已修复: {}, {}", swcPath, report.toMap());
+        }
+        return report;
+    }
+
+    /**
+     * 原文件中的所有注释行（# 开头，前面可有空白），按字节原样保留、换行统一为 \n
+     */
+    private static byte[] commentLines(Path swcPath) throws IOException {
+        ByteArrayOutputStream comments = new ByteArrayOutputStream();
+        try (BufferedReader reader = Files.newBufferedReader(swcPath, StandardCharsets.ISO_8859_1)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.stripLeading().startsWith("#")) {
+                    comments.write(line.getBytes(StandardCharsets.ISO_8859_1));
+                    comments.write('\n');
+                }
+            }
+        }
+        return comments.toByteArray();
+    }
+
+    private static String header(SwcValidationReport report) {
+        return "repaired by morphtesser: duplicateIds=" + report.getDuplicateIds()
+            + " missingParents=" + report.getMissingParents()
+            + " cyclesBroken=" + report.getCyclesBroken()
+            + " subtreesReattached=" + report.getSubtreesReattached()
+            + " radiiClamped=" + report.getRadiiClamped()
+            + " somaInferred=" + report.isSomaInferred()
+            + " malformedLines=" + report.getMalformedLines().size();
+    }
+}
@@ -0,0 +1,199 @@
+package com.morphtesser.swc;
+
+import java.util.Arrays;
+
+/**
+ * 神经元的 dotprops 表示（点 + 局部切向量），用于 NBLAST 式形态相似度
+ * <p>
+ * 骨架每段按 step 等分，取各小段中点作为采样点；每个点的切向量为其 k 个最近采样点（含自身）坐标协方差的
+ * 主特征向量（以所在段方向为初值做幂迭代）。采样点按 k-d 树顺序存放，切向量随之重排，查询时直接用下标取切向量。
+ * <p>
+ * 相似度 {@link #score}：对查询的每个点找目标中最近的点，距离 d、切向量夹角余弦绝对值 |dot|，
+ * 得分为 sqrt(|dot| * exp(-d² / (2σ²)))，总分除以查询点数，完全重合时为 1。
+ * 距离超过 cutoff 的点得分视为 0，由此可跳过包围盒相距超过 cutoff 的神经元对，也让最近邻查询提前剪枝。
+ */
+public final class Dotprops {
+
+    private static final int POWER_ITERATIONS = 8;
+
+    private final int size;
+    private final float[] points;
+    private final float[] tangents;
+    private final KdTree tree;
+    private final float[] bounds;
+
+    private Dotprops(int size, float[] points, float[] tangents, KdTree tree, float[] bounds) {
+        this.size = size;
+        this.points = points;
+        this.tangents = tangents;
+        this.tree = tree;
+        this.bounds = bounds;
+    }
+
+    /**
+     * @param step 采样间隔（与SWC坐标同单位）
+     * @param k    估计切向量使用的近邻点数
+     */
+    public static Dotprops of(SwcMorphology m, double step, int k) {
+        int n = 0;
+        for (int i = 0; i < m.size(); i++) {
+            int p = m.parent(i);
+            if (p >= 0) {
+                n += pieces(m, i, p, step);
+            }
+        }
+        float[] points = new float[n * 3];
+        float[] directions = new float[n * 3];
+        int c = 0;
+        for (int i = 0; i < m.size(); i++) {
+            int p = m.parent(i);
+            if (p < 0) {
+                continue;
+            }
+            int count = pieces(m, i, p, step);
+            float dx = m.x(i) - m.x(p), dy = m.y(i) - m.y(p), dz = m.z(i) - m.z(p);
+            float length = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+            for (int s = 0; s < count; s++) {
+                float t = (s + 0.5f) / count;
+                points[3 * c] = m.x(p) + dx * t;
+                points[3 * c + 1] = m.y(p) + dy * t;
+                points[3 * c + 2] = m.z(p) + dz * t;
+                directions[3 * c] = length > 0 ? dx / length : 1;
+                directions[3 * c + 1] = length > 0 ? dy / length : 0;
+                directions[3 * c + 2] = length > 0 ? dz / length : 0;
+                c++;
+            }
+        }
+
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        KdTree tree = KdTree.build(points, order, n);
+        float[] tangents = new float[n * 3];
+        KdTree.Search search = new KdTree.Search();
+        float[] cov = new float[6];
+        for (int i = 0; i < n; i++) {
+            int found = tree.nearest(points[3 * i], points[3 * i + 1], points[3 * i + 2], k, search);
+            covariance(points, search, found, cov);
+            principalAxis(cov, directions, order[i], tangents, i);
+        }
+
+        float[] bounds = {Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY,
+            Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY};
+        for (int i = 0; i < n; i++) {
+            for (int a = 0; a < 3; a++) {
+                bounds[a] = Math.min(bounds[a], points[3 * i + a]);
+                bounds[a + 3] = Math.max(bounds[a + 3], points[3 * i + a]);
+            }
+        }
+        return new Dotprops(n, points, tangents, tree, bounds);
+    }
+
+    private static int pieces(SwcMorphology m, int i, int p, double step) {
+        float dx = m.x(i) - m.x(p), dy = m.y(i) - m.y(p), dz = m.z(i) - m.z(p);
+        double length = Math.sqrt(dx * dx + dy * dy + dz * dz);
+        return length > 0 ? (int) Math.max(1, Math.ceil(length / step)) : 0;
+    }
+
+    // 近邻点坐标的协方差（上三角 xx, yy, zz, xy, xz, yz）
+    private static void covariance(float[] points, KdTree.Search search, int found, float[] cov) {
+        float mx = 0, my = 0, mz = 0;
+        for (int r = 0; r < found; r++) {
+            int j = search.index(r);
+            mx += points[3 * j];
+            my += points[3 * j + 1];
+            mz += points[3 * j + 2];
+        }
+        mx /= found;
+        my /= found;
+        mz /= found;
+        Arrays.fill(cov, 0f);
+        for (int r = 0; r < found; r++) {
+            int j = search.index(r);
+            float dx = points[3 * j] - mx, dy = points[3 * j + 1] - my, dz = points[3 * j + 2] - mz;
+            cov[0] += dx * dx;
+            cov[1] += dy * dy;
+            cov[2] += dz * dz;
+            cov[3] += dx * dy;
+            cov[4] += dx * dz;
+            cov[5] += dy * dz;
+        }
+    }
+
+    // 幂迭代求主特征向量；近邻点共点等退化情况下保留段方向
+    private static void principalAxis(float[] cov, float[] directions, int source, float[] tangents, int i) {
+        float x = directions[3 * source], y = directions[3 * source + 1], z = directions[3 * source + 2];
+        for (int it = 0; it < POWER_ITERATIONS; it++) {
+            float nx = cov[0] * x + cov[3] * y + cov[4] * z;
+            float ny = cov[3] * x + cov[1] * y + cov[5] * z;
+            float nz = cov[4] * x + cov[5] * y + cov[2] * z;
+            float length = (float) Math.sqrt(nx * nx + ny * ny + nz * nz);
+            if (!(length > 1e-12f)) {
+                break;
+            }
+            x = nx / length;
+            y = ny / length;
+            z = nz / length;
+        }
+        tangents[3 * i] = x;
+        tangents[3 * i + 1] = y;
+        tangents[3 * i + 2] = z;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public float[] bounds() {
+        return bounds;
+    }
+
+    public long memoryBytes() {
+        return (long) size * 25;
+    }
+
+    /**
+     * 两个包围盒之间的最短距离超过 cutoff 时，本神经元对 target 的得分为 0
+     */
+    public boolean isSeparated(Dotprops target, double cutoff) {
+        double d2 = 0;
+        for (int a = 0; a < 3; a++) {
+            double gap = Math.max(0, Math.max(bounds[a] - target.bounds[a + 3], target.bounds[a] - bounds[a + 3]));
+            d2 += gap * gap;
+        }
+        return d2 > cutoff * cutoff;
+    }
+
+    /**
+     * 以本神经元为查询、target 为目标的归一化得分（0..1）
+     *
+     * @param sigma  距离衰减尺度
+     * @param cutoff 距离截断，超过时该点得分为 0
+     * @param search 当前线程的查询状态
+     */
+    public double score(Dotprops target, double sigma, double cutoff, KdTree.Search search) {
+        if (size == 0 || target.size == 0 || isSeparated(target, cutoff)) {
+            return 0;
+        }
+        float maxDistance2 = (float) (cutoff * cutoff);
+        float[] tb = target.bounds;
+        double inverse = 1 / (2 * sigma * sigma);
+        double total = 0;
+        for (int i = 0; i < size; i++) {
+            float x = points[3 * i], y = points[3 * i + 1], z = points[3 * i + 2];
+            // 离目标包围盒已超过 cutoff 的点无需查询
+            float gx = Math.max(0, Math.max(tb[0] - x, x - tb[3]));
+            float gy = Math.max(0, Math.max(tb[1] - y, y - tb[4]));
+            float gz = Math.max(0, Math.max(tb[2] - z, z - tb[5]));
+            if (gx * gx + gy * gy + gz * gz >= maxDistance2 || !target.tree.nearest(x, y, z, maxDistance2, search)) {
+                continue;
+            }
+            int j = search.index(0);
+            double dot = Math.abs(tangents[3 * i] * target.tangents[3 * j] + tangents[3 * i + 1] * target.tangents[3 * j + 1]
+                + tangents[3 * i + 2] * target.tangents[3 * j + 2]);
+            total += Math.sqrt(dot * Math.exp(-search.distance2(0) * inverse));
+        }
+        return total / size;
+    }
+}
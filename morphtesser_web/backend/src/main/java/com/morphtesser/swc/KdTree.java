@@ -0,0 +1,218 @@
+package com.morphtesser.swc;
+
+/**
+ * 三维点的静态k-d树（隐式存储），用于点云最近邻查询
+ * <p>
+ * 建树时把点原地重排：区间 [lo, hi) 的中位数位置 (lo + hi) / 2 即为该子树的根，左右两半分别为左右子树，
+ * 不需要额外的节点数组；每个根只记录划分轴（取区间内跨度最大的轴，适合细长的神经突起）。
+ * 建成后只读，可被多个线程同时查询，每个线程使用自己的 {@link Search}。
+ */
+public final class KdTree {
+
+    // 区间不超过该点数时直接逐个比较
+    private static final int LEAF_SIZE = 8;
+
+    private final int size;
+    private final float[] points;
+    private final byte[] axis;
+
+    private KdTree(int size, float[] points, byte[] axis) {
+        this.size = size;
+        this.points = points;
+        this.axis = axis;
+    }
+
+    /**
+     * 按 k-d 顺序重排 points（每点 3 个数）与 order，order 初始为 0..n-1 时结果即新位置对应的原下标
+     */
+    public static KdTree build(float[] points, int[] order, int n) {
+        byte[] axis = new byte[n];
+        build(points, order, axis, 0, n);
+        return new KdTree(n, points, axis);
+    }
+
+    private static void build(float[] p, int[] order, byte[] axis, int lo, int hi) {
+        while (hi - lo > LEAF_SIZE) {
+            int a = widestAxis(p, lo, hi);
+            int mid = (lo + hi) >>> 1;
+            select(p, order, lo, hi - 1, mid, a);
+            axis[mid] = (byte) a;
+            // 递归左半，循环处理右半
+            build(p, order, axis, lo, mid);
+            lo = mid + 1;
+        }
+    }
+
+    private static int widestAxis(float[] p, int lo, int hi) {
+        float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY, minZ = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY, maxZ = Float.NEGATIVE_INFINITY;
+        for (int i = lo; i < hi; i++) {
+            minX = Math.min(minX, p[3 * i]);
+            maxX = Math.max(maxX, p[3 * i]);
+            minY = Math.min(minY, p[3 * i + 1]);
+            maxY = Math.max(maxY, p[3 * i + 1]);
+            minZ = Math.min(minZ, p[3 * i + 2]);
+            maxZ = Math.max(maxZ, p[3 * i + 2]);
+        }
+        float dx = maxX - minX, dy = maxY - minY, dz = maxZ - minZ;
+        return dx >= dy && dx >= dz ? 0 : dy >= dz ? 1 : 2;
+    }
+
+    /**
+     * 快速选择：使 [lo, hi] 中第 k 个位置为该轴上的中位数，左侧不大于它、右侧不小于它
+     */
+    private static void select(float[] p, int[] order, int lo, int hi, int k, int a) {
+        while (hi > lo) {
+            float pivot = p[3 * ((lo + hi) >>> 1) + a];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (p[3 * i + a] < pivot) {
+                    i++;
+                }
+                while (p[3 * j + a] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(p, order, i++, j--);
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private static void swap(float[] p, int[] order, int i, int j) {
+        for (int c = 0; c < 3; c++) {
+            float t = p[3 * i + c];
+            p[3 * i + c] = p[3 * j + c];
+            p[3 * j + c] = t;
+        }
+        int t = order[i];
+        order[i] = order[j];
+        order[j] = t;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 离 (x, y, z) 最近且距离平方小于 maxDistance2 的点（k-d 顺序下标），结果存入 search
+     *
+     * @return 找到时为 true
+     */
+    public boolean nearest(float x, float y, float z, float maxDistance2, Search search) {
+        search.reset(1, maxDistance2);
+        if (size > 0) {
+            search(x, y, z, 0, size, search);
+        }
+        return search.count > 0;
+    }
+
+    /**
+     * 离 (x, y, z) 最近的 k 个点（含距离为 0 的点），按距离从小到大存入 search
+     *
+     * @return 找到的点数
+     */
+    public int nearest(float x, float y, float z, int k, Search search) {
+        search.reset(k, Float.POSITIVE_INFINITY);
+        if (size > 0) {
+            search(x, y, z, 0, size, search);
+        }
+        return search.count;
+    }
+
+    private void search(float x, float y, float z, int lo, int hi, Search s) {
+        while (hi - lo > LEAF_SIZE) {
+            int mid = (lo + hi) >>> 1;
+            int a = axis[mid];
+            float d = (a == 0 ? x : a == 1 ? y : z) - points[3 * mid + a];
+            s.offer(mid, distance2(x, y, z, mid));
+            // 先进入查询点所在一侧，另一侧只有在划分面比当前第 k 近更近时才需要检查
+            if (d < 0) {
+                search(x, y, z, lo, mid, s);
+                if (d * d >= s.bound()) {
+                    return;
+                }
+                lo = mid + 1;
+            } else {
+                search(x, y, z, mid + 1, hi, s);
+                if (d * d >= s.bound()) {
+                    return;
+                }
+                hi = mid;
+            }
+        }
+        for (int i = lo; i < hi; i++) {
+            s.offer(i, distance2(x, y, z, i));
+        }
+    }
+
+    private float distance2(float x, float y, float z, int i) {
+        float dx = points[3 * i] - x;
+        float dy = points[3 * i + 1] - y;
+        float dz = points[3 * i + 2] - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * 单个线程的查询状态：当前最近的 k 个点（按距离从小到大），可重复使用
+     */
+    public static final class Search {
+        private int[] index = new int[1];
+        private float[] distance2 = new float[1];
+        private int k;
+        private int count;
+        private float limit;
+
+        void reset(int k, float maxDistance2) {
+            if (index.length < k) {
+                index = new int[k];
+                distance2 = new float[k];
+            }
+            this.k = k;
+            this.count = 0;
+            this.limit = maxDistance2;
+        }
+
+        float bound() {
+            return count < k ? limit : distance2[k - 1];
+        }
+
+        void offer(int i, float d2) {
+            if (d2 >= bound()) {
+                return;
+            }
+            int pos = Math.min(count, k - 1);
+            while (pos > 0 && distance2[pos - 1] > d2) {
+                index[pos] = index[pos - 1];
+                distance2[pos] = distance2[pos - 1];
+                pos--;
+            }
+            index[pos] = i;
+            distance2[pos] = d2;
+            if (count < k) {
+                count++;
+            }
+        }
+
+        public int count() {
+            return count;
+        }
+
+        /** 第 r 近的点在 k-d 顺序下的下标 */
+        public int index(int r) {
+            return index[r];
+        }
+
+        public float distance2(int r) {
+            return distance2[r];
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.morphtesser.swc;
+
+import java.util.Arrays;
+
+/**
+ * 定长形态特征向量，用于相似神经元检索（见 {@link FeatureMatrix}）
+ * <p>
+ * 包含长度/面积/体积、分支统计、Sholl曲线摘要与整体几何形状。跨越多个数量级的量（长度、节点数等）取 log1p，
+ * Sholl采样半径与峰值位置按最远节点距离归一化，使特征描述形状而不是绝对大小；
+ * 整体形状用节点坐标协方差的三个主轴标准差表示，与神经元在图谱中的朝向无关。
+ * 各维度量纲不同，检索前由 {@link FeatureMatrix} 按数据集做标准化。
+ */
+public final class MorphologyFeatures {
+
+    /** Sholl曲线采样点数（最远节点距离的 1/8 .. 8/8） */
+    public static final int SHOLL_SAMPLES = 8;
+
+    private static final int SHOLL_BINS = 64;
+
+    public static final String[] NAMES = {
+        "totalLength", "surfaceArea", "volume", "nodeCount",
+        "branchPoints", "tips", "stems", "branches", "meanBranchLength",
+        "maxPathDistance", "maxEuclideanDistance", "pathTortuosity", "maxStrahlerOrder", "maxBranchOrder",
+        "principalMajor", "principalMiddle", "principalMinor", "boundingVolume",
+        "shollPeak", "shollPeakRadius", "shollMean",
+        "sholl1", "sholl2", "sholl3", "sholl4", "sholl5", "sholl6", "sholl7", "sholl8",
+    };
+
+    public static final int DIMENSION = NAMES.length;
+
+    private MorphologyFeatures() {
+    }
+
+    public static float[] compute(SwcMorphology m) {
+        float[] v = new float[DIMENSION];
+        if (m.size() == 0) {
+            return v;
+        }
+        SwcTree tree = SwcTree.of(m);
+        Morphometrics stats = MorphometricsCalculator.compute(tree);
+        int branches = tree.branches(false).count();
+        int k = 0;
+        v[k++] = log(stats.getTotalLength());
+        v[k++] = log(stats.getSurfaceArea());
+        v[k++] = log(stats.getVolume());
+        v[k++] = log(stats.getNodeCount());
+        v[k++] = log(stats.getBranchPoints());
+        v[k++] = log(stats.getTips());
+        v[k++] = stats.getStems();
+        v[k++] = log(branches);
+        v[k++] = log(branches > 0 ? stats.getTotalLength() / branches : 0);
+        v[k++] = log(stats.getMaxPathDistance());
+        v[k++] = log(stats.getMaxEuclideanDistance());
+        v[k++] = stats.getMaxEuclideanDistance() > 0
+            ? (float) (stats.getMaxPathDistance() / stats.getMaxEuclideanDistance()) : 1;
+        v[k++] = stats.getMaxStrahlerOrder();
+        v[k++] = stats.getMaxBranchOrder();
+
+        double[] axes = principalDeviations(m);
+        v[k++] = log(axes[0]);
+        v[k++] = log(axes[1]);
+        v[k++] = log(axes[2]);
+        v[k++] = log((stats.getMaxX() - stats.getMinX()) * (stats.getMaxY() - stats.getMinY())
+            * (stats.getMaxZ() - stats.getMinZ()));
+
+        // Sholl曲线：64 个等间距球覆盖到最远节点，取峰值、峰值位置、均值与 8 个采样点
+        double reach = stats.getMaxEuclideanDistance();
+        if (reach > 0) {
+            double step = reach / SHOLL_BINS;
+            ShollProfile profile = ShollAnalysis.compute(m, step, step, reach, SHOLL_BINS + 1);
+            int peak = 0;
+            long sum = 0;
+            for (int b = 0; b < profile.size(); b++) {
+                sum += profile.intersections(b);
+                if (profile.intersections(b) > profile.intersections(peak)) {
+                    peak = b;
+                }
+            }
+            v[k++] = log(profile.size() > 0 ? profile.intersections(peak) : 0);
+            v[k++] = profile.size() > 0 ? (float) (profile.radius(peak) / reach) : 0;
+            v[k++] = log(profile.size() > 0 ? (double) sum / profile.size() : 0);
+            for (int s = 1; s <= SHOLL_SAMPLES; s++) {
+                int b = s * SHOLL_BINS / SHOLL_SAMPLES - 1;
+                v[k++] = log(b < profile.size() ? profile.intersections(b) : 0);
+            }
+        }
+        return v;
+    }
+
+    private static float log(double value) {
+        return (float) Math.log1p(Math.max(0, value));
+    }
+
+    /**
+     * 节点坐标协方差矩阵的特征值开方（从大到小），即三个主轴方向上的标准差
+     */
+    private static double[] principalDeviations(SwcMorphology m) {
+        int n = m.size();
+        double mx = 0, my = 0, mz = 0;
+        for (int i = 0; i < n; i++) {
+            mx += m.x(i);
+            my += m.y(i);
+            mz += m.z(i);
+        }
+        mx /= n;
+        my /= n;
+        mz /= n;
+        double xx = 0, yy = 0, zz = 0, xy = 0, xz = 0, yz = 0;
+        for (int i = 0; i < n; i++) {
+            double dx = m.x(i) - mx, dy = m.y(i) - my, dz = m.z(i) - mz;
+            xx += dx * dx;
+            yy += dy * dy;
+            zz += dz * dz;
+            xy += dx * dy;
+            xz += dx * dz;
+            yz += dy * dz;
+        }
+        double[] e = symmetricEigenvalues(xx / n, yy / n, zz / n, xy / n, xz / n, yz / n);
+        return new double[]{Math.sqrt(Math.max(0, e[0])), Math.sqrt(Math.max(0, e[1])), Math.sqrt(Math.max(0, e[2]))};
+    }
+
+    /**
+     * 3x3 对称矩阵的特征值（从大到小），三角函数解析解
+     */
+    private static double[] symmetricEigenvalues(double a, double b, double c, double d, double e, double f) {
+        double p1 = d * d + e * e + f * f;
+        if (p1 == 0) {
+            double[] diag = {a, b, c};
+            Arrays.sort(diag);
+            return new double[]{diag[2], diag[1], diag[0]};
+        }
+        double q = (a + b + c) / 3;
+        double p2 = (a - q) * (a - q) + (b - q) * (b - q) + (c - q) * (c - q) + 2 * p1;
+        double p = Math.sqrt(p2 / 6);
+        // B = (A - qI) / p，r = det(B) / 2
+        double ba = (a - q) / p, bb = (b - q) / p, bc = (c - q) / p, bd = d / p, be = e / p, bf = f / p;
+        double r = (ba * (bb * bc - bf * bf) - bd * (bd * bc - bf * be) + be * (bd * bf - bb * be)) / 2;
+        double phi = r <= -1 ? Math.PI / 3 : r >= 1 ? 0 : Math.acos(r) / 3;
+        double e1 = q + 2 * p * Math.cos(phi);
+        double e3 = q + 2 * p * Math.cos(phi + 2 * Math.PI / 3);
+        return new double[]{e1, 3 * q - e1 - e3, e3};
+    }
+}
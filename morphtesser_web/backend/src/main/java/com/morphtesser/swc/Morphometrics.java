@@ -0,0 +1,113 @@
+package com.morphtesser.swc;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 单个神经元的形态学统计量（长度单位与SWC坐标一致，通常为微米）
+ */
+public class Morphometrics {
+
+    int nodeCount;
+    double totalLength;
+    double surfaceArea;
+    double volume;
+    int branchPoints;
+    int tips;
+    int stems;
+    double maxPathDistance;
+    double maxEuclideanDistance;
+    int maxStrahlerOrder;
+    int maxBranchOrder;
+    double minX;
+    double minY;
+    double minZ;
+    double maxX;
+    double maxY;
+    double maxZ;
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public double getTotalLength() {
+        return totalLength;
+    }
+
+    public double getSurfaceArea() {
+        return surfaceArea;
+    }
+
+    public double getVolume() {
+        return volume;
+    }
+
+    public int getBranchPoints() {
+        return branchPoints;
+    }
+
+    public int getTips() {
+        return tips;
+    }
+
+    public int getStems() {
+        return stems;
+    }
+
+    public double getMaxPathDistance() {
+        return maxPathDistance;
+    }
+
+    public double getMaxEuclideanDistance() {
+        return maxEuclideanDistance;
+    }
+
+    public int getMaxStrahlerOrder() {
+        return maxStrahlerOrder;
+    }
+
+    public int getMaxBranchOrder() {
+        return maxBranchOrder;
+    }
+
+    public double getMinX() {
+        return minX;
+    }
+
+    public double getMinY() {
+        return minY;
+    }
+
+    public double getMinZ() {
+        return minZ;
+    }
+
+    public double getMaxX() {
+        return maxX;
+    }
+
+    public double getMaxY() {
+        return maxY;
+    }
+
+    public double getMaxZ() {
+        return maxZ;
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("nodeCount", nodeCount);
+        map.put("length", totalLength);
+        map.put("surfaceArea", surfaceArea);
+        map.put("volume", volume);
+        map.put("branchPoints", branchPoints);
+        map.put("tips", tips);
+        map.put("stems", stems);
+        map.put("maxPathDistance", maxPathDistance);
+        map.put("maxEuclideanDistance", maxEuclideanDistance);
+        map.put("maxStrahlerOrder", maxStrahlerOrder);
+        map.put("maxBranchOrder", maxBranchOrder);
+        map.put("boundingBox", new double[] {minX, minY, minZ, maxX, maxY, maxZ});
+        return map;
+    }
+}
@@ -0,0 +1,170 @@
+package com.morphtesser.swc;
+
+/**
+ * 形态学统计计算
+ * <p>
+ * 基于 {@link SwcTree} 的后序数组做顺序扫描：逆序扫描（根到叶）得到路径距离与分支级数，
+ * 正序扫描（叶到根）得到 Strahler 级数。不依赖节点在文件中的先后顺序，也不使用递归；
+ * 处于环中的节点不在遍历结果中，路径距离与级数统计时被忽略。
+ * <p>
+ * 段的表面积与体积按圆台计算；两端都是胞体的段不计入，每个胞体根节点（父节点不是胞体）按球体计入，
+ * 与 NeuroMorpho 三点胞体的约定一致。
+ */
+public final class MorphometricsCalculator {
+
+    private MorphometricsCalculator() {
+    }
+
+    public static Morphometrics compute(SwcMorphology m) {
+        return compute(SwcTree.of(m));
+    }
+
+    public static Morphometrics compute(SwcTree tree) {
+        SwcMorphology m = tree.morphology();
+        int n = m.size();
+        Morphometrics result = new Morphometrics();
+        result.nodeCount = n;
+        if (n == 0) {
+            return result;
+        }
+
+        // 后序：每个节点都排在其父节点之前
+        int[] order = tree.postOrder();
+        int count = order.length;
+
+        // 统计中心：第一个胞体节点，没有胞体时取第一个根节点
+        int center = -1;
+        for (int i = 0; i < n && center < 0; i++) {
+            if (m.isSoma(i)) {
+                center = i;
+            }
+        }
+        for (int i = 0; i < n && center < 0; i++) {
+            if (m.parent(i) < 0) {
+                center = i;
+            }
+        }
+        if (center < 0) {
+            center = 0;
+        }
+
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, minZ = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE, maxZ = -Double.MAX_VALUE;
+        double length = 0, area = 0, volume = 0, maxEuclid = 0;
+        int branchPoints = 0, tips = 0, stems = 0;
+        double cx = m.x(center), cy = m.y(center), cz = m.z(center);
+
+        for (int i = 0; i < n; i++) {
+            double x = m.x(i), y = m.y(i), z = m.z(i);
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            minZ = Math.min(minZ, z);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+            maxZ = Math.max(maxZ, z);
+            double ex = x - cx, ey = y - cy, ez = z - cz;
+            maxEuclid = Math.max(maxEuclid, Math.sqrt(ex * ex + ey * ey + ez * ez));
+
+            boolean soma = m.isSoma(i);
+            int p = m.parent(i);
+            if (!soma && tree.childCount(i) >= 2) {
+                branchPoints++;
+            }
+            if (tree.childCount(i) == 0 && p >= 0 && !soma) {
+                tips++;
+            }
+            if (p < 0) {
+                if (soma) {
+                    double r = m.radius(i);
+                    area += 4 * Math.PI * r * r;
+                    volume += 4.0 / 3.0 * Math.PI * r * r * r;
+                }
+                continue;
+            }
+            boolean parentSoma = m.isSoma(p);
+            if (soma && parentSoma) {
+                continue;
+            }
+            if (soma) {
+                // 胞体挂在非胞体节点下（少见），按胞体根处理
+                double r = m.radius(i);
+                area += 4 * Math.PI * r * r;
+                volume += 4.0 / 3.0 * Math.PI * r * r * r;
+                continue;
+            }
+            if (parentSoma) {
+                stems++;
+            }
+            double dx = x - m.x(p), dy = y - m.y(p), dz = z - m.z(p);
+            double h = Math.sqrt(dx * dx + dy * dy + dz * dz);
+            double r1 = m.radius(p);
+            double r2 = m.radius(i);
+            length += h;
+            area += Math.PI * (r1 + r2) * Math.sqrt(h * h + (r1 - r2) * (r1 - r2));
+            volume += Math.PI * h / 3.0 * (r1 * r1 + r1 * r2 + r2 * r2);
+        }
+        if (stems == 0) {
+            // 没有胞体时以根节点的子分支作为主干
+            for (int i = 0; i < n; i++) {
+                if (m.parent(i) < 0 && !m.isSoma(i)) {
+                    stems += tree.childCount(i);
+                }
+            }
+        }
+
+        // 根到叶：路径距离与分支级数（中心以外的分叉点每经过一个加一级）
+        double[] pathDistance = new double[n];
+        int[] branchOrder = new int[n];
+        double maxPath = 0;
+        int maxOrder = 0;
+        for (int k = count - 1; k >= 0; k--) {
+            int i = order[k];
+            int p = m.parent(i);
+            if (p < 0) {
+                continue;
+            }
+            double dx = m.x(i) - m.x(p), dy = m.y(i) - m.y(p), dz = m.z(i) - m.z(p);
+            pathDistance[i] = pathDistance[p] + Math.sqrt(dx * dx + dy * dy + dz * dz);
+            branchOrder[i] = branchOrder[p] + (tree.childCount(p) >= 2 && !m.isSoma(p) ? 1 : 0);
+            maxPath = Math.max(maxPath, pathDistance[i]);
+            maxOrder = Math.max(maxOrder, branchOrder[i]);
+        }
+
+        // 叶到根：Strahler 级数。叶子为1；多个子节点并列最大时加一，否则取最大值
+        int[] bestChild = new int[n];
+        int[] bestCount = new int[n];
+        int maxStrahler = 0;
+        for (int k = 0; k < count; k++) {
+            int i = order[k];
+            int strahler = tree.childCount(i) == 0 ? 1 : bestCount[i] >= 2 ? bestChild[i] + 1 : bestChild[i];
+            maxStrahler = Math.max(maxStrahler, strahler);
+            int p = m.parent(i);
+            if (p >= 0) {
+                if (strahler > bestChild[p]) {
+                    bestChild[p] = strahler;
+                    bestCount[p] = 1;
+                } else if (strahler == bestChild[p]) {
+                    bestCount[p]++;
+                }
+            }
+        }
+
+        result.totalLength = length;
+        result.surfaceArea = area;
+        result.volume = volume;
+        result.branchPoints = branchPoints;
+        result.tips = tips;
+        result.stems = stems;
+        result.maxPathDistance = maxPath;
+        result.maxEuclideanDistance = maxEuclid;
+        result.maxStrahlerOrder = maxStrahler;
+        result.maxBranchOrder = maxOrder;
+        result.minX = minX;
+        result.minY = minY;
+        result.minZ = minZ;
+        result.maxX = maxX;
+        result.maxY = maxY;
+        result.maxZ = maxZ;
+        return result;
+    }
+}
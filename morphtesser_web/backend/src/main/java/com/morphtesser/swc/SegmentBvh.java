@@ -0,0 +1,1292 @@
+package com.morphtesser.swc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SWC节点段的层次包围盒（BVH），支持最近段、射线拾取与区域（长方体/球）查询
+ * <p>
+ * 每个有父节点的节点 i 对应一段：从父节点到 i 的圆台胶囊（两端球体半径分别为两端节点半径，即两球的凸包），
+ * 根节点对应退化为单个球体的段，段编号即节点下标。
+ * 构建使用分箱SAH（每轴 {@link #BINS} 个箱，大区间只在最长轴上分箱），元素数超过 {@link #PARALLEL_THRESHOLD} 的子树在 fork/join 线程池中并行构建；
+ * 树深超过 {@link #MAX_SAH_DEPTH} 后改为按数量对半切分，保证深度有界。
+ * <p>
+ * 树与段数据都存放在扁平数组中：段按叶子顺序重排，每段 8 个 float（两端坐标与半径）；
+ * 树节点为 6 个 float 的包围盒加 first/count，count 为 0 时是内部节点，左右子节点为 first、first + 1。
+ * 构建后只读，查询线程安全。
+ * <p>
+ * {@link #contacts} 在两棵树上同时遍历（双树遍历），找出两个神经元之间指定类型的段距离小于阈值的位置。
+ */
+public final class SegmentBvh {
+
+    public static final int BINS = 16;
+    public static final int LEAF_SIZE = 4;
+
+    // SAH 代价不低于直接作为叶子时，元素数不超过该值的区间不再切分
+    private static final int MAX_LEAF_SIZE = 16;
+    private static final int PARALLEL_THRESHOLD = 8192;
+    // 元素数超过该值的区间只在重心跨度最大的轴上分箱，上层节点的构建时间减为约三分之一
+    private static final int SINGLE_AXIS_THRESHOLD = 4096;
+    private static final int MAX_SAH_DEPTH = 48;
+
+    private static final int SEGMENT_STRIDE = 8;
+
+    private final SwcMorphology morphology;
+    private final float[] segments;
+    private final int[] segmentNode;
+    private final float[] nodeBounds;
+    private final int[] nodeFirst;
+    private final int[] nodeCount;
+    private final int nodeTotal;
+    private final int depth;
+    // 各树节点子树内段的SWC类型位掩码，首次做接近点查询时计算
+    private volatile int[] typeMasks;
+
+    private SegmentBvh(SwcMorphology morphology, float[] segments, int[] segmentNode, float[] nodeBounds,
+                       int[] nodeFirst, int[] nodeCount, int nodeTotal, int depth) {
+        this.morphology = morphology;
+        this.segments = segments;
+        this.segmentNode = segmentNode;
+        this.nodeBounds = nodeBounds;
+        this.nodeFirst = nodeFirst;
+        this.nodeCount = nodeCount;
+        this.nodeTotal = nodeTotal;
+        this.depth = depth;
+    }
+
+    public static SegmentBvh build(SwcMorphology m) {
+        return build(m, ForkJoinPool.commonPool());
+    }
+
+    public static SegmentBvh build(SwcMorphology m, ForkJoinPool pool) {
+        int n = m.size();
+        float[] primBounds = new float[n * 6];
+        float[] centroids = new float[n * 3];
+        for (int i = 0; i < n; i++) {
+            int p = m.parent(i) >= 0 ? m.parent(i) : i;
+            float ra = Math.max(0f, m.radius(p));
+            float rb = Math.max(0f, m.radius(i));
+            primBounds[6 * i] = Math.min(m.x(p) - ra, m.x(i) - rb);
+            primBounds[6 * i + 1] = Math.min(m.y(p) - ra, m.y(i) - rb);
+            primBounds[6 * i + 2] = Math.min(m.z(p) - ra, m.z(i) - rb);
+            primBounds[6 * i + 3] = Math.max(m.x(p) + ra, m.x(i) + rb);
+            primBounds[6 * i + 4] = Math.max(m.y(p) + ra, m.y(i) + rb);
+            primBounds[6 * i + 5] = Math.max(m.z(p) + ra, m.z(i) + rb);
+            for (int c = 0; c < 3; c++) {
+                centroids[3 * i + c] = (primBounds[6 * i + c] + primBounds[6 * i + c + 3]) * 0.5f;
+            }
+        }
+        int[] prims = new int[n];
+        for (int i = 0; i < n; i++) {
+            prims[i] = i;
+        }
+
+        Builder builder = new Builder(primBounds, centroids, prims, Math.max(1, 2 * n - 1));
+        if (n > 0) {
+            builder.nodeCounter.set(1);
+            BuildTask root = new BuildTask(builder, 0, 0, n, 0, null, null);
+            if (n <= PARALLEL_THRESHOLD) {
+                root.compute();
+            } else {
+                pool.invoke(root);
+            }
+        }
+        int nodeTotal = builder.nodeCounter.get();
+
+        // 段数据按叶子顺序重排，叶子内的段在内存中连续
+        float[] segments = new float[n * SEGMENT_STRIDE];
+        for (int k = 0; k < n; k++) {
+            int i = prims[k];
+            int p = m.parent(i) >= 0 ? m.parent(i) : i;
+            int o = k * SEGMENT_STRIDE;
+            segments[o] = m.x(p);
+            segments[o + 1] = m.y(p);
+            segments[o + 2] = m.z(p);
+            segments[o + 3] = Math.max(0f, m.radius(p));
+            segments[o + 4] = m.x(i);
+            segments[o + 5] = m.y(i);
+            segments[o + 6] = m.z(i);
+            segments[o + 7] = Math.max(0f, m.radius(i));
+        }
+        return new SegmentBvh(m, segments, prims, Arrays.copyOf(builder.nodeBounds, nodeTotal * 6),
+            Arrays.copyOf(builder.nodeFirst, nodeTotal), Arrays.copyOf(builder.nodeCount, nodeTotal),
+            nodeTotal, builder.maxDepth.get());
+    }
+
+    private static final class Builder {
+        final float[] primBounds;
+        final float[] centroids;
+        final int[] prims;
+        final float[] nodeBounds;
+        final int[] nodeFirst;
+        final int[] nodeCount;
+        final AtomicInteger nodeCounter = new AtomicInteger();
+        final AtomicInteger maxDepth = new AtomicInteger();
+
+        Builder(float[] primBounds, float[] centroids, int[] prims, int capacity) {
+            this.primBounds = primBounds;
+            this.centroids = centroids;
+            this.prims = prims;
+            this.nodeBounds = new float[capacity * 6];
+            this.nodeFirst = new int[capacity];
+            this.nodeCount = new int[capacity];
+        }
+
+        /**
+         * 交换第 i、j 个元素：包围盒与重心随元素编号一起移动，划分后各区间的数据在内存中连续，扫描时顺序访问
+         */
+        void swap(int i, int j) {
+            int t = prims[i];
+            prims[i] = prims[j];
+            prims[j] = t;
+            for (int c = 0; c < 6; c++) {
+                float f = primBounds[6 * i + c];
+                primBounds[6 * i + c] = primBounds[6 * j + c];
+                primBounds[6 * j + c] = f;
+            }
+            for (int c = 0; c < 3; c++) {
+                float f = centroids[3 * i + c];
+                centroids[3 * i + c] = centroids[3 * j + c];
+                centroids[3 * j + c] = f;
+            }
+        }
+
+        /**
+         * 快速选择：使第 k 个元素为区间 [lo, hi] 内按重心坐标排序后的元素
+         */
+        void select(int axis, int lo, int hi, int k) {
+            while (lo < hi) {
+                float pivot = centroids[3 * ((lo + hi) >>> 1) + axis];
+                int i = lo;
+                int j = hi;
+                while (i <= j) {
+                    while (centroids[3 * i + axis] < pivot) {
+                        i++;
+                    }
+                    while (centroids[3 * j + axis] > pivot) {
+                        j--;
+                    }
+                    if (i <= j) {
+                        swap(i++, j--);
+                    }
+                }
+                if (k <= j) {
+                    hi = j;
+                } else if (k >= i) {
+                    lo = i;
+                } else {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 并行构建任务：子树的元素为 prims[start, end)，box/cbox 为已知的包围盒与重心包围盒（未知时为null）
+     */
+    private static final class BuildTask extends RecursiveAction {
+        private final Builder b;
+        private final int node;
+        private final int start;
+        private final int end;
+        private final int depth;
+        private final float[] box;
+        private final float[] cbox;
+
+        private BuildTask(Builder b, int node, int start, int end, int depth, float[] box, float[] cbox) {
+            this.b = b;
+            this.node = node;
+            this.start = start;
+            this.end = end;
+            this.depth = depth;
+            this.box = box;
+            this.cbox = cbox;
+        }
+
+        @Override
+        protected void compute() {
+            new Splitter(b).build(node, start, end, depth, box, cbox);
+        }
+    }
+
+    /**
+     * 单线程构建子树，分箱用的临时数组在子树内复用；子节点成对分配，各子树只写自己的区间与节点
+     */
+    private static final class Splitter {
+        private final Builder b;
+        private final int[] binCount = new int[3 * BINS];
+        private final float[] binBounds = new float[3 * BINS * 6];
+        private final float[] rightArea = new float[BINS];
+        private int bestAxis;
+        private int bestBin;
+        private float bestScale;
+
+        Splitter(Builder b) {
+            this.b = b;
+        }
+
+        void build(int node, int start, int end, int depth, float[] box, float[] cbox) {
+            // 较小的一侧递归（或并行），较大的一侧在循环中继续
+            while (true) {
+                if (box == null) {
+                    box = new float[6];
+                    cbox = new float[6];
+                    bounds(start, end, box, cbox);
+                }
+                System.arraycopy(box, 0, b.nodeBounds, node * 6, 6);
+                int count = end - start;
+                if (count <= LEAF_SIZE) {
+                    leaf(node, start, count, depth);
+                    return;
+                }
+
+                float[] leftBox = null;
+                float[] leftCbox = null;
+                float[] rightBox = null;
+                float[] rightCbox = null;
+                int mid;
+                if (depth >= MAX_SAH_DEPTH) {
+                    mid = medianSplit(start, end, cbox);
+                } else if (!findSplit(start, end, box, cbox)) {
+                    // 重心全部重合，无法按位置切分
+                    if (count <= MAX_LEAF_SIZE) {
+                        leaf(node, start, count, depth);
+                        return;
+                    }
+                    mid = (start + end) >>> 1;
+                } else if (bestAxis < 0) {
+                    leaf(node, start, count, depth);
+                    return;
+                } else {
+                    leftBox = new float[6];
+                    leftCbox = new float[6];
+                    rightBox = new float[6];
+                    rightCbox = new float[6];
+                    mid = partition(start, end, cbox, leftBox, leftCbox, rightBox, rightCbox);
+                    if (mid == start || mid == end) {
+                        mid = (start + end) >>> 1;
+                        leftBox = null;
+                        rightBox = null;
+                    }
+                }
+
+                int left = b.nodeCounter.getAndAdd(2);
+                b.nodeFirst[node] = left;
+                b.nodeCount[node] = 0;
+                if (count > PARALLEL_THRESHOLD) {
+                    ForkJoinTask.invokeAll(new BuildTask(b, left, start, mid, depth + 1, leftBox, leftCbox),
+                        new BuildTask(b, left + 1, mid, end, depth + 1, rightBox, rightCbox));
+                    return;
+                }
+                if (mid - start < end - mid) {
+                    build(left, start, mid, depth + 1, leftBox, leftCbox);
+                    node = left + 1;
+                    start = mid;
+                    box = rightBox;
+                    cbox = rightCbox;
+                } else {
+                    build(left + 1, mid, end, depth + 1, rightBox, rightCbox);
+                    node = left;
+                    end = mid;
+                    box = leftBox;
+                    cbox = leftCbox;
+                }
+                depth++;
+            }
+        }
+
+        private void leaf(int node, int start, int count, int depth) {
+            b.nodeFirst[node] = start;
+            b.nodeCount[node] = count;
+            b.maxDepth.accumulateAndGet(depth, Math::max);
+        }
+
+        /**
+         * 分箱SAH：统计每个箱的包围盒与元素数，扫描每轴 BINS - 1 个切分面。
+         * 没有可用切分面时返回 false；SAH代价不低于直接作为叶子时 bestAxis 为 -1
+         */
+        private boolean findSplit(int start, int end, float[] box, float[] cbox) {
+            int count = end - start;
+            int axes = 0;
+            float[] lo = new float[3];
+            float[] scale = new float[3];
+            int longest = longestAxis(cbox);
+            for (int axis = 0; axis < 3; axis++) {
+                float extent = cbox[axis + 3] - cbox[axis];
+                // 大区间只在重心跨度最大的轴上分箱
+                if (extent > 0 && (count <= SINGLE_AXIS_THRESHOLD || axis == longest)) {
+                    axes |= 1 << axis;
+                    lo[axis] = cbox[axis];
+                    scale[axis] = BINS / extent;
+                }
+            }
+            if (axes == 0) {
+                return false;
+            }
+            binAll(start, end, axes, lo, scale);
+
+            float bestCost = Float.POSITIVE_INFINITY;
+            bestAxis = -1;
+            bestBin = -1;
+            for (int axis = 0; axis < 3; axis++) {
+                if ((axes & (1 << axis)) == 0) {
+                    continue;
+                }
+                int base = axis * BINS;
+                float minX = Float.POSITIVE_INFINITY, minY = minX, minZ = minX;
+                float maxX = Float.NEGATIVE_INFINITY, maxY = maxX, maxZ = maxX;
+                for (int i = BINS - 1; i > 0; i--) {
+                    int o = 6 * (base + i);
+                    minX = Math.min(minX, binBounds[o]);
+                    minY = Math.min(minY, binBounds[o + 1]);
+                    minZ = Math.min(minZ, binBounds[o + 2]);
+                    maxX = Math.max(maxX, binBounds[o + 3]);
+                    maxY = Math.max(maxY, binBounds[o + 4]);
+                    maxZ = Math.max(maxZ, binBounds[o + 5]);
+                    rightArea[i] = area(maxX - minX, maxY - minY, maxZ - minZ);
+                }
+                minX = minY = minZ = Float.POSITIVE_INFINITY;
+                maxX = maxY = maxZ = Float.NEGATIVE_INFINITY;
+                int leftCount = 0;
+                for (int i = 0; i < BINS - 1; i++) {
+                    int o = 6 * (base + i);
+                    minX = Math.min(minX, binBounds[o]);
+                    minY = Math.min(minY, binBounds[o + 1]);
+                    minZ = Math.min(minZ, binBounds[o + 2]);
+                    maxX = Math.max(maxX, binBounds[o + 3]);
+                    maxY = Math.max(maxY, binBounds[o + 4]);
+                    maxZ = Math.max(maxZ, binBounds[o + 5]);
+                    leftCount += binCount[base + i];
+                    if (leftCount == 0 || leftCount == count) {
+                        continue;
+                    }
+                    float cost = area(maxX - minX, maxY - minY, maxZ - minZ) * leftCount
+                        + rightArea[i + 1] * (count - leftCount);
+                    if (cost < bestCost) {
+                        bestCost = cost;
+                        bestAxis = axis;
+                        bestBin = i;
+                    }
+                }
+            }
+            if (bestAxis < 0) {
+                return false;
+            }
+            bestScale = scale[bestAxis];
+            // 遍历代价记为 1，与求交代价相同
+            float splitCost = 1 + bestCost / Math.max(area(box[3] - box[0], box[4] - box[1], box[5] - box[2]), Float.MIN_NORMAL);
+            if (splitCost >= count && count <= MAX_LEAF_SIZE) {
+                bestAxis = -1;
+            }
+            return true;
+        }
+
+        /**
+         * 一次扫描同时为选中的各轴分箱，统计每箱的元素数与包围盒
+         */
+        private void binAll(int start, int end, int axes, float[] lo, float[] scale) {
+            float[] pb = b.primBounds;
+            float[] cen = b.centroids;
+            float[] bins = binBounds;
+            Arrays.fill(binCount, 0);
+            for (int i = 0; i < 3 * BINS; i++) {
+                Arrays.fill(bins, 6 * i, 6 * i + 3, Float.POSITIVE_INFINITY);
+                Arrays.fill(bins, 6 * i + 3, 6 * i + 6, Float.NEGATIVE_INFINITY);
+            }
+            for (int axis = 0; axis < 3; axis++) {
+                if ((axes & (1 << axis)) == 0) {
+                    continue;
+                }
+                // 单轴分箱时只扫描一遍；三轴时内层循环是同一段连续内存，第二、三遍命中缓存
+                float l = lo[axis];
+                float sc = scale[axis];
+                int base = axis * BINS;
+                for (int k = start; k < end; k++) {
+                    int bin = base + Math.min(BINS - 1, (int) ((cen[3 * k + axis] - l) * sc));
+                    binCount[bin]++;
+                    int o = 6 * bin;
+                    int p = 6 * k;
+                    if (pb[p] < bins[o]) bins[o] = pb[p];
+                    if (pb[p + 1] < bins[o + 1]) bins[o + 1] = pb[p + 1];
+                    if (pb[p + 2] < bins[o + 2]) bins[o + 2] = pb[p + 2];
+                    if (pb[p + 3] > bins[o + 3]) bins[o + 3] = pb[p + 3];
+                    if (pb[p + 4] > bins[o + 4]) bins[o + 4] = pb[p + 4];
+                    if (pb[p + 5] > bins[o + 5]) bins[o + 5] = pb[p + 5];
+                }
+            }
+        }
+
+        /**
+         * 箱号不超过 bestBin 的元素移到左侧，同时统计两侧的包围盒与重心包围盒，返回切分位置
+         */
+        private int partition(int start, int end, float[] cbox, float[] leftBox, float[] leftCbox,
+                              float[] rightBox, float[] rightCbox) {
+            float[] cen = b.centroids;
+            int axis = bestAxis;
+            float lo = cbox[axis];
+            float scale = bestScale;
+            resetBounds(leftBox, leftCbox);
+            resetBounds(rightBox, rightCbox);
+            int i = start;
+            int j = end - 1;
+            while (i <= j) {
+                if (Math.min(BINS - 1, (int) ((cen[3 * i + axis] - lo) * scale)) <= bestBin) {
+                    grow(i++, leftBox, leftCbox);
+                } else {
+                    b.swap(i, j);
+                    grow(j--, rightBox, rightCbox);
+                }
+            }
+            return i;
+        }
+
+        private void grow(int k, float[] box, float[] cbox) {
+            float[] pb = b.primBounds;
+            float[] cen = b.centroids;
+            int p = 6 * k;
+            for (int c = 0; c < 3; c++) {
+                if (pb[p + c] < box[c]) box[c] = pb[p + c];
+                if (pb[p + c + 3] > box[c + 3]) box[c + 3] = pb[p + c + 3];
+                float v = cen[3 * k + c];
+                if (v < cbox[c]) cbox[c] = v;
+                if (v > cbox[c + 3]) cbox[c + 3] = v;
+            }
+        }
+
+        /**
+         * 区间内元素的包围盒与重心包围盒
+         */
+        private void bounds(int start, int end, float[] box, float[] cbox) {
+            resetBounds(box, cbox);
+            for (int k = start; k < end; k++) {
+                grow(k, box, cbox);
+            }
+        }
+
+        /**
+         * 沿重心跨度最大的轴取中位数切分
+         */
+        private int medianSplit(int start, int end, float[] cbox) {
+            int mid = (start + end) >>> 1;
+            b.select(longestAxis(cbox), start, end - 1, mid);
+            return mid;
+        }
+    }
+
+    private static void resetBounds(float[] box, float[] cbox) {
+        Arrays.fill(box, 0, 3, Float.POSITIVE_INFINITY);
+        Arrays.fill(box, 3, 6, Float.NEGATIVE_INFINITY);
+        Arrays.fill(cbox, 0, 3, Float.POSITIVE_INFINITY);
+        Arrays.fill(cbox, 3, 6, Float.NEGATIVE_INFINITY);
+    }
+
+    private static int longestAxis(float[] box) {
+        int axis = 0;
+        for (int c = 1; c < 3; c++) {
+            if (box[c + 3] - box[c] > box[axis + 3] - box[axis]) {
+                axis = c;
+            }
+        }
+        return axis;
+    }
+
+    private static float area(float dx, float dy, float dz) {
+        return dx < 0 ? 0 : dx * dy + dy * dz + dz * dx;
+    }
+
+    public SwcMorphology morphology() {
+        return morphology;
+    }
+
+    /** 段数（等于节点数） */
+    public int segmentCount() {
+        return segmentNode.length;
+    }
+
+    public int nodeCount() {
+        return nodeTotal;
+    }
+
+    public int depth() {
+        return depth;
+    }
+
+    /** 占用的数组字节数 */
+    public long memoryBytes() {
+        int[] masks = typeMasks;
+        return 4L * (segments.length + segmentNode.length + nodeBounds.length + nodeFirst.length + nodeCount.length
+            + (masks != null ? masks.length : 0));
+    }
+
+    /**
+     * 查询结果中的一段
+     */
+    public static final class Hit {
+        private final int node;
+        private final int parent;
+        private final double distance;
+        private final double t;
+        private final double x;
+        private final double y;
+        private final double z;
+
+        Hit(int node, int parent, double distance, double t, double x, double y, double z) {
+            this.node = node;
+            this.parent = parent;
+            this.distance = distance;
+            this.t = t;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+
+        /** 段末端节点下标（段为 父节点 -> 该节点） */
+        public int getNode() {
+            return node;
+        }
+
+        /** 段起点节点下标，根节点段为 -1 */
+        public int getParent() {
+            return parent;
+        }
+
+        /** 最近段查询：到段表面的距离（在段内为负）；射线查询：射线参数（到入射点的距离） */
+        public double getDistance() {
+            return distance;
+        }
+
+        /** 对应点在段轴线上的位置，0 为起点、1 为末端 */
+        public double getT() {
+            return t;
+        }
+
+        public double getX() {
+            return x;
+        }
+
+        public double getY() {
+            return y;
+        }
+
+        public double getZ() {
+            return z;
+        }
+    }
+
+    /**
+     * 区域查询结果：与区域相交的段，以及段轴线落在区域内的长度之和
+     */
+    public static final class Region {
+        private final int[] nodes;
+        private final double cableLength;
+
+        Region(int[] nodes, double cableLength) {
+            this.nodes = nodes;
+            this.cableLength = cableLength;
+        }
+
+        /** 相交段的末端节点下标，按叶子顺序 */
+        public int[] getNodes() {
+            return nodes;
+        }
+
+        public double getCableLength() {
+            return cableLength;
+        }
+    }
+
+    /**
+     * 两个神经元之间的一处接近点：本神经元的一段与另一神经元的一段
+     */
+    public static final class Contact {
+        private final int node;
+        private final int otherNode;
+        private final double distance;
+        private final double x;
+        private final double y;
+        private final double z;
+        private final double otherX;
+        private final double otherY;
+        private final double otherZ;
+
+        Contact(int node, int otherNode, double distance, double x, double y, double z,
+                double otherX, double otherY, double otherZ) {
+            this.node = node;
+            this.otherNode = otherNode;
+            this.distance = distance;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.otherX = otherX;
+            this.otherY = otherY;
+            this.otherZ = otherZ;
+        }
+
+        /** 本神经元中该段的末端节点下标 */
+        public int getNode() {
+            return node;
+        }
+
+        /** 另一神经元中该段的末端节点下标 */
+        public int getOtherNode() {
+            return otherNode;
+        }
+
+        /** 两段表面之间的距离，重叠时为负 */
+        public double getDistance() {
+            return distance;
+        }
+
+        /** 本神经元段轴线上的最近点 */
+        public double getX() {
+            return x;
+        }
+
+        public double getY() {
+            return y;
+        }
+
+        public double getZ() {
+            return z;
+        }
+
+        /** 另一神经元段轴线上的最近点 */
+        public double getOtherX() {
+            return otherX;
+        }
+
+        public double getOtherY() {
+            return otherY;
+        }
+
+        public double getOtherZ() {
+            return otherZ;
+        }
+    }
+
+    private int[] newStack() {
+        return new int[depth + 2];
+    }
+
+    /**
+     * 离点最近的段
+     *
+     * @param maxDistance 只查找表面距离小于该值的段
+     * @return 没有时返回null
+     */
+    public Hit nearest(double px, double py, double pz, double maxDistance) {
+        if (nodeTotal == 0) {
+            return null;
+        }
+        double best = maxDistance;
+        int bestSegment = -1;
+        int[] stack = newStack();
+        int sp = 0;
+        stack[sp++] = 0;
+        while (sp > 0) {
+            int node = stack[--sp];
+            if (pruneNearest(boxDistance2(node, px, py, pz), best)) {
+                continue;
+            }
+            int count = nodeCount[node];
+            int first = nodeFirst[node];
+            if (count > 0) {
+                for (int k = first; k < first + count; k++) {
+                    double d = roundConeDistance(k, px, py, pz);
+                    if (d < best) {
+                        best = d;
+                        bestSegment = k;
+                    }
+                }
+                continue;
+            }
+            // 近的子节点后入栈、先出栈
+            double dl = boxDistance2(first, px, py, pz);
+            double dr = boxDistance2(first + 1, px, py, pz);
+            if (dl < dr) {
+                stack[sp++] = first + 1;
+                stack[sp++] = first;
+            } else {
+                stack[sp++] = first;
+                stack[sp++] = first + 1;
+            }
+        }
+        if (bestSegment < 0) {
+            return null;
+        }
+        double t = axisParameter(bestSegment, px, py, pz);
+        return hit(bestSegment, best, t, point(bestSegment, t, 0), point(bestSegment, t, 1), point(bestSegment, t, 2));
+    }
+
+    /**
+     * 包围盒内没有比当前最优更近的段：点在段外时表面距离不小于到包围盒的距离；
+     * 已找到包含该点的段（最优为负）时，只需要继续检查包含该点的包围盒
+     */
+    private static boolean pruneNearest(double boxDistance2, double best) {
+        return best >= 0 ? boxDistance2 >= best * best : boxDistance2 > 0;
+    }
+
+    /**
+     * 射线与段表面的第一个交点
+     *
+     * @param maxDistance 射线长度上限
+     * @return 没有相交时返回null；射线起点在段内时不计该段
+     */
+    public Hit raycast(double ox, double oy, double oz, double dx, double dy, double dz, double maxDistance) {
+        double length = Math.sqrt(dx * dx + dy * dy + dz * dz);
+        if (nodeTotal == 0 || !(length > 0)) {
+            return null;
+        }
+        dx /= length;
+        dy /= length;
+        dz /= length;
+        double ix = 1 / dx;
+        double iy = 1 / dy;
+        double iz = 1 / dz;
+        double best = maxDistance;
+        int bestSegment = -1;
+        int[] stack = newStack();
+        int sp = 0;
+        stack[sp++] = 0;
+        while (sp > 0) {
+            int node = stack[--sp];
+            if (slab(node, ox, oy, oz, ix, iy, iz, best) == Double.POSITIVE_INFINITY) {
+                continue;
+            }
+            int count = nodeCount[node];
+            int first = nodeFirst[node];
+            if (count > 0) {
+                for (int k = first; k < first + count; k++) {
+                    double t = roundConeIntersect(k, ox, oy, oz, dx, dy, dz);
+                    // 起点在段内时得到的是出射点，不计该段
+                    if (t >= 0 && t < best && roundConeDistance(k, ox, oy, oz) >= 0) {
+                        best = t;
+                        bestSegment = k;
+                    }
+                }
+                continue;
+            }
+            double tl = slab(first, ox, oy, oz, ix, iy, iz, best);
+            double tr = slab(first + 1, ox, oy, oz, ix, iy, iz, best);
+            if (tl < tr) {
+                if (tr != Double.POSITIVE_INFINITY) {
+                    stack[sp++] = first + 1;
+                }
+                stack[sp++] = first;
+            } else {
+                if (tl != Double.POSITIVE_INFINITY) {
+                    stack[sp++] = first;
+                }
+                if (tr != Double.POSITIVE_INFINITY) {
+                    stack[sp++] = first + 1;
+                }
+            }
+        }
+        if (bestSegment < 0) {
+            return null;
+        }
+        double hx = ox + dx * best;
+        double hy = oy + dy * best;
+        double hz = oz + dz * best;
+        return hit(bestSegment, best, axisParameter(bestSegment, hx, hy, hz), hx, hy, hz);
+    }
+
+    /**
+     * 轴线穿过长方体的段
+     *
+     * @param box [minX, minY, minZ, maxX, maxY, maxZ]
+     */
+    public Region queryBox(double[] box) {
+        IntList found = new IntList();
+        double cable = 0;
+        int[] stack = newStack();
+        int sp = 0;
+        if (nodeTotal > 0) {
+            stack[sp++] = 0;
+        }
+        while (sp > 0) {
+            int node = stack[--sp];
+            int o = node * 6;
+            if (nodeBounds[o] > box[3] || nodeBounds[o + 3] < box[0]
+                    || nodeBounds[o + 1] > box[4] || nodeBounds[o + 4] < box[1]
+                    || nodeBounds[o + 2] > box[5] || nodeBounds[o + 5] < box[2]) {
+                continue;
+            }
+            int count = nodeCount[node];
+            int first = nodeFirst[node];
+            if (count == 0) {
+                stack[sp++] = first;
+                stack[sp++] = first + 1;
+                continue;
+            }
+            for (int k = first; k < first + count; k++) {
+                double inside = clipBox(k, box);
+                if (inside >= 0) {
+                    found.add(segmentNode[k]);
+                    cable += inside;
+                }
+            }
+        }
+        return new Region(found.toArray(), cable);
+    }
+
+    /**
+     * 轴线穿过球体的段
+     */
+    public Region querySphere(double cx, double cy, double cz, double radius) {
+        IntList found = new IntList();
+        double cable = 0;
+        double r2 = radius * radius;
+        int[] stack = newStack();
+        int sp = 0;
+        if (nodeTotal > 0) {
+            stack[sp++] = 0;
+        }
+        while (sp > 0) {
+            int node = stack[--sp];
+            if (boxDistance2(node, cx, cy, cz) > r2) {
+                continue;
+            }
+            int count = nodeCount[node];
+            int first = nodeFirst[node];
+            if (count == 0) {
+                stack[sp++] = first;
+                stack[sp++] = first + 1;
+                continue;
+            }
+            for (int k = first; k < first + count; k++) {
+                double inside = clipSphere(k, cx, cy, cz, r2);
+                if (inside >= 0) {
+                    found.add(segmentNode[k]);
+                    cable += inside;
+                }
+            }
+        }
+        return new Region(found.toArray(), cable);
+    }
+
+    /**
+     * SWC类型对应的位，类型 31 及以上都对应第 31 位
+     */
+    public static int typeBit(int type) {
+        return type < 0 ? 0 : 1 << Math.min(type, 31);
+    }
+
+    /**
+     * 本神经元中类型属于 types 的段与 other 中类型属于 otherTypes 的段之间，表面距离不超过 maxDistance 的所有段对
+     * <p>
+     * 两棵树同时向下遍历：一对树节点的包围盒间距超过 maxDistance，或子树中没有所需类型的段时整体跳过，
+     * 否则拆开包围盒较大的一侧。表面距离取两段轴线的最近距离减去两段在最近点处的半径（按两端半径线性插值）。
+     *
+     * @param types      SWC类型的位掩码（见 {@link #typeBit}），如轴突为 typeBit(2)
+     * @param otherTypes other 中段类型的位掩码
+     */
+    public List<Contact> contacts(SegmentBvh other, double maxDistance, int types, int otherTypes) {
+        List<Contact> found = new ArrayList<>();
+        if (nodeTotal == 0 || other.nodeTotal == 0) {
+            return found;
+        }
+        int[] masks = typeMasks();
+        int[] otherMasks = other.typeMasks();
+        double max2 = maxDistance * maxDistance;
+        double[] st = new double[2];
+        int[] stack = new int[2 * (depth + other.depth + 4)];
+        int sp = 0;
+        stack[sp++] = 0;
+        stack[sp++] = 0;
+        while (sp > 0) {
+            int b = stack[--sp];
+            int a = stack[--sp];
+            if ((masks[a] & types) == 0 || (otherMasks[b] & otherTypes) == 0 || boxGap2(a, other, b) > max2) {
+                continue;
+            }
+            int countA = nodeCount[a];
+            int countB = other.nodeCount[b];
+            if (countA > 0 && countB > 0) {
+                int firstA = nodeFirst[a];
+                int firstB = other.nodeFirst[b];
+                for (int k = firstA; k < firstA + countA; k++) {
+                    if ((typeBit(morphology.type(segmentNode[k])) & types) == 0) {
+                        continue;
+                    }
+                    for (int m = firstB; m < firstB + countB; m++) {
+                        if ((typeBit(other.morphology.type(other.segmentNode[m])) & otherTypes) == 0) {
+                            continue;
+                        }
+                        closestAxisPoints(segments, k * SEGMENT_STRIDE, other.segments, m * SEGMENT_STRIDE, st);
+                        double d = surfaceDistance(other, k, m, st[0], st[1]);
+                        if (d <= maxDistance) {
+                            found.add(new Contact(segmentNode[k], other.segmentNode[m], d,
+                                point(k, st[0], 0), point(k, st[0], 1), point(k, st[0], 2),
+                                other.point(m, st[1], 0), other.point(m, st[1], 1), other.point(m, st[1], 2)));
+                        }
+                    }
+                }
+                continue;
+            }
+            if (sp + 4 > stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+            }
+            // 叶子不能再拆；都是内部节点时拆开包围盒较大的一侧
+            if (countB > 0 || (countA == 0 && halfArea(a) >= other.halfArea(b))) {
+                int first = nodeFirst[a];
+                stack[sp++] = first;
+                stack[sp++] = b;
+                stack[sp++] = first + 1;
+                stack[sp++] = b;
+            } else {
+                int first = other.nodeFirst[b];
+                stack[sp++] = a;
+                stack[sp++] = first;
+                stack[sp++] = a;
+                stack[sp++] = first + 1;
+            }
+        }
+        return found;
+    }
+
+    private int[] typeMasks() {
+        int[] masks = typeMasks;
+        if (masks == null) {
+            masks = new int[nodeTotal];
+            // 子节点编号总是大于父节点，倒序即自底向上
+            for (int node = nodeTotal - 1; node >= 0; node--) {
+                int first = nodeFirst[node];
+                int count = nodeCount[node];
+                if (count == 0) {
+                    masks[node] = masks[first] | masks[first + 1];
+                    continue;
+                }
+                for (int k = first; k < first + count; k++) {
+                    masks[node] |= typeBit(morphology.type(segmentNode[k]));
+                }
+            }
+            typeMasks = masks;
+        }
+        return masks;
+    }
+
+    private double boxGap2(int a, SegmentBvh other, int b) {
+        int oa = a * 6;
+        int ob = b * 6;
+        double d2 = 0;
+        for (int c = 0; c < 3; c++) {
+            double gap = Math.max(0, Math.max(nodeBounds[oa + c] - other.nodeBounds[ob + c + 3],
+                other.nodeBounds[ob + c] - nodeBounds[oa + c + 3]));
+            d2 += gap * gap;
+        }
+        return d2;
+    }
+
+    private float halfArea(int node) {
+        int o = node * 6;
+        return area(nodeBounds[o + 3] - nodeBounds[o], nodeBounds[o + 4] - nodeBounds[o + 1], nodeBounds[o + 5] - nodeBounds[o + 2]);
+    }
+
+    /**
+     * 两段轴线上最近的一对点，参数（0 为起点、1 为末端）存入 st（Ericson《Real-Time Collision Detection》5.1.9）
+     */
+    private static void closestAxisPoints(float[] sa, int oa, float[] sb, int ob, double[] st) {
+        double d1x = sa[oa + 4] - sa[oa], d1y = sa[oa + 5] - sa[oa + 1], d1z = sa[oa + 6] - sa[oa + 2];
+        double d2x = sb[ob + 4] - sb[ob], d2y = sb[ob + 5] - sb[ob + 1], d2z = sb[ob + 6] - sb[ob + 2];
+        double rx = sa[oa] - sb[ob], ry = sa[oa + 1] - sb[ob + 1], rz = sa[oa + 2] - sb[ob + 2];
+        double a = d1x * d1x + d1y * d1y + d1z * d1z;
+        double e = d2x * d2x + d2y * d2y + d2z * d2z;
+        double f = d2x * rx + d2y * ry + d2z * rz;
+        double s;
+        double t;
+        if (a == 0 && e == 0) {
+            s = 0;
+            t = 0;
+        } else if (a == 0) {
+            s = 0;
+            t = clamp01(f / e);
+        } else {
+            double c = d1x * rx + d1y * ry + d1z * rz;
+            if (e == 0) {
+                t = 0;
+                s = clamp01(-c / a);
+            } else {
+                double b = d1x * d2x + d1y * d2y + d1z * d2z;
+                double denominator = a * e - b * b;
+                // 平行时任取起点
+                s = denominator > 0 ? clamp01((b * f - c * e) / denominator) : 0;
+                t = (b * s + f) / e;
+                if (t < 0) {
+                    t = 0;
+                    s = clamp01(-c / a);
+                } else if (t > 1) {
+                    t = 1;
+                    s = clamp01((b - c) / a);
+                }
+            }
+        }
+        st[0] = s;
+        st[1] = t;
+    }
+
+    private double surfaceDistance(SegmentBvh other, int k, int m, double s, double t) {
+        double dx = point(k, s, 0) - other.point(m, t, 0);
+        double dy = point(k, s, 1) - other.point(m, t, 1);
+        double dz = point(k, s, 2) - other.point(m, t, 2);
+        int oa = k * SEGMENT_STRIDE;
+        int ob = m * SEGMENT_STRIDE;
+        double ra = segments[oa + 3] + (segments[oa + 7] - segments[oa + 3]) * s;
+        double rb = other.segments[ob + 3] + (other.segments[ob + 7] - other.segments[ob + 3]) * t;
+        return Math.sqrt(dx * dx + dy * dy + dz * dz) - ra - rb;
+    }
+
+    private static double clamp01(double v) {
+        return Math.max(0, Math.min(1, v));
+    }
+
+    private Hit hit(int segment, double distance, double t, double x, double y, double z) {
+        int node = segmentNode[segment];
+        return new Hit(node, morphology.parent(node), distance, t, x, y, z);
+    }
+
+    private double point(int k, double t, int c) {
+        int o = k * SEGMENT_STRIDE;
+        return segments[o + c] + (segments[o + 4 + c] - segments[o + c]) * t;
+    }
+
+    private double axisParameter(int k, double px, double py, double pz) {
+        int o = k * SEGMENT_STRIDE;
+        double bx = segments[o + 4] - segments[o];
+        double by = segments[o + 5] - segments[o + 1];
+        double bz = segments[o + 6] - segments[o + 2];
+        double l2 = bx * bx + by * by + bz * bz;
+        if (l2 == 0) {
+            return 0;
+        }
+        double t = ((px - segments[o]) * bx + (py - segments[o + 1]) * by + (pz - segments[o + 2]) * bz) / l2;
+        return Math.max(0, Math.min(1, t));
+    }
+
+    private double boxDistance2(int node, double px, double py, double pz) {
+        int o = node * 6;
+        double dx = Math.max(0, Math.max(nodeBounds[o] - px, px - nodeBounds[o + 3]));
+        double dy = Math.max(0, Math.max(nodeBounds[o + 1] - py, py - nodeBounds[o + 4]));
+        double dz = Math.max(0, Math.max(nodeBounds[o + 2] - pz, pz - nodeBounds[o + 5]));
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * 射线进入包围盒的参数，不相交或超过 maxT 时返回正无穷
+     */
+    private double slab(int node, double ox, double oy, double oz, double ix, double iy, double iz, double maxT) {
+        int o = node * 6;
+        double t1 = (nodeBounds[o] - ox) * ix;
+        double t2 = (nodeBounds[o + 3] - ox) * ix;
+        double tmin = Math.min(t1, t2);
+        double tmax = Math.max(t1, t2);
+        t1 = (nodeBounds[o + 1] - oy) * iy;
+        t2 = (nodeBounds[o + 4] - oy) * iy;
+        tmin = Math.max(tmin, Math.min(t1, t2));
+        tmax = Math.min(tmax, Math.max(t1, t2));
+        t1 = (nodeBounds[o + 2] - oz) * iz;
+        t2 = (nodeBounds[o + 5] - oz) * iz;
+        tmin = Math.max(tmin, Math.min(t1, t2));
+        tmax = Math.min(tmax, Math.max(t1, t2));
+        // 方向分量为 0 且起点在板外时得到 NaN，按不相交处理
+        if (!(tmax >= Math.max(tmin, 0)) || tmin > maxT) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return Math.max(tmin, 0);
+    }
+
+    /**
+     * 点到圆台胶囊（两球凸包）表面的有符号距离（Inigo Quilez 的 sdRoundCone）
+     */
+    private double roundConeDistance(int k, double px, double py, double pz) {
+        int o = k * SEGMENT_STRIDE;
+        double ax = segments[o], ay = segments[o + 1], az = segments[o + 2], r1 = segments[o + 3];
+        double bx = segments[o + 4] - ax, by = segments[o + 5] - ay, bz = segments[o + 6] - az, r2 = segments[o + 7];
+        double qx = px - ax, qy = py - ay, qz = pz - az;
+        double l2 = bx * bx + by * by + bz * bz;
+        double rr = r1 - r2;
+        double a2 = l2 - rr * rr;
+        if (a2 <= 0) {
+            // 一个球包含另一个球（含退化段），距离即到较大球的距离
+            if (r1 >= r2) {
+                return Math.sqrt(qx * qx + qy * qy + qz * qz) - r1;
+            }
+            double ex = px - segments[o + 4], ey = py - segments[o + 5], ez = pz - segments[o + 6];
+            return Math.sqrt(ex * ex + ey * ey + ez * ez) - r2;
+        }
+        double il2 = 1 / l2;
+        double y = qx * bx + qy * by + qz * bz;
+        double z = y - l2;
+        double wx = qx * l2 - bx * y, wy = qy * l2 - by * y, wz = qz * l2 - bz * y;
+        double x2 = wx * wx + wy * wy + wz * wz;
+        double y2 = y * y * l2;
+        double z2 = z * z * l2;
+        double kk = Math.signum(rr) * rr * rr * x2;
+        if (Math.signum(z) * a2 * z2 > kk) {
+            return Math.sqrt(x2 + z2) * il2 - r2;
+        }
+        if (Math.signum(y) * a2 * y2 < kk) {
+            return Math.sqrt(x2 + y2) * il2 - r1;
+        }
+        return (Math.sqrt(x2 * a2 * il2) + y * rr) * il2 - r1;
+    }
+
+    /**
+     * 单位方向射线与圆台胶囊的第一个交点参数（Inigo Quilez 的 roundedCone 求交），不相交返回 -1
+     */
+    private double roundConeIntersect(int k, double ox, double oy, double oz, double dx, double dy, double dz) {
+        int o = k * SEGMENT_STRIDE;
+        double ax = segments[o], ay = segments[o + 1], az = segments[o + 2], ra = segments[o + 3];
+        double px = segments[o + 4], py = segments[o + 5], pz = segments[o + 6], rb = segments[o + 7];
+        double bax = px - ax, bay = py - ay, baz = pz - az;
+        double oax = ox - ax, oay = oy - ay, oaz = oz - az;
+        double obx = ox - px, oby = oy - py, obz = oz - pz;
+        double rr = ra - rb;
+        double m0 = bax * bax + bay * bay + baz * baz;
+        double m3 = dx * oax + dy * oay + dz * oaz;
+        double m5 = oax * oax + oay * oay + oaz * oaz;
+        double m6 = obx * dx + oby * dy + obz * dz;
+        double m7 = obx * obx + oby * oby + obz * obz;
+        double d2 = m0 - rr * rr;
+        if (d2 <= 0) {
+            // 一个球包含另一个球：只与较大的球求交
+            return ra >= rb ? sphereIntersect(m3, m5, ra) : sphereIntersect(m6, m7, rb);
+        }
+        double m1 = bax * oax + bay * oay + baz * oaz;
+        double m2 = bax * dx + bay * dy + baz * dz;
+        // 圆锥面
+        double k2 = d2 - m2 * m2;
+        double k1 = d2 * m3 - m1 * m2 + m2 * rr * ra;
+        double k0 = d2 * m5 - m1 * m1 + m1 * rr * ra * 2 - m0 * ra * ra;
+        double h = k1 * k1 - k0 * k2;
+        if (h < 0) {
+            return -1;
+        }
+        // 起点在形体外时，入射点是所有落在表面上的交点中最近的一个：
+        // 圆锥面上两个根（射线比圆锥陡时近根不一定在前）只取落在两球切线之间的部分，再与两端球面比较
+        double t = Double.POSITIVE_INFINITY;
+        if (k2 != 0) {
+            double sq = Math.sqrt(h);
+            for (int s = -1; s <= 1; s += 2) {
+                double tc = (s * sq - k1) / k2;
+                double y = m1 - ra * rr + tc * m2;
+                if (y > 0 && y < d2 && tc >= 0) {
+                    t = Math.min(t, tc);
+                }
+            }
+        }
+        double ta = sphereIntersect(m3, m5, ra);
+        if (ta >= 0) {
+            t = Math.min(t, ta);
+        }
+        double tb = sphereIntersect(m6, m7, rb);
+        if (tb >= 0) {
+            t = Math.min(t, tb);
+        }
+        return t == Double.POSITIVE_INFINITY ? -1 : t;
+    }
+
+    /**
+     * 射线与球面的入射参数：b 为 dot(d, o - c)，c 为 |o - c|²；起点在球内或不相交时返回 -1
+     */
+    private static double sphereIntersect(double b, double c, double r) {
+        double h = b * b - c + r * r;
+        if (h < 0) {
+            return -1;
+        }
+        double t = -b - Math.sqrt(h);
+        return t >= 0 ? t : -1;
+    }
+
+    /**
+     * 段轴线在长方体内的长度，不相交时返回 -1（退化段在长方体内时返回 0）
+     */
+    private double clipBox(int k, double[] box) {
+        int o = k * SEGMENT_STRIDE;
+        double t0 = 0;
+        double t1 = 1;
+        double length2 = 0;
+        for (int c = 0; c < 3; c++) {
+            double a = segments[o + c];
+            double d = segments[o + 4 + c] - a;
+            length2 += d * d;
+            if (d == 0) {
+                if (a < box[c] || a > box[c + 3]) {
+                    return -1;
+                }
+                continue;
+            }
+            double ta = (box[c] - a) / d;
+            double tb = (box[c + 3] - a) / d;
+            t0 = Math.max(t0, Math.min(ta, tb));
+            t1 = Math.min(t1, Math.max(ta, tb));
+            if (t0 > t1) {
+                return -1;
+            }
+        }
+        return (t1 - t0) * Math.sqrt(length2);
+    }
+
+    /**
+     * 段轴线在球内的长度，不相交时返回 -1
+     */
+    private double clipSphere(int k, double cx, double cy, double cz, double r2) {
+        int o = k * SEGMENT_STRIDE;
+        double ax = segments[o] - cx, ay = segments[o + 1] - cy, az = segments[o + 2] - cz;
+        double dx = segments[o + 4] - segments[o];
+        double dy = segments[o + 5] - segments[o + 1];
+        double dz = segments[o + 6] - segments[o + 2];
+        double a = dx * dx + dy * dy + dz * dz;
+        double c = ax * ax + ay * ay + az * az - r2;
+        if (a == 0) {
+            return c <= 0 ? 0 : -1;
+        }
+        double b = ax * dx + ay * dy + az * dz;
+        double h = b * b - a * c;
+        if (h < 0) {
+            return -1;
+        }
+        double sq = Math.sqrt(h);
+        double t0 = Math.max(0, (-b - sq) / a);
+        double t1 = Math.min(1, (-b + sq) / a);
+        return t0 > t1 ? -1 : (t1 - t0) * Math.sqrt(a);
+    }
+
+    /**
+     * 可增长的 int 数组
+     */
+    private static final class IntList {
+        private int[] data = new int[64];
+        private int size;
+
+        void add(int v) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            data[size++] = v;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+
+    /**
+     * 结构统计，用于日志与接口返回
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("segments", segmentCount());
+        map.put("bvhNodes", nodeTotal);
+        map.put("depth", depth);
+        map.put("memoryBytes", memoryBytes());
+        return map;
+    }
+}
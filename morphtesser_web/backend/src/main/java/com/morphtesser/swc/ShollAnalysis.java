@@ -0,0 +1,86 @@
+package com.morphtesser.swc;
+
+/**
+ * Sholl分析
+ * <p>
+ * 以胞体节点的质心（没有胞体时取第一个根节点）为中心。每个段按两端点到中心的距离得到区间 (lo, hi]，
+ * 与半径落在该区间内的所有同心球相交；区间端点换算成球编号后写入差分数组，最后做一次前缀和，
+ * 总代价为 O(段数 + 球数)，与区间长度无关。两端都是胞体的段不计入。
+ */
+public final class ShollAnalysis {
+
+    private ShollAnalysis() {
+    }
+
+    /**
+     * @param start 第一个球的半径
+     * @param step  相邻球的半径间隔，必须大于0
+     * @param end   最后一个球的半径上限；不大于 start 时取离中心最远节点的距离
+     * @param maxBins 球数上限，超出时截断
+     */
+    public static ShollProfile compute(SwcMorphology m, double start, double step, double end, int maxBins) {
+        if (!(step > 0)) {
+            throw new IllegalArgumentException("step 必须大于 0");
+        }
+        int n = m.size();
+        double cx = 0, cy = 0, cz = 0;
+        int somaCount = 0;
+        for (int i = 0; i < n; i++) {
+            if (m.isSoma(i)) {
+                cx += m.x(i);
+                cy += m.y(i);
+                cz += m.z(i);
+                somaCount++;
+            }
+        }
+        if (somaCount > 0) {
+            cx /= somaCount;
+            cy /= somaCount;
+            cz /= somaCount;
+        } else {
+            for (int i = 0; i < n; i++) {
+                if (m.parent(i) < 0) {
+                    cx = m.x(i);
+                    cy = m.y(i);
+                    cz = m.z(i);
+                    break;
+                }
+            }
+        }
+
+        double[] distance = new double[n];
+        double maxDistance = 0;
+        for (int i = 0; i < n; i++) {
+            double dx = m.x(i) - cx, dy = m.y(i) - cy, dz = m.z(i) - cz;
+            distance[i] = Math.sqrt(dx * dx + dy * dy + dz * dz);
+            maxDistance = Math.max(maxDistance, distance[i]);
+        }
+        double last = end > start ? end : maxDistance;
+        long bins = last < start ? 0 : (long) Math.floor((last - start) / step) + 1;
+        int count = (int) Math.min(bins, Math.max(maxBins, 0));
+
+        int[] diff = new int[count + 1];
+        for (int i = 0; i < n && count > 0; i++) {
+            int p = m.parent(i);
+            if (p < 0 || (m.isSoma(i) && m.isSoma(p))) {
+                continue;
+            }
+            double lo = Math.min(distance[i], distance[p]);
+            double hi = Math.max(distance[i], distance[p]);
+            // 与半径 r 相交当且仅当 lo < r <= hi
+            long first = Math.max(0, (long) Math.floor((lo - start) / step) + 1);
+            long lastBin = Math.min(count - 1, (long) Math.floor((hi - start) / step));
+            if (first <= lastBin) {
+                diff[(int) first]++;
+                diff[(int) lastBin + 1]--;
+            }
+        }
+        int[] intersections = new int[count];
+        int running = 0;
+        for (int k = 0; k < count; k++) {
+            running += diff[k];
+            intersections[k] = running;
+        }
+        return new ShollProfile(cx, cy, cz, start, step, intersections);
+    }
+}
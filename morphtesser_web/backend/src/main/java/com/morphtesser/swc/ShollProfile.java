@@ -0,0 +1,71 @@
+package com.morphtesser.swc;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Sholl曲线：第 k 个同心球半径为 start + k * step，intersections[k] 为与该球面相交的段数
+ */
+public class ShollProfile {
+
+    private final double centerX;
+    private final double centerY;
+    private final double centerZ;
+    private final double start;
+    private final double step;
+    private final int[] intersections;
+
+    public ShollProfile(double centerX, double centerY, double centerZ, double start, double step, int[] intersections) {
+        this.centerX = centerX;
+        this.centerY = centerY;
+        this.centerZ = centerZ;
+        this.start = start;
+        this.step = step;
+        this.intersections = intersections;
+    }
+
+    public double getStart() {
+        return start;
+    }
+
+    public double getStep() {
+        return step;
+    }
+
+    public int size() {
+        return intersections.length;
+    }
+
+    public double radius(int k) {
+        return start + k * step;
+    }
+
+    public int intersections(int k) {
+        return intersections[k];
+    }
+
+    public Map<String, Object> toMap() {
+        double[] radii = new double[intersections.length];
+        int max = 0;
+        double criticalRadius = 0;
+        long total = 0;
+        for (int k = 0; k < intersections.length; k++) {
+            radii[k] = radius(k);
+            total += intersections[k];
+            if (intersections[k] > max) {
+                max = intersections[k];
+                criticalRadius = radii[k];
+            }
+        }
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("center", new double[] {centerX, centerY, centerZ});
+        map.put("start", start);
+        map.put("step", step);
+        map.put("radii", radii);
+        map.put("intersections", intersections);
+        map.put("maxIntersections", max);
+        map.put("criticalRadius", criticalRadius);
+        map.put("totalIntersections", total);
+        return map;
+    }
+}
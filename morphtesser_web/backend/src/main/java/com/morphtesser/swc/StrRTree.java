@@ -0,0 +1,252 @@
+package com.morphtesser.swc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 静态包围盒R树，STR（Sort-Tile-Recursive）批量装载，用于数据集级的神经元包围盒检索。
+ * <p>
+ * 每层按中心点先沿 x 切成竖片、片内沿 y 切条、条内沿 z 排序，再按 {@link #NODE_CAPACITY} 个一组打包成上一层节点，
+ * 直到只剩根节点；节点几乎全满且相邻节点重叠很少。所有层的节点按自底向上顺序存放在扁平数组中，
+ * 下标小于 leafCount 的节点为叶节点，其子项是元素，其余节点的子项是下一层节点；同一节点的子项连续存放。
+ * 建成后不可修改，元素变化时整体重建（10万个元素单核约 0.25 秒）。
+ */
+public final class StrRTree {
+
+    public static final int NODE_CAPACITY = 16;
+
+    private final int size;
+    private final int[] items;
+    private final float[] itemBounds;
+    private final float[] nodeBounds;
+    private final int[] nodeFirst;
+    private final int[] nodeCount;
+    private final int leafCount;
+    private final int height;
+
+    private StrRTree(int size, int[] items, float[] itemBounds, float[] nodeBounds, int[] nodeFirst, int[] nodeCount,
+                     int leafCount, int height) {
+        this.size = size;
+        this.items = items;
+        this.itemBounds = itemBounds;
+        this.nodeBounds = nodeBounds;
+        this.nodeFirst = nodeFirst;
+        this.nodeCount = nodeCount;
+        this.leafCount = leafCount;
+        this.height = height;
+    }
+
+    /**
+     * @param bounds 每个元素 6 个数 [minX, minY, minZ, maxX, maxY, maxZ]，元素编号为其在数组中的序号
+     * @param n      元素个数
+     */
+    public static StrRTree build(float[] bounds, int n) {
+        if (n == 0) {
+            return new StrRTree(0, new int[0], new float[0], new float[0], new int[0], new int[0], 0, 0);
+        }
+        // 叶层：元素按STR顺序排列
+        int[] order = strOrder(bounds, n);
+        int[] items = new int[n];
+        float[] itemBounds = new float[n * 6];
+        for (int k = 0; k < n; k++) {
+            items[k] = order[k];
+            System.arraycopy(bounds, order[k] * 6, itemBounds, k * 6, 6);
+        }
+
+        List<float[]> levelBounds = new ArrayList<>();
+        List<int[]> levelFirst = new ArrayList<>();
+        List<int[]> levelCount = new ArrayList<>();
+        float[] childBounds = itemBounds;
+        int children = n;
+        while (true) {
+            int m = (children + NODE_CAPACITY - 1) / NODE_CAPACITY;
+            float[] boxes = new float[m * 6];
+            int[] first = new int[m];
+            int[] count = new int[m];
+            for (int j = 0; j < m; j++) {
+                first[j] = j * NODE_CAPACITY;
+                count[j] = Math.min(NODE_CAPACITY, children - first[j]);
+                union(childBounds, first[j], count[j], boxes, j);
+            }
+            if (m == 1) {
+                levelBounds.add(boxes);
+                levelFirst.add(first);
+                levelCount.add(count);
+                break;
+            }
+            // 本层节点按STR重排后再打包，子项范围随节点一起移动
+            int[] nodeOrder = strOrder(boxes, m);
+            float[] sortedBounds = new float[m * 6];
+            int[] sortedFirst = new int[m];
+            int[] sortedCount = new int[m];
+            for (int k = 0; k < m; k++) {
+                int j = nodeOrder[k];
+                System.arraycopy(boxes, j * 6, sortedBounds, k * 6, 6);
+                sortedFirst[k] = first[j];
+                sortedCount[k] = count[j];
+            }
+            levelBounds.add(sortedBounds);
+            levelFirst.add(sortedFirst);
+            levelCount.add(sortedCount);
+            childBounds = sortedBounds;
+            children = m;
+        }
+
+        // 自底向上拼接，上层节点的子项下标加上下层的起始偏移
+        int total = 0;
+        for (int[] first : levelFirst) {
+            total += first.length;
+        }
+        float[] nodeBounds = new float[total * 6];
+        int[] nodeFirst = new int[total];
+        int[] nodeCount = new int[total];
+        int offset = 0;
+        int childOffset = 0;
+        for (int level = 0; level < levelFirst.size(); level++) {
+            int[] first = levelFirst.get(level);
+            System.arraycopy(levelBounds.get(level), 0, nodeBounds, offset * 6, first.length * 6);
+            System.arraycopy(levelCount.get(level), 0, nodeCount, offset, first.length);
+            for (int j = 0; j < first.length; j++) {
+                nodeFirst[offset + j] = first[j] + (level == 0 ? 0 : childOffset);
+            }
+            childOffset = offset;
+            offset += first.length;
+        }
+        return new StrRTree(n, items, itemBounds, nodeBounds, nodeFirst, nodeCount, levelFirst.get(0).length,
+            levelFirst.size());
+    }
+
+    /**
+     * 三维STR顺序：x 方向 S 片、每片 y 方向 S 条、条内按 z，片与条的边界都对齐到 NODE_CAPACITY，保证打包时各组不跨条
+     */
+    private static int[] strOrder(float[] bounds, int n) {
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        long[] keys = new long[n];
+        int pages = (n + NODE_CAPACITY - 1) / NODE_CAPACITY;
+        int slabs = (int) Math.ceil(Math.cbrt(pages));
+        int slabSize = ((pages + slabs - 1) / slabs) * NODE_CAPACITY;
+        sortByCenter(bounds, order, keys, 0, n, 0);
+        for (int s = 0; s < n; s += slabSize) {
+            int slabEnd = Math.min(n, s + slabSize);
+            sortByCenter(bounds, order, keys, s, slabEnd, 1);
+            int slabPages = (slabEnd - s + NODE_CAPACITY - 1) / NODE_CAPACITY;
+            int strips = (int) Math.ceil(Math.sqrt(slabPages));
+            int stripSize = ((slabPages + strips - 1) / strips) * NODE_CAPACITY;
+            for (int t = s; t < slabEnd; t += stripSize) {
+                sortByCenter(bounds, order, keys, t, Math.min(slabEnd, t + stripSize), 2);
+            }
+        }
+        return order;
+    }
+
+    /**
+     * 按中心坐标给 order[from, to) 排序：坐标转成保序整数放在高32位、元素编号放在低32位，直接对 long 排序
+     */
+    private static void sortByCenter(float[] bounds, int[] order, long[] keys, int from, int to, int axis) {
+        for (int k = from; k < to; k++) {
+            int i = order[k];
+            float center = bounds[i * 6 + axis] + bounds[i * 6 + axis + 3];
+            int bits = Float.floatToIntBits(center);
+            bits ^= (bits >> 31) & 0x7fffffff;
+            keys[k] = ((long) bits << 32) | i;
+        }
+        Arrays.sort(keys, from, to);
+        for (int k = from; k < to; k++) {
+            order[k] = (int) keys[k];
+        }
+    }
+
+    private static void union(float[] childBounds, int first, int count, float[] out, int j) {
+        for (int c = 0; c < 3; c++) {
+            out[j * 6 + c] = Float.POSITIVE_INFINITY;
+            out[j * 6 + c + 3] = Float.NEGATIVE_INFINITY;
+        }
+        for (int k = first; k < first + count; k++) {
+            for (int c = 0; c < 3; c++) {
+                out[j * 6 + c] = Math.min(out[j * 6 + c], childBounds[k * 6 + c]);
+                out[j * 6 + c + 3] = Math.max(out[j * 6 + c + 3], childBounds[k * 6 + c + 3]);
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int nodeCount() {
+        return nodeFirst.length;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    /**
+     * 包围盒与长方体 [minX, minY, minZ, maxX, maxY, maxZ] 相交（含边界接触）的元素编号
+     */
+    public int[] queryBox(double[] box) {
+        return query(box, 0, 0, 0, -1);
+    }
+
+    /**
+     * 包围盒与球相交的元素编号
+     */
+    public int[] querySphere(double cx, double cy, double cz, double radius) {
+        return query(null, cx, cy, cz, radius);
+    }
+
+    private int[] query(double[] box, double cx, double cy, double cz, double radius) {
+        if (size == 0) {
+            return new int[0];
+        }
+        int[] result = new int[64];
+        int found = 0;
+        int[] stack = new int[(NODE_CAPACITY - 1) * height + 2];
+        int top = 0;
+        stack[top++] = nodeFirst.length - 1;
+        while (top > 0) {
+            int node = stack[--top];
+            int first = nodeFirst[node];
+            int end = first + nodeCount[node];
+            if (node < leafCount) {
+                for (int k = first; k < end; k++) {
+                    if (overlaps(itemBounds, k, box, cx, cy, cz, radius)) {
+                        if (found == result.length) {
+                            result = Arrays.copyOf(result, found * 2);
+                        }
+                        result[found++] = items[k];
+                    }
+                }
+            } else {
+                for (int k = first; k < end; k++) {
+                    if (overlaps(nodeBounds, k, box, cx, cy, cz, radius)) {
+                        stack[top++] = k;
+                    }
+                }
+            }
+        }
+        return Arrays.copyOf(result, found);
+    }
+
+    private static boolean overlaps(float[] bounds, int k, double[] box, double cx, double cy, double cz, double radius) {
+        int o = k * 6;
+        if (box != null) {
+            return bounds[o] <= box[3] && bounds[o + 3] >= box[0]
+                && bounds[o + 1] <= box[4] && bounds[o + 4] >= box[1]
+                && bounds[o + 2] <= box[5] && bounds[o + 5] >= box[2];
+        }
+        double dx = Math.max(0, Math.max(bounds[o] - cx, cx - bounds[o + 3]));
+        double dy = Math.max(0, Math.max(bounds[o + 1] - cy, cy - bounds[o + 4]));
+        double dz = Math.max(0, Math.max(bounds[o + 2] - cz, cz - bounds[o + 5]));
+        return dx * dx + dy * dy + dz * dz <= radius * radius;
+    }
+
+    public long memoryBytes() {
+        return (long) items.length * 4 + (long) itemBounds.length * 4 + (long) nodeBounds.length * 4
+            + (long) nodeFirst.length * 8;
+    }
+}
@@ -0,0 +1,297 @@
+package com.morphtesser.swc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * SWB（SWC Binary）编解码器：SWC骨架的紧凑二进制传输格式
+ *
+ * 编码流程：
+ * 1. 节点按先序排列（父节点在子节点之前），重新编号为 0..n-1，输出时ID为 编号+1
+ * 2. 父节点编码为 (当前编号 - 父节点编号) 的 varint，根节点为 0；先序下绝大多数为 1
+ * 3. 坐标按 coordStep、半径按 radiusStep 量化为整数，减去父节点的量化值（根节点减 0）后 zigzag varint 编码
+ * 4. 节点类型按先序做游程编码：(类型, 连续个数) 成对写入
+ * 5. 类型、父节点、坐标（先全部 x，再全部 y，最后全部 z）、半径四个数据块分别做 zlib(Deflate) 熵编码
+ *
+ * 二进制布局（小端序）详见 docs/SWC_CODEC.md。从根节点不可达的节点（环）不会被编码。
+ */
+public final class SwcCodec {
+
+    public static final int MAGIC = 0x31425753; // "SWB1"
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 24;
+    public static final float DEFAULT_COORD_STEP = 0.01f;
+    public static final float DEFAULT_RADIUS_STEP = 0.01f;
+
+    // 量化后的坐标绝对值上限，保证相邻节点的差值不溢出 int
+    private static final double MAX_QUANTIZED = 1 << 30;
+
+    private SwcCodec() {
+    }
+
+    public static byte[] encode(SwcMorphology m) {
+        return encode(m, DEFAULT_COORD_STEP, DEFAULT_RADIUS_STEP);
+    }
+
+    public static byte[] encode(SwcMorphology m, float coordStep, float radiusStep) {
+        if (!(coordStep > 0) || !(radiusStep > 0)) {
+            throw new IllegalArgumentException("量化步长必须大于 0");
+        }
+        int[] order = SwcTree.of(m).preOrder();
+        int n = order.length;
+        int[] newIndex = new int[m.size()];
+        for (int k = 0; k < n; k++) {
+            newIndex[order[k]] = k;
+        }
+
+        VarintSink typeSink = new VarintSink(64);
+        VarintSink parentSink = new VarintSink(n + 16);
+        VarintSink positionSink = new VarintSink(n * 6 + 16);
+        VarintSink radiusSink = new VarintSink(n * 2 + 16);
+
+        int runs = 0;
+        for (int k = 0; k < n; ) {
+            int type = m.type(order[k]);
+            int end = k + 1;
+            while (end < n && m.type(order[end]) == type) {
+                end++;
+            }
+            typeSink.writeSigned(type);
+            typeSink.writeUnsigned(end - k);
+            runs++;
+            k = end;
+        }
+
+        int[] parent = new int[n];
+        for (int k = 0; k < n; k++) {
+            int p = m.parent(order[k]);
+            parent[k] = p < 0 ? -1 : newIndex[p];
+            parentSink.writeUnsigned(parent[k] < 0 ? 0 : k - parent[k]);
+        }
+        for (int c = 0; c < 3; c++) {
+            int[] q = new int[n];
+            for (int k = 0; k < n; k++) {
+                int node = order[k];
+                float value = c == 0 ? m.x(node) : c == 1 ? m.y(node) : m.z(node);
+                q[k] = quantize(value, coordStep);
+                positionSink.writeSigned(parent[k] < 0 ? q[k] : q[k] - q[parent[k]]);
+            }
+        }
+        int[] qr = new int[n];
+        for (int k = 0; k < n; k++) {
+            qr[k] = quantize(m.radius(order[k]), radiusStep);
+            radiusSink.writeSigned(parent[k] < 0 ? qr[k] : qr[k] - qr[parent[k]]);
+        }
+
+        byte[] typeBlock = deflate(typeSink.buffer, typeSink.size);
+        byte[] parentBlock = deflate(parentSink.buffer, parentSink.size);
+        byte[] positionBlock = deflate(positionSink.buffer, positionSink.size);
+        byte[] radiusBlock = deflate(radiusSink.buffer, radiusSink.size);
+
+        ByteBuffer out = ByteBuffer.allocate(HEADER_SIZE + 16
+                        + typeBlock.length + parentBlock.length + positionBlock.length + radiusBlock.length)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(MAGIC);
+        out.put((byte) VERSION);
+        out.put((byte) 0);
+        out.putShort((short) 0);
+        out.putInt(n);
+        out.putInt(runs);
+        out.putFloat(coordStep);
+        out.putFloat(radiusStep);
+        for (byte[] block : new byte[][] {typeBlock, parentBlock, positionBlock, radiusBlock}) {
+            out.putInt(block.length);
+            out.put(block);
+        }
+        return out.array();
+    }
+
+    public static SwcMorphology decode(byte[] data) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            if (data.length < HEADER_SIZE || in.getInt() != MAGIC) {
+                throw new SwcFormatException("不是有效的SWB数据");
+            }
+            int version = in.get() & 0xFF;
+            if (version != VERSION) {
+                throw new SwcFormatException("不支持的SWB版本: " + version);
+            }
+            in.get();
+            in.getShort();
+            int n = in.getInt();
+            int runs = in.getInt();
+            float coordStep = in.getFloat();
+            float radiusStep = in.getFloat();
+            VarintSource types = new VarintSource(readBlock(data, in));
+            VarintSource parents = new VarintSource(readBlock(data, in));
+            VarintSource positions = new VarintSource(readBlock(data, in));
+            VarintSource radii = new VarintSource(readBlock(data, in));
+            // 每个节点至少占父节点 1 字节、坐标 3 字节，据此拒绝节点数与数据块不符的头部，避免按伪造的节点数分配内存
+            if (n < 0 || runs < 0 || n > parents.buffer.length || n > positions.buffer.length / 3) {
+                throw new SwcFormatException("SWB头部节点数无效: " + n);
+            }
+
+            int[] ids = new int[n];
+            int[] type = new int[n];
+            int filled = 0;
+            for (int r = 0; r < runs; r++) {
+                int value = types.readSigned();
+                int length = types.readUnsigned();
+                if (length <= 0 || length > n - filled) {
+                    throw new SwcFormatException("SWB类型游程超出节点数: 第 " + (r + 1) + " 个游程长度 " + length
+                            + "，已填充 " + filled + " / " + n);
+                }
+                Arrays.fill(type, filled, filled + length, value);
+                filled += length;
+            }
+            if (filled != n) {
+                throw new SwcFormatException("SWB类型游程长度之和 " + filled + " 与节点数 " + n + " 不一致");
+            }
+            int[] parent = new int[n];
+            for (int k = 0; k < n; k++) {
+                ids[k] = k + 1;
+                int offset = parents.readUnsigned();
+                if (offset < 0 || offset > k) {
+                    throw new SwcFormatException("SWB父节点偏移无效: 节点 " + k);
+                }
+                parent[k] = offset == 0 ? -1 : k - offset;
+            }
+            float[][] coords = new float[3][n];
+            int[] q = new int[n];
+            for (int c = 0; c < 3; c++) {
+                for (int k = 0; k < n; k++) {
+                    int delta = positions.readSigned();
+                    q[k] = parent[k] < 0 ? delta : q[parent[k]] + delta;
+                    coords[c][k] = (float) (q[k] * (double) coordStep);
+                }
+            }
+            float[] radius = new float[n];
+            for (int k = 0; k < n; k++) {
+                int delta = radii.readSigned();
+                q[k] = parent[k] < 0 ? delta : q[parent[k]] + delta;
+                radius[k] = (float) (q[k] * (double) radiusStep);
+            }
+            return new SwcMorphology(n, ids, type, coords[0], coords[1], coords[2], radius, parent);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("SWB数据不完整", e);
+        }
+    }
+
+    private static int quantize(float value, float step) {
+        double q = Math.rint(value / (double) step);
+        if (!(Math.abs(q) < MAX_QUANTIZED)) {
+            throw new IllegalArgumentException("数值超出量化范围: " + value + "（步长 " + step + "）");
+        }
+        return (int) q;
+    }
+
+    private static byte[] readBlock(byte[] data, ByteBuffer in) throws IOException {
+        int length = in.getInt();
+        if (length < 0 || length > in.remaining()) {
+            throw new SwcFormatException("SWB数据块长度无效: " + length);
+        }
+        byte[] block = inflate(data, in.position(), length);
+        in.position(in.position() + length);
+        return block;
+    }
+
+    private static byte[] deflate(byte[] input, int length) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(input, 0, length);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, length / 2));
+            byte[] buffer = new byte[65536];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] data, int offset, int length) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, offset, length);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, length * 3));
+            byte[] buffer = new byte[65536];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("SWB数据块不完整");
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException("SWB数据块解压失败: " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /** 可增长的varint字节缓冲 */
+    private static final class VarintSink {
+        private byte[] buffer;
+        private int size;
+
+        VarintSink(int capacity) {
+            buffer = new byte[capacity];
+        }
+
+        void writeSigned(int value) {
+            writeUnsigned((value << 1) ^ (value >> 31));
+        }
+
+        void writeUnsigned(int value) {
+            if (size + 5 > buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2 + 5);
+            }
+            while ((value & ~0x7F) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+    }
+
+    private static final class VarintSource {
+        private final byte[] buffer;
+        private int position;
+
+        VarintSource(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        int readSigned() throws IOException {
+            int raw = readUnsigned();
+            return (raw >>> 1) ^ -(raw & 1);
+        }
+
+        int readUnsigned() throws IOException {
+            int result = 0;
+            int shift = 0;
+            while (true) {
+                if (position >= buffer.length) {
+                    throw new SwcFormatException("SWB数据块提前结束");
+                }
+                int b = buffer[position++];
+                result |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+                shift += 7;
+            }
+        }
+    }
+}
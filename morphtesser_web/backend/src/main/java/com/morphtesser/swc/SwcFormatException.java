@@ -0,0 +1,28 @@
+package com.morphtesser.swc;
+
+import java.io.IOException;
+
+/**
+ * 严格模式下遇到格式错误的行，或二进制（SWB）数据结构不一致时抛出
+ */
+public class SwcFormatException extends IOException {
+
+    private final SwcLineError error;
+
+    public SwcFormatException(SwcLineError error) {
+        super("SWC格式错误，" + error);
+        this.error = error;
+    }
+
+    public SwcFormatException(String message) {
+        super(message);
+        this.error = null;
+    }
+
+    /**
+     * 出错的行；二进制数据的格式错误没有行信息，返回null
+     */
+    public SwcLineError getError() {
+        return error;
+    }
+}
@@ -0,0 +1,40 @@
+package com.morphtesser.swc;
+
+/**
+ * SWC格式错误的位置：行号、列号（均从1开始）与文件内字节偏移
+ */
+public class SwcLineError {
+
+    private final long line;
+    private final int column;
+    private final long offset;
+    private final String message;
+
+    public SwcLineError(long line, int column, long offset, String message) {
+        this.line = line;
+        this.column = column;
+        this.offset = offset;
+        this.message = message;
+    }
+
+    public long getLine() {
+        return line;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return "第 " + line + " 行第 " + column + " 列（偏移 " + offset + "）: " + message;
+    }
+}
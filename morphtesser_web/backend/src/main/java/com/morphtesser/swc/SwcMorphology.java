@@ -0,0 +1,103 @@
+package com.morphtesser.swc;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * SWC形态数据（按列存放的数组结构）
+ * 节点按文件顺序编号为 0..size-1，parent 为父节点下标，根节点为 -1
+ */
+public class SwcMorphology {
+
+    public static final int TYPE_SOMA = 1;
+
+    private final int size;
+    private final int[] ids;
+    private final int[] types;
+    private final float[] x;
+    private final float[] y;
+    private final float[] z;
+    private final float[] radius;
+    private final int[] parent;
+    private final int[] parentIds;
+    private final List<SwcLineError> malformedLines;
+
+    public SwcMorphology(int size, int[] ids, int[] types, float[] x, float[] y, float[] z, float[] radius, int[] parent) {
+        this(size, ids, types, x, y, z, radius, parent, Collections.emptyList());
+    }
+
+    public SwcMorphology(int size, int[] ids, int[] types, float[] x, float[] y, float[] z, float[] radius, int[] parent,
+                         List<SwcLineError> malformedLines) {
+        this(size, ids, types, x, y, z, radius, parent, null, malformedLines);
+    }
+
+    /**
+     * @param parentIds 文件中原始的父节点ID（可为null），用于区分根节点与父节点缺失的孤立节点
+     */
+    public SwcMorphology(int size, int[] ids, int[] types, float[] x, float[] y, float[] z, float[] radius, int[] parent,
+                         int[] parentIds, List<SwcLineError> malformedLines) {
+        this.size = size;
+        this.ids = ids;
+        this.types = types;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.radius = radius;
+        this.parent = parent;
+        this.parentIds = parentIds;
+        this.malformedLines = malformedLines;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int id(int i) {
+        return ids[i];
+    }
+
+    public int type(int i) {
+        return types[i];
+    }
+
+    public float x(int i) {
+        return x[i];
+    }
+
+    public float y(int i) {
+        return y[i];
+    }
+
+    public float z(int i) {
+        return z[i];
+    }
+
+    public float radius(int i) {
+        return radius[i];
+    }
+
+    public int parent(int i) {
+        return parent[i];
+    }
+
+    /**
+     * 文件中记录的父节点ID；父节点ID在文件中不存在时 parent(i) 为 -1，而这里仍是原始值
+     */
+    public int parentId(int i) {
+        if (parentIds != null) {
+            return parentIds[i];
+        }
+        return parent[i] < 0 ? -1 : ids[parent[i]];
+    }
+
+    public boolean isSoma(int i) {
+        return types[i] == TYPE_SOMA;
+    }
+
+    /**
+     * 宽松模式解析时跳过的格式错误行
+     */
+    public List<SwcLineError> getMalformedLines() {
+        return malformedLines;
+    }
+}
@@ -0,0 +1,246 @@
+package com.morphtesser.swc;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * SWC渐进传输：节点分两个阶段按广度优先输出，客户端收到前几帧即可绘制整体骨架，细节随后补全。
+ * <p>
+ * 1. 骨架阶段：只输出分支节点（根、分叉点、末端、胞体，见 {@link SwcTree#isJunction}），
+ *    从根节点开始按分支树广度优先排列，显示父节点为最近的分支节点祖先，即每个分支先以一条直线段表示；
+ * 2. 细节阶段：其余节点按完整树的广度优先（离根由近到远）输出，显示父节点为真实父节点，
+ *    split 为所在分支末端的分支节点，客户端收到后把该分支节点的显示父节点改为当前节点。
+ * <p>
+ * 同一分支内的节点按深度顺序到达，因此全部接收后每个节点的显示父节点都等于真实父节点。
+ * 从根节点不可达的节点（环）不会输出。节点按帧写出并逐帧 flush，帧大小从 {@link #FIRST_FRAME_NODES}
+ * 起倍增到 {@link #MAX_FRAME_NODES}；只保存输出顺序与链接关系，不在内存中生成完整响应。
+ * <p>
+ * 文本格式（application/x-ndjson）：首行为头部对象，此后每行一个节点 [id, type, x, y, z, radius, parent, split]；
+ * 二进制格式（application/x-swc-stream）布局见 docs/SWC_CODEC.md。ID均为SWC原始ID，-1 表示无。
+ */
+public final class SwcProgressiveStream {
+
+    public static final int MAGIC = 0x31535753; // "SWS1"
+    public static final int HEADER_SIZE = 36;
+    public static final int RECORD_SIZE = 32;
+    public static final int FIRST_FRAME_NODES = 128;
+    public static final int MAX_FRAME_NODES = 8192;
+
+    private final SwcMorphology morphology;
+    private final int[] order;
+    private final int[] link;
+    private final int[] split;
+    private final int size;
+    private final int skeletonCount;
+
+    private SwcProgressiveStream(SwcMorphology morphology, int[] order, int[] link, int[] split,
+                                 int size, int skeletonCount) {
+        this.morphology = morphology;
+        this.order = order;
+        this.link = link;
+        this.split = split;
+        this.size = size;
+        this.skeletonCount = skeletonCount;
+    }
+
+    public static SwcProgressiveStream of(SwcMorphology m) {
+        SwcTree tree = SwcTree.of(m);
+        int n = m.size();
+        int[] order = new int[n];
+        int[] link = new int[n];
+        int[] split = new int[n];
+        int[] queue = new int[n];
+        int count = 0;
+
+        // 骨架：在分支节点构成的树上广度优先，沿单子节点链走到下一个分支节点
+        int head = 0;
+        int tail = 0;
+        for (int r = 0; r < tree.rootCount(); r++) {
+            int root = tree.root(r);
+            link[root] = -1;
+            split[root] = -1;
+            queue[tail++] = root;
+        }
+        while (head < tail) {
+            int j = queue[head++];
+            order[count++] = j;
+            for (int k = tree.childStart(j); k < tree.childEnd(j); k++) {
+                int first = tree.child(k);
+                int end = first;
+                while (!tree.isJunction(end)) {
+                    end = tree.child(tree.childStart(end));
+                }
+                for (int i = first; i != end; i = tree.child(tree.childStart(i))) {
+                    link[i] = m.parent(i);
+                    split[i] = end;
+                }
+                link[end] = j;
+                split[end] = -1;
+                queue[tail++] = end;
+            }
+        }
+        int skeletonCount = count;
+
+        // 细节：完整树广度优先，跳过已输出的分支节点
+        head = 0;
+        tail = 0;
+        for (int r = 0; r < tree.rootCount(); r++) {
+            queue[tail++] = tree.root(r);
+        }
+        while (head < tail) {
+            int i = queue[head++];
+            if (!tree.isJunction(i)) {
+                order[count++] = i;
+            }
+            for (int k = tree.childStart(i); k < tree.childEnd(i); k++) {
+                queue[tail++] = tree.child(k);
+            }
+        }
+        return new SwcProgressiveStream(m, order, link, split, count, skeletonCount);
+    }
+
+    /** 输出的节点数（从根节点可达的节点） */
+    public int size() {
+        return size;
+    }
+
+    /** 骨架阶段的节点数 */
+    public int getSkeletonCount() {
+        return skeletonCount;
+    }
+
+    /**
+     * 按输出顺序的第 k 个节点下标
+     */
+    public int node(int k) {
+        return order[k];
+    }
+
+    /**
+     * 节点的显示父节点下标，-1 表示根节点
+     */
+    public int link(int i) {
+        return link[i];
+    }
+
+    /**
+     * 收到该节点后需要改挂到它下面的分支节点下标，-1 表示无
+     */
+    public int split(int i) {
+        return split[i];
+    }
+
+    /**
+     * 全部节点的包围盒 [minX, minY, minZ, maxX, maxY, maxZ]
+     */
+    public float[] bounds() {
+        float[] box = new float[6];
+        if (size == 0) {
+            return box;
+        }
+        Arrays.fill(box, 0, 3, Float.POSITIVE_INFINITY);
+        Arrays.fill(box, 3, 6, Float.NEGATIVE_INFINITY);
+        for (int k = 0; k < size; k++) {
+            int i = order[k];
+            box[0] = Math.min(box[0], morphology.x(i));
+            box[1] = Math.min(box[1], morphology.y(i));
+            box[2] = Math.min(box[2], morphology.z(i));
+            box[3] = Math.max(box[3], morphology.x(i));
+            box[4] = Math.max(box[4], morphology.y(i));
+            box[5] = Math.max(box[5], morphology.z(i));
+        }
+        return box;
+    }
+
+    /**
+     * 二进制格式：36字节头部后接若干帧，每帧为 uint32 节点数 + 每节点32字节记录
+     */
+    public void writeBinary(OutputStream out) throws IOException {
+        float[] box = bounds();
+        ByteBuffer buffer = ByteBuffer.allocate(4 + MAX_FRAME_NODES * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(size).putInt(skeletonCount);
+        for (float v : box) {
+            buffer.putFloat(v);
+        }
+        out.write(buffer.array(), 0, buffer.position());
+        out.flush();
+
+        int frame = FIRST_FRAME_NODES;
+        for (int start = 0; start < size; start += frame, frame = Math.min(frame * 2, MAX_FRAME_NODES)) {
+            int end = Math.min(size, start + frame);
+            buffer.clear();
+            buffer.putInt(end - start);
+            for (int k = start; k < end; k++) {
+                int i = order[k];
+                buffer.putInt(morphology.id(i))
+                    .putInt(idOf(link[i]))
+                    .putInt(idOf(split[i]))
+                    .putShort((short) morphology.type(i))
+                    .putShort((short) 0)
+                    .putFloat(morphology.x(i))
+                    .putFloat(morphology.y(i))
+                    .putFloat(morphology.z(i))
+                    .putFloat(morphology.radius(i));
+            }
+            out.write(buffer.array(), 0, buffer.position());
+            out.flush();
+        }
+    }
+
+    /**
+     * NDJSON格式：头部对象一行，之后每个节点一行 [id, type, x, y, z, radius, parent, split]
+     */
+    public void writeNdjson(OutputStream out) throws IOException {
+        float[] box = bounds();
+        StringBuilder sb = new StringBuilder(64 * MAX_FRAME_NODES);
+        sb.append("{\"nodes\":").append(size).append(",\"skeleton\":").append(skeletonCount).append(",\"bounds\":[");
+        for (int c = 0; c < box.length; c++) {
+            if (c > 0) {
+                sb.append(',');
+            }
+            appendFloat(sb, box[c]);
+        }
+        sb.append("]}\n");
+        out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+        out.flush();
+
+        int frame = FIRST_FRAME_NODES;
+        for (int start = 0; start < size; start += frame, frame = Math.min(frame * 2, MAX_FRAME_NODES)) {
+            int end = Math.min(size, start + frame);
+            sb.setLength(0);
+            for (int k = start; k < end; k++) {
+                int i = order[k];
+                sb.append('[').append(morphology.id(i)).append(',').append(morphology.type(i)).append(',');
+                appendFloat(sb, morphology.x(i));
+                sb.append(',');
+                appendFloat(sb, morphology.y(i));
+                sb.append(',');
+                appendFloat(sb, morphology.z(i));
+                sb.append(',');
+                appendFloat(sb, morphology.radius(i));
+                sb.append(',').append(idOf(link[i])).append(',').append(idOf(split[i])).append("]\n");
+            }
+            out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+    }
+
+    private int idOf(int index) {
+        return index < 0 ? -1 : morphology.id(index);
+    }
+
+    // JSON不支持 NaN/Infinity，按 0 输出
+    private static void appendFloat(StringBuilder sb, float v) {
+        if (!Float.isFinite(v)) {
+            sb.append('0');
+        } else if (v == (int) v) {
+            sb.append((int) v);
+        } else {
+            sb.append(v);
+        }
+    }
+}
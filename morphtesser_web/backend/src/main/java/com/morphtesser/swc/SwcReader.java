@@ -0,0 +1,435 @@
+package com.morphtesser.swc;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * SWC读取器：每行 "id type x y z radius parent"（多余的列忽略），# 开头为注释
+ * <p>
+ * 通过 FileChannel 分块读入字节缓冲区，直接在字节上切分与解析数值，不为行或字段创建 String；
+ * 节点按列存放在基本类型数组中。解析结束后把父节点ID映射为下标：ID分布紧凑时用数组直接寻址，
+ * 否则用开放寻址哈希表。父节点ID在文件中找不到时按根节点处理，重复ID以第一次出现为准。
+ * <p>
+ * 严格模式遇到格式错误的行抛出 {@link SwcFormatException}；宽松模式跳过该行并记录位置
+ * （最多 {@link #MAX_REPORTED_ERRORS} 条），可通过 {@link SwcMorphology#getMalformedLines()} 获取。
+ */
+public final class SwcReader {
+
+    public static final int MAX_REPORTED_ERRORS = 100;
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    // 估算节点数时假定的平均行长度
+    private static final int ESTIMATED_LINE_BYTES = 40;
+
+    private static final double[] POW10 = new double[23];
+
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) {
+            POW10[i] = POW10[i - 1] * 10;
+        }
+    }
+
+    private SwcReader() {
+    }
+
+    public static SwcMorphology read(Path swcPath) throws IOException {
+        return read(swcPath, false);
+    }
+
+    public static SwcMorphology read(Path swcPath, boolean lenient) throws IOException {
+        try (FileChannel channel = FileChannel.open(swcPath, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int estimate = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1024, size / ESTIMATED_LINE_BYTES));
+            return new Parser(estimate, lenient).parse(channel);
+        }
+    }
+
+    public static SwcMorphology read(InputStream in) throws IOException {
+        return read(in, false);
+    }
+
+    public static SwcMorphology read(InputStream in, boolean lenient) throws IOException {
+        return new Parser(1024, lenient).parse(Channels.newChannel(in));
+    }
+
+    private static final class Parser {
+        private final boolean lenient;
+        private int capacity;
+        private int size;
+        private int[] ids;
+        private int[] types;
+        private float[] x;
+        private float[] y;
+        private float[] z;
+        private float[] radius;
+        private int[] parentIds;
+        private List<SwcLineError> errors;
+
+        // 当前行解析状态
+        private byte[] buf;
+        private int pos;
+        private int lineStart;
+        private int lineEnd;
+        private long lineNo;
+        private long bufferOffset;
+        private SwcLineError lineError;
+
+        // 数值解析结果（避免装箱与返回对象）
+        private double number;
+
+        private Parser(int estimate, boolean lenient) {
+            this.lenient = lenient;
+            this.capacity = estimate;
+            this.ids = new int[capacity];
+            this.types = new int[capacity];
+            this.x = new float[capacity];
+            this.y = new float[capacity];
+            this.z = new float[capacity];
+            this.radius = new float[capacity];
+            this.parentIds = new int[capacity];
+        }
+
+        private SwcMorphology parse(ReadableByteChannel channel) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            buf = buffer.array();
+            int limit = 0;
+            boolean eof = false;
+            while (true) {
+                while (!eof && limit < buf.length) {
+                    buffer.position(limit);
+                    int n = channel.read(buffer);
+                    if (n < 0) {
+                        eof = true;
+                    } else {
+                        limit += n;
+                    }
+                }
+                // 只处理到最后一个换行符为止的完整行；到达文件末尾时最后一行可以没有换行符
+                int regionEnd = eof ? limit : lastNewline(limit) + 1;
+                if (regionEnd == 0 && limit == buf.length) {
+                    throw new SwcFormatException(new SwcLineError(lineNo + 1, 1, bufferOffset, "行长度超过 " + buf.length + " 字节"));
+                }
+                parseRegion(regionEnd);
+                if (eof) {
+                    break;
+                }
+                // 未完成的行移到缓冲区开头
+                System.arraycopy(buf, regionEnd, buf, 0, limit - regionEnd);
+                bufferOffset += regionEnd;
+                limit -= regionEnd;
+            }
+            return build();
+        }
+
+        private int lastNewline(int limit) {
+            for (int i = limit - 1; i >= 0; i--) {
+                if (buf[i] == '\n') {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * 单遍解析 [0, end) 内的所有行：字段以空白或逗号分隔，遇到换行符结束当前行
+         */
+        private void parseRegion(int end) throws SwcFormatException {
+            lineEnd = end;
+            pos = 0;
+            while (pos < end) {
+                lineNo++;
+                lineStart = pos;
+                skipSpaces();
+                if (pos >= end) {
+                    return;
+                }
+                byte first = buf[pos];
+                if (first == '\n') {
+                    pos++;
+                    continue;
+                }
+                if (first != '#') {
+                    parseFields();
+                }
+                skipLine();
+            }
+        }
+
+        private void parseFields() throws SwcFormatException {
+            if (size == capacity) {
+                grow();
+            }
+            lineError = null;
+            int id = readInt();
+            int type = lineError == null ? readInt() : 0;
+            float vx = lineError == null ? readFloat() : 0;
+            float vy = lineError == null ? readFloat() : 0;
+            float vz = lineError == null ? readFloat() : 0;
+            float r = lineError == null ? readFloat() : 0;
+            int parent = lineError == null ? readInt() : 0;
+            if (lineError != null) {
+                if (!lenient) {
+                    throw new SwcFormatException(lineError);
+                }
+                if (errors == null) {
+                    errors = new ArrayList<>();
+                }
+                if (errors.size() < MAX_REPORTED_ERRORS) {
+                    errors.add(lineError);
+                }
+                return;
+            }
+            ids[size] = id;
+            types[size] = type;
+            x[size] = vx;
+            y[size] = vy;
+            z[size] = vz;
+            radius[size] = r;
+            parentIds[size] = parent;
+            size++;
+        }
+
+        private void skipLine() {
+            while (pos < lineEnd && buf[pos] != '\n') {
+                pos++;
+            }
+            pos++;
+        }
+
+        private void skipSpaces() {
+            while (pos < lineEnd) {
+                byte b = buf[pos];
+                if (b != ' ' && b != '\t' && b != '\r' && b != ',') {
+                    return;
+                }
+                pos++;
+            }
+        }
+
+        private int readInt() {
+            if (!readNumber()) {
+                return 0;
+            }
+            if (number != Math.rint(number) || Math.abs(number) > Integer.MAX_VALUE) {
+                fail("需要整数");
+                return 0;
+            }
+            return (int) number;
+        }
+
+        private float readFloat() {
+            return readNumber() ? (float) number : 0f;
+        }
+
+        /**
+         * 解析一个十进制数（可带符号、小数点与指数），结果放入 number
+         */
+        private boolean readNumber() {
+            skipSpaces();
+            int tokenStart = pos;
+            if (pos >= lineEnd || buf[pos] == '\n') {
+                fail("列数不足，需要7列");
+                return false;
+            }
+            boolean negative = false;
+            byte b = buf[pos];
+            if (b == '-' || b == '+') {
+                negative = b == '-';
+                pos++;
+            }
+            long mantissa = 0;
+            int digits = 0;
+            int exponent = 0;
+            boolean any = false;
+            while (pos < lineEnd && (b = buf[pos]) >= '0' && b <= '9') {
+                any = true;
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + (b - '0');
+                    if (mantissa != 0) {
+                        digits++;
+                    }
+                } else {
+                    exponent++;
+                }
+                pos++;
+            }
+            if (pos < lineEnd && buf[pos] == '.') {
+                pos++;
+                while (pos < lineEnd && (b = buf[pos]) >= '0' && b <= '9') {
+                    any = true;
+                    if (digits < 18) {
+                        mantissa = mantissa * 10 + (b - '0');
+                        if (mantissa != 0) {
+                            digits++;
+                        }
+                        exponent--;
+                    }
+                    pos++;
+                }
+            }
+            if (!any) {
+                pos = tokenStart;
+                fail("无法解析的数值");
+                return false;
+            }
+            if (pos < lineEnd && (buf[pos] == 'e' || buf[pos] == 'E')) {
+                pos++;
+                boolean expNegative = false;
+                if (pos < lineEnd && (buf[pos] == '-' || buf[pos] == '+')) {
+                    expNegative = buf[pos] == '-';
+                    pos++;
+                }
+                int exp = 0;
+                boolean expDigits = false;
+                while (pos < lineEnd && (b = buf[pos]) >= '0' && b <= '9') {
+                    expDigits = true;
+                    if (exp < 10_000) {
+                        exp = exp * 10 + (b - '0');
+                    }
+                    pos++;
+                }
+                if (!expDigits) {
+                    pos = tokenStart;
+                    fail("无法解析的数值");
+                    return false;
+                }
+                exponent += expNegative ? -exp : exp;
+            }
+            if (pos < lineEnd) {
+                b = buf[pos];
+                if (b != ' ' && b != '\t' && b != '\r' && b != ',' && b != '\n') {
+                    pos = tokenStart;
+                    fail("无法解析的数值");
+                    return false;
+                }
+            }
+            double value = mantissa;
+            if (exponent != 0 && mantissa != 0) {
+                if (exponent > 0) {
+                    value = exponent < POW10.length ? value * POW10[exponent] : value * Math.pow(10, exponent);
+                } else {
+                    value = -exponent < POW10.length ? value / POW10[-exponent] : value / Math.pow(10, -exponent);
+                }
+            }
+            number = negative ? -value : value;
+            return true;
+        }
+
+        private void fail(String message) {
+            if (lineError == null) {
+                lineError = new SwcLineError(lineNo, pos - lineStart + 1, bufferOffset + pos, message);
+            }
+        }
+
+        private void grow() {
+            capacity = capacity + (capacity >> 1) + 16;
+            ids = Arrays.copyOf(ids, capacity);
+            types = Arrays.copyOf(types, capacity);
+            x = Arrays.copyOf(x, capacity);
+            y = Arrays.copyOf(y, capacity);
+            z = Arrays.copyOf(z, capacity);
+            radius = Arrays.copyOf(radius, capacity);
+            parentIds = Arrays.copyOf(parentIds, capacity);
+        }
+
+        private SwcMorphology build() {
+            IdIndex index = IdIndex.build(ids, size);
+            int[] parent = new int[size];
+            for (int i = 0; i < size; i++) {
+                int p = parentIds[i] < 0 ? -1 : index.indexOf(parentIds[i]);
+                parent[i] = p == i ? -1 : p;
+            }
+            List<SwcLineError> malformed = errors == null ? Collections.emptyList() : Collections.unmodifiableList(errors);
+            return new SwcMorphology(size, ids, types, x, y, z, radius, parent, parentIds, malformed);
+        }
+    }
+
+    /**
+     * 节点ID到下标的映射：ID范围不超过节点数的4倍时用数组，否则用线性探测哈希表
+     */
+    static final class IdIndex {
+        private final int[] table;
+        private final int[] keys;
+        private final int min;
+        private final int mask;
+
+        private IdIndex(int[] table, int[] keys, int min, int mask) {
+            this.table = table;
+            this.keys = keys;
+            this.min = min;
+            this.mask = mask;
+        }
+
+        static IdIndex build(int[] ids, int size) {
+            if (size == 0) {
+                return new IdIndex(new int[0], null, 0, 0);
+            }
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            for (int i = 0; i < size; i++) {
+                min = Math.min(min, ids[i]);
+                max = Math.max(max, ids[i]);
+            }
+            long range = (long) max - min + 1;
+            if (range <= 4L * size + 1024) {
+                int[] table = new int[(int) range];
+                Arrays.fill(table, -1);
+                for (int i = 0; i < size; i++) {
+                    int slot = ids[i] - min;
+                    if (table[slot] < 0) {
+                        table[slot] = i;
+                    }
+                }
+                return new IdIndex(table, null, min, 0);
+            }
+            int capacity = Integer.highestOneBit(Math.max(4, size * 2 - 1)) << 1;
+            int[] keys = new int[capacity];
+            int[] values = new int[capacity];
+            Arrays.fill(values, -1);
+            int mask = capacity - 1;
+            for (int i = 0; i < size; i++) {
+                int slot = mix(ids[i]) & mask;
+                while (values[slot] >= 0 && keys[slot] != ids[i]) {
+                    slot = (slot + 1) & mask;
+                }
+                if (values[slot] < 0) {
+                    keys[slot] = ids[i];
+                    values[slot] = i;
+                }
+            }
+            return new IdIndex(values, keys, 0, mask);
+        }
+
+        int indexOf(int id) {
+            if (keys == null) {
+                long slot = (long) id - min;
+                return slot >= 0 && slot < table.length ? table[(int) slot] : -1;
+            }
+            int slot = mix(id) & mask;
+            while (table[slot] >= 0) {
+                if (keys[slot] == id) {
+                    return table[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        private static int mix(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+}
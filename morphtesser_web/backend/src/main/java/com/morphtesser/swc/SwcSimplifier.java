@@ -0,0 +1,125 @@
+package com.morphtesser.swc;
+
+import java.util.Arrays;
+
+/**
+ * SWC骨架简化（用于预览的细节层次 LOD）
+ * <p>
+ * 在每个无分叉分支（见 {@link SwcTree#branches}）上做 Douglas-Peucker 折线简化：分支两端（根、分叉点、末端、胞体节点）
+ * 以及节点类型发生变化的节点总是保留，其余节点到保留折线的距离不超过 tolerance（与SWC坐标同单位，通常为微米）。
+ * 被删除节点的子节点挂到最近的保留祖先上，输出保持原节点ID、先序排列。
+ * 只考虑位置误差，半径沿用保留节点自身的值。
+ */
+public final class SwcSimplifier {
+
+    private SwcSimplifier() {
+    }
+
+    public static SwcMorphology simplify(SwcMorphology m, double tolerance) {
+        SwcTree tree = SwcTree.of(m);
+        int[] order = tree.preOrder();
+        int n = m.size();
+        boolean[] keep = new boolean[n];
+        for (int u : order) {
+            int p = m.parent(u);
+            keep[u] = tree.isJunction(u) || m.type(u) != m.type(p);
+        }
+
+        SwcTree.Branches branches = tree.branches(true);
+        int[] stack = new int[64];
+        double toleranceSquared = tolerance * tolerance;
+        for (int b = 0; b < branches.count(); b++) {
+            int start = branches.start(b);
+            int end = branches.end(b) - 1;
+            if (end - start < 2) {
+                continue;
+            }
+            // 显式栈上的 [lo, hi] 区间，lo/hi 为 branches 内的下标
+            int top = 0;
+            stack[top++] = start;
+            stack[top++] = end;
+            while (top > 0) {
+                int hi = stack[--top];
+                int lo = stack[--top];
+                int a = branches.node(lo);
+                int c = branches.node(hi);
+                int farthest = -1;
+                double best = toleranceSquared;
+                for (int k = lo + 1; k < hi; k++) {
+                    int v = branches.node(k);
+                    double d = keep[v] ? Double.POSITIVE_INFINITY : distanceSquared(m, v, a, c);
+                    if (d > best) {
+                        best = d;
+                        farthest = k;
+                        if (keep[v]) {
+                            break;
+                        }
+                    }
+                }
+                if (farthest < 0) {
+                    continue;
+                }
+                keep[branches.node(farthest)] = true;
+                if (top + 4 > stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                }
+                if (farthest - lo > 1) {
+                    stack[top++] = lo;
+                    stack[top++] = farthest;
+                }
+                if (hi - farthest > 1) {
+                    stack[top++] = farthest;
+                    stack[top++] = hi;
+                }
+            }
+        }
+
+        // 按先序输出保留节点，父节点为最近的保留祖先（先序保证祖先已经处理）
+        int kept = 0;
+        for (int u : order) {
+            if (keep[u]) {
+                kept++;
+            }
+        }
+        int[] newIndex = new int[n];
+        int[] ids = new int[kept];
+        int[] types = new int[kept];
+        float[] x = new float[kept];
+        float[] y = new float[kept];
+        float[] z = new float[kept];
+        float[] radius = new float[kept];
+        int[] parent = new int[kept];
+        int c = 0;
+        for (int u : order) {
+            int p = m.parent(u);
+            if (!keep[u]) {
+                newIndex[u] = newIndex[p];
+                continue;
+            }
+            newIndex[u] = c;
+            ids[c] = m.id(u);
+            types[c] = m.type(u);
+            x[c] = m.x(u);
+            y[c] = m.y(u);
+            z[c] = m.z(u);
+            radius[c] = m.radius(u);
+            parent[c] = p < 0 ? -1 : newIndex[p];
+            c++;
+        }
+        return new SwcMorphology(kept, ids, types, x, y, z, radius, parent);
+    }
+
+    /**
+     * 节点 v 到线段 ac 的距离平方
+     */
+    private static double distanceSquared(SwcMorphology m, int v, int a, int c) {
+        double ax = m.x(a), ay = m.y(a), az = m.z(a);
+        double dx = m.x(c) - ax, dy = m.y(c) - ay, dz = m.z(c) - az;
+        double px = m.x(v) - ax, py = m.y(v) - ay, pz = m.z(v) - az;
+        double lengthSquared = dx * dx + dy * dy + dz * dz;
+        double t = lengthSquared > 0 ? (px * dx + py * dy + pz * dz) / lengthSquared : 0;
+        t = Math.max(0, Math.min(1, t));
+        double ex = px - t * dx, ey = py - t * dy, ez = pz - t * dz;
+        return ex * ex + ey * ey + ez * ez;
+    }
+}
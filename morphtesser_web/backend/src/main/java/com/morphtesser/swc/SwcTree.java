@@ -0,0 +1,275 @@
+package com.morphtesser.swc;
+
+/**
+ * SWC树的只读子节点邻接（CSR）与遍历
+ * <p>
+ * 第 i 个节点的子节点为 {@code child(k)}，k ∈ [childStart(i), childEnd(i))，按文件顺序排列。
+ * 所有遍历都用显式数组栈实现，不递归，百万节点的长链也不会栈溢出；遍历结果缓存为 int 数组，构建后线程安全。
+ * 只有从根节点可达的节点出现在遍历结果中，处于环中的节点会被忽略。
+ */
+public final class SwcTree {
+
+    private final SwcMorphology morphology;
+    private final int[] childOffset;
+    private final int[] children;
+    private final int[] roots;
+
+    private volatile int[] preOrder;
+    private volatile int[] postOrder;
+
+    private SwcTree(SwcMorphology morphology, int[] childOffset, int[] children, int[] roots) {
+        this.morphology = morphology;
+        this.childOffset = childOffset;
+        this.children = children;
+        this.roots = roots;
+    }
+
+    public static SwcTree of(SwcMorphology m) {
+        int n = m.size();
+        int[] offset = new int[n + 1];
+        int rootCount = 0;
+        for (int i = 0; i < n; i++) {
+            int p = m.parent(i);
+            if (p >= 0) {
+                offset[p + 1]++;
+            } else {
+                rootCount++;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            offset[i + 1] += offset[i];
+        }
+        int[] children = new int[offset[n]];
+        int[] fill = new int[n];
+        int[] roots = new int[rootCount];
+        int r = 0;
+        for (int i = 0; i < n; i++) {
+            int p = m.parent(i);
+            if (p >= 0) {
+                children[offset[p] + fill[p]++] = i;
+            } else {
+                roots[r++] = i;
+            }
+        }
+        return new SwcTree(m, offset, children, roots);
+    }
+
+    public SwcMorphology morphology() {
+        return morphology;
+    }
+
+    public int size() {
+        return morphology.size();
+    }
+
+    public int parent(int i) {
+        return morphology.parent(i);
+    }
+
+    public int childCount(int i) {
+        return childOffset[i + 1] - childOffset[i];
+    }
+
+    public int childStart(int i) {
+        return childOffset[i];
+    }
+
+    public int childEnd(int i) {
+        return childOffset[i + 1];
+    }
+
+    public int child(int k) {
+        return children[k];
+    }
+
+    public int rootCount() {
+        return roots.length;
+    }
+
+    public int root(int r) {
+        return roots[r];
+    }
+
+    /**
+     * 分支节点：根、分叉点、末端或胞体节点，分支在这些节点处切分
+     */
+    public boolean isJunction(int i) {
+        return morphology.parent(i) < 0 || childCount(i) != 1 || morphology.isSoma(i);
+    }
+
+    /**
+     * 先序（父节点先于子节点，子节点按文件顺序）
+     */
+    public int[] preOrder() {
+        int[] order = preOrder;
+        if (order == null) {
+            order = traverse(false);
+            preOrder = order;
+        }
+        return order;
+    }
+
+    /**
+     * 后序（子节点先于父节点）
+     */
+    public int[] postOrder() {
+        int[] order = postOrder;
+        if (order == null) {
+            order = traverse(true);
+            postOrder = order;
+        }
+        return order;
+    }
+
+    /**
+     * 先序：栈中逆序压入子节点，使弹出顺序与文件顺序一致。
+     * 后序：子节点顺序压栈得到"父、右子树、左子树"的序列，反转后即为"左子树、右子树、父"
+     */
+    private int[] traverse(boolean post) {
+        int n = size();
+        int[] stack = new int[Math.max(n, 1)];
+        int[] out = new int[n];
+        int count = 0;
+        int top = 0;
+        for (int r = roots.length - 1; r >= 0; r--) {
+            stack[top++] = roots[r];
+        }
+        if (post) {
+            // 根节点同样要逆序，反转后才是文件顺序
+            for (int l = 0, h = top - 1; l < h; l++, h--) {
+                int t = stack[l];
+                stack[l] = stack[h];
+                stack[h] = t;
+            }
+        }
+        while (top > 0) {
+            int u = stack[--top];
+            out[count++] = u;
+            if (post) {
+                for (int k = childOffset[u]; k < childOffset[u + 1]; k++) {
+                    stack[top++] = children[k];
+                }
+            } else {
+                for (int k = childOffset[u + 1] - 1; k >= childOffset[u]; k--) {
+                    stack[top++] = children[k];
+                }
+            }
+        }
+        if (post) {
+            for (int l = 0, h = count - 1; l < h; l++, h--) {
+                int t = out[l];
+                out[l] = out[h];
+                out[h] = t;
+            }
+        }
+        if (count == n) {
+            return out;
+        }
+        int[] reachable = new int[count];
+        System.arraycopy(out, 0, reachable, 0, count);
+        return reachable;
+    }
+
+    /**
+     * 分支切分：从每个分支节点（见 {@link #isJunction}）的每个子节点出发，沿单子节点链走到下一个分支节点。
+     * 分支的第一个节点是出发的分支节点本身，因此每个分支至少两个节点。
+     *
+     * @param includeSomaSegments 是否保留胞体节点之间的段（胞体轮廓）
+     */
+    public Branches branches(boolean includeSomaSegments) {
+        int[] order = preOrder();
+        int[] nodes = new int[order.length * 2 + 1];
+        int[] offsets = new int[order.length + 2];
+        int count = 0;
+        int cursor = 0;
+        for (int u : order) {
+            if (!isJunction(u)) {
+                continue;
+            }
+            boolean somaStart = morphology.isSoma(u);
+            for (int k = childOffset[u]; k < childOffset[u + 1]; k++) {
+                int v = children[k];
+                if (!includeSomaSegments && somaStart && morphology.isSoma(v)) {
+                    continue;
+                }
+                offsets[count++] = cursor;
+                nodes[cursor++] = u;
+                nodes[cursor++] = v;
+                while (!isJunction(v)) {
+                    v = children[childOffset[v]];
+                    nodes[cursor++] = v;
+                }
+            }
+        }
+        offsets[count] = cursor;
+        return new Branches(nodes, offsets, count);
+    }
+
+    /**
+     * 从 node 到根的路径游标，可重复 reset 复用，遍历过程不分配对象。
+     * 步数上限为节点数，遇到环时提前结束
+     */
+    public PathCursor pathToRoot(int node) {
+        return new PathCursor().reset(node);
+    }
+
+    public final class PathCursor {
+        private int next = -1;
+        private int remaining;
+
+        public PathCursor reset(int node) {
+            next = node;
+            remaining = size();
+            return this;
+        }
+
+        public boolean hasNext() {
+            return next >= 0 && remaining > 0;
+        }
+
+        public int next() {
+            int u = next;
+            next = morphology.parent(u);
+            remaining--;
+            return u;
+        }
+    }
+
+    /**
+     * 分支切分结果：第 b 个分支为 node(k)，k ∈ [start(b), end(b))
+     */
+    public static final class Branches {
+        private final int[] nodes;
+        private final int[] offsets;
+        private final int count;
+
+        private Branches(int[] nodes, int[] offsets, int count) {
+            this.nodes = nodes;
+            this.offsets = offsets;
+            this.count = count;
+        }
+
+        public int count() {
+            return count;
+        }
+
+        public int start(int b) {
+            return offsets[b];
+        }
+
+        public int end(int b) {
+            return offsets[b + 1];
+        }
+
+        public int node(int k) {
+            return nodes[k];
+        }
+
+        /**
+         * 所有分支的节点总数（分支起点在多个分支中重复计数）
+         */
+        public int totalNodes() {
+            return offsets[count];
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.morphtesser.swc;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SWC校验与修复报告
+ */
+public class SwcValidationReport {
+
+    int inputNodes;
+    int outputNodes;
+    List<SwcLineError> malformedLines = List.of();
+    int duplicateIds;
+    int missingParents;
+    int cyclesBroken;
+    int roots;
+    int subtreesReattached;
+    double maxReattachDistance;
+    int radiiClamped;
+    int somaNodes;
+    boolean somaInferred;
+    boolean idsCompacted;
+    boolean rejected;
+    String rejectReason;
+    long elapsedMicros;
+
+    public int getInputNodes() {
+        return inputNodes;
+    }
+
+    public int getOutputNodes() {
+        return outputNodes;
+    }
+
+    public List<SwcLineError> getMalformedLines() {
+        return malformedLines;
+    }
+
+    public int getDuplicateIds() {
+        return duplicateIds;
+    }
+
+    public int getMissingParents() {
+        return missingParents;
+    }
+
+    public int getCyclesBroken() {
+        return cyclesBroken;
+    }
+
+    public int getRoots() {
+        return roots;
+    }
+
+    public int getSubtreesReattached() {
+        return subtreesReattached;
+    }
+
+    public double getMaxReattachDistance() {
+        return maxReattachDistance;
+    }
+
+    public int getRadiiClamped() {
+        return radiiClamped;
+    }
+
+    public int getSomaNodes() {
+        return somaNodes;
+    }
+
+    public boolean isSomaInferred() {
+        return somaInferred;
+    }
+
+    public boolean isIdsCompacted() {
+        return idsCompacted;
+    }
+
+    public boolean isRejected() {
+        return rejected;
+    }
+
+    public String getRejectReason() {
+        return rejectReason;
+    }
+
+    /**
+     * 是否对拓扑、半径、类型或ID做过修改（需要写出修复后的文件）
+     */
+    public boolean isRepaired() {
+        return duplicateIds > 0 || cyclesBroken > 0 || subtreesReattached > 0 || radiiClamped > 0
+            || somaInferred || idsCompacted || !malformedLines.isEmpty();
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("valid", !rejected);
+        if (rejected) {
+            map.put("reason", rejectReason);
+        }
+        map.put("repaired", isRepaired());
+        map.put("inputNodes", inputNodes);
+        map.put("outputNodes", outputNodes);
+        List<String> lines = new ArrayList<>(malformedLines.size());
+        for (SwcLineError error : malformedLines) {
+            lines.add(error.toString());
+        }
+        map.put("malformedLines", lines);
+        map.put("duplicateIds", duplicateIds);
+        map.put("missingParents", missingParents);
+        map.put("cyclesBroken", cyclesBroken);
+        map.put("roots", roots);
+        map.put("subtreesReattached", subtreesReattached);
+        map.put("maxReattachDistance", maxReattachDistance);
+        map.put("radiiClamped", radiiClamped);
+        map.put("somaNodes", somaNodes);
+        map.put("somaInferred", somaInferred);
+        map.put("idsCompacted", idsCompacted);
+        map.put("elapsedMicros", elapsedMicros);
+        return map;
+    }
+}
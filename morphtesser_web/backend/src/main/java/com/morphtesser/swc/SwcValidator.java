@@ -0,0 +1,266 @@
+package com.morphtesser.swc;
+
+import java.util.Arrays;
+
+/**
+ * SWC校验与修复，在建模之前执行
+ * <ul>
+ *   <li>重复ID：保留第一次出现的节点（与 {@link SwcReader} 的父节点解析一致），其余丢弃</li>
+ *   <li>环（含自环）：沿父节点链着色遍历，每个环在回到路径上的节点处断开，该节点变为子树根</li>
+ *   <li>多个根与父节点缺失的孤立子树：保留包含胞体的最大连通分量作为主树，其余子树的根挂到主树中最近的节点上</li>
+ *   <li>半径为0、负数或非有限值：替换为最小半径</li>
+ *   <li>没有胞体节点：把主树的根标记为胞体</li>
+ *   <li>ID压缩：重新编号为 1..n；有父节点排在子节点之后时按先序重排</li>
+ * </ul>
+ * 挂接孤立子树时在主树节点上建一次 {@link KdTree}，每个子树根查询一次最近点；其余步骤都是对节点数组的常数次顺序扫描。
+ * 子树过多或节点数超限时直接拒绝，不做修复。
+ */
+public final class SwcValidator {
+
+    private SwcValidator() {
+    }
+
+    /**
+     * @param minRadius 替换无效半径时使用的值
+     * @param maxSubtrees 允许挂接的孤立子树数上限
+     * @param maxNodes 节点数上限
+     */
+    public static Result validate(SwcMorphology m, float minRadius, int maxSubtrees, int maxNodes) {
+        long begin = System.nanoTime();
+        SwcValidationReport report = new SwcValidationReport();
+        int n = m.size();
+        report.inputNodes = n;
+        report.malformedLines = m.getMalformedLines();
+        if (n == 0) {
+            return reject(report, "文件中没有有效的节点行", begin);
+        }
+        if (n > maxNodes) {
+            return reject(report, "节点数 " + n + " 超过上限 " + maxNodes, begin);
+        }
+
+        // 1. 重复ID：读取时父节点已解析到第一次出现的节点，后续同ID节点直接丢弃
+        SwcReader.IdIndex index = SwcReader.IdIndex.build(idsOf(m), n);
+        boolean[] keep = new boolean[n];
+        int[] parent = new int[n];
+        for (int i = 0; i < n; i++) {
+            keep[i] = index.indexOf(m.id(i)) == i;
+            if (!keep[i]) {
+                report.duplicateIds++;
+            }
+            parent[i] = m.parent(i);
+            int parentId = m.parentId(i);
+            if (parentId == m.id(i)) {
+                report.cyclesBroken++;
+            } else if (parent[i] < 0 && parentId >= 0) {
+                report.missingParents++;
+            }
+        }
+
+        // 2. 断环：state 0 未访问，1 在当前路径上，2 已完成
+        byte[] state = new byte[n];
+        int[] path = new int[n];
+        for (int i = 0; i < n; i++) {
+            if (!keep[i] || state[i] != 0) {
+                continue;
+            }
+            int length = 0;
+            int u = i;
+            while (u >= 0 && state[u] == 0) {
+                state[u] = 1;
+                path[length++] = u;
+                u = parent[u];
+            }
+            if (u >= 0 && state[u] == 1) {
+                parent[u] = -1;
+                report.cyclesBroken++;
+            }
+            for (int k = 0; k < length; k++) {
+                state[path[k]] = 2;
+            }
+        }
+
+        // 3. 连通分量：每个节点所属子树的根（路径上的节点一次性赋值，整体线性）
+        int[] rootOf = new int[n];
+        Arrays.fill(rootOf, -1);
+        for (int i = 0; i < n; i++) {
+            if (!keep[i] || rootOf[i] >= 0) {
+                continue;
+            }
+            int length = 0;
+            int u = i;
+            while (parent[u] >= 0 && rootOf[u] < 0) {
+                path[length++] = u;
+                u = parent[u];
+            }
+            int root = rootOf[u] >= 0 ? rootOf[u] : u;
+            rootOf[u] = root;
+            for (int k = 0; k < length; k++) {
+                rootOf[path[k]] = root;
+            }
+        }
+        int[] componentSize = new int[n];
+        boolean[] componentHasSoma = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            if (keep[i]) {
+                componentSize[rootOf[i]]++;
+                componentHasSoma[rootOf[i]] |= m.isSoma(i);
+            }
+        }
+        int primary = -1;
+        int rootCount = 0;
+        for (int i = 0; i < n; i++) {
+            if (!keep[i] || parent[i] >= 0) {
+                continue;
+            }
+            rootCount++;
+            if (primary < 0 || componentHasSoma[i] && !componentHasSoma[primary]
+                || componentHasSoma[i] == componentHasSoma[primary] && componentSize[i] > componentSize[primary]) {
+                primary = i;
+            }
+        }
+        report.roots = rootCount;
+        if (rootCount - 1 > maxSubtrees) {
+            return reject(report, "存在 " + (rootCount - 1) + " 个断开的子树，超过可修复上限 " + maxSubtrees, begin);
+        }
+
+        // 4. 孤立子树挂接到主树中最近的节点：主树节点建一次k-d树，每个子树根查询一次
+        if (rootCount > 1) {
+            int mainSize = componentSize[primary];
+            float[] points = new float[mainSize * 3];
+            int[] order = new int[mainSize];
+            int c = 0;
+            for (int j = 0; j < n; j++) {
+                if (keep[j] && rootOf[j] == primary) {
+                    points[3 * c] = m.x(j);
+                    points[3 * c + 1] = m.y(j);
+                    points[3 * c + 2] = m.z(j);
+                    order[c++] = j;
+                }
+            }
+            KdTree tree = KdTree.build(points, order, mainSize);
+            KdTree.Search search = new KdTree.Search();
+            for (int r = 0; r < n; r++) {
+                if (!keep[r] || parent[r] >= 0 || r == primary) {
+                    continue;
+                }
+                if (!tree.nearest(m.x(r), m.y(r), m.z(r), Float.POSITIVE_INFINITY, search)) {
+                    // 坐标不是有限值
+                    continue;
+                }
+                parent[r] = order[search.index(0)];
+                report.subtreesReattached++;
+                report.maxReattachDistance = Math.max(report.maxReattachDistance, Math.sqrt(search.distance2(0)));
+            }
+        }
+
+        // 5. 按先序压缩编号，同时替换无效半径、统计胞体
+        int kept = n - report.duplicateIds;
+        int[] keptIndex = new int[n];
+        int[] keptNodes = new int[kept];
+        int[] keptParent = new int[kept];
+        int c = 0;
+        for (int i = 0; i < n; i++) {
+            if (keep[i]) {
+                keptIndex[i] = c;
+                keptNodes[c++] = i;
+            }
+        }
+        for (int k = 0; k < kept; k++) {
+            int p = parent[keptNodes[k]];
+            keptParent[k] = p < 0 ? -1 : keptIndex[p];
+        }
+        // 父节点都已排在子节点之前时保持文件顺序，否则按先序重排
+        boolean parentsFirst = true;
+        for (int k = 0; k < kept && parentsFirst; k++) {
+            parentsFirst = keptParent[k] < k;
+        }
+        int[] order;
+        if (parentsFirst) {
+            order = new int[kept];
+            for (int k = 0; k < kept; k++) {
+                order[k] = k;
+            }
+        } else {
+            order = SwcTree.of(new SwcMorphology(kept, new int[kept], new int[kept], new float[kept], new float[kept],
+                new float[kept], new float[kept], keptParent)).preOrder();
+        }
+
+        int[] newIndex = new int[kept];
+        for (int k = 0; k < order.length; k++) {
+            newIndex[order[k]] = k;
+        }
+        int[] ids = new int[kept];
+        int[] types = new int[kept];
+        float[] x = new float[kept];
+        float[] y = new float[kept];
+        float[] z = new float[kept];
+        float[] radius = new float[kept];
+        int[] outParent = new int[kept];
+        boolean renumbered = kept != n;
+        for (int k = 0; k < kept; k++) {
+            int source = keptNodes[order[k]];
+            ids[k] = k + 1;
+            renumbered |= m.id(source) != k + 1;
+            types[k] = m.type(source);
+            x[k] = m.x(source);
+            y[k] = m.y(source);
+            z[k] = m.z(source);
+            float r = m.radius(source);
+            if (!(r > 0) || !Float.isFinite(r)) {
+                r = minRadius;
+                report.radiiClamped++;
+            }
+            radius[k] = r;
+            int p = keptParent[order[k]];
+            outParent[k] = p < 0 ? -1 : newIndex[p];
+            if (types[k] == SwcMorphology.TYPE_SOMA) {
+                report.somaNodes++;
+            }
+        }
+        if (report.somaNodes == 0) {
+            types[0] = SwcMorphology.TYPE_SOMA;
+            report.somaNodes = 1;
+            report.somaInferred = true;
+        }
+        report.idsCompacted = renumbered;
+        report.outputNodes = kept;
+        report.elapsedMicros = (System.nanoTime() - begin) / 1000;
+        return new Result(new SwcMorphology(kept, ids, types, x, y, z, radius, outParent), report);
+    }
+
+    private static int[] idsOf(SwcMorphology m) {
+        int[] ids = new int[m.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = m.id(i);
+        }
+        return ids;
+    }
+
+    private static Result reject(SwcValidationReport report, String reason, long begin) {
+        report.rejected = true;
+        report.rejectReason = reason;
+        report.elapsedMicros = (System.nanoTime() - begin) / 1000;
+        return new Result(null, report);
+    }
+
+    /**
+     * 校验结果：被拒绝时 morphology 为 null
+     */
+    public static final class Result {
+        private final SwcMorphology morphology;
+        private final SwcValidationReport report;
+
+        private Result(SwcMorphology morphology, SwcValidationReport report) {
+            this.morphology = morphology;
+            this.report = report;
+        }
+
+        public SwcMorphology getMorphology() {
+            return morphology;
+        }
+
+        public SwcValidationReport getReport() {
+            return report;
+        }
+    }
+}
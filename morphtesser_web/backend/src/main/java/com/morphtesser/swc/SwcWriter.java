@@ -0,0 +1,53 @@
+package com.morphtesser.swc;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * SWC写出器：每个节点一行 "id type x y z radius parent"
+ */
+public final class SwcWriter {
+
+    private SwcWriter() {
+    }
+
+    public static void write(SwcMorphology m, Path swcPath, String header) throws IOException {
+        try (OutputStream out = Files.newOutputStream(swcPath)) {
+            write(m, out, header);
+        }
+    }
+
+    /**
+     * @param header 写在文件开头的注释（可为null，多行按换行切分，每行加 "# "）
+     */
+    public static void write(SwcMorphology m, OutputStream out, String header) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.US_ASCII), 1 << 16);
+        if (header != null) {
+            for (String line : header.split("\n")) {
+                writer.write("# ");
+                writer.write(line);
+                writer.write('\n');
+            }
+        }
+        StringBuilder sb = new StringBuilder(96);
+        for (int i = 0; i < m.size(); i++) {
+            sb.setLength(0);
+            int p = m.parent(i);
+            sb.append(m.id(i)).append(' ')
+                .append(m.type(i)).append(' ')
+                .append(m.x(i)).append(' ')
+                .append(m.y(i)).append(' ')
+                .append(m.z(i)).append(' ')
+                .append(m.radius(i)).append(' ')
+                .append(p < 0 ? -1 : m.id(p)).append('\n');
+            writer.append(sb);
+        }
+        writer.flush();
+    }
+}
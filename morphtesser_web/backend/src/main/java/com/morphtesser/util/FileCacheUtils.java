@@ -0,0 +1,209 @@
+package com.morphtesser.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * 派生文件缓存（编码结果、LOD、索引表等）的公共操作：原子写入、缓存键与新鲜度判断
+ */
+public final class FileCacheUtils {
+
+    private FileCacheUtils() {
+    }
+
+    /**
+     * 向输出流写入文件内容
+     */
+    @FunctionalInterface
+    public interface ContentWriter {
+        void write(OutputStream out) throws IOException;
+    }
+
+    /**
+     * 先写同目录下的临时文件再原子替换：并发读取方只会看到旧文件或完整的新文件，写入中途失败也不会留下半个文件
+     */
+    public static void writeAtomically(Path target, byte[] data) throws IOException {
+        writeAtomically(target, out -> out.write(data));
+    }
+
+    public static void writeAtomically(Path target, ContentWriter writer) throws IOException {
+        Path parent = target.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = Files.createTempFile(parent, target.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                writer.write(out);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 源文件的缓存键：绝对路径、修改时间、大小与影响输出的参数一起取 SHA-256，源文件被覆盖或参数变化时自动失效
+     */
+    public static String cacheKey(Path source, Object... params) throws IOException {
+        Path absolute = source.toAbsolutePath().normalize();
+        StringBuilder sb = new StringBuilder();
+        sb.append(absolute).append('|').append(Files.getLastModifiedTime(absolute).toMillis())
+            .append('|').append(Files.size(absolute));
+        for (Object param : params) {
+            sb.append('|').append(param);
+        }
+        return sha256(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 内容摘要（SHA-256 前 16 字节的十六进制）
+     */
+    public static String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data), 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 缓存文件存在且不早于源文件
+     */
+    public static boolean isFresh(Path cached, Path source) throws IOException {
+        return Files.exists(cached)
+                && Files.getLastModifiedTime(cached).compareTo(Files.getLastModifiedTime(source)) >= 0;
+    }
+
+    /**
+     * 可作为文件名的缓存键：非 [A-Za-z0-9_.-] 的字符替换为下划线
+     */
+    public static String safeName(String key) {
+        return key.replaceAll("[^A-Za-z0-9_.-]", "_");
+    }
+
+    /**
+     * 删除目录中文件名满足条件的普通文件，返回删除的个数；目录不存在时返回 0
+     */
+    public static int deleteFiles(Path dir, Predicate<String> fileNames) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return 0;
+        }
+        int deleted = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path file : stream) {
+                if (Files.isRegularFile(file) && fileNames.test(file.getFileName().toString()) && Files.deleteIfExists(file)) {
+                    deleted++;
+                }
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * 按内容摘要区分版本的缓存文件 {key}_{摘要}.*：删除目录中同一 key 下摘要不是 current 的文件
+     *
+     * @param key     {@link #safeName} 处理后的缓存键
+     * @param current 当前版本的摘要（{@link #sha256}）
+     */
+    public static int evictVersions(Path dir, String key, String current) throws IOException {
+        String prefix = key + "_";
+        return deleteFiles(dir, name -> name.startsWith(prefix) && !name.startsWith(prefix + current)
+                && name.length() > prefix.length() + 32 && name.charAt(prefix.length() + 32) == '.'
+                && name.substring(prefix.length(), prefix.length() + 32).chars().allMatch(c -> Character.digit(c, 16) >= 0));
+    }
+
+    /**
+     * 命中缓存时更新访问时间，供 {@link #evictLeastRecentlyUsed} 按最近使用时间淘汰；文件已被并发删除时忽略。
+     * 不改修改时间：派生文件本身还可能是下一级缓存的源文件（如 LOD 文件再编码为 SWB），其 {@link #cacheKey} 依赖修改时间
+     */
+    public static void touch(Path cached) {
+        try {
+            Files.getFileAttributeView(cached, BasicFileAttributeView.class).setTimes(null, FileTime.from(Instant.now()), null);
+        } catch (IOException ignored) {
+            // 只影响淘汰顺序
+        }
+    }
+
+    /**
+     * 淘汰目录中（不含子目录）的缓存文件：先删除最近使用时间（访问时间与修改时间中较晚者）早于 maxAge 的文件，
+     * 总大小仍超过 maxBytes 时按最近使用时间从旧到新删除，返回删除的个数；目录不存在时返回 0
+     */
+    public static int evictLeastRecentlyUsed(Path dir, long maxBytes, Duration maxAge) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return 0;
+        }
+        List<Path> files = new ArrayList<>();
+        List<BasicFileAttributes> attributes = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path file : stream) {
+                BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+                if (attrs.isRegularFile()) {
+                    files.add(file);
+                    attributes.add(attrs);
+                }
+            }
+        }
+        Integer[] order = new Integer[files.size()];
+        long total = 0;
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+            total += attributes.get(i).size();
+        }
+        Arrays.sort(order, Comparator.comparing(i -> lastUsed(attributes.get(i))));
+        FileTime cutoff = FileTime.from(Instant.now().minus(maxAge));
+        int deleted = 0;
+        for (int i : order) {
+            BasicFileAttributes attrs = attributes.get(i);
+            if (total <= maxBytes && lastUsed(attrs).compareTo(cutoff) >= 0) {
+                break;
+            }
+            if (Files.deleteIfExists(files.get(i))) {
+                deleted++;
+            }
+            total -= attrs.size();
+        }
+        return deleted;
+    }
+
+    private static FileTime lastUsed(BasicFileAttributes attrs) {
+        FileTime modified = attrs.lastModifiedTime();
+        FileTime accessed = attrs.lastAccessTime();
+        return accessed != null && accessed.compareTo(modified) > 0 ? accessed : modified;
+    }
+
+    /**
+     * 递归删除目录（或单个文件），不存在时忽略
+     */
+    public static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        List<Path> paths;
+        try (Stream<Path> walk = Files.walk(path)) {
+            paths = walk.sorted(Comparator.reverseOrder()).toList();
+        }
+        for (Path p : paths) {
+            Files.deleteIfExists(p);
+        }
+    }
+}
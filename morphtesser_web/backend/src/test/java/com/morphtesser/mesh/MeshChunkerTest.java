@@ -0,0 +1,66 @@
+package com.morphtesser.mesh;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MeshChunkerTest {
+
+    private static final int GRID = 40;
+    private static final int QUANTIZATION_BITS = 12;
+
+    @Test
+    void chunksEncodedWithGlobalBoundsDecodeSharedVerticesIdentically() throws IOException {
+        MeshData original = MeshCodecTest.jitteredGrid(new Random(11), GRID, 0.2f);
+        List<MeshChunker.Chunk> chunks = MeshChunker.split(original, 256, 6);
+        assertTrue(chunks.size() > 1, "网格应被分成多个块");
+
+        float[] bounds = MeshChunker.bounds(original.getPositions());
+        float tolerance = MeshCodecTest.halfStep(original.getPositions(), QUANTIZATION_BITS);
+        Map<Integer, float[]> decodedVertex = new HashMap<>();
+        Map<Integer, Integer> chunkCount = new HashMap<>();
+        List<String> triangles = new ArrayList<>();
+        int triangleCount = 0;
+        for (MeshChunker.Chunk chunk : chunks) {
+            MeshData decoded = MeshCodec.decode(MeshCodec.encode(chunk.getMesh(), QUANTIZATION_BITS, bounds));
+            assertEquals(chunk.getMesh().getTriangleCount(), decoded.getTriangleCount(), chunk.getId());
+            triangleCount += decoded.getTriangleCount();
+
+            float[] positions = decoded.getPositions();
+            int[] toOriginal = new int[decoded.getVertexCount()];
+            for (int v = 0; v < toOriginal.length; v++) {
+                int vertex = MeshCodecTest.gridVertex(positions, v, GRID);
+                toOriginal[v] = vertex;
+                MeshCodecTest.assertPositionEquals(original.getPositions(), vertex, positions, v, tolerance);
+                float[] position = {positions[3 * v], positions[3 * v + 1], positions[3 * v + 2]};
+                float[] previous = decodedVertex.putIfAbsent(vertex, position);
+                if (previous != null) {
+                    // 块间共享的顶点量化到同一格点，解码结果逐位相同，拼接处没有裂缝
+                    assertArrayEquals(previous, position, "vertex " + vertex + " in chunk " + chunk.getId());
+                }
+                chunkCount.merge(vertex, 1, Integer::sum);
+            }
+            triangles.addAll(MeshCodecTest.canonicalTriangles(decoded.getIndices(), toOriginal));
+        }
+
+        assertEquals(original.getTriangleCount(), triangleCount);
+        Collections.sort(triangles);
+        assertEquals(MeshCodecTest.canonicalTriangles(original.getIndices(), null), triangles);
+        assertTrue(chunkCount.values().stream().anyMatch(count -> count > 1), "应有跨块共享的顶点");
+    }
+
+    @Test
+    void emptyMeshHasNoChunks() {
+        assertTrue(MeshChunker.split(new MeshData(new float[0], new int[0]), 256, 6).isEmpty());
+    }
+}
@@ -0,0 +1,199 @@
+package com.morphtesser.mesh;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MeshCodecTest {
+
+    private static final int GRID = 40;
+
+    @Test
+    void roundTripPreservesTrianglesWithinHalfQuantizationStep() throws IOException {
+        MeshData original = jitteredGrid(new Random(42), GRID, 0.2f);
+        MeshData decoded = MeshCodec.decode(MeshCodec.encode(original, MeshCodec.DEFAULT_QUANTIZATION_BITS));
+
+        assertEquals(original.getVertexCount(), decoded.getVertexCount());
+        assertEquals(original.getTriangleCount(), decoded.getTriangleCount());
+        float tolerance = halfStep(original.getPositions(), MeshCodec.DEFAULT_QUANTIZATION_BITS);
+        // 顶点被重新编号：抖动小于半个网格间距，取整后的 (x, y) 即原网格中的顶点编号
+        int[] toOriginal = matchGridVertices(decoded);
+        for (int v = 0; v < decoded.getVertexCount(); v++) {
+            assertPositionEquals(original.getPositions(), toOriginal[v], decoded.getPositions(), v, tolerance);
+        }
+        // 三角形可被重排和旋转，但绕向与三角形集合不变
+        assertEquals(canonicalTriangles(original.getIndices(), null),
+                canonicalTriangles(decoded.getIndices(), toOriginal));
+    }
+
+    @Test
+    void everyQuantizationBitsValueStaysWithinHalfStep() throws IOException {
+        MeshData original = jitteredGrid(new Random(7), 12, 0.2f);
+        for (int bits = 1; bits <= 24; bits++) {
+            byte[] encoded = MeshCodec.encode(original, bits);
+            MeshData decoded = MeshCodec.decode(encoded);
+            assertEquals(bits, encoded[5], "bits " + bits);
+            assertEquals(original.getVertexCount(), decoded.getVertexCount(), "bits " + bits);
+            assertEquals(original.getTriangleCount(), decoded.getTriangleCount(), "bits " + bits);
+            float tolerance = halfStep(original.getPositions(), bits);
+            // 位数过少时不同顶点落到同一格点，无法按位置匹配顶点，改用与位数无关的编号对应关系
+            int[] toOriginal = firstReferenceOrder(original);
+            for (int v = 0; v < decoded.getVertexCount(); v++) {
+                assertPositionEquals(original.getPositions(), toOriginal[v], decoded.getPositions(), v, tolerance);
+            }
+        }
+    }
+
+    @Test
+    void rejectsQuantizationBitsOutOfRange() {
+        MeshData mesh = jitteredGrid(new Random(1), 2, 0f);
+        assertThrows(IllegalArgumentException.class, () -> MeshCodec.encode(mesh, 0));
+        assertThrows(IllegalArgumentException.class, () -> MeshCodec.encode(mesh, 25));
+    }
+
+    @Test
+    void emptyMeshRoundTrips() throws IOException {
+        MeshData decoded = MeshCodec.decode(MeshCodec.encode(new MeshData(new float[0], new int[0])));
+        assertEquals(0, decoded.getVertexCount());
+        assertEquals(0, decoded.getTriangleCount());
+    }
+
+    @Test
+    void unreferencedVerticesAreDropped() throws IOException {
+        float[] positions = {0, 0, 0, 1, 0, 0, 0, 1, 0, 5, 5, 5};
+        MeshData decoded = MeshCodec.decode(MeshCodec.encode(new MeshData(positions, new int[]{0, 1, 2})));
+        assertEquals(3, decoded.getVertexCount());
+        assertEquals(1, decoded.getTriangleCount());
+    }
+
+    @Test
+    void coincidentVerticesDecodeExactly() throws IOException {
+        // 包围盒三个方向的范围均为 0
+        float[] positions = new float[12];
+        for (int i = 0; i < positions.length; i += 3) {
+            positions[i] = 3.5f;
+            positions[i + 1] = -2f;
+            positions[i + 2] = 7.25f;
+        }
+        MeshData decoded = MeshCodec.decode(MeshCodec.encode(new MeshData(positions, new int[]{0, 1, 2, 0, 2, 3})));
+        assertEquals(2, decoded.getTriangleCount());
+        for (int i = 0; i < decoded.getPositions().length; i += 3) {
+            assertEquals(3.5f, decoded.getPositions()[i]);
+            assertEquals(-2f, decoded.getPositions()[i + 1]);
+            assertEquals(7.25f, decoded.getPositions()[i + 2]);
+        }
+    }
+
+    @Test
+    void flatMeshKeepsZeroExtentAxisExact() throws IOException {
+        // z 方向范围为 0：平面网格解码后仍在同一平面内
+        MeshData original = jitteredGrid(new Random(3), 10, 0.2f);
+        float[] flat = original.getPositions().clone();
+        for (int i = 2; i < flat.length; i += 3) {
+            flat[i] = 1.5f;
+        }
+        MeshData decoded = MeshCodec.decode(MeshCodec.encode(new MeshData(flat, original.getIndices()), 12));
+        for (int i = 2; i < decoded.getPositions().length; i += 3) {
+            assertEquals(1.5f, decoded.getPositions()[i]);
+        }
+    }
+
+    @Test
+    void rejectsInvalidData() {
+        assertThrows(IOException.class, () -> MeshCodec.decode(new byte[8]));
+        byte[] encoded = MeshCodec.encode(jitteredGrid(new Random(5), 4, 0.1f));
+        encoded[0] ^= 1;
+        assertThrows(IOException.class, () -> MeshCodec.decode(encoded));
+    }
+
+    /**
+     * n×n 个顶点的起伏网格，顶点 (i, j) 的编号为 i * n + j，x、y 在整数格点上加不超过 jitter 的抖动
+     */
+    static MeshData jitteredGrid(Random random, int n, float jitter) {
+        float[] positions = new float[n * n * 3];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                int base = (i * n + j) * 3;
+                positions[base] = i + (random.nextFloat() * 2 - 1) * jitter;
+                positions[base + 1] = j + (random.nextFloat() * 2 - 1) * jitter;
+                positions[base + 2] = (float) (Math.sin(i * 0.3) * Math.cos(j * 0.2) * 4);
+            }
+        }
+        int[] indices = new int[(n - 1) * (n - 1) * 6];
+        int k = 0;
+        for (int i = 0; i + 1 < n; i++) {
+            for (int j = 0; j + 1 < n; j++) {
+                int a = i * n + j, b = a + 1, c = a + n, d = c + 1;
+                indices[k++] = a;
+                indices[k++] = c;
+                indices[k++] = b;
+                indices[k++] = b;
+                indices[k++] = c;
+                indices[k++] = d;
+            }
+        }
+        return new MeshData(positions, indices);
+    }
+
+    /**
+     * 解码网格中每个顶点对应的 {@link #jitteredGrid} 顶点编号
+     */
+    static int[] matchGridVertices(MeshData decoded) {
+        int n = (int) Math.round(Math.sqrt(decoded.getVertexCount()));
+        int[] toOriginal = new int[decoded.getVertexCount()];
+        float[] positions = decoded.getPositions();
+        for (int v = 0; v < toOriginal.length; v++) {
+            toOriginal[v] = gridVertex(positions, v, n);
+        }
+        return toOriginal;
+    }
+
+    static int gridVertex(float[] positions, int v, int n) {
+        return Math.round(positions[3 * v]) * n + Math.round(positions[3 * v + 1]);
+    }
+
+    static float halfStep(float[] positions, int bits) {
+        float[] box = MeshChunker.bounds(positions);
+        float extent = Math.max(box[3] - box[0], Math.max(box[4] - box[1], box[5] - box[2]));
+        return extent / ((1 << bits) - 1) / 2 + 1e-4f;
+    }
+
+    static void assertPositionEquals(float[] expected, int expectedVertex, float[] actual, int actualVertex,
+                                     float tolerance) {
+        for (int c = 0; c < 3; c++) {
+            assertEquals(expected[3 * expectedVertex + c], actual[3 * actualVertex + c], tolerance,
+                    "vertex " + expectedVertex + " axis " + c);
+        }
+    }
+
+    /**
+     * 三角形旋转到最小顶点编号在前（保持绕向）后排序，remap 非空时先映射顶点编号
+     */
+    static List<String> canonicalTriangles(int[] indices, int[] remap) {
+        List<String> triangles = new ArrayList<>(indices.length / 3);
+        for (int t = 0; t < indices.length; t += 3) {
+            int[] v = new int[3];
+            for (int k = 0; k < 3; k++) {
+                v[k] = remap != null ? remap[indices[t + k]] : indices[t + k];
+            }
+            int first = v[0] <= v[1] && v[0] <= v[2] ? 0 : v[1] <= v[2] ? 1 : 2;
+            triangles.add(v[first] + "," + v[(first + 1) % 3] + "," + v[(first + 2) % 3]);
+        }
+        Collections.sort(triangles);
+        return triangles;
+    }
+
+    /**
+     * 编码器的顶点编号只取决于三角形顺序与连接性，与量化位数无关：用默认位数的解码结果得到对应关系
+     */
+    private static int[] firstReferenceOrder(MeshData original) throws IOException {
+        return matchGridVertices(MeshCodec.decode(MeshCodec.encode(original, MeshCodec.DEFAULT_QUANTIZATION_BITS)));
+    }
+}
@@ -0,0 +1,193 @@
+package com.morphtesser.swc;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SwcCodecTest {
+
+    private static final float COORD_STEP = 0.01f;
+    private static final float RADIUS_STEP = 0.01f;
+
+    @Test
+    void roundTripPreservesStructureAndQuantizedValues() throws IOException {
+        SwcMorphology original = randomTree(new Random(42), 5000);
+        SwcMorphology decoded = SwcCodec.decode(SwcCodec.encode(original, COORD_STEP, RADIUS_STEP));
+
+        // 输入已按先序编号（ID 1..n），编解码后ID、父节点与类型应完全一致
+        assertEquals(original.size(), decoded.size());
+        for (int i = 0; i < original.size(); i++) {
+            assertEquals(original.id(i), decoded.id(i), "id " + i);
+            assertEquals(original.parent(i), decoded.parent(i), "parent " + i);
+            assertEquals(original.type(i), decoded.type(i), "type " + i);
+            assertEquals(original.x(i), decoded.x(i), COORD_STEP / 2 + 1e-4, "x " + i);
+            assertEquals(original.y(i), decoded.y(i), COORD_STEP / 2 + 1e-4, "y " + i);
+            assertEquals(original.z(i), decoded.z(i), COORD_STEP / 2 + 1e-4, "z " + i);
+            assertEquals(original.radius(i), decoded.radius(i), RADIUS_STEP / 2 + 1e-4, "radius " + i);
+        }
+    }
+
+    @Test
+    void roundTripRenumbersUnorderedInputInPreOrder() throws IOException {
+        SwcMorphology tree = randomTree(new Random(7), 500);
+        int n = tree.size();
+        // 打乱存储顺序并使用不连续的ID
+        int[] shuffle = new int[n];
+        for (int i = 0; i < n; i++) {
+            shuffle[i] = n - 1 - i;
+        }
+        int[] position = new int[n];
+        for (int i = 0; i < n; i++) {
+            position[shuffle[i]] = i;
+        }
+        int[] ids = new int[n];
+        int[] types = new int[n];
+        int[] parent = new int[n];
+        float[] x = new float[n], y = new float[n], z = new float[n], radius = new float[n];
+        for (int i = 0; i < n; i++) {
+            int source = shuffle[i];
+            ids[i] = 1000 + 3 * source;
+            types[i] = tree.type(source);
+            parent[i] = tree.parent(source) < 0 ? -1 : position[tree.parent(source)];
+            x[i] = tree.x(source);
+            y[i] = tree.y(source);
+            z[i] = tree.z(source);
+            radius[i] = tree.radius(source);
+        }
+        SwcMorphology shuffled = new SwcMorphology(n, ids, types, x, y, z, radius, parent);
+        SwcMorphology decoded = SwcCodec.decode(SwcCodec.encode(shuffled, COORD_STEP, RADIUS_STEP));
+
+        int[] order = SwcTree.of(shuffled).preOrder();
+        int[] newIndex = new int[n];
+        for (int k = 0; k < n; k++) {
+            newIndex[order[k]] = k;
+        }
+        assertEquals(n, decoded.size());
+        for (int k = 0; k < n; k++) {
+            int node = order[k];
+            assertEquals(k + 1, decoded.id(k));
+            assertEquals(shuffled.parent(node) < 0 ? -1 : newIndex[shuffled.parent(node)], decoded.parent(k));
+            assertEquals(shuffled.type(node), decoded.type(k));
+            assertEquals(shuffled.x(node), decoded.x(k), COORD_STEP / 2 + 1e-4);
+            assertEquals(shuffled.radius(node), decoded.radius(k), RADIUS_STEP / 2 + 1e-4);
+        }
+    }
+
+    @Test
+    void rejectsTypeRunsNotCoveringAllNodes() {
+        // 3 个节点，但唯一的类型游程只覆盖 2 个
+        byte[] data = swb(3, 1, new int[] {zigzag(3), 2}, new int[] {0, 1, 1}, new int[9], new int[3]);
+        SwcFormatException e = assertThrows(SwcFormatException.class, () -> SwcCodec.decode(data));
+        assertTrue(e.getMessage().contains("游程"), e.getMessage());
+    }
+
+    @Test
+    void rejectsTypeRunsExceedingNodeCount() {
+        byte[] data = swb(3, 2, new int[] {zigzag(3), 2, zigzag(2), 2}, new int[] {0, 1, 1}, new int[9], new int[3]);
+        assertThrows(SwcFormatException.class, () -> SwcCodec.decode(data));
+    }
+
+    @Test
+    void rejectsNodeCountLargerThanBlocks() {
+        byte[] data = swb(1 << 28, 1, new int[] {zigzag(3), 1 << 28}, new int[] {0}, new int[3], new int[1]);
+        assertThrows(SwcFormatException.class, () -> SwcCodec.decode(data));
+    }
+
+    @Test
+    void rejectsTruncatedData() {
+        byte[] encoded = SwcCodec.encode(randomTree(new Random(1), 100), COORD_STEP, RADIUS_STEP);
+        assertThrows(IOException.class, () -> SwcCodec.decode(Arrays.copyOf(encoded, encoded.length - 5)));
+    }
+
+    /**
+     * 按先序生成的随机树（ID 1..n，父节点编号小于子节点），含分叉与类型变化
+     */
+    private static SwcMorphology randomTree(Random random, int n) {
+        int[] ids = new int[n];
+        int[] types = new int[n];
+        int[] parent = new int[n];
+        float[] x = new float[n], y = new float[n], z = new float[n], radius = new float[n];
+        int[] path = new int[n];
+        int depth = 0;
+        for (int i = 0; i < n; i++) {
+            ids[i] = i + 1;
+            if (i == 0) {
+                parent[i] = -1;
+                types[i] = SwcMorphology.TYPE_SOMA;
+                radius[i] = 8.5f;
+            } else {
+                // 回退到当前路径上的某个祖先后接出新分支，保持先序
+                if (random.nextInt(20) == 0) {
+                    depth = 1 + random.nextInt(depth);
+                }
+                int p = path[depth - 1];
+                parent[i] = p;
+                types[i] = p == 0 ? 2 + random.nextInt(3) : types[p];
+                x[i] = x[p] + (random.nextFloat() - 0.5f) * 6;
+                y[i] = y[p] + (random.nextFloat() - 0.5f) * 6;
+                z[i] = z[p] + (random.nextFloat() - 0.5f) * 6;
+                radius[i] = Math.max(0.05f, radius[p] * (0.9f + random.nextFloat() * 0.12f) - 0.01f);
+            }
+            path[depth++] = i;
+        }
+        return new SwcMorphology(n, ids, types, x, y, z, radius, parent);
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static byte[] swb(int n, int runs, int[] types, int[] parents, int[] positions, int[] radii) {
+        byte[][] blocks = {deflate(types), deflate(parents), deflate(positions), deflate(radii)};
+        int length = SwcCodec.HEADER_SIZE;
+        for (byte[] block : blocks) {
+            length += 4 + block.length;
+        }
+        ByteBuffer out = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(SwcCodec.MAGIC);
+        out.put((byte) SwcCodec.VERSION);
+        out.put((byte) 0);
+        out.putShort((short) 0);
+        out.putInt(n);
+        out.putInt(runs);
+        out.putFloat(COORD_STEP);
+        out.putFloat(RADIUS_STEP);
+        for (byte[] block : blocks) {
+            out.putInt(block.length);
+            out.put(block);
+        }
+        return out.array();
+    }
+
+    private static byte[] deflate(int[] varints) {
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        for (int value : varints) {
+            while ((value & ~0x7F) != 0) {
+                raw.write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            raw.write(value);
+        }
+        Deflater deflater = new Deflater();
+        deflater.setInput(raw.toByteArray());
+        deflater.finish();
+        byte[] buffer = new byte[1024];
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        while (!deflater.finished()) {
+            out.write(buffer, 0, deflater.deflate(buffer));
+        }
+        deflater.end();
+        return out.toByteArray();
+    }
+}
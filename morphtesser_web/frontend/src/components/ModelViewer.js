@@ -643,10 +643,13 @@ const ModelViewer = React.forwardRef(({ objUrl, dracoUrl, swcUrl, viewMode = "bo
     // 加载OBJ模型
     const loadOBJModel = (url) => {
       const resolvedUrl = resolveApiUrl(url);
-      const loader = new OBJLoader();
+      // format=glb 时服务端已转码为GLB（带平滑法向量），省去浏览器端的OBJ文本解析
+      const isGlb = /\.glb(\?|$)|[?&]format=glb/i.test(url);
+      const loader = isGlb ? new GLTFLoader() : new OBJLoader();
       loader.load(
         resolvedUrl,
-        (object) => {
+        (loaded) => {
+          const object = isGlb ? loaded.scene : loaded;
           // 设置OBJ材质为半透明、颜色随机
           const randomColor = () => {
             // 生成随机颜色
@@ -654,8 +657,8 @@ const ModelViewer = React.forwardRef(({ objUrl, dracoUrl, swcUrl, viewMode = "bo
           };
           object.traverse((child) => {
             if (child instanceof THREE.Mesh) {
-              // 完全忽略OBJ文件中的法向量，强制使用计算的法向量
-              if (child.geometry) {
+              // 完全忽略OBJ文件中的法向量，强制使用计算的法向量（GLB自带焊接后的平滑法向量）
+              if (child.geometry && !isGlb) {
                 // 删除所有现有法向量相关属性
                 if (child.geometry.attributes.normal) {
                   child.geometry.deleteAttribute('normal');
@@ -1,8 +1,10 @@
 import React, { useEffect, useRef } from 'react';
 import * as THREE from 'three';
 import { resolveApiUrl } from '../utils/api';
+import { fetchSwcNodes } from '../utils/swcBinaryDecoder';
 
-const SwcLinePreview = ({ swcUrl, width = '100%', height = 120 }) => {
+// lod：服务端骨架简化的误差容限（微米），缩略预览不需要全部节点
+const SwcLinePreview = ({ swcUrl, width = '100%', height = 120, lod = 1 }) => {
   const containerRef = useRef(null);
 
   useEffect(() => {
@@ -22,24 +24,19 @@ const SwcLinePreview = ({ swcUrl, width = '100%', height = 120 }) => {
     }
     containerRef.current.appendChild(renderer.domElement);
 
-    // 解析SWC并生成线段
-    fetch(resolveApiUrl(swcUrl))
-      .then(res => res.text())
-      .then(text => {
-        const lines = text.split('\n').filter(l => l.trim() && !l.startsWith('#'));
-        const nodes = {};
-        lines.forEach(line => {
-          const [id, type, x, y, z, r, parent] = line.trim().split(/\s+/);
-          nodes[id] = { id, x: +x, y: +y, z: +z, parent };
-        });
+    // 获取SWC（优先SWB二进制格式）并生成线段
+    const url = lod > 0 ? `${swcUrl}${swcUrl.includes('?') ? '&' : '?'}lod=${lod}` : swcUrl;
+    fetchSwcNodes(resolveApiUrl(url))
+      .then(({ count, parents, positions: nodePositions }) => {
         const geometry = new THREE.BufferGeometry();
         const positions = [];
-        lines.forEach(line => {
-          const [id, , x, y, z, , parent] = line.trim().split(/\s+/);
-          if (parent !== '-1' && nodes[parent]) {
-            positions.push(+x, +y, +z, nodes[parent].x, nodes[parent].y, nodes[parent].z);
+        for (let i = 0; i < count; i++) {
+          const p = parents[i];
+          if (p >= 0) {
+            positions.push(nodePositions[i * 3], nodePositions[i * 3 + 1], nodePositions[i * 3 + 2],
+              nodePositions[p * 3], nodePositions[p * 3 + 1], nodePositions[p * 3 + 2]);
           }
-        });
+        }
         geometry.setAttribute('position', new THREE.Float32BufferAttribute(positions, 3));
         const material = new THREE.LineBasicMaterial({ color: 0x3f51b5 });
         const lineseg = new THREE.LineSegments(geometry, material);
@@ -107,7 +104,7 @@ const SwcLinePreview = ({ swcUrl, width = '100%', height = 120 }) => {
         }
       }
     };
-  }, [swcUrl, height]);
+  }, [swcUrl, height, lod]);
 
   return <div ref={containerRef} style={{ width, height }} />;
 };
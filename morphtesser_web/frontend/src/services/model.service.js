@@ -62,6 +62,26 @@ const getDracoFileUrl = (id) => {
   return `${API_URL}/${id}/file/draco?token=${localStorage.getItem('token')}`;
 };
 
+// JVM内置编解码器生成的MTC文件，使用 utils/mtcDecoder.js 解码
+const getMtcFileUrl = (id) => {
+  return `${API_URL}/${id}/file/mtc?token=${localStorage.getItem('token')}`;
+};
+
+// 服务端由OBJ转码的GLB（二进制glTF），顶点/索引缓冲可直接上传GPU
+const getGlbFileUrl = (id) => {
+  return `${API_URL}/${id}/file/obj?format=glb&token=${localStorage.getItem('token')}`;
+};
+
+// 网格八叉树分块清单，配合 utils/meshChunkLoader.js 渐进加载
+const getChunkManifestUrl = (id) => {
+  return `${API_URL}/${id}/chunks?token=${localStorage.getItem('token')}`;
+};
+
+// SWC渐进传输（骨架在前、细节在后），配合 utils/swcStreamReader.js 边下载边绘制
+const getSwcStreamUrl = (id) => {
+  return `${API_URL}/${id}/swc/stream?token=${localStorage.getItem('token')}`;
+};
+
 const downloadModelFile = (id, type) => {
   return axios.get(API_URL + '/' + id + '/download/' + type, {
     headers: {
@@ -117,6 +137,10 @@ const modelService = {
   deleteModel,
   getModelFileUrl,
   getDracoFileUrl,
+  getMtcFileUrl,
+  getGlbFileUrl,
+  getChunkManifestUrl,
+  getSwcStreamUrl,
   downloadModelFile,
   downloadDracoFile,
   createModel,
@@ -0,0 +1,46 @@
+// 八叉树分块网格的渐进加载，清单格式见 docs/MESH_CODEC.md
+// 先加载 coarse 粗略网格，再按与关注点的距离由近到远并发加载各块
+import { loadMtcGeometry } from './mtcDecoder';
+
+// 清单URL（.../chunks?token=...）对应的单块URL（.../chunks/{id}?token=...）
+export const chunkUrl = (manifestUrl, chunkId) => {
+  const [path, query] = manifestUrl.split('?');
+  return `${path}/${encodeURIComponent(chunkId)}${query ? `?${query}` : ''}`;
+};
+
+const boundsCenter = (b) => [(b[0] + b[3]) / 2, (b[1] + b[4]) / 2, (b[2] + b[5]) / 2];
+
+/**
+ * 渐进加载分块网格
+ * @param manifestUrl 清单URL
+ * @param onGeometry  (geometry, entry) => void，coarse 的 entry.id 为 'coarse'
+ * @param options     focus：优先加载的位置（缺省为整体中心）；concurrency：并发请求数；
+ *                    filter：(entry) => boolean，只加载可见的块
+ * @returns 清单
+ */
+export const loadChunkedMesh = async (manifestUrl, onGeometry, { focus, concurrency = 4, filter } = {}) => {
+  const response = await fetch(manifestUrl);
+  if (!response.ok) throw new Error(`分块清单下载失败: ${response.status}`);
+  const manifest = await response.json();
+
+  if (manifest.coarse) {
+    onGeometry(await loadMtcGeometry(chunkUrl(manifestUrl, manifest.coarse.id)), manifest.coarse);
+  }
+
+  const center = focus || (manifest.bounds ? boundsCenter(manifest.bounds) : [0, 0, 0]);
+  const distance = (entry) => {
+    const c = boundsCenter(entry.bounds);
+    return (c[0] - center[0]) ** 2 + (c[1] - center[1]) ** 2 + (c[2] - center[2]) ** 2;
+  };
+  const queue = manifest.chunks.filter(entry => !filter || filter(entry))
+    .sort((a, b) => distance(a) - distance(b));
+
+  const worker = async () => {
+    while (queue.length > 0) {
+      const entry = queue.shift();
+      onGeometry(await loadMtcGeometry(chunkUrl(manifestUrl, entry.id)), entry);
+    }
+  };
+  await Promise.all(Array.from({ length: Math.max(1, concurrency) }, worker));
+  return manifest;
+};
@@ -0,0 +1,149 @@
+// MTC（MorphTesser Compact mesh）解码器，格式说明见 docs/MESH_CODEC.md
+// 依赖浏览器原生 DecompressionStream('deflate')，无需额外 wasm
+import * as THREE from 'three';
+
+const MTC_MAGIC = 0x3143544d; // "MTC1"
+const MTC_VERSION = 1;
+const HEADER_SIZE = 32;
+
+const inflate = async (bytes) => {
+  const stream = new Blob([bytes]).stream().pipeThrough(new DecompressionStream('deflate'));
+  return new Uint8Array(await new Response(stream).arrayBuffer());
+};
+
+// 顺序读取 varint（LEB128）
+const createVarintReader = (bytes) => {
+  let pos = 0;
+  const readUnsigned = () => {
+    let result = 0;
+    let shift = 0;
+    for (;;) {
+      if (pos >= bytes.length) throw new Error('MTC数据块提前结束');
+      const b = bytes[pos++];
+      result |= (b & 0x7f) << shift;
+      if ((b & 0x80) === 0) return result >>> 0;
+      shift += 7;
+    }
+  };
+  const readSigned = () => {
+    const raw = readUnsigned();
+    return (raw >>> 1) ^ -(raw & 1);
+  };
+  return { readUnsigned, readSigned };
+};
+
+const edgeKey = (a, b) => (a < b ? `${a}_${b}` : `${b}_${a}`);
+
+// 位置预测，必须与后端 MeshCodec.predictPositions 完全一致
+const reconstructPositions = (indices, vertexCount, residuals) => {
+  const q = new Int32Array(vertexCount * 3);
+  const edges = new Map();
+  const predicted = [0, 0, 0];
+  let seen = 0;
+  for (let t = 0; t < indices.length; t += 3) {
+    for (let k = 0; k < 3; k++) {
+      const vertex = indices[t + k];
+      if (vertex !== seen) continue;
+      const a = indices[t + ((k + 1) % 3)];
+      const b = indices[t + ((k + 2) % 3)];
+      const opposite = a < vertex && b < vertex ? edges.get(edgeKey(a, b)) : undefined;
+      if (opposite !== undefined) {
+        for (let c = 0; c < 3; c++) predicted[c] = q[a * 3 + c] + q[b * 3 + c] - q[opposite * 3 + c];
+      } else {
+        let known = 0;
+        predicted[0] = predicted[1] = predicted[2] = 0;
+        for (const v of [a, b]) {
+          if (v < vertex) {
+            for (let c = 0; c < 3; c++) predicted[c] += q[v * 3 + c];
+            known++;
+          }
+        }
+        if (known === 2) {
+          // 与 Java 整数除法一致：向零取整
+          for (let c = 0; c < 3; c++) predicted[c] = Math.trunc(predicted[c] / 2);
+        } else if (known === 0 && vertex > 0) {
+          for (let c = 0; c < 3; c++) predicted[c] = q[(vertex - 1) * 3 + c];
+        }
+      }
+      for (let c = 0; c < 3; c++) q[vertex * 3 + c] = predicted[c] + residuals[c * vertexCount + vertex];
+      seen++;
+    }
+    edges.set(edgeKey(indices[t], indices[t + 1]), indices[t + 2]);
+    edges.set(edgeKey(indices[t + 1], indices[t + 2]), indices[t]);
+    edges.set(edgeKey(indices[t + 2], indices[t]), indices[t + 1]);
+  }
+  return q;
+};
+
+/**
+ * 解码MTC数据，返回 { positions: Float32Array, indices: Uint32Array }
+ */
+export const decodeMtc = async (arrayBuffer) => {
+  const view = new DataView(arrayBuffer);
+  if (arrayBuffer.byteLength < HEADER_SIZE || view.getUint32(0, true) !== MTC_MAGIC) {
+    throw new Error('不是有效的MTC文件');
+  }
+  const version = view.getUint8(4);
+  if (version !== MTC_VERSION) throw new Error(`不支持的MTC版本: ${version}`);
+  const bits = view.getUint8(5);
+  const vertexCount = view.getUint32(8, true);
+  const triangleCount = view.getUint32(12, true);
+  const origin = [view.getFloat32(16, true), view.getFloat32(20, true), view.getFloat32(24, true)];
+  const extent = view.getFloat32(28, true);
+  const step = extent / ((1 << bits) - 1);
+
+  let offset = HEADER_SIZE;
+  const blocks = [];
+  for (let i = 0; i < 3; i++) {
+    const length = view.getUint32(offset, true);
+    offset += 4;
+    blocks.push(await inflate(new Uint8Array(arrayBuffer, offset, length)));
+    offset += length;
+  }
+  const [positionBlock, operationBlock, referenceBlock] = blocks;
+
+  const indices = new Uint32Array(triangleCount * 3);
+  const ops = createVarintReader(operationBlock);
+  const refs = createVarintReader(referenceBlock);
+  let nextNew = 0;
+  const readRef = () => {
+    const code = refs.readUnsigned();
+    return code === 0 ? nextNew++ : nextNew - code;
+  };
+  for (let t = 0; t < indices.length; t += 3) {
+    const op = ops.readUnsigned();
+    if (op < 3) {
+      indices[t] = indices[t - 3 + ((op + 1) % 3)];
+      indices[t + 1] = indices[t - 3 + op];
+    } else {
+      indices[t] = readRef();
+      indices[t + 1] = readRef();
+    }
+    indices[t + 2] = readRef();
+  }
+
+  const residuals = new Int32Array(vertexCount * 3);
+  const positionReader = createVarintReader(positionBlock);
+  for (let i = 0; i < residuals.length; i++) residuals[i] = positionReader.readSigned();
+  const q = reconstructPositions(indices, vertexCount, residuals);
+
+  const positions = new Float32Array(vertexCount * 3);
+  for (let i = 0; i < vertexCount; i++) {
+    for (let c = 0; c < 3; c++) positions[i * 3 + c] = origin[c] + q[i * 3 + c] * step;
+  }
+  return { positions, indices };
+};
+
+/**
+ * 解码MTC并构建 THREE.BufferGeometry（法向量在前端重新计算）
+ */
+export const loadMtcGeometry = async (url) => {
+  const response = await fetch(url);
+  if (!response.ok) throw new Error(`MTC下载失败: ${response.status}`);
+  const { positions, indices } = await decodeMtc(await response.arrayBuffer());
+  const geometry = new THREE.BufferGeometry();
+  geometry.setAttribute('position', new THREE.BufferAttribute(positions, 3));
+  geometry.setIndex(new THREE.BufferAttribute(indices, 1));
+  geometry.computeVertexNormals();
+  return geometry;
+};
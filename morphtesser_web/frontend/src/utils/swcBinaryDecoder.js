@@ -0,0 +1,131 @@
+// SWB（SWC Binary）解码器，格式说明见 docs/SWC_CODEC.md
+// 依赖浏览器原生 DecompressionStream('deflate')，无需额外 wasm
+
+export const SWB_MEDIA_TYPE = 'application/x-swc-binary';
+
+const SWB_MAGIC = 0x31425753; // "SWB1"
+const SWB_VERSION = 1;
+const HEADER_SIZE = 24;
+
+const inflate = async (bytes) => {
+  const stream = new Blob([bytes]).stream().pipeThrough(new DecompressionStream('deflate'));
+  return new Uint8Array(await new Response(stream).arrayBuffer());
+};
+
+// 顺序读取 varint（LEB128）
+const createVarintReader = (bytes) => {
+  let pos = 0;
+  const readUnsigned = () => {
+    let result = 0;
+    let shift = 0;
+    for (;;) {
+      if (pos >= bytes.length) throw new Error('SWB数据块提前结束');
+      const b = bytes[pos++];
+      result |= (b & 0x7f) << shift;
+      if ((b & 0x80) === 0) return result >>> 0;
+      shift += 7;
+    }
+  };
+  const readSigned = () => {
+    const raw = readUnsigned();
+    return (raw >>> 1) ^ -(raw & 1);
+  };
+  return { readUnsigned, readSigned };
+};
+
+/**
+ * 解码SWB数据，返回 { count, types: Int32Array, parents: Int32Array, positions: Float32Array, radii: Float32Array }
+ * 节点按先序排列，第 i 个节点的SWC ID为 i + 1，parents[i] 为父节点下标（根节点为 -1）
+ */
+export const decodeSwb = async (arrayBuffer) => {
+  const view = new DataView(arrayBuffer);
+  if (arrayBuffer.byteLength < HEADER_SIZE || view.getUint32(0, true) !== SWB_MAGIC) {
+    throw new Error('不是有效的SWB文件');
+  }
+  const version = view.getUint8(4);
+  if (version !== SWB_VERSION) throw new Error(`不支持的SWB版本: ${version}`);
+  const count = view.getUint32(8, true);
+  const runCount = view.getUint32(12, true);
+  const coordStep = view.getFloat32(16, true);
+  const radiusStep = view.getFloat32(20, true);
+
+  let offset = HEADER_SIZE;
+  const blocks = [];
+  for (let i = 0; i < 4; i++) {
+    const length = view.getUint32(offset, true);
+    offset += 4;
+    blocks.push(createVarintReader(await inflate(new Uint8Array(arrayBuffer, offset, length))));
+    offset += length;
+  }
+  const [typeReader, parentReader, positionReader, radiusReader] = blocks;
+
+  const types = new Int32Array(count);
+  let filled = 0;
+  for (let r = 0; r < runCount; r++) {
+    const type = typeReader.readSigned();
+    const length = typeReader.readUnsigned();
+    if (filled + length > count) throw new Error('SWB类型游程超出节点数');
+    types.fill(type, filled, filled + length);
+    filled += length;
+  }
+
+  const parents = new Int32Array(count);
+  for (let i = 0; i < count; i++) {
+    const delta = parentReader.readUnsigned();
+    if (delta > i) throw new Error(`SWB父节点偏移无效: 节点 ${i}`);
+    parents[i] = delta === 0 ? -1 : i - delta;
+  }
+
+  // 量化值相对父节点做差分：先全部 x，再全部 y，最后全部 z
+  const positions = new Float32Array(count * 3);
+  const q = new Int32Array(count);
+  for (let c = 0; c < 3; c++) {
+    for (let i = 0; i < count; i++) {
+      const delta = positionReader.readSigned();
+      q[i] = parents[i] < 0 ? delta : q[parents[i]] + delta;
+      positions[i * 3 + c] = q[i] * coordStep;
+    }
+  }
+  const radii = new Float32Array(count);
+  for (let i = 0; i < count; i++) {
+    const delta = radiusReader.readSigned();
+    q[i] = parents[i] < 0 ? delta : q[parents[i]] + delta;
+    radii[i] = q[i] * radiusStep;
+  }
+  return { count, types, parents, positions, radii };
+};
+
+/**
+ * 以SWB格式请求SWC；服务端不支持时（返回文本SWC）解析文本，两种情况返回相同结构
+ */
+export const fetchSwcNodes = async (url) => {
+  const response = await fetch(url, { headers: { Accept: `${SWB_MEDIA_TYPE}, text/plain;q=0.5` } });
+  if (!response.ok) throw new Error(`SWC下载失败: ${response.status}`);
+  const contentType = response.headers.get('Content-Type') || '';
+  if (contentType.startsWith(SWB_MEDIA_TYPE)) {
+    return decodeSwb(await response.arrayBuffer());
+  }
+  const lines = (await response.text()).split('\n').filter(l => l.trim() && !l.trim().startsWith('#'));
+  const count = lines.length;
+  const types = new Int32Array(count);
+  const parents = new Int32Array(count);
+  const positions = new Float32Array(count * 3);
+  const radii = new Float32Array(count);
+  const indexById = new Map();
+  const parentIds = new Array(count);
+  lines.forEach((line, i) => {
+    const [id, type, x, y, z, r, parent] = line.trim().split(/\s+/);
+    indexById.set(id, i);
+    types[i] = +type;
+    positions[i * 3] = +x;
+    positions[i * 3 + 1] = +y;
+    positions[i * 3 + 2] = +z;
+    radii[i] = +r;
+    parentIds[i] = parent;
+  });
+  for (let i = 0; i < count; i++) {
+    const p = indexById.get(parentIds[i]);
+    parents[i] = p === undefined ? -1 : p;
+  }
+  return { count, types, parents, positions, radii };
+};
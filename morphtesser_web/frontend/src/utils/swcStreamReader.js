@@ -0,0 +1,109 @@
+// SWC渐进传输读取器，格式说明见 docs/SWC_CODEC.md
+// 先收到分支节点骨架（分支显示为直线段），再按离根由近到远收到细节节点；每收到一批即回调，便于边下载边绘制
+
+export const SWC_STREAM_MEDIA_TYPE = 'application/x-swc-stream';
+
+const STREAM_MAGIC = 0x31535753; // "SWS1"
+const HEADER_SIZE = 36;
+const RECORD_SIZE = 32;
+
+const concat = (a, b) => {
+  if (a.length === 0) return b;
+  const merged = new Uint8Array(a.length + b.length);
+  merged.set(a);
+  merged.set(b, a.length);
+  return merged;
+};
+
+/**
+ * 流式读取SWC
+ * @param url     .../stream 接口URL
+ * @param onNodes (nodes, state) => void；nodes 为本批节点 { id, type, x, y, z, radius, parent, split }，
+ *                parent 为显示父节点ID（-1 为根），split 不为 -1 时需把节点 split 的显示父节点改为 id。
+ *                state.parents 为 Map(id -> 当前显示父节点ID)，已处理完 split
+ * @param options binary：请求二进制帧（默认 true）；onHeader：(header) => void，header 为 { nodes, skeleton, bounds }
+ * @returns state
+ */
+export const streamSwc = async (url, onNodes, { binary = true, onHeader } = {}) => {
+  const response = await fetch(url, {
+    headers: { Accept: binary ? `${SWC_STREAM_MEDIA_TYPE}, application/x-ndjson;q=0.5` : 'application/x-ndjson' },
+  });
+  if (!response.ok) throw new Error(`SWC下载失败: ${response.status}`);
+  const isBinary = (response.headers.get('Content-Type') || '').startsWith(SWC_STREAM_MEDIA_TYPE);
+  const state = { header: null, parents: new Map(), received: 0 };
+
+  const emit = (nodes) => {
+    for (const node of nodes) {
+      state.parents.set(node.id, node.parent);
+      if (node.split !== -1) state.parents.set(node.split, node.id);
+    }
+    state.received += nodes.length;
+    onNodes(nodes, state);
+  };
+  const setHeader = (header) => {
+    state.header = header;
+    if (onHeader) onHeader(header);
+  };
+
+  const reader = response.body.getReader();
+  let pending = new Uint8Array(0);
+  let text = '';
+  const decoder = new TextDecoder();
+  for (;;) {
+    const { done, value } = await reader.read();
+    if (done) break;
+    if (!isBinary) {
+      text += decoder.decode(value, { stream: true });
+      const lines = text.split('\n');
+      text = lines.pop();
+      const nodes = [];
+      for (const line of lines) {
+        if (!line) continue;
+        const parsed = JSON.parse(line);
+        if (!Array.isArray(parsed)) {
+          setHeader(parsed);
+          continue;
+        }
+        const [id, type, x, y, z, radius, parent, split] = parsed;
+        nodes.push({ id, type, x, y, z, radius, parent, split });
+      }
+      if (nodes.length > 0) emit(nodes);
+      continue;
+    }
+
+    pending = concat(pending, value);
+    let offset = 0;
+    const view = new DataView(pending.buffer, pending.byteOffset, pending.byteLength);
+    if (!state.header) {
+      if (pending.length < HEADER_SIZE) continue;
+      if (view.getUint32(0, true) !== STREAM_MAGIC) throw new Error('不是有效的SWC渐进传输数据');
+      const bounds = [];
+      for (let c = 0; c < 6; c++) bounds.push(view.getFloat32(12 + c * 4, true));
+      setHeader({ nodes: view.getUint32(4, true), skeleton: view.getUint32(8, true), bounds });
+      offset = HEADER_SIZE;
+    }
+    // 只处理完整到达的帧，剩余字节留到下次
+    while (offset + 4 <= pending.length) {
+      const count = view.getUint32(offset, true);
+      if (offset + 4 + count * RECORD_SIZE > pending.length) break;
+      const nodes = new Array(count);
+      let p = offset + 4;
+      for (let i = 0; i < count; i++, p += RECORD_SIZE) {
+        nodes[i] = {
+          id: view.getInt32(p, true),
+          parent: view.getInt32(p + 4, true),
+          split: view.getInt32(p + 8, true),
+          type: view.getInt16(p + 12, true),
+          x: view.getFloat32(p + 16, true),
+          y: view.getFloat32(p + 20, true),
+          z: view.getFloat32(p + 24, true),
+          radius: view.getFloat32(p + 28, true),
+        };
+      }
+      offset = p;
+      emit(nodes);
+    }
+    pending = pending.slice(offset);
+  }
+  return state;
+};